@@ -0,0 +1,99 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.data.Amenity;
+import net.osmand.util.Algorithms;
+
+/**
+ * Full scan of map objects and POI of search test files (src/test/resources/search/*.obf.gz).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BinaryMapIndexReaderBenchmark {
+
+	private static final String SEARCH_RESOURCES_PATH = "src/test/resources/search/";
+
+	@Param({ "15" })
+	public int zoom;
+
+	private final List<BinaryMapIndexReader> readers = new ArrayList<>();
+	private final List<File> files = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		File[] gzFiles = new File(SEARCH_RESOURCES_PATH).listFiles();
+		if (gzFiles == null) {
+			throw new IllegalStateException("Test resources are not found in " + SEARCH_RESOURCES_PATH);
+		}
+		for (File gz : gzFiles) {
+			if (!gz.getName().endsWith(".obf.gz")) {
+				continue;
+			}
+			File obf = File.createTempFile(gz.getName().replace(".obf.gz", ""), ".obf");
+			obf.deleteOnExit();
+			GZIPInputStream in = new GZIPInputStream(new FileInputStream(gz));
+			FileOutputStream out = new FileOutputStream(obf);
+			Algorithms.streamCopy(in, out);
+			out.close();
+			in.close();
+			files.add(obf);
+			readers.add(new BinaryMapIndexReader(new RandomAccessFile(obf, "r"), obf));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		for (BinaryMapIndexReader r : readers) {
+			r.close();
+		}
+		for (File f : files) {
+			f.delete();
+		}
+	}
+
+	@Benchmark
+	public void searchMapIndex(Blackhole bh) throws Exception {
+		for (BinaryMapIndexReader r : readers) {
+			SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(0, Integer.MAX_VALUE, 0,
+					Integer.MAX_VALUE, zoom, null);
+			bh.consume(r.searchMapIndex(req));
+		}
+	}
+
+	@Benchmark
+	public void searchPoi(Blackhole bh) throws Exception {
+		for (BinaryMapIndexReader r : readers) {
+			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(0, Integer.MAX_VALUE, 0,
+					Integer.MAX_VALUE, -1, BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null);
+			bh.consume(r.searchPoi(req));
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package net.osmand.gpx;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of approximation test tracks (src/test/resources/approximation/*.gpx).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GPXUtilitiesBenchmark {
+
+	private static final String GPX_RESOURCES_PATH = "src/test/resources/approximation/";
+
+	private final List<File> files = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		File[] list = new File(GPX_RESOURCES_PATH).listFiles();
+		if (list != null) {
+			for (File f : list) {
+				if (f.getName().endsWith(".gpx")) {
+					files.add(f);
+				}
+			}
+		}
+		if (files.isEmpty()) {
+			throw new IllegalStateException("Test tracks are not found in " + GPX_RESOURCES_PATH);
+		}
+	}
+
+	@Benchmark
+	public void loadGPXFile(Blackhole bh) {
+		for (File f : files) {
+			bh.consume(GPXUtilities.loadGPXFile(f));
+		}
+	}
+}
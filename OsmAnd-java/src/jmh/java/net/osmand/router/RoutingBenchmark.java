@@ -0,0 +1,154 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.Gson;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * Routing of test_routing.json cases (BinaryRoutePlanner and HHRoutePlanner) and result preparation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RoutingBenchmark {
+
+	private static final String ROUTING_RESOURCES = "src/test/resources/routing/";
+
+	private final List<TestEntry> entries = new ArrayList<>();
+	private final List<TestEntry> hhEntries = new ArrayList<>();
+	private final Map<String, BinaryMapIndexReader> readers = new HashMap<>();
+	private final List<RoutingContext> prepareContexts = new ArrayList<>();
+	private final List<List<RouteSegmentResult>> prepareRoutes = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = false;
+		Reader reader = new InputStreamReader(Objects.requireNonNull(
+				RoutingBenchmark.class.getResourceAsStream("/test_routing.json")));
+		TestEntry[] testEntries = new Gson().fromJson(reader, TestEntry[].class);
+		reader.close();
+		for (TestEntry te : testEntries) {
+			if (te.isIgnore() || te.getExpectedResults() == null) {
+				continue;
+			}
+			if ("true".equals(te.getParams().get("hh"))) {
+				hhEntries.add(te);
+			} else {
+				entries.add(te);
+			}
+		}
+		for (TestEntry te : entries) {
+			RoutingContext ctx = buildContext(new RoutePlannerFrontEnd(), te);
+			RouteCalcResult res = new RoutePlannerFrontEnd().searchRoute(ctx, te.getStartPoint(), te.getEndPoint(),
+					te.getTransitPoint());
+			if (res.detailed != null && !res.detailed.isEmpty()) {
+				prepareContexts.add(ctx);
+				prepareRoutes.add(res.detailed);
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		for (BinaryMapIndexReader r : readers.values()) {
+			r.close();
+		}
+	}
+
+	private RoutingContext buildContext(RoutePlannerFrontEnd fe, TestEntry te) throws Exception {
+		Map<String, String> params = te.getParams();
+		List<BinaryMapIndexReader> files = new ArrayList<>();
+		if (params.containsKey("map")) {
+			files.add(open(ROUTING_RESOURCES + params.get("map")));
+		}
+		files.add(open(ROUTING_RESOURCES + "Routing_test_archive.obf"));
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(
+				params.containsKey("vehicle") ? params.get("vehicle") : "car", memoryLimits, params);
+		if (params.containsKey("routeCalculationTime")) {
+			config.routeCalculationTime = Long.parseLong(params.get("routeCalculationTime"));
+		}
+		if (params.containsKey("heuristicCoefficient")) {
+			config.heuristicCoefficient = Float.parseFloat(params.get("heuristicCoefficient"));
+		}
+		RoutingContext ctx = fe.buildRoutingContext(config, null, files.toArray(new BinaryMapIndexReader[0]),
+				RouteCalculationMode.NORMAL);
+		ctx.leftSideNavigation = false;
+		return ctx;
+	}
+
+	private BinaryMapIndexReader open(String path) throws Exception {
+		BinaryMapIndexReader r = readers.get(path);
+		if (r == null) {
+			File f = new File(path);
+			r = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+			readers.put(path, r);
+		}
+		return r;
+	}
+
+	@Benchmark
+	public void binaryRoutePlanner(Blackhole bh) throws Exception {
+		for (TestEntry te : entries) {
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+			RoutingContext ctx = buildContext(fe, te);
+			bh.consume(fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint()));
+		}
+	}
+
+	@Benchmark
+	public void hhRoutePlanner(Blackhole bh) throws Exception {
+		for (TestEntry te : hhEntries) {
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+			fe.setDefaultHHRoutingConfig();
+			fe.setUseOnlyHHRouting(true);
+			RoutingContext ctx = buildContext(fe, te);
+			bh.consume(fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint()));
+		}
+	}
+
+	@Benchmark
+	public void prepareResult(Blackhole bh) throws Exception {
+		RouteResultPreparation preparation = new RouteResultPreparation();
+		for (int i = 0; i < prepareRoutes.size(); i++) {
+			// result preparation modifies segments, so it always starts from raw copies
+			List<RouteSegmentResult> raw = new ArrayList<>();
+			for (RouteSegmentResult r : prepareRoutes.get(i)) {
+				raw.add(new RouteSegmentResult(r.getObject(), r.getStartPointIndex(), r.getEndPointIndex()));
+			}
+			bh.consume(preparation.prepareResult(prepareContexts.get(i), raw));
+		}
+	}
+}
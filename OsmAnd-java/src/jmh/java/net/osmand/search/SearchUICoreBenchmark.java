@@ -0,0 +1,145 @@
+package net.osmand.search;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.Algorithms;
+
+/**
+ * Phrases of SearchUICoreTest cases (src/test/resources/search/*.json) searched over their obf files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchUICoreBenchmark {
+
+	private static final String SEARCH_RESOURCES_PATH = "src/test/resources/search/";
+
+	private static class SearchCase {
+		SearchSettings settings;
+		List<String> phrases = new ArrayList<>();
+	}
+
+	private final List<SearchCase> cases = new ArrayList<>();
+	private final List<BinaryMapIndexReader> readers = new ArrayList<>();
+	private final List<File> files = new ArrayList<>();
+	private SearchUICore core;
+
+	private final ResultMatcher<SearchResult> acceptAll = new ResultMatcher<SearchResult>() {
+		@Override
+		public boolean publish(SearchResult object) {
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SearchUICoreTest.defaultSetup();
+		File[] list = new File(SEARCH_RESOURCES_PATH).listFiles();
+		if (list == null) {
+			throw new IllegalStateException("Test resources are not found in " + SEARCH_RESOURCES_PATH);
+		}
+		for (File testFile : list) {
+			if (!testFile.getName().endsWith(".json")) {
+				continue;
+			}
+			JSONObject json = new JSONObject(Algorithms.getFileAsString(testFile));
+			JSONObject settingsJson = json.getJSONObject("settings");
+			File obfZipFile = new File(testFile.getParentFile(), testFile.getName().replace(".json", ".obf.gz"));
+			if (settingsJson.optBoolean("disabled", false) || !obfZipFile.exists()) {
+				continue;
+			}
+			SearchCase c = new SearchCase();
+			c.settings = SearchSettings.parseJSON(settingsJson);
+			if (settingsJson.optBoolean("useData", true)) {
+				File obf = File.createTempFile(testFile.getName().replace(".json", ""), ".obf");
+				obf.deleteOnExit();
+				GZIPInputStream in = new GZIPInputStream(new FileInputStream(obfZipFile));
+				FileOutputStream out = new FileOutputStream(obf);
+				Algorithms.streamCopy(in, out);
+				out.close();
+				in.close();
+				BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(obf, "r"), obf);
+				files.add(obf);
+				readers.add(reader);
+				c.settings.setOfflineIndexes(Collections.singletonList(reader));
+			}
+			String phrase = json.optString("phrase", null);
+			if (phrase != null) {
+				c.phrases.add(phrase);
+			}
+			JSONArray phrases = json.optJSONArray("phrases");
+			for (int i = 0; phrases != null && i < phrases.length(); i++) {
+				c.phrases.add(phrases.getString(i));
+			}
+			cases.add(c);
+		}
+		core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		core.init();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		for (BinaryMapIndexReader r : readers) {
+			r.close();
+		}
+		for (File f : files) {
+			f.delete();
+		}
+	}
+
+	@Benchmark
+	public void search(Blackhole bh) {
+		for (SearchCase c : cases) {
+			SearchPhrase emptyPhrase = SearchPhrase.emptyPhrase(c.settings);
+			for (String text : c.phrases) {
+				SearchPhrase phrase = emptyPhrase.generateNewPhrase(text, c.settings);
+				SearchResultMatcher matcher = new SearchResultMatcher(acceptAll, phrase, 1, new AtomicInteger(1), -1);
+				core.searchInternal(phrase, matcher);
+				SearchResultCollection collection = new SearchResultCollection(phrase);
+				collection.addSearchResults(matcher.getRequestResults(), true, true);
+				bh.consume(collection.getCurrentSearchResults());
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package net.osmand.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.util.OpeningHoursParser.OpeningHours;
+
+/**
+ * Parsing and evaluation of opening hours used by OpeningHoursParserTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class OpeningHoursParserBenchmark {
+
+	private static final String TEST_SOURCE = "src/test/java/net/osmand/util/OpeningHoursParserTest.java";
+	private static final Pattern PARSE_CALL = Pattern.compile("parseOpenedHours\\(\"((?:[^\"\\\\]|\\\\.)*)\"\\)");
+
+	private final List<String> formats = new ArrayList<>();
+	private final List<OpeningHours> parsed = new ArrayList<>();
+	private Calendar calendar;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		OpeningHoursParser.initLocalStrings(Locale.UK);
+		String source = Algorithms.getFileAsString(new File(TEST_SOURCE));
+		if (source == null) {
+			throw new IllegalStateException("Test source is not found " + TEST_SOURCE);
+		}
+		Matcher m = PARSE_CALL.matcher(source);
+		while (m.find()) {
+			formats.add(m.group(1).replace("\\\"", "\""));
+		}
+		for (String f : formats) {
+			OpeningHours h = OpeningHoursParser.parseOpenedHours(f);
+			if (h != null) {
+				parsed.add(h);
+			}
+		}
+		calendar = Calendar.getInstance();
+		calendar.set(2022, Calendar.AUGUST, 25, 11, 30);
+	}
+
+	@Benchmark
+	public void parseOpenedHours(Blackhole bh) {
+		for (String f : formats) {
+			bh.consume(OpeningHoursParser.parseOpenedHours(f));
+		}
+	}
+
+	@Benchmark
+	public void isOpenedForTime(Blackhole bh) {
+		for (OpeningHours h : parsed) {
+			bh.consume(h.isOpenedForTime(calendar));
+		}
+	}
+}
@@ -30,9 +30,11 @@
 
 package com.google.protobuf;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,6 +70,16 @@ public final class CodedInputStream {
     return new CodedInputStream(raf);
   }
 
+  /**
+   * Create a new CodedInputStream reading a file mapped into memory as
+   * consecutive segments of {@code 1 << segmentShift} bytes (last may be shorter).
+   * Segments are duplicated, so every stream keeps its own position and many
+   * streams can read the same mapping concurrently.
+   */
+  public static CodedInputStream newInstance(ByteBuffer[] segments, int segmentShift, long length) {
+    return new CodedInputStream(segments, segmentShift, length);
+  }
+
   /**
    * Create a new CodedInputStream wrapping the given byte array slice.
    */
@@ -539,6 +551,11 @@ public final class CodedInputStream {
 
   private final byte[] buffer;
   private RandomAccessFile raf;
+  // osmand change: memory mapped file (random access without syscalls)
+  private ByteBuffer[] mapped;
+  private int mappedShift;
+  private long mappedLength;
+  private long mappedPointer;
   private int bufferSize;
   private int bufferSizeAfterLimit;
   private int bufferPos;
@@ -589,6 +606,21 @@ public final class CodedInputStream {
 		input = null;
 	}
 
+  // osmand change
+  private CodedInputStream(final ByteBuffer[] segments, final int segmentShift, final long length) {
+    buffer = new byte[BUFFER_SIZE];
+    bufferSize = 0;
+    bufferPos = 0;
+    totalBytesRetired = 0;
+    mapped = new ByteBuffer[segments.length];
+    for (int i = 0; i < segments.length; i++) {
+      mapped[i] = segments[i].duplicate();
+    }
+    mappedShift = segmentShift;
+    mappedLength = length;
+    input = null;
+  }
+
   private CodedInputStream(final InputStream input) {
     buffer = new byte[BUFFER_SIZE];
     bufferSize = 0;
@@ -767,13 +799,13 @@ public final class CodedInputStream {
     totalBytesRetired += bufferSize;
 
     bufferPos = 0;
-    if (raf != null) {
+    if (isRandomAccess()) {
     	// osmand change
-    	totalBytesRetired = raf.getFilePointer();
-    	long remain = raf.length() - raf.getFilePointer();
+    	totalBytesRetired = getFilePointer();
+    	long remain = getFileLength() - getFilePointer();
     	bufferSize = (int) Math.min(remain, buffer.length);
     	if(bufferSize > 0) {
-    		raf.readFully(buffer, 0, bufferSize);
+    		readFileFully(buffer, 0, bufferSize);
     	} else {
     		bufferSize = -1;
     	}
@@ -895,8 +927,8 @@ public final class CodedInputStream {
         while (pos < chunk.length) {
         	final int n;
         	// osmand change
-        	if(raf != null) {
-        		raf.readFully(chunk, pos, chunk.length - pos);
+        	if(isRandomAccess()) {
+        		readFileFully(chunk, pos, chunk.length - pos);
         		n = chunk.length - pos;
         	} else {
         		n = (input == null) ? -1 :
@@ -957,11 +989,11 @@ public final class CodedInputStream {
       long pos = bufferSize - bufferPos;
       bufferPos = bufferSize;
 
-      if(raf != null) {
+      if(isRandomAccess()) {
          bufferPos = 0;
          bufferSize = 0;
-         raf.seek(raf.getFilePointer() + (size - pos));
-         totalBytesRetired = raf.getFilePointer();
+         seekFile(getFilePointer() + (size - pos));
+         totalBytesRetired = getFilePointer();
       } else {
         // Keep refilling the buffer until we get to the point we wanted to skip
         // to.  This has the side effect of ensuring the limits are updated
@@ -987,9 +1019,51 @@ public final class CodedInputStream {
 	  } else {
 		  totalBytesRetired = pointer;
 		  bufferSizeAfterLimit = 0;
-		  raf.seek(pointer);
+		  seekFile(pointer);
 		  bufferPos = 0;
 		  bufferSize = 0;
 	  }
   }
+
+  // osmand change: random access either through RandomAccessFile or memory mapped segments
+  private boolean isRandomAccess() {
+	  return raf != null || mapped != null;
+  }
+
+  private long getFilePointer() throws IOException {
+	  return mapped != null ? mappedPointer : raf.getFilePointer();
+  }
+
+  private long getFileLength() throws IOException {
+	  return mapped != null ? mappedLength : raf.length();
+  }
+
+  private void seekFile(long pointer) throws IOException {
+	  if (mapped != null) {
+		  mappedPointer = pointer;
+	  } else {
+		  raf.seek(pointer);
+	  }
+  }
+
+  private void readFileFully(byte[] b, int off, int len) throws IOException {
+	  if (mapped == null) {
+		  raf.readFully(b, off, len);
+		  return;
+	  }
+	  if (mappedPointer < 0 || mappedPointer + len > mappedLength) {
+		  throw new EOFException();
+	  }
+	  final long segmentMask = (1L << mappedShift) - 1;
+	  while (len > 0) {
+		  ByteBuffer segment = mapped[(int) (mappedPointer >>> mappedShift)];
+		  int segmentPos = (int) (mappedPointer & segmentMask);
+		  int cnt = Math.min(len, segment.limit() - segmentPos);
+		  segment.position(segmentPos);
+		  segment.get(b, off, cnt);
+		  mappedPointer += cnt;
+		  off += cnt;
+		  len -= cnt;
+	  }
+  }
 }
@@ -2,6 +2,7 @@ package net.osmand;
 
 import net.osmand.util.ArabicNormalizer;
 
+import java.text.Normalizer;
 import java.util.Locale;
 
 
@@ -193,6 +194,86 @@ public class CollatorStringMatcher implements StringMatcher {
 		return false;
 	}
 	
+	// latin letters with chars they are equal to by primary collator (i.e. æ - ae, ø - o), built once
+	private static final int INDEX_CHARS_END = 0x250;
+	private static volatile String[] indexChars;
+
+	/**
+	 * Normalized string for sorted name indexes (lower case, aligned chars and letters without diacritics).
+	 * Letters which are equal to other letters by collator are replaced as well, so names matched by collator
+	 * {@link #cstartsWith} have the same normalized prefix (index could find more names than collator).
+	 */
+	public static String normalizeForIndex(String fullText) {
+		if (ArabicNormalizer.isSpecialArabic(fullText)) {
+			String normalized = ArabicNormalizer.normalize(fullText);
+			fullText = normalized == null ? fullText : normalized;
+		}
+		String s = simplifyStringAndAlignChars(fullText);
+		StringBuilder res = null;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= 0x80 && Character.isLetter(c)) {
+				String base = c < INDEX_CHARS_END ? getIndexChars()[c] : baseLetter(c);
+				if (base != null && (base.length() != 1 || base.charAt(0) != c)) {
+					if (res == null) {
+						res = new StringBuilder(s.length() + 4).append(s, 0, i);
+					}
+					res.append(base);
+					continue;
+				}
+			}
+			if (res != null) {
+				res.append(c);
+			}
+		}
+		return res == null ? s : res.toString();
+	}
+
+	private static String[] getIndexChars() {
+		String[] chars = indexChars;
+		if (chars == null) {
+			chars = new String[INDEX_CHARS_END];
+			Collator collator = OsmAndCollator.primaryCollator();
+			for (char c = 0x80; c < INDEX_CHARS_END; c++) {
+				if (Character.isLetter(c)) {
+					chars[c] = collatorBaseLetters(collator, c);
+				}
+			}
+			indexChars = chars;
+		}
+		return chars;
+	}
+
+	private static String collatorBaseLetters(Collator collator, char c) {
+		String base = baseLetter(c);
+		if (base.charAt(0) < 0x80) {
+			return base;
+		}
+		String s = String.valueOf(c);
+		for (char a = 'a'; a <= 'z'; a++) {
+			if (collator.equals(s, String.valueOf(a))) {
+				return String.valueOf(a);
+			}
+		}
+		for (char a = 'a'; a <= 'z'; a++) {
+			for (char b = 'a'; b <= 'z'; b++) {
+				String pair = new String(new char[] { a, b });
+				if (collator.equals(s, pair)) {
+					return pair;
+				}
+			}
+		}
+		return base;
+	}
+
+	private static String baseLetter(char c) {
+		return String.valueOf(Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0));
+	}
+
+	public static boolean isWordStart(String s, int i) {
+		return !isSpace(s.charAt(i)) && (i == 0 || isSpace(s.charAt(i - 1)));
+	}
+
 	private static String simplifyStringAndAlignChars(String fullText) {
 		fullText = fullText.toLowerCase(Locale.getDefault());
 		fullText = alignChars(fullText);
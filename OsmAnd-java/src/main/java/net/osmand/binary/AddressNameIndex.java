@@ -0,0 +1,270 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+
+/**
+ * In memory index of address names of many files (built once, i.e. on server start).
+ * Names are normalized by {@link CollatorStringMatcher#normalizeForIndex(String)} and sorted from each word start,
+ * so prefix search over all files is a binary search which returns offsets of objects instead of reading
+ * name tables of each file. Objects are still read from files and checked by collator matcher.
+ */
+public class AddressNameIndex {
+
+	private static final Log LOG = PlatformUtil.getLog(AddressNameIndex.class);
+	private static final int WORD_START_BITS = 16;
+	private static final int MAX_WORD_START = (1 << WORD_START_BITS) - 1;
+	static final long NO_XY_16 = -1;
+
+	private final List<AddressRegion> regions = new ArrayList<>();
+	private final Set<BinaryMapIndexReader> indexedFiles = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	// atom: object with one of its names
+	private final TIntArrayList atomRegion = new TIntArrayList();
+	private final TIntArrayList atomType = new TIntArrayList();
+	private final TIntArrayList atomOffset = new TIntArrayList();
+	private final TIntArrayList atomCityOffset = new TIntArrayList();
+	private final TLongArrayList atomXY = new TLongArrayList();
+	private final List<String> names = new ArrayList<>();
+	private final TIntArrayList nameAtom = new TIntArrayList();
+	// name index << WORD_START_BITS | word start, sorted by name suffix
+	private long[] keys = new long[0];
+
+	AddressNameIndex() {
+	}
+
+	public static AddressNameIndex build(Collection<BinaryMapIndexReader> readers) throws IOException {
+		long time = System.currentTimeMillis();
+		AddressNameIndex index = new AddressNameIndex();
+		for (BinaryMapIndexReader r : readers) {
+			int regions = index.regions.size(), atoms = index.atomRegion.size(), names = index.names.size();
+			if (r.readAddressNameIndex(index)) {
+				index.indexedFiles.add(r);
+			} else {
+				// file will be searched without index
+				index.truncate(regions, atoms, names);
+			}
+		}
+		index.sortKeys();
+		LOG.info(String.format("Address name index: %d files, %d names, %d keys, %d ms", index.indexedFiles.size(),
+				index.names.size(), index.keys.length, System.currentTimeMillis() - time));
+		return index;
+	}
+
+	int addRegion(AddressRegion reg) {
+		regions.add(reg);
+		return regions.size() - 1;
+	}
+
+	private void truncate(int regionsSize, int atomsSize, int namesSize) {
+		regions.subList(regionsSize, regions.size()).clear();
+		for (TIntArrayList l : new TIntArrayList[] { atomRegion, atomType, atomOffset, atomCityOffset }) {
+			l.remove(atomsSize, l.size() - atomsSize);
+		}
+		atomXY.remove(atomsSize, atomXY.size() - atomsSize);
+		names.subList(namesSize, names.size()).clear();
+		nameAtom.remove(namesSize, nameAtom.size() - namesSize);
+	}
+
+	void addAtom(int region, int type, int offset, int cityOffset, long xy16, String... atomNames) {
+		int atom = atomRegion.size();
+		atomRegion.add(region);
+		atomType.add(type);
+		atomOffset.add(offset);
+		atomCityOffset.add(cityOffset);
+		atomXY.add(xy16);
+		for (String name : atomNames) {
+			if (name == null || name.isEmpty()) {
+				continue;
+			}
+			names.add(CollatorStringMatcher.normalizeForIndex(name));
+			nameAtom.add(atom);
+		}
+	}
+
+	static long packXY16(int xy16) {
+		return xy16 & 0xffffffffL;
+	}
+
+	void sortKeys() {
+		TLongArrayList res = new TLongArrayList();
+		for (int i = 0; i < names.size(); i++) {
+			String name = names.get(i);
+			for (int s = 0; s < name.length() && s <= MAX_WORD_START; s++) {
+				if (CollatorStringMatcher.isWordStart(name, s)) {
+					res.add(((long) i << WORD_START_BITS) | s);
+				}
+			}
+		}
+		keys = res.toArray();
+		mergeSort(keys, new long[keys.length], 0, keys.length);
+	}
+
+	// sorts keys by suffix without boxing to objects
+	private void mergeSort(long[] a, long[] tmp, int from, int to) {
+		if (to - from < 16) {
+			for (int i = from + 1; i < to; i++) {
+				long k = a[i];
+				int j = i - 1;
+				for (; j >= from && compareSuffix(a[j], k) > 0; j--) {
+					a[j + 1] = a[j];
+				}
+				a[j + 1] = k;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(a, tmp, from, mid);
+		mergeSort(a, tmp, mid, to);
+		if (compareSuffix(a[mid - 1], a[mid]) <= 0) {
+			return;
+		}
+		System.arraycopy(a, from, tmp, from, to - from);
+		for (int i = from, l = from, r = mid; i < to; i++) {
+			if (r >= to || (l < mid && compareSuffix(tmp[l], tmp[r]) <= 0)) {
+				a[i] = tmp[l++];
+			} else {
+				a[i] = tmp[r++];
+			}
+		}
+	}
+
+	private String keyName(long key) {
+		return names.get((int) (key >>> WORD_START_BITS));
+	}
+
+	private int keyStart(long key) {
+		return (int) (key & MAX_WORD_START);
+	}
+
+	private int compareSuffix(long k1, long k2) {
+		String n1 = keyName(k1), n2 = keyName(k2);
+		int s1 = keyStart(k1), s2 = keyStart(k2);
+		int l = Math.min(n1.length() - s1, n2.length() - s2);
+		for (int i = 0; i < l; i++) {
+			int c = Character.compare(n1.charAt(s1 + i), n2.charAt(s2 + i));
+			if (c != 0) {
+				return c;
+			}
+		}
+		return Integer.compare(n1.length() - s1, n2.length() - s2);
+	}
+
+	// compares only first query.length() chars of key
+	private int compareWithPrefix(long key, String query) {
+		String n = keyName(key);
+		int s = keyStart(key);
+		int l = Math.min(n.length() - s, query.length());
+		for (int i = 0; i < l; i++) {
+			int c = Character.compare(n.charAt(s + i), query.charAt(i));
+			if (c != 0) {
+				return c;
+			}
+		}
+		return n.length() - s < query.length() ? -1 : 0;
+	}
+
+	public boolean isIndexed(BinaryMapIndexReader reader) {
+		return indexedFiles.contains(reader);
+	}
+
+	/**
+	 * Finds objects where one of the words starts with query (query is matched as prefix for all matcher modes,
+	 * exact mode is checked while reading objects)
+	 */
+	public Lookup search(String query) {
+		Lookup lookup = new Lookup();
+		String q = query.endsWith(".") ? query.substring(0, query.length() - 1) : query;
+		q = CollatorStringMatcher.normalizeForIndex(q);
+		if (q.isEmpty()) {
+			return lookup;
+		}
+		int lo = 0, hi = keys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compareWithPrefix(keys[mid], q) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		for (int i = lo; i < keys.length && compareWithPrefix(keys[i], q) == 0; i++) {
+			int atom = nameAtom.get((int) (keys[i] >>> WORD_START_BITS));
+			AddressRegion reg = regions.get(atomRegion.get(atom));
+			TIntArrayList l = lookup.atoms.get(reg);
+			if (l == null) {
+				l = new TIntArrayList();
+				lookup.atoms.put(reg, l);
+			}
+			l.add(atom);
+		}
+		return lookup;
+	}
+
+	int getAtomType(int atom) {
+		return atomType.get(atom);
+	}
+
+	int getAtomOffset(int atom) {
+		return atomOffset.get(atom);
+	}
+
+	int getAtomCityOffset(int atom) {
+		return atomCityOffset.get(atom);
+	}
+
+	boolean isAtomInside(int atom, BinaryMapIndexReader.SearchRequest<?> req) {
+		long xy = atomXY.get(atom);
+		if (xy == NO_XY_16 || !req.isBboxSpecified()) {
+			return true;
+		}
+		int in32 = (int) xy;
+		int x16 = (in32 >>> 16) << 15;
+		int y16 = (in32 & ((1 << 16) - 1)) << 15;
+		return req.contains(x16, y16, x16, y16);
+	}
+
+	public int getNamesCount() {
+		return names.size();
+	}
+
+	public class Lookup {
+
+		private final Map<AddressRegion, TIntArrayList> atoms = new IdentityHashMap<>();
+
+		public AddressNameIndex getIndex() {
+			return AddressNameIndex.this;
+		}
+
+		public boolean isIndexed(BinaryMapIndexReader reader) {
+			return AddressNameIndex.this.isIndexed(reader);
+		}
+
+		public boolean hasResults(BinaryMapIndexReader reader) {
+			for (AddressRegion reg : reader.getAddressIndexes()) {
+				if (atoms.containsKey(reg)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		TIntArrayList getAtoms(AddressRegion reg) {
+			return atoms.get(reg);
+		}
+	}
+}
@@ -9,10 +9,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import net.osmand.CollatorStringMatcher;
+import net.osmand.OsmAndCollator;
 import net.osmand.PlatformUtil;
 import net.osmand.StringMatcher;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
@@ -603,15 +606,6 @@ public class BinaryMapAddressReaderAdapter {
 	public void searchAddressDataByName(AddressRegion reg, SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
 		TIntArrayList loffsets = new TIntArrayList();
 		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
-		String postcode = Postcode.normalize(req.nameQuery, map.getCountryName());
-		final CityMatcher postcodeMatcher = new DefaultCityMatcher(new CollatorStringMatcher(postcode, req.matcherMode));
-		final CityMatcher cityMatcher = new DefaultCityMatcher(stringMatcher);
-		final CityMatcher cityPostcodeMatcher = new CityMatcher() {
-			@Override
-			public boolean matches(City city) {
-				return city.isPostcode() ? postcodeMatcher.matches(city) : cityMatcher.matches(city);
-			}
-		};
 		long time = System.currentTimeMillis();
 		long indexOffset = 0;
 		while (true) {
@@ -670,89 +664,245 @@ public class BinaryMapAddressReaderAdapter {
 						return;
 					}
 				}
-				if (typeFilter == null) {
-					typeFilter = TYPES;
-				}
-				for (int i = 0; i < typeFilter.size() && !req.isCancelled(); i++) {
-					TIntArrayList list = refs[typeFilter.get(i)];
-					TIntArrayList listContainer = refsContainer[typeFilter.get(i)];
-					
-					if (typeFilter.get(i) == STREET_TYPE) {
-						TIntLongHashMap mp = new TIntLongHashMap();
-						for (int j = 0; j < list.size(); j++) {
-							mp.put(list.get(j), listContainer.get(j));
-						}
-						list.sort();
-						for (int j = 0; j < list.size() && !req.isCancelled(); j ++) {
-							int offset = list.get(j);
-							if (j > 0 &&  offset == list.get(j - 1)) {
-								continue;
-							}
-							City obj;
-							{
-								int contOffset = (int) mp.get(offset);
-								codedIS.seek(contOffset);
-								long len = codedIS.readRawVarint32();
-								long old = codedIS.pushLimitLong((long) len);
-								obj = readCityHeader(req, null, contOffset, reg.attributeTagsTable);
-								codedIS.popLimit(old);
-							}
-							if (obj != null) {
-								codedIS.seek(offset);
-								long len = codedIS.readRawVarint32();
-								long old = codedIS.pushLimitLong((long) len);
-								LatLon l = obj.getLocation();
-								Street s = new Street(obj);
-								s.setFileOffset(offset);
-								readStreet(s, null, false, MapUtils.get31TileNumberX(l.getLongitude()) >> 7,
-										MapUtils.get31TileNumberY(l.getLatitude()) >> 7, obj.isPostcode() ? obj.getName() : null,
-										reg.attributeTagsTable);
-								publishRawData(req, s);
-								boolean matches = stringMatcher.matches(s.getName());
-								if (!matches) {
-									for (String n : s.getOtherNames()) {
-										matches = stringMatcher.matches(n);
-										if (matches) {
-											break;
-										}
-									}
-								}
+				readAddressObjects(reg, req, typeFilter, stringMatcher, refs, refsContainer);
+//				LOG.info("Whole address search by name is done in " + (System.currentTimeMillis() - time) + "ms. Found "
+//						+ req.getSearchResults().size());
+				return;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+
+	}
+
+	private void readAddressObjects(AddressRegion reg, SearchRequest<MapObject> req, List<Integer> typeFilter,
+			CollatorStringMatcher stringMatcher, TIntArrayList[] refs, TIntArrayList[] refsContainer) throws IOException {
+		String postcode = Postcode.normalize(req.nameQuery, map.getCountryName());
+		final CityMatcher postcodeMatcher = new DefaultCityMatcher(new CollatorStringMatcher(postcode, req.matcherMode));
+		final CityMatcher cityMatcher = new DefaultCityMatcher(stringMatcher);
+		final CityMatcher cityPostcodeMatcher = new CityMatcher() {
+			@Override
+			public boolean matches(City city) {
+				return city.isPostcode() ? postcodeMatcher.matches(city) : cityMatcher.matches(city);
+			}
+		};
+		if (typeFilter == null) {
+			typeFilter = TYPES;
+		}
+		for (int i = 0; i < typeFilter.size() && !req.isCancelled(); i++) {
+			TIntArrayList list = refs[typeFilter.get(i)];
+			TIntArrayList listContainer = refsContainer[typeFilter.get(i)];
+			
+			if (typeFilter.get(i) == STREET_TYPE) {
+				TIntLongHashMap mp = new TIntLongHashMap();
+				for (int j = 0; j < list.size(); j++) {
+					mp.put(list.get(j), listContainer.get(j));
+				}
+				list.sort();
+				for (int j = 0; j < list.size() && !req.isCancelled(); j ++) {
+					int offset = list.get(j);
+					if (j > 0 &&  offset == list.get(j - 1)) {
+						continue;
+					}
+					City obj;
+					{
+						int contOffset = (int) mp.get(offset);
+						codedIS.seek(contOffset);
+						long len = codedIS.readRawVarint32();
+						long old = codedIS.pushLimitLong((long) len);
+						obj = readCityHeader(req, null, contOffset, reg.attributeTagsTable);
+						codedIS.popLimit(old);
+					}
+					if (obj != null) {
+						codedIS.seek(offset);
+						long len = codedIS.readRawVarint32();
+						long old = codedIS.pushLimitLong((long) len);
+						LatLon l = obj.getLocation();
+						Street s = new Street(obj);
+						s.setFileOffset(offset);
+						readStreet(s, null, false, MapUtils.get31TileNumberX(l.getLongitude()) >> 7,
+								MapUtils.get31TileNumberY(l.getLatitude()) >> 7, obj.isPostcode() ? obj.getName() : null,
+								reg.attributeTagsTable);
+						publishRawData(req, s);
+						boolean matches = stringMatcher.matches(s.getName());
+						if (!matches) {
+							for (String n : s.getOtherNames()) {
+								matches = stringMatcher.matches(n);
 								if (matches) {
-									req.publish(s);
+									break;
 								}
-								codedIS.popLimit(old);
 							}
 						}
-					} else {
-						list.sort();
-						TIntSet published = new TIntHashSet();
-						for (int j = 0; j < list.size() && !req.isCancelled(); j++) {
-							int offset = list.get(j);
-							if (j > 0 && offset == list.get(j - 1)) {
-								continue;
-							}
-							codedIS.seek(offset);
-							long len = codedIS.readRawVarint32();
-							long old = codedIS.pushLimitLong((long) len);
-							City obj = readCityHeader(req, cityPostcodeMatcher, list.get(j), reg.attributeTagsTable);
-							publishRawData(req, obj);
-							if (obj != null && !published.contains(offset)) {
-								req.publish(obj);
-								published.add(offset);
-							}
-							codedIS.popLimit(old);
+						if (matches) {
+							req.publish(s);
 						}
+						codedIS.popLimit(old);
 					}
 				}
-//				LOG.info("Whole address search by name is done in " + (System.currentTimeMillis() - time) + "ms. Found "
-//						+ req.getSearchResults().size());
-				return;
+			} else {
+				list.sort();
+				TIntSet published = new TIntHashSet();
+				for (int j = 0; j < list.size() && !req.isCancelled(); j++) {
+					int offset = list.get(j);
+					if (j > 0 && offset == list.get(j - 1)) {
+						continue;
+					}
+					codedIS.seek(offset);
+					long len = codedIS.readRawVarint32();
+					long old = codedIS.pushLimitLong((long) len);
+					City obj = readCityHeader(req, cityPostcodeMatcher, list.get(j), reg.attributeTagsTable);
+					publishRawData(req, obj);
+					if (obj != null && !published.contains(offset)) {
+						req.publish(obj);
+						published.add(offset);
+					}
+					codedIS.popLimit(old);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Same as search by name but offsets of objects are taken from in memory name index
+	 */
+	public void searchAddressDataByIndex(AddressRegion reg, SearchRequest<MapObject> req, List<Integer> typeFilter,
+			AddressNameIndex index, TIntArrayList atoms) throws IOException {
+		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+		TIntArrayList[] refs = new TIntArrayList[5];
+		TIntArrayList[] refsContainer = new TIntArrayList[5];
+		for (int i = 0; i < refs.length; i++) {
+			refs[i] = new TIntArrayList();
+			refsContainer[i] = new TIntArrayList();
+		}
+		for (int j = 0; j < atoms.size(); j++) {
+			int atom = atoms.get(j);
+			if (!index.isAtomInside(atom, req)) {
+				continue;
+			}
+			int type = index.getAtomType(atom);
+			if (index.getAtomOffset(atom) != 0) {
+				refs[type].add(index.getAtomOffset(atom));
+			}
+			if (index.getAtomCityOffset(atom) != 0) {
+				refsContainer[type].add(index.getAtomCityOffset(atom));
+			}
+		}
+		readAddressObjects(reg, req, typeFilter, stringMatcher, refs, refsContainer);
+	}
+
+	/**
+	 * Reads all atoms of name index into in memory index
+	 * @return false if name index doesn't contain names (index couldn't be used for region)
+	 */
+	boolean readAddressNameIndex(AddressRegion reg, int region, AddressNameIndex index) throws IOException {
+		TIntArrayList loffsets = new TIntArrayList();
+		long indexOffset = 0;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return true;
+			case OsmAndAddressNameIndexData.TABLE_FIELD_NUMBER:
+				long length = readInt();
+				indexOffset = codedIS.getTotalBytesRead();
+				long oldLimit = codedIS.pushLimitLong((long) length);
+				// empty query matches all keys
+				TIntArrayList charsList = new TIntArrayList();
+				charsList.add(0);
+				map.readIndexedStringTable(OsmAndCollator.primaryCollator(), Collections.singletonList(""), "",
+						Collections.singletonList(loffsets), charsList);
+				codedIS.popLimit(oldLimit);
+				break;
+			case OsmAndAddressNameIndexData.ATOM_FIELD_NUMBER:
+				loffsets.sort();
+				// same object is referenced from table key of each word
+				Set<String> added = new HashSet<>();
+				for (int j = 0; j < loffsets.size(); j++) {
+					if (j > 0 && loffsets.get(j) == loffsets.get(j - 1)) {
+						continue;
+					}
+					long fp = indexOffset + loffsets.get(j);
+					codedIS.seek(fp);
+					long len = codedIS.readRawVarint32();
+					long oldLim = codedIS.pushLimitLong((long) len);
+					int stag = 0;
+					do {
+						int st = codedIS.readTag();
+						stag = WireFormat.getTagFieldNumber(st);
+						if (stag == AddressNameIndexData.ATOM_FIELD_NUMBER) {
+							long slen = codedIS.readRawVarint32();
+							long soldLim = codedIS.pushLimitLong((long) slen);
+							boolean named = readAddressNameIndexAtom(fp, region, index, added);
+							codedIS.popLimit(soldLim);
+							if (!named) {
+								codedIS.popLimit(oldLim);
+								return false;
+							}
+						} else if (stag != 0) {
+							skipUnknownField(st);
+						}
+					} while (stag != 0);
+					codedIS.popLimit(oldLim);
+				}
+				return true;
 			default:
 				skipUnknownField(t);
 				break;
 			}
 		}
+	}
 
+	// atom is read the same way as in readAddressNameData
+	private boolean readAddressNameIndexAtom(long fp, int region, AddressNameIndex index, Set<String> added) throws IOException {
+		String name = null;
+		String nameEn = null;
+		int type = -1;
+		int shiftindex = 0;
+		int shiftcityindex = 0;
+		long xy16 = AddressNameIndex.NO_XY_16;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0 || tag == AddressNameIndexDataAtom.SHIFTTOINDEX_FIELD_NUMBER) {
+				if (type != -1 && (shiftindex != 0 || shiftcityindex != 0)) {
+					if (name == null) {
+						return false;
+					}
+					if (added.add(type + " " + shiftindex + " " + shiftcityindex + " " + name + " " + nameEn)) {
+						index.addAtom(region, type, shiftindex, shiftcityindex, xy16, name, nameEn);
+					}
+				}
+			}
+			switch (tag) {
+			case 0:
+				return true;
+			case AddressNameIndexDataAtom.NAMEEN_FIELD_NUMBER:
+				nameEn = codedIS.readString();
+				break;
+			case AddressNameIndexDataAtom.NAME_FIELD_NUMBER:
+				name = codedIS.readString();
+				break;
+			case AddressNameIndexDataAtom.SHIFTTOCITYINDEX_FIELD_NUMBER:
+				if (type != -1) {
+					shiftcityindex = (int) (fp - codedIS.readInt32());
+				}
+				break;
+			case AddressNameIndexDataAtom.XY16_FIELD_NUMBER:
+				xy16 = AddressNameIndex.packXY16(codedIS.readInt32());
+				break;
+			case AddressNameIndexDataAtom.SHIFTTOINDEX_FIELD_NUMBER:
+				shiftindex = (int) (fp - codedIS.readInt32());
+				break;
+			case AddressNameIndexDataAtom.TYPE_FIELD_NUMBER:
+				type = codedIS.readInt32();
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
 	}
 
 	private void readAddressNameData(SearchRequest<MapObject> req, TIntArrayList[] refs,
@@ -84,6 +84,7 @@ import net.osmand.osm.edit.Way;
 import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
 import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
 import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.RoutingTileCache;
 import net.osmand.util.Algorithms;
 import net.osmand.util.MapUtils;
 
@@ -109,7 +110,10 @@ public class BinaryMapIndexReader {
 	
 	
 	private final RandomAccessFile raf;
+	private final MappedObfFile mapped;
 	protected final File file;
+	// index structure is shared with reader of the same file
+	private final boolean copy;
 	/*private*/ int version;
 	/*private*/ long dateCreated;
 	/*private*/ OsmAndOwner owner;
@@ -136,22 +140,31 @@ public class BinaryMapIndexReader {
 
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file) throws IOException {
-		this.raf = raf;
-		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
-		transportAdapter = new BinaryMapTransportReaderAdapter(this);
-		addressAdapter = new BinaryMapAddressReaderAdapter(this);
-		poiAdapter = new BinaryMapPoiReaderAdapter(this);
-		routeAdapter = new BinaryMapRouteReaderAdapter(this);
-		hhAdapter = new BinaryHHRouteReaderAdapter(this);
-		init();
+		this(raf, null, file, true);
 	}
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
+		this(raf, null, file, init);
+	}
+
+	public BinaryMapIndexReader(final MappedObfFile mapped) throws IOException {
+		this(null, mapped, mapped.getFile(), true);
+	}
+
+	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
+		this(raf, null, referenceToSameFile);
+	}
+
+	public BinaryMapIndexReader(final MappedObfFile mapped, BinaryMapIndexReader referenceToSameFile) throws IOException {
+		this(null, mapped, referenceToSameFile);
+	}
+
+	private BinaryMapIndexReader(final RandomAccessFile raf, MappedObfFile mapped, File file, boolean init) throws IOException {
 		this.raf = raf;
+		this.mapped = mapped;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
+		this.copy = false;
+		codedIS = mapped != null ? mapped.newCodedInputStream() : CodedInputStream.newInstance(raf);
 		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
@@ -163,10 +176,12 @@ public class BinaryMapIndexReader {
 		}
 	}
 
-	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
+	private BinaryMapIndexReader(final RandomAccessFile raf, MappedObfFile mapped, BinaryMapIndexReader referenceToSameFile) throws IOException {
 		this.raf = raf;
+		this.mapped = mapped;
 		this.file = referenceToSameFile.file;
-		codedIS = CodedInputStream.newInstance(raf);
+		this.copy = true;
+		codedIS = mapped != null ? mapped.newCodedInputStream() : CodedInputStream.newInstance(raf);
 		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
 		version = referenceToSameFile.version;
 		dateCreated = referenceToSameFile.dateCreated;
@@ -186,6 +201,26 @@ public class BinaryMapIndexReader {
 		calculateCenterPointForRegions();
 	}
 
+	/**
+	 * Lightweight reader sharing parsed index structure and file mapping with this reader,
+	 * so it could be used by another thread. Available only for memory mapped readers.
+	 */
+	public BinaryMapIndexReader createMappedCursor() throws IOException {
+		if (mapped == null) {
+			throw new IllegalStateException("Reader is not memory mapped " + file);
+		}
+		return new BinaryMapIndexReader(mapped, this);
+	}
+
+	public boolean isMemoryMapped() {
+		return mapped != null;
+	}
+
+	// reader of the same file for another thread (should be closed by caller)
+	public BinaryMapIndexReader copyReader() throws IOException {
+		return isMemoryMapped() ? createMappedCursor() : new BinaryMapIndexReader(new RandomAccessFile(file, "r"), this);
+	}
+
 
 	public long getDateCreated() {
 		return dateCreated;
@@ -1407,6 +1442,36 @@ public class BinaryMapIndexReader {
 		return searchAddressDataByName(req, null);
 	}
 
+	/**
+	 * Search by name using offsets found by in memory index (file should be indexed)
+	 */
+	public List<MapObject> searchAddressDataByIndex(SearchRequest<MapObject> req, AddressNameIndex.Lookup lookup) throws IOException {
+		for (AddressRegion reg : addressIndexes) {
+			TIntArrayList atoms = lookup.getAtoms(reg);
+			if (atoms != null && !req.isCancelled()) {
+				addressAdapter.searchAddressDataByIndex(reg, req, null, lookup.getIndex(), atoms);
+			}
+		}
+		return req.getSearchResults();
+	}
+
+	boolean readAddressNameIndex(AddressNameIndex index) throws IOException {
+		for (AddressRegion reg : addressIndexes) {
+			if (reg.indexNameOffset != -1) {
+				int region = index.addRegion(reg);
+				codedIS.seek(reg.indexNameOffset);
+				long len = readInt();
+				long old = codedIS.pushLimitLong((long) len);
+				boolean named = addressAdapter.readAddressNameIndex(reg, region, index);
+				codedIS.popLimit(old);
+				if (!named) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	public void initCategories(PoiRegion poiIndex) throws IOException {
 		poiAdapter.initCategories(poiIndex);
 	}
@@ -1719,7 +1784,13 @@ public class BinaryMapIndexReader {
 
 	public void close() throws IOException {
 		if (codedIS != null) {
-			raf.close();
+			if (raf != null) {
+				raf.close();
+			}
+			RoutingTileCache tileCache = RoutingTileCache.getShared();
+			if (tileCache != null && !copy) {
+				tileCache.evictRegions(routingIndexes);
+			}
 			codedIS = null;
 			mapIndexes.clear();
 			addressIndexes.clear();
@@ -354,7 +354,7 @@ public class BinaryMapRouteReaderAdapter {
 			return OsmandOdb.OsmAndStructure.ROUTINGINDEX_FIELD_NUMBER;
 		}
 		
-		public int searchRouteEncodingRule(String tag, String value) {
+		public synchronized int searchRouteEncodingRule(String tag, String value) {
 			if(decodingRules == null) {
 				decodingRules = new LinkedHashMap<String, Integer>();
 				for(int i = 1; i < routeEncodingRules.size(); i++) {
@@ -386,7 +386,7 @@ public class BinaryMapRouteReaderAdapter {
 			return routeEncodingRules.size();
 		}
 
-		public void initRouteEncodingRule(int id, String tags, String val) {
+		public synchronized void initRouteEncodingRule(int id, String tags, String val) {
 			decodingRules = null;
 			while (routeEncodingRules.size() <= id) {
 				routeEncodingRules.add(null);
@@ -581,7 +581,7 @@ public class BinaryMapRouteReaderAdapter {
 		}
 
 
-		public int findOrCreateRouteType(String tag, String value) {
+		public synchronized int findOrCreateRouteType(String tag, String value) {
 			int ruleId = searchRouteEncodingRule(tag, value);
 			if(ruleId == -1) {
 				ruleId = routeEncodingRules.size() ;
@@ -1096,11 +1096,14 @@ public class BinaryMapRouteReaderAdapter {
 	}
 
 	public void initRouteRegion(RouteRegion routeReg) throws IOException, InvalidProtocolBufferException {
-		if (routeReg.routeEncodingRules.isEmpty()) {
-			codedIS.seek(routeReg.filePointer);
-			long oldLimit = codedIS.pushLimitLong((long) routeReg.length);
-			readRouteIndex(routeReg);
-			codedIS.popLimit(oldLimit);
+		// region could be shared between readers of the same file used by different threads
+		synchronized (routeReg) {
+			if (routeReg.routeEncodingRules.isEmpty()) {
+				codedIS.seek(routeReg.filePointer);
+				long oldLimit = codedIS.pushLimitLong((long) routeReg.length);
+				readRouteIndex(routeReg);
+				codedIS.popLimit(oldLimit);
+			}
 		}
 	}
 
@@ -24,6 +24,8 @@ import net.osmand.binary.OsmandIndex.RoutingPart;
 import net.osmand.binary.OsmandIndex.RoutingSubregion;
 import net.osmand.binary.OsmandIndex.TransportPart;
 
+import com.google.protobuf.CodedOutputStream;
+
 import org.apache.commons.logging.Log;
 
 import java.io.File;
@@ -31,45 +33,51 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Cache of obf file headers (indexes.cache). File indexes are looked up by file name.
+ * New files are appended to cache file (protobuf merges repeated fields of concatenated messages),
+ * cache file is fully rewritten only if it's missing or some file index was replaced.
+ */
 public class CachedOsmandIndexes {
 
-	private OsmAndStoredIndex storedIndex;
-	private OsmAndStoredIndex.Builder storedIndexBuilder;
 	private Log log = PlatformUtil.getLog(CachedOsmandIndexes.class);
-	private boolean hasChanged = false;
 	public static final String INDEXES_DEFAULT_FILENAME = "indexes.cache";
 
 	public static final int VERSION = 5;// synchronize with binaryRead.cpp CACHE_VERSION
 
-	public FileIndex addToCache(BinaryMapIndexReader reader, File f) {
-		hasChanged = true;
-		if (storedIndexBuilder == null) {
-			storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
-			storedIndexBuilder.setVersion(VERSION);
-			storedIndexBuilder.setDateCreated(System.currentTimeMillis());
-			if (storedIndex != null) {
-				for (FileIndex ex : storedIndex.getFileIndexList()) {
-					if (!ex.getFileName().equals(f.getName())) {
-						storedIndexBuilder.addFileIndex(ex);
-					}
-				}
-			}
+	private final Map<String, FileIndex> fileIndexes = new LinkedHashMap<>();
+	// new file indexes which could be appended to cache file
+	private final List<FileIndex> appendedIndexes = new ArrayList<>();
+	private long dateCreated = System.currentTimeMillis();
+	// cache file which was read and could be appended
+	private File storedFile;
+	private boolean hasChanged = false;
+
+	public synchronized FileIndex addToCache(BinaryMapIndexReader reader, File f) {
+		return addToCache(buildFileIndex(reader, f));
+	}
+
+	synchronized FileIndex addToCache(FileIndex fi) {
+		if (fileIndexes.put(fi.getFileName(), fi) != null) {
+			hasChanged = true;
 		} else {
-			int found = -1;
-			List<FileIndex> fileIndexList = storedIndexBuilder.getFileIndexList();
-			for (int i = 0; i < fileIndexList.size(); i++) {
-				if (fileIndexList.get(i).getFileName().equals(f.getName())) {
-					found = i;
-					break;
-				}
-			}
-			if (found >= 0) {
-				storedIndexBuilder.removeFileIndex(found);
-			}
+			appendedIndexes.add(fi);
 		}
+		return fi;
+	}
 
+	private FileIndex buildFileIndex(BinaryMapIndexReader reader, File f) {
 		FileIndex.Builder fileIndex = OsmandIndex.FileIndex.newBuilder();
 		long d = reader.getDateCreated();
 		fileIndex.setDateModified(d == 0 ? f.lastModified() : d);
@@ -190,9 +198,7 @@ public class CachedOsmandIndexes {
 			fileIndex.addHhRoutingIndex(routing);
 		}
 
-		FileIndex fi = fileIndex.build();
-		storedIndexBuilder.addFileIndex(fi);
-		return fi;
+		return fileIndex.build();
 	}
 
 	private void addRouteSubregion(RoutingPart.Builder routing, RouteSubregion sub, boolean base) {
@@ -227,16 +233,13 @@ public class CachedOsmandIndexes {
 
 
 	public FileIndex getFileIndex(File f, boolean init) throws IOException {
-		FileIndex found = null;
-		if (storedIndex != null) {
-			for (int i = 0; i < storedIndex.getFileIndexCount(); i++) {
-				FileIndex fi = storedIndex.getFileIndex(i);
-				if (f.length() == fi.getSize() && f.getName().equals(fi.getFileName())) {
-					// f.lastModified() == fi.getDateModified()
-					found = fi;
-					break;
-				}
-			}
+		FileIndex found;
+		synchronized (this) {
+			found = fileIndexes.get(f.getName());
+		}
+		if (found != null && f.length() != found.getSize()) {
+			// f.lastModified() == fi.getDateModified()
+			found = null;
 		}
 		if (found == null && init) {
 			RandomAccessFile mf = new RandomAccessFile(f.getPath(), "r");
@@ -252,6 +255,63 @@ public class CachedOsmandIndexes {
  		return found;
 	}
 
+	/**
+	 * Reads headers of files missing in cache in parallel (errors are logged and reported later by getReader)
+	 */
+	public void initFileIndexes(Collection<File> files, int threads) throws InterruptedException {
+		long time = System.currentTimeMillis();
+		List<File> missing = new ArrayList<>();
+		for (File f : files) {
+			FileIndex fi;
+			synchronized (this) {
+				fi = fileIndexes.get(f.getName());
+			}
+			if (fi == null || fi.getSize() != f.length()) {
+				missing.add(f);
+			}
+		}
+		threads = Math.min(threads, missing.size());
+		if (threads <= 1) {
+			for (File f : missing) {
+				initFileIndex(f);
+			}
+		} else {
+			ExecutorService service = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for (final File f : missing) {
+					futures.add(service.submit(new Callable<Void>() {
+						@Override
+						public Void call() {
+							initFileIndex(f);
+							return null;
+						}
+					}));
+				}
+				for (Future<?> fut : futures) {
+					try {
+						fut.get();
+					} catch (ExecutionException e) {
+						log.error(e.getCause().getMessage(), e.getCause());
+					}
+				}
+			} finally {
+				service.shutdownNow();
+			}
+		}
+		if (!missing.isEmpty()) {
+			log.info("Initialize " + missing.size() + " files missing in cache " + (System.currentTimeMillis() - time) + " ms");
+		}
+	}
+
+	private void initFileIndex(File f) {
+		try {
+			getFileIndex(f, true);
+		} catch (IOException | RuntimeException e) {
+			log.error("File " + f.getName() + " could not be read: " + e.getMessage(), e);
+		}
+	}
+
 	public BinaryMapIndexReader initReaderFromFileIndex(FileIndex found, RandomAccessFile mf, File f) throws IOException {
 		BinaryMapIndexReader reader = new BinaryMapIndexReader(mf, f, false);
 		reader.version = found.getVersion();
@@ -377,14 +437,24 @@ public class CachedOsmandIndexes {
 	}
 	
 
-	public void readFromFile(File f) throws IOException {
+	public synchronized void readFromFile(File f) throws IOException {
 		long time = System.currentTimeMillis();
 		FileInputStream is = new FileInputStream(f);
 		try {
-			storedIndex = OsmandIndex.OsmAndStoredIndex.newBuilder().mergeFrom(is).build();
+			OsmAndStoredIndex storedIndex = OsmandIndex.OsmAndStoredIndex.newBuilder().mergeFrom(is).build();
+			fileIndexes.clear();
+			appendedIndexes.clear();
 			hasChanged = false;
-			if (storedIndex.getVersion() != CachedOsmandIndexes.VERSION) {
-				storedIndex = null;
+			storedFile = null;
+			if (storedIndex.getVersion() == CachedOsmandIndexes.VERSION) {
+				for (FileIndex fi : storedIndex.getFileIndexList()) {
+					if (fileIndexes.put(fi.getFileName(), fi) != null) {
+						// compact duplicates on next write
+						hasChanged = true;
+					}
+				}
+				dateCreated = storedIndex.getDateCreated();
+				storedFile = f;
 			}
 		} finally {
 			is.close();
@@ -392,17 +462,31 @@ public class CachedOsmandIndexes {
 		log.info("Initialize cache " + f.getName() + " " + (System.currentTimeMillis() - time) + " ms");
 	}
 
-	public void writeToFile(File f) throws IOException {
-		if (hasChanged) {
-			FileOutputStream outputStream = new FileOutputStream(f);
-			try {
+	public synchronized void writeToFile(File f) throws IOException {
+		if (!hasChanged && appendedIndexes.isEmpty()) {
+			return;
+		}
+		boolean append = !hasChanged && f.equals(storedFile) && f.exists();
+		FileOutputStream outputStream = new FileOutputStream(f, append);
+		try {
+			if (append) {
+				CodedOutputStream cos = CodedOutputStream.newInstance(outputStream);
+				for (FileIndex fi : appendedIndexes) {
+					cos.writeMessage(OsmAndStoredIndex.FILEINDEX_FIELD_NUMBER, fi);
+				}
+				cos.flush();
+			} else {
+				OsmAndStoredIndex.Builder storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
+				storedIndexBuilder.setVersion(VERSION);
+				storedIndexBuilder.setDateCreated(dateCreated);
+				storedIndexBuilder.addAllFileIndex(fileIndexes.values());
 				storedIndexBuilder.build().writeTo(outputStream);
-			} finally {
-				outputStream.close();
 			}
+		} finally {
+			outputStream.close();
 		}
+		hasChanged = false;
+		appendedIndexes.clear();
+		storedFile = f;
 	}
-
-	
-
 }
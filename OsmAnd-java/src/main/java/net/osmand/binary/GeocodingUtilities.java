@@ -21,12 +21,22 @@ import org.apache.commons.logging.Log;
 import java.io.IOException;
 import java.text.Collator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class GeocodingUtilities {
 
@@ -44,6 +54,12 @@ public class GeocodingUtilities {
 	public static final float THRESHOLD_MULTIPLIER_SKIP_BUILDINGS_AFTER = 1.5f;
 	public static final float DISTANCE_BUILDING_PROXIMITY = 100;
 
+	public static final int STREETS_CACHE_ZOOM = 9;
+	public static final int BATCH_STREETS_CACHE_SIZE = 1000;
+	public static final int BATCH_CHUNK_SIZE = 256;
+
+	private Map<String, List<Street>> streetsCache;
+	private Set<Street> preloadedStreets;
 
 	public static final Comparator<GeocodingResult> DISTANCE_COMPARATOR = new Comparator<GeocodingResult>() {
 
@@ -149,6 +165,27 @@ public class GeocodingUtilities {
 	}
 
 
+	/**
+	 * Streets found by name (with loaded buildings) are kept for neighbour points.
+	 * Instance with cache is supposed to be used by one thread for points sorted by location.
+	 */
+	public GeocodingUtilities setStreetsCache(final int size) {
+		preloadedStreets = Collections.newSetFromMap(new IdentityHashMap<Street, Boolean>());
+		streetsCache = new LinkedHashMap<String, List<Street>>(size, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<Street>> eldest) {
+				if (size() > size) {
+					preloadedStreets.removeAll(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		return this;
+	}
+
 	public List<GeocodingResult> reverseGeocodingSearch(RoutingContext ctx, double lat, double lon, boolean allowEmptyNames) throws IOException {
 		RoutePlannerFrontEnd rp = new RoutePlannerFrontEnd();
 		List<GeocodingResult> lst = new ArrayList<GeocodingUtilities.GeocodingResult>();
@@ -195,6 +232,141 @@ public class GeocodingUtilities {
 		return lst;
 	}
 
+	/**
+	 * Reverse geocoding of many points (reverseGeocodingSearch + sortGeocodingResults for each point).
+	 * Points are sorted along z-order curve and split into chunks of neighbour points, chunks are processed by threads
+	 * with own routing context, readers and streets cache, so loaded routing tiles and streets found by name
+	 * are shared between neighbour points.
+	 * @return results in order of points
+	 */
+	public static List<List<GeocodingResult>> reverseGeocodingBatch(RoutingContext ctx, List<BinaryMapIndexReader> addressReaders,
+			final List<LatLon> points, final boolean allowEmptyNames, int threads) throws IOException, InterruptedException {
+		final List<List<GeocodingResult>> results = new ArrayList<>(Collections.nCopies(points.size(), (List<GeocodingResult>) null));
+		final int[] order = sortByZOrder(points);
+		threads = Math.min(threads, (points.size() + BATCH_CHUNK_SIZE - 1) / BATCH_CHUNK_SIZE);
+		if (threads <= 1) {
+			GeocodingUtilities utilities = new GeocodingUtilities().setStreetsCache(BATCH_STREETS_CACHE_SIZE);
+			for (int ind : order) {
+				results.set(ind, utilities.reverseGeocodingPoint(ctx, addressReaders, points.get(ind), allowEmptyNames));
+			}
+			return results;
+		}
+		final LinkedBlockingQueue<BatchWorker> workers = new LinkedBlockingQueue<>();
+		List<BinaryMapIndexReader> opened = new ArrayList<>();
+		ExecutorService service = Executors.newFixedThreadPool(threads);
+		try {
+			for (int t = 0; t < threads; t++) {
+				Map<BinaryMapIndexReader, BinaryMapIndexReader> readersCopy = new LinkedHashMap<>();
+				List<BinaryMapIndexReader> readers = new ArrayList<>();
+				for (BinaryMapIndexReader r : ctx.getMaps()) {
+					readersCopy.put(r, r.copyReader());
+					opened.add(readersCopy.get(r));
+				}
+				for (BinaryMapIndexReader r : addressReaders) {
+					if (!readersCopy.containsKey(r)) {
+						readersCopy.put(r, r.copyReader());
+						opened.add(readersCopy.get(r));
+					}
+					readers.add(readersCopy.get(r));
+				}
+				workers.add(new BatchWorker(ctx.copyWithReaders(readersCopy), readers));
+			}
+			List<Future<?>> futures = new ArrayList<>();
+			for (int start = 0; start < order.length; start += BATCH_CHUNK_SIZE) {
+				final int from = start;
+				final int to = Math.min(order.length, start + BATCH_CHUNK_SIZE);
+				futures.add(service.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						BatchWorker w = workers.take();
+						try {
+							for (int i = from; i < to; i++) {
+								int ind = order[i];
+								results.set(ind, w.utilities.reverseGeocodingPoint(w.ctx, w.readers, points.get(ind), allowEmptyNames));
+							}
+						} finally {
+							workers.add(w);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					Throwable t = e.getCause();
+					if (t instanceof IOException) {
+						throw (IOException) t;
+					} else if (t instanceof InterruptedException) {
+						throw (InterruptedException) t;
+					} else if (t instanceof RuntimeException) {
+						throw (RuntimeException) t;
+					}
+					throw new IllegalStateException(t);
+				}
+			}
+		} finally {
+			service.shutdownNow();
+			for (BatchWorker w : workers) {
+				if (ctx.calculationProgress != null && w.ctx.calculationProgress != null) {
+					ctx.calculationProgress.addCounters(w.ctx.calculationProgress);
+				}
+				w.ctx.unloadAllData();
+			}
+			for (BinaryMapIndexReader r : opened) {
+				r.close();
+			}
+		}
+		return results;
+	}
+
+	private static class BatchWorker {
+		final RoutingContext ctx;
+		final List<BinaryMapIndexReader> readers;
+		final GeocodingUtilities utilities = new GeocodingUtilities().setStreetsCache(BATCH_STREETS_CACHE_SIZE);
+
+		BatchWorker(RoutingContext ctx, List<BinaryMapIndexReader> readers) {
+			this.ctx = ctx;
+			this.readers = readers;
+		}
+	}
+
+	private List<GeocodingResult> reverseGeocodingPoint(RoutingContext ctx, List<BinaryMapIndexReader> readers, LatLon p,
+			boolean allowEmptyNames) throws IOException {
+		List<GeocodingResult> res = reverseGeocodingSearch(ctx, p.getLatitude(), p.getLongitude(), allowEmptyNames);
+		return sortGeocodingResults(readers, res);
+	}
+
+	private static int[] sortByZOrder(List<LatLon> points) {
+		final long[] z = new long[points.size()];
+		Integer[] order = new Integer[points.size()];
+		for (int i = 0; i < z.length; i++) {
+			LatLon l = points.get(i);
+			z[i] = zOrder(MapUtils.get31TileNumberX(l.getLongitude()), MapUtils.get31TileNumberY(l.getLatitude()));
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(z[o1], z[o2]);
+			}
+		});
+		int[] res = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			res[i] = order[i];
+		}
+		return res;
+	}
+
+	private static long zOrder(int x31, int y31) {
+		long z = 0;
+		for (int i = 30; i >= 0; i--) {
+			z = (z << 2) | (((y31 >> i) & 1) << 1) | ((x31 >> i) & 1);
+		}
+		return z;
+	}
+
 	public List<String> prepareStreetName(String s, boolean addCommonWords) {
 		List<String> ls = new ArrayList<String>();
 		int beginning = 0;
@@ -253,37 +425,20 @@ public class GeocodingUtilities {
 					mainWord = s;
 				}
 			}
-			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
-					new ResultMatcher<MapObject>() {
-						@Override
-						public boolean publish(MapObject object) {
-							if (object instanceof Street
-									&& prepareStreetName(object.getName(), addCommonWordsFinal).equals(streetNamesUsedFinal)) {
-								double d = MapUtils.getDistance(object.getLocation(), road.searchPoint.getLatitude(),
-										road.searchPoint.getLongitude());
-								// double check to suport old format
-								if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
-									GeocodingResult rs = new GeocodingResult(road);
-									rs.street = (Street) object;
-									// set connection point to sort
-									rs.connectionPoint = rs.street.getLocation();
-									rs.city = rs.street.getCity();
-									rs.dist = d;
-									streetsList.add(rs);
-									return true;
-								}
-								return false;
-							}
-							return false;
-						}
-
-						@Override
-						public boolean isCancelled() {
-							return result != null && result.isCancelled();
-						}
-					}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
-			req.setBBoxRadius(road.getLocation().getLatitude(), road.getLocation().getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
-			reader.searchAddressDataByName(req);
+			for (Street street : searchStreets(reader, road, mainWord, addCommonWordsFinal, streetNamesUsedFinal, result)) {
+				double d = MapUtils.getDistance(street.getLocation(), road.searchPoint.getLatitude(),
+						road.searchPoint.getLongitude());
+				// double check to suport old format
+				if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
+					GeocodingResult rs = new GeocodingResult(road);
+					rs.street = street;
+					// set connection point to sort
+					rs.connectionPoint = rs.street.getLocation();
+					rs.city = rs.street.getCity();
+					rs.dist = d;
+					streetsList.add(rs);
+				}
+			}
 		}
 
 		final List<GeocodingResult> res = new ArrayList<GeocodingResult>();
@@ -327,6 +482,63 @@ public class GeocodingUtilities {
 		return res;
 	}
 
+	private List<Street> searchStreets(BinaryMapIndexReader reader, GeocodingResult road, String mainWord,
+			final boolean addCommonWords, final List<String> streetNames, final ResultMatcher<GeocodingResult> result)
+			throws IOException {
+		final List<Street> streets = new ArrayList<>();
+		SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(new ResultMatcher<MapObject>() {
+			@Override
+			public boolean publish(MapObject object) {
+				if (object instanceof Street && prepareStreetName(object.getName(), addCommonWords).equals(streetNames)) {
+					streets.add((Street) object);
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return result != null && result.isCancelled();
+			}
+		}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+		LatLon l = road.getLocation();
+		if (streetsCache == null) {
+			req.setBBoxRadius(l.getLatitude(), l.getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
+			reader.searchAddressDataByName(req);
+			return streets;
+		}
+		// streets are searched once for tile around neighbour points, bbox covers bbox of each point in tile
+		int tx = (int) MapUtils.getTileNumberX(STREETS_CACHE_ZOOM, l.getLongitude());
+		int ty = (int) MapUtils.getTileNumberY(STREETS_CACHE_ZOOM, l.getLatitude());
+		String key = reader.getFile().getAbsolutePath() + " " + tx + " " + ty + " " + streetNames;
+		List<Street> cached = streetsCache.get(key);
+		if (cached == null) {
+			double clat = MapUtils.getLatitudeFromTile(STREETS_CACHE_ZOOM, ty + 0.5);
+			double clon = MapUtils.getLongitudeFromTile(STREETS_CACHE_ZOOM, tx + 0.5);
+			double tileRadius = MapUtils.getDistance(clat, clon, MapUtils.getLatitudeFromTile(STREETS_CACHE_ZOOM, ty),
+					MapUtils.getLongitudeFromTile(STREETS_CACHE_ZOOM, tx));
+			req.setBBoxRadius(clat, clon, (int) (DISTANCE_STREET_NAME_PROXIMITY_BY_NAME + tileRadius));
+			reader.searchAddressDataByName(req);
+			if (result != null && result.isCancelled()) {
+				return streets;
+			}
+			cached = streets;
+			streetsCache.put(key, cached);
+		}
+		SearchRequest<MapObject> pointReq = BinaryMapIndexReader.buildAddressByNameRequest(null, mainWord,
+				StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+		pointReq.setBBoxRadius(l.getLatitude(), l.getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
+		List<Street> res = new ArrayList<>();
+		for (Street s : cached) {
+			int x = MapUtils.get31TileNumberX(s.getLocation().getLongitude());
+			int y = MapUtils.get31TileNumberY(s.getLocation().getLatitude());
+			if (pointReq.contains(x, y, x, y)) {
+				res.add(s);
+			}
+		}
+		return res;
+	}
+
 	public void filterDuplicateRegionResults(final List<GeocodingResult> res) {
 		Collections.sort(res, DISTANCE_COMPARATOR);
 		// filter duplicate city results (when building is in both regions on boundary)
@@ -374,7 +586,10 @@ public class GeocodingUtilities {
 	private List<GeocodingResult> loadStreetBuildings(final GeocodingResult road, BinaryMapIndexReader reader,
 			GeocodingResult street) throws IOException {
 		final List<GeocodingResult> streetBuildings = new ArrayList<GeocodingResult>();
-		reader.preloadBuildings(street.street, null);
+		// cached streets keep loaded buildings
+		if (streetsCache == null || preloadedStreets.add(street.street)) {
+			reader.preloadBuildings(street.street, null);
+		}
 //		log.info("Preload buildings " + street.street.getName() + " " + street.city.getName() + " " + street.street.getId());
 		for (Building b : street.street.getBuildings()) {
 			if (b.getLatLon2() != null) {
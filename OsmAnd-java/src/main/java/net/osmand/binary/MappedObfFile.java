@@ -0,0 +1,58 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only memory mapping of an obf file shared between readers.
+ * File is mapped once (in 1 GB segments to overcome 2 GB limit of MappedByteBuffer),
+ * every reader gets own position independent cursor so many threads could query
+ * the same file without own RandomAccessFile and without syscall per seek.
+ */
+public class MappedObfFile {
+
+	private static final int SEGMENT_SHIFT = 30;
+
+	private final File file;
+	private final ByteBuffer[] segments;
+	private final long length;
+
+	public MappedObfFile(File file) throws IOException {
+		this.file = file;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			length = channel.size();
+			long segmentSize = 1L << SEGMENT_SHIFT;
+			int cnt = (int) ((length + segmentSize - 1) >>> SEGMENT_SHIFT);
+			segments = new ByteBuffer[cnt];
+			for (int i = 0; i < cnt; i++) {
+				long start = ((long) i) << SEGMENT_SHIFT;
+				MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start,
+						Math.min(segmentSize, length - start));
+				segments[i] = segment;
+			}
+		} finally {
+			// mapping stays valid after channel is closed
+			raf.close();
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public CodedInputStream newCodedInputStream() {
+		return CodedInputStream.newInstance(segments, SEGMENT_SHIFT, length);
+	}
+}
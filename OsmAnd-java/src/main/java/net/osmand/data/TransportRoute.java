@@ -20,6 +20,7 @@ public class TransportRoute extends MapObject {
 	private Integer dist = null;
 	private String color;
 	private List<Way> forwardWays;
+	private boolean forwardWaysMerged;
 	private TransportSchedule schedule;
 	private Map<String, String> tags = new HashMap<>();
 	public static final double SAME_STOP = 40;
@@ -84,6 +85,7 @@ public class TransportRoute extends MapObject {
 
 	public void setForwardStops(List<TransportStop> forwardStops) {
 		this.forwardStops = forwardStops;
+		this.forwardWaysMerged = false;
 	}
 
 	public void setDist(Integer dist) {
@@ -92,6 +94,7 @@ public class TransportRoute extends MapObject {
 
 	public void setForwardWays(List<Way> forwardWays) {
 		this.forwardWays = forwardWays;
+		this.forwardWaysMerged = false;
 	}
 
 	public void setSchedule(TransportSchedule schedule) {
@@ -105,9 +108,18 @@ public class TransportRoute extends MapObject {
 		return forwardWays;
 	}
 	
+	// ways are merged only once, so merged route could be read concurrently
 	public void mergeForwardWays() {
+		if (forwardWaysMerged) {
+			return;
+		}
 		mergeRouteWays(forwardWays);
 		resortWaysToStopsOrder(forwardWays, forwardStops);
+		forwardWaysMerged = true;
+	}
+
+	public boolean isForwardWaysMerged() {
+		return forwardWaysMerged;
 	}
 	
 	// intrusive operation cause it changes ways itself!
@@ -238,6 +250,7 @@ public class TransportRoute extends MapObject {
 			forwardWays = new ArrayList<>();
 		}
 		forwardWays.add(w);
+		forwardWaysMerged = false;
 	}
 
 	public String getRef() {
@@ -0,0 +1,632 @@
+package net.osmand.gpx;
+
+import net.osmand.PlatformUtil;
+import net.osmand.gpx.GPXUtilities.Author;
+import net.osmand.gpx.GPXUtilities.Bounds;
+import net.osmand.gpx.GPXUtilities.Copyright;
+import net.osmand.gpx.GPXUtilities.GPXExtensions;
+import net.osmand.gpx.GPXUtilities.Metadata;
+import net.osmand.gpx.GPXUtilities.PointsGroup;
+import net.osmand.gpx.GPXUtilities.Route;
+import net.osmand.gpx.GPXUtilities.RouteSegment;
+import net.osmand.gpx.GPXUtilities.RouteType;
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+import net.osmand.util.Algorithms;
+
+import org.apache.commons.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Compact binary container of gpx file (alternative to gpx xml for internal storage).
+ * Points are stored by columns: coordinates, time and elevation as varint deltas, optional values with presence bits,
+ * extensions with keys from file dictionary. Elevation, hdop and speed have the same precision as in gpx written by
+ * {@link GPXUtilities#writeGpx} (0.1), coordinates are stored with 7 decimals.
+ * Files with {@link #GPX_BINARY_EXT} extension are written and read by {@link GPXUtilities#writeGpxFile(File, GPXFile)}
+ * and {@link GPXUtilities#loadGPXFile(File)}. Same format is read and written for shared GpxFile by GpxBinaryFormat.kt.
+ */
+public class GPXBinaryFormat {
+
+	private static final Log log = PlatformUtil.getLog(GPXBinaryFormat.class);
+
+	public static final String GPX_BINARY_EXT = ".gpxb";
+	private static final int MAGIC = 0x4f475042; // OGPB
+	private static final int VERSION = 1;
+
+	private static final double LAT_LON_MULT = 1e7;
+	private static final double DECIMAL_MULT = 10;
+
+	// counts and lengths are read from file, so preallocate only limited size
+	private static final int MAX_PREALLOCATED_POINTS = 1 << 16;
+	private static final int MAX_STRING_BYTES = 1 << 24;
+
+	public static boolean isBinaryGpx(File file) {
+		return file.getName().endsWith(GPX_BINARY_EXT);
+	}
+
+	public static Exception writeGpxFile(File fout, GPXFile file) {
+		if (fout.getParentFile() != null) {
+			fout.getParentFile().mkdirs();
+		}
+		if (Algorithms.isEmpty(file.path)) {
+			file.path = fout.getAbsolutePath();
+		}
+		try (OutputStream out = new FileOutputStream(fout)) {
+			writeGpx(out, file);
+			return null;
+		} catch (IOException e) {
+			log.error("Failed to write binary gpx", e);
+			return e;
+		}
+	}
+
+	public static void writeGpx(OutputStream output, GPXFile file) throws IOException {
+		BinaryWriter w = new BinaryWriter(new DataOutputStream(new BufferedOutputStream(output)));
+		w.out.writeInt(MAGIC);
+		w.writeVarInt(VERSION);
+		w.writeString(file.author);
+		w.writeExtensions(file);
+		w.writeMetadata(file.metadata);
+		w.writeMap(file.networkRouteKeyTags);
+		w.writeVarInt(file.pointsGroups.size());
+		for (PointsGroup group : file.pointsGroups.values()) {
+			w.writeString(group.name);
+			w.writeString(group.iconName);
+			w.writeString(group.backgroundType);
+			w.out.writeInt(group.color);
+			w.out.writeBoolean(group.hidden);
+		}
+		w.writePoints(file.points);
+		w.writeVarInt(file.routes.size());
+		for (Route route : file.routes) {
+			w.writeString(route.name);
+			w.writeString(route.desc);
+			w.writeExtensions(route);
+			w.writePoints(route.points);
+		}
+		List<Track> tracks = new ArrayList<>();
+		for (Track track : file.tracks) {
+			if (!track.generalTrack) {
+				tracks.add(track);
+			}
+		}
+		w.writeVarInt(tracks.size());
+		for (Track track : tracks) {
+			w.writeString(track.name);
+			w.writeString(track.desc);
+			w.writeExtensions(track);
+			w.writeVarInt(track.segments.size());
+			for (TrkSegment segment : track.segments) {
+				w.writeSegment(segment);
+			}
+		}
+		w.out.flush();
+	}
+
+	public static GPXFile loadGPXFile(File file) {
+		return loadGPXFile(file, true);
+	}
+
+	public static GPXFile loadGPXFile(File file, boolean addGeneralTrack) {
+		GPXFile gpxFile;
+		try (InputStream fis = new FileInputStream(file)) {
+			gpxFile = loadGPXFile(fis, addGeneralTrack);
+		} catch (IOException e) {
+			gpxFile = new GPXFile(null);
+			gpxFile.error = e;
+		}
+		gpxFile.path = file.getAbsolutePath();
+		gpxFile.modifiedTime = file.lastModified();
+		gpxFile.pointsModifiedTime = gpxFile.modifiedTime;
+		if (gpxFile.error != null) {
+			log.info("Error reading binary gpx " + gpxFile.path);
+		}
+		return gpxFile;
+	}
+
+	public static GPXFile loadGPXFile(InputStream stream, boolean addGeneralTrack) {
+		GPXFile gpxFile = new GPXFile(null);
+		try {
+			BinaryReader r = new BinaryReader(new DataInputStream(new BufferedInputStream(stream)));
+			if (r.in.readInt() != MAGIC) {
+				throw new IOException("Not a binary gpx file");
+			}
+			int version = r.readVarInt();
+			if (version > VERSION) {
+				throw new IOException("Unsupported binary gpx version " + version);
+			}
+			gpxFile.author = r.readString();
+			r.readExtensions(gpxFile);
+			gpxFile.metadata = r.readMetadata();
+			r.readMap(gpxFile.networkRouteKeyTags);
+			List<PointsGroup> groups = new ArrayList<>();
+			int groupsCount = r.readVarInt();
+			for (int i = 0; i < groupsCount; i++) {
+				PointsGroup group = new PointsGroup(r.readString());
+				group.iconName = r.readString();
+				group.backgroundType = r.readString();
+				group.color = r.in.readInt();
+				group.hidden = r.in.readBoolean();
+				groups.add(group);
+			}
+			gpxFile.points.addAll(r.readPoints());
+			int routesCount = r.readVarInt();
+			for (int i = 0; i < routesCount; i++) {
+				Route route = new Route();
+				route.name = r.readString();
+				route.desc = r.readString();
+				r.readExtensions(route);
+				route.points.addAll(r.readPoints());
+				gpxFile.routes.add(route);
+			}
+			int tracksCount = r.readVarInt();
+			for (int i = 0; i < tracksCount; i++) {
+				Track track = new Track();
+				track.name = r.readString();
+				track.desc = r.readString();
+				r.readExtensions(track);
+				int segmentsCount = r.readVarInt();
+				for (int j = 0; j < segmentsCount; j++) {
+					track.segments.add(r.readSegment());
+				}
+				gpxFile.tracks.add(track);
+			}
+			if (!groups.isEmpty() || !gpxFile.points.isEmpty()) {
+				gpxFile.pointsGroups.putAll(GPXUtilities.mergePointsGroups(groups, gpxFile.points));
+			}
+			if (addGeneralTrack) {
+				gpxFile.addGeneralTrack();
+			}
+			if (gpxFile.metadata.time == 0) {
+				gpxFile.metadata.time = GPXUtilities.getCreationTime(gpxFile);
+			}
+		} catch (IOException | RuntimeException e) {
+			gpxFile.error = e;
+			log.error("Error reading binary gpx. " + gpxFile.path, e);
+		}
+		return gpxFile;
+	}
+
+	private static long round(double v, double mult) {
+		return Math.round(v * mult);
+	}
+
+	private static class BinaryWriter {
+		private final DataOutputStream out;
+		private final Map<String, Integer> keys = new HashMap<>();
+
+		BinaryWriter(DataOutputStream out) {
+			this.out = out;
+		}
+
+		void writeVarInt(int v) throws IOException {
+			writeVarLong(v & 0xffffffffL);
+		}
+
+		void writeVarLong(long v) throws IOException {
+			while ((v & ~0x7fL) != 0) {
+				out.writeByte((int) ((v & 0x7f) | 0x80));
+				v >>>= 7;
+			}
+			out.writeByte((int) v);
+		}
+
+		void writeSignedVarLong(long v) throws IOException {
+			writeVarLong((v << 1) ^ (v >> 63));
+		}
+
+		void writeString(String s) throws IOException {
+			if (s == null) {
+				writeVarInt(0);
+			} else {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(bytes.length + 1);
+				out.write(bytes);
+			}
+		}
+
+		// keys are written once and referenced by index after that
+		void writeKey(String key) throws IOException {
+			Integer ind = keys.get(key);
+			if (ind != null) {
+				writeVarInt(ind + 1);
+			} else {
+				keys.put(key, keys.size());
+				writeVarInt(0);
+				writeString(key);
+			}
+		}
+
+		// link text is stored by shared GpxFile, this gpx model has only href
+		void writeLink(String href) throws IOException {
+			writeString(href);
+			writeString(null);
+		}
+
+		void writeMap(Map<String, String> map) throws IOException {
+			writeVarInt(map.size());
+			for (Entry<String, String> e : map.entrySet()) {
+				writeKey(e.getKey());
+				writeString(e.getValue());
+			}
+		}
+
+		void writeExtensions(GPXExtensions e) throws IOException {
+			writeMap(e.getExtensionsToRead());
+		}
+
+		void writeMetadata(Metadata m) throws IOException {
+			writeString(m.name);
+			writeString(m.desc);
+			writeLink(m.link);
+			writeString(m.keywords);
+			writeSignedVarLong(m.time);
+			out.writeBoolean(m.author != null);
+			if (m.author != null) {
+				writeString(m.author.name);
+				writeString(m.author.email);
+				writeLink(m.author.link);
+				writeExtensions(m.author);
+			}
+			out.writeBoolean(m.copyright != null);
+			if (m.copyright != null) {
+				writeString(m.copyright.author);
+				writeString(m.copyright.year);
+				writeString(m.copyright.license);
+				writeExtensions(m.copyright);
+			}
+			out.writeBoolean(m.bounds != null);
+			if (m.bounds != null) {
+				out.writeDouble(m.bounds.minlat);
+				out.writeDouble(m.bounds.minlon);
+				out.writeDouble(m.bounds.maxlat);
+				out.writeDouble(m.bounds.maxlon);
+				writeExtensions(m.bounds);
+			}
+			writeExtensions(m);
+		}
+
+		void writeSegment(TrkSegment segment) throws IOException {
+			writeString(segment.name);
+			writeExtensions(segment);
+			writeVarInt(segment.routeSegments.size());
+			for (RouteSegment s : segment.routeSegments) {
+				for (String v : new String[] { s.id, s.length, s.startTrackPointIndex, s.segmentTime, s.speed, s.turnType,
+						s.turnLanes, s.turnAngle, s.skipTurn, s.types, s.pointTypes, s.names }) {
+					writeString(v);
+				}
+			}
+			writeVarInt(segment.routeTypes.size());
+			for (RouteType t : segment.routeTypes) {
+				writeString(t.tag);
+				writeString(t.value);
+			}
+			writePoints(segment.points);
+		}
+
+		void writePresence(List<WptPt> points, Presence p) throws IOException {
+			byte[] bits = new byte[(points.size() + 7) / 8];
+			for (int i = 0; i < points.size(); i++) {
+				if (p.isPresent(points.get(i))) {
+					bits[i >> 3] |= 1 << (i & 7);
+				}
+			}
+			out.write(bits);
+		}
+
+		void writePoints(List<WptPt> points) throws IOException {
+			writeVarInt(points.size());
+			long lat = 0, lon = 0, time = 0, ele = 0;
+			for (WptPt p : points) {
+				long v = round(p.lat, LAT_LON_MULT);
+				writeSignedVarLong(v - lat);
+				lat = v;
+			}
+			for (WptPt p : points) {
+				long v = round(p.lon, LAT_LON_MULT);
+				writeSignedVarLong(v - lon);
+				lon = v;
+			}
+			for (WptPt p : points) {
+				writeSignedVarLong(p.time - time);
+				time = p.time;
+			}
+			writePresence(points, p -> !Double.isNaN(p.ele));
+			for (WptPt p : points) {
+				if (!Double.isNaN(p.ele)) {
+					long v = round(p.ele, DECIMAL_MULT);
+					writeSignedVarLong(v - ele);
+					ele = v;
+				}
+			}
+			writePresence(points, p -> !Double.isNaN(p.hdop));
+			for (WptPt p : points) {
+				if (!Double.isNaN(p.hdop)) {
+					writeSignedVarLong(round(p.hdop, DECIMAL_MULT));
+				}
+			}
+			writePresence(points, p -> p.speed > 0);
+			for (WptPt p : points) {
+				if (p.speed > 0) {
+					writeSignedVarLong(round(p.speed, DECIMAL_MULT));
+				}
+			}
+			writePresence(points, p -> !Float.isNaN(p.heading));
+			for (WptPt p : points) {
+				if (!Float.isNaN(p.heading)) {
+					writeSignedVarLong(Math.round(p.heading));
+				}
+			}
+			writePresence(points, p -> !Float.isNaN(p.bearing));
+			for (WptPt p : points) {
+				if (!Float.isNaN(p.bearing)) {
+					out.writeFloat(p.bearing);
+				}
+			}
+			writePresence(points, p -> p.name != null || p.desc != null || p.link != null || p.category != null
+					|| p.comment != null);
+			for (WptPt p : points) {
+				if (p.name != null || p.desc != null || p.link != null || p.category != null || p.comment != null) {
+					writeString(p.name);
+					writeString(p.desc);
+					writeLink(p.link);
+					writeString(p.category);
+					writeString(p.comment);
+				}
+			}
+			writePresence(points, p -> !p.getExtensionsToRead().isEmpty());
+			for (WptPt p : points) {
+				if (!p.getExtensionsToRead().isEmpty()) {
+					writeExtensions(p);
+				}
+			}
+		}
+	}
+
+	private interface Presence {
+		boolean isPresent(WptPt p);
+	}
+
+	private static class BinaryReader {
+		private final DataInputStream in;
+		private final List<String> keys = new ArrayList<>();
+
+		BinaryReader(DataInputStream in) {
+			this.in = in;
+		}
+
+		int readVarInt() throws IOException {
+			return (int) readVarLong();
+		}
+
+		long readVarLong() throws IOException {
+			long v = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				int b = in.readUnsignedByte();
+				v |= (long) (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return v;
+				}
+			}
+			throw new IOException("Malformed varint");
+		}
+
+		long readSignedVarLong() throws IOException {
+			long v = readVarLong();
+			return (v >>> 1) ^ -(v & 1);
+		}
+
+		String readString() throws IOException {
+			int len = readVarInt();
+			if (len == 0) {
+				return null;
+			}
+			if (len < 0 || len - 1 > MAX_STRING_BYTES) {
+				throw new IOException("Malformed string length " + len);
+			}
+			byte[] bytes = new byte[len - 1];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		String readLink() throws IOException {
+			String href = readString();
+			readString();
+			return href;
+		}
+
+		String readKey() throws IOException {
+			int ind = readVarInt();
+			if (ind == 0) {
+				String key = readString();
+				keys.add(key);
+				return key;
+			}
+			if (ind > keys.size()) {
+				throw new IOException("Unknown key " + ind);
+			}
+			return keys.get(ind - 1);
+		}
+
+		void readMap(Map<String, String> map) throws IOException {
+			int size = readVarInt();
+			for (int i = 0; i < size; i++) {
+				String key = readKey();
+				map.put(key, readString());
+			}
+		}
+
+		void readExtensions(GPXExtensions e) throws IOException {
+			int size = readVarInt();
+			for (int i = 0; i < size; i++) {
+				String key = readKey();
+				e.getExtensionsToWrite().put(key, readString());
+			}
+		}
+
+		Metadata readMetadata() throws IOException {
+			Metadata m = new Metadata();
+			m.name = readString();
+			m.desc = readString();
+			m.link = readLink();
+			m.keywords = readString();
+			m.time = readSignedVarLong();
+			if (in.readBoolean()) {
+				m.author = new Author();
+				m.author.name = readString();
+				m.author.email = readString();
+				m.author.link = readLink();
+				readExtensions(m.author);
+			}
+			if (in.readBoolean()) {
+				m.copyright = new Copyright();
+				m.copyright.author = readString();
+				m.copyright.year = readString();
+				m.copyright.license = readString();
+				readExtensions(m.copyright);
+			}
+			if (in.readBoolean()) {
+				m.bounds = new Bounds();
+				m.bounds.minlat = in.readDouble();
+				m.bounds.minlon = in.readDouble();
+				m.bounds.maxlat = in.readDouble();
+				m.bounds.maxlon = in.readDouble();
+				readExtensions(m.bounds);
+			}
+			readExtensions(m);
+			return m;
+		}
+
+		TrkSegment readSegment() throws IOException {
+			TrkSegment segment = new TrkSegment();
+			segment.name = readString();
+			readExtensions(segment);
+			int routeSegments = readVarInt();
+			for (int i = 0; i < routeSegments; i++) {
+				RouteSegment s = new RouteSegment();
+				s.id = readString();
+				s.length = readString();
+				s.startTrackPointIndex = readString();
+				s.segmentTime = readString();
+				s.speed = readString();
+				s.turnType = readString();
+				s.turnLanes = readString();
+				s.turnAngle = readString();
+				s.skipTurn = readString();
+				s.types = readString();
+				s.pointTypes = readString();
+				s.names = readString();
+				segment.routeSegments.add(s);
+			}
+			int routeTypes = readVarInt();
+			for (int i = 0; i < routeTypes; i++) {
+				RouteType t = new RouteType();
+				t.tag = readString();
+				t.value = readString();
+				segment.routeTypes.add(t);
+			}
+			segment.points.addAll(readPoints());
+			return segment;
+		}
+
+		boolean[] readPresence(int size) throws IOException {
+			byte[] bits = new byte[(size + 7) / 8];
+			in.readFully(bits);
+			boolean[] res = new boolean[size];
+			for (int i = 0; i < size; i++) {
+				res[i] = (bits[i >> 3] & (1 << (i & 7))) != 0;
+			}
+			return res;
+		}
+
+		List<WptPt> readPoints() throws IOException {
+			int size = readVarInt();
+			if (size < 0) {
+				throw new EOFException("Malformed points count");
+			}
+			List<WptPt> points = new ArrayList<>(Math.min(size, MAX_PREALLOCATED_POINTS));
+			long lat = 0, lon = 0, time = 0, ele = 0;
+			for (int i = 0; i < size; i++) {
+				WptPt p = new WptPt();
+				lat += readSignedVarLong();
+				p.lat = lat / LAT_LON_MULT;
+				points.add(p);
+			}
+			for (WptPt p : points) {
+				lon += readSignedVarLong();
+				p.lon = lon / LAT_LON_MULT;
+			}
+			for (WptPt p : points) {
+				time += readSignedVarLong();
+				p.time = time;
+			}
+			boolean[] present = readPresence(size);
+			for (int i = 0; i < size; i++) {
+				if (present[i]) {
+					ele += readSignedVarLong();
+					points.get(i).ele = ele / DECIMAL_MULT;
+				}
+			}
+			present = readPresence(size);
+			for (int i = 0; i < size; i++) {
+				if (present[i]) {
+					points.get(i).hdop = readSignedVarLong() / DECIMAL_MULT;
+				}
+			}
+			present = readPresence(size);
+			for (int i = 0; i < size; i++) {
+				if (present[i]) {
+					points.get(i).speed = readSignedVarLong() / DECIMAL_MULT;
+				}
+			}
+			present = readPresence(size);
+			for (int i = 0; i < size; i++) {
+				if (present[i]) {
+					points.get(i).heading = readSignedVarLong();
+				}
+			}
+			present = readPresence(size);
+			for (int i = 0; i < size; i++) {
+				if (present[i]) {
+					points.get(i).bearing = in.readFloat();
+				}
+			}
+			present = readPresence(size);
+			for (int i = 0; i < size; i++) {
+				if (present[i]) {
+					WptPt p = points.get(i);
+					p.name = readString();
+					p.desc = readString();
+					p.link = readLink();
+					p.category = readString();
+					p.comment = readString();
+				}
+			}
+			present = readPresence(size);
+			for (int i = 0; i < size; i++) {
+				if (present[i]) {
+					readExtensions(points.get(i));
+				}
+			}
+			return points;
+		}
+	}
+}
@@ -0,0 +1,339 @@
+package net.osmand.gpx;
+
+import static net.osmand.gpx.GPXUtilities.parseWptAttributes;
+import static net.osmand.gpx.GPXUtilities.readExtensionValues;
+import static net.osmand.gpx.GPXUtilities.readText;
+import static net.osmand.gpx.GPXUtilities.readWptTag;
+
+import net.osmand.PlatformUtil;
+import net.osmand.gpx.GPXTrackAnalysis.StreamingAnalysis;
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.WptPt;
+import net.osmand.util.Algorithms;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming gpx reader: track points, route points and waypoints are passed to listener as soon as they are read
+ * and are not kept in memory (unlike {@link GPXUtilities#loadGPXFile(InputStream)} which builds whole {@link GPXFile}).
+ * Points are parsed same way as by loadGPXFile, metadata is skipped and only route segments, types and points groups
+ * are read from extensions of gpx, tracks and segments (for analysis). Points of routepointextension are passed
+ * as track points of additional last track after whole file is read (as route track of loadGPXFile),
+ * so they are kept in memory.
+ */
+public class GPXStreamReader {
+
+	public interface GPXStreamListener {
+
+		void onTrackPoint(WptPt point, int trackIndex, int segmentIndex);
+
+		default void onSegmentEnd(int trackIndex, int segmentIndex) {
+		}
+
+		// track with name and description (without segments)
+		default void onTrackEnd(Track track, int trackIndex) {
+		}
+
+		default void onRoutePoint(WptPt point, int routeIndex) {
+		}
+
+		default void onWayPoint(WptPt point) {
+		}
+	}
+
+	private final GPXStreamListener listener;
+	private StreamingAnalysis analysis;
+
+	private Track track;
+	private int trackIndex = -1;
+	private int segmentIndex = -1;
+	private boolean segmentOpened;
+	private int routeIndex = -1;
+	private boolean route;
+
+	private boolean routePointExtension;
+	private final List<WptPt> routeTrackPoints = new ArrayList<>();
+	// route segments which are not assigned to segment yet
+	private int routeSegments;
+	private long routeSegmentsDuration;
+	private boolean routeTypes;
+	private boolean firstSegmentClosed;
+	private long firstSegmentDuration = -1;
+
+	public GPXStreamReader(GPXStreamListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Track analysis is calculated while reading (see {@link StreamingAnalysis#finish(long)})
+	 */
+	public GPXStreamReader setAnalysis(StreamingAnalysis analysis) {
+		this.analysis = analysis;
+		return this;
+	}
+
+	public void read(File file) throws IOException, XmlPullParserException {
+		try (InputStream is = new FileInputStream(file)) {
+			read(is);
+		}
+	}
+
+	public void read(InputStream stream) throws IOException, XmlPullParserException {
+		XmlPullParser parser = PlatformUtil.newXMLPullParser();
+		parser.setInput(GPXUtilities.getUTF8Reader(stream));
+		WptPt point = null;
+		String pointTag = null;
+		boolean pointExtensions = false;
+		int tok;
+		while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
+			if (tok == XmlPullParser.START_TAG) {
+				String tag = parser.getName();
+				if (point != null) {
+					if (routePointExtension) {
+						if (tag.equals("rpt")) {
+							routeTrackPoints.add(parseWptAttributes(parser));
+						}
+					} else if (pointExtensions) {
+						if (tag.equalsIgnoreCase("routepointextension")) {
+							routePointExtension = true;
+							point.getExtensionsToWrite().put("offset", routeTrackPoints.size() + "");
+						} else {
+							readExtensionValues(parser, tag, point);
+						}
+					} else if (tag.equals("extensions")) {
+						pointExtensions = true;
+					} else {
+						readWptTag(parser, tag, point);
+					}
+				} else if (tag.equals("metadata")) {
+					skipTag(parser);
+				} else if (tag.equals("extensions")) {
+					readExtensions(parser);
+				} else if (tag.equals("trk")) {
+					track = new Track();
+					trackIndex++;
+					segmentIndex = -1;
+				} else if (tag.equals("rte")) {
+					routeIndex++;
+					route = true;
+				} else if (tag.equals("wpt") || tag.equals("rtept")) {
+					point = parseWptAttributes(parser);
+					pointTag = tag;
+				} else if (track != null) {
+					if (tag.equals("trkseg")) {
+						startSegment();
+					} else if (tag.equals("trkpt")) {
+						if (!segmentOpened) {
+							startSegment();
+						}
+						point = parseWptAttributes(parser);
+						pointTag = tag;
+					} else if (tag.equals("csvattributes") && segmentOpened) {
+						readCsvAttributes(readText(parser, "csvattributes"));
+					} else if (tag.equals("name") && !segmentOpened) {
+						track.name = readText(parser, "name");
+					} else if (tag.equals("desc") && !segmentOpened) {
+						track.desc = readText(parser, "desc");
+					}
+				}
+			} else if (tok == XmlPullParser.END_TAG) {
+				String tag = parser.getName();
+				if (point != null) {
+					if (routePointExtension) {
+						if (tag.equalsIgnoreCase("routepointextension")) {
+							routePointExtension = false;
+						}
+					} else if (tag.equals(pointTag)) {
+						onPoint(point, pointTag);
+						point = null;
+						pointExtensions = false;
+					} else if (tag.equals("extensions")) {
+						pointExtensions = false;
+					}
+				} else if (tag.equals("trkseg")) {
+					closeSegment();
+				} else if (tag.equals("trk") && track != null) {
+					finishSegment();
+					listener.onTrackEnd(track, trackIndex);
+					track = null;
+				} else if (tag.equals("rte")) {
+					route = false;
+				}
+			}
+		}
+		readRouteTrack();
+		if (analysis != null && routeSegments > 0 && routeTypes && firstSegmentDuration >= 0) {
+			// loadGPXFile assigns route segments of gpx extensions to first segment
+			analysis.addExpectedRouteDuration(routeSegmentsDuration - firstSegmentDuration);
+		}
+	}
+
+	private void readRouteTrack() {
+		if (routeTrackPoints.isEmpty()) {
+			return;
+		}
+		trackIndex++;
+		segmentIndex = -1;
+		startSegment();
+		for (WptPt point : routeTrackPoints) {
+			onTrackPoint(point);
+		}
+		finishSegment();
+		listener.onTrackEnd(new Track(), trackIndex);
+		routeTrackPoints.clear();
+	}
+
+	// route segments read before </trkseg> belong to closed segment
+	private void closeSegment() {
+		boolean analysed = finishSegment();
+		if (analysis != null) {
+			long duration = analysed ? routeSegmentsDuration : -1;
+			if (analysed) {
+				analysis.addExpectedRouteDuration(duration);
+			}
+			if (!firstSegmentClosed) {
+				firstSegmentClosed = true;
+				firstSegmentDuration = duration;
+			}
+		}
+		routeSegments = 0;
+		routeSegmentsDuration = 0;
+		routeTypes = false;
+	}
+
+	private void onPoint(WptPt point, String tag) {
+		if (tag.equals("wpt")) {
+			if (analysis != null) {
+				analysis.addWaypoint(point);
+			}
+			listener.onWayPoint(point);
+		} else if (tag.equals("rtept")) {
+			if (route) {
+				listener.onRoutePoint(point, routeIndex);
+			}
+		} else {
+			onTrackPoint(point);
+		}
+	}
+
+	private void onTrackPoint(WptPt point) {
+		if (analysis != null) {
+			analysis.addPoint(point);
+		}
+		listener.onTrackPoint(point, trackIndex, segmentIndex);
+	}
+
+	private void startSegment() {
+		finishSegment();
+		segmentIndex++;
+		segmentOpened = true;
+		if (analysis != null) {
+			analysis.startSegment();
+		}
+	}
+
+	private boolean finishSegment() {
+		boolean analysed = false;
+		if (segmentOpened) {
+			segmentOpened = false;
+			if (analysis != null) {
+				analysed = analysis.finishSegment();
+			}
+			listener.onSegmentEnd(trackIndex, segmentIndex);
+		}
+		return analysed;
+	}
+
+	// reads only route segments, types, points groups and route points same as loadGPXFile
+	private void readExtensions(XmlPullParser parser) throws XmlPullParserException, IOException {
+		int depth = parser.getDepth();
+		boolean routeExtension = false;
+		boolean typesExtension = false;
+		boolean pointsGroupsExtension = false;
+		int tok;
+		while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
+			if (tok == XmlPullParser.START_TAG) {
+				String tag = parser.getName().toLowerCase();
+				if (routePointExtension) {
+					if (parser.getName().equals("rpt")) {
+						routeTrackPoints.add(parseWptAttributes(parser));
+					}
+				} else if (routeExtension && tag.equals("segment")) {
+					routeSegments++;
+					String segmentTime = parser.getAttributeValue("", "segmentTime");
+					routeSegmentsDuration += (long) (1000 * Algorithms.parseFloatSilently(segmentTime, 0.0f));
+				} else if (typesExtension && tag.equals("type")) {
+					routeTypes = true;
+				} else if (pointsGroupsExtension && tag.equals("group")) {
+					String name = parser.getAttributeValue("", "name");
+					if (analysis != null) {
+						analysis.addWaypointCategory(name != null ? name : "");
+					}
+				} else if (tag.equals("routepointextension")) {
+					routePointExtension = true;
+				} else if (tag.equals("route")) {
+					routeExtension = true;
+				} else if (tag.equals("types")) {
+					typesExtension = true;
+				} else if (tag.equals("points_groups")) {
+					pointsGroupsExtension = true;
+				}
+			} else if (tok == XmlPullParser.END_TAG) {
+				if (parser.getDepth() == depth) {
+					break;
+				}
+				String tag = parser.getName();
+				if (tag.equalsIgnoreCase("routepointextension")) {
+					routePointExtension = false;
+				} else if (tag.equals("route")) {
+					routeExtension = false;
+				} else if (tag.equals("types")) {
+					typesExtension = false;
+				} else if (tag.equals("points_groups")) {
+					pointsGroupsExtension = false;
+				}
+			}
+		}
+	}
+
+	private void readCsvAttributes(String segmentPoints) {
+		if (segmentPoints == null) {
+			return;
+		}
+		String[] pointsArr = segmentPoints.split("\n");
+		if (pointsArr.length <= 1) {
+			return;
+		}
+		for (String pointStr : pointsArr) {
+			String[] pointAttrs = pointStr.split(",");
+			try {
+				WptPt wptPt = new WptPt();
+				wptPt.lon = Double.parseDouble(pointAttrs[0]);
+				wptPt.lat = Double.parseDouble(pointAttrs[1]);
+				if (pointAttrs.length > 2) {
+					wptPt.ele = Double.parseDouble(pointAttrs[2]);
+				}
+				onTrackPoint(wptPt);
+			} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			}
+		}
+	}
+
+	private static void skipTag(XmlPullParser parser) throws XmlPullParserException, IOException {
+		int depth = parser.getDepth();
+		int tok;
+		while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
+			if (tok == XmlPullParser.END_TAG && parser.getDepth() == depth) {
+				break;
+			}
+		}
+	}
+}
@@ -15,8 +15,10 @@ import net.osmand.util.CollectionUtils;
 import org.apache.commons.logging.Log;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -730,7 +732,10 @@ public class GPXTrackAnalysis {
 	}
 
 	private void processElevationDiff(SplitSegment segment) {
-		ElevationApproximator approximator = getElevationApproximator(segment);
+		processElevationDiff(getElevationApproximator(segment));
+	}
+
+	private void processElevationDiff(ElevationApproximator approximator) {
 		approximator.approximate();
 		final double[] distances = approximator.getDistances();
 		final double[] elevations = approximator.getElevations();
@@ -788,4 +793,271 @@ public class GPXTrackAnalysis {
 	public interface TrackPointsAnalyser {
 		void onAnalysePoint(GPXTrackAnalysis analysis, WptPt point, PointAttributes attribute);
 	}
+
+	/**
+	 * Analysis of points which are passed one by one (i.e. by {@link GPXStreamReader}), same as
+	 * {@link GPXFile#getAnalysis(long)} but points are not kept: only coordinates and elevations of current segment
+	 * are stored for elevation diffs. Metrics without gaps are calculated as for {@link GPXFile#getGeneralSegment()}.
+	 * Collecting of {@link #pointAttributes} could be switched off to keep memory constant for huge tracks.
+	 */
+	public static class StreamingAnalysis {
+
+		private final GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		private final TrackPointsAnalyser pointsAnalyser;
+		private final Set<String> wptCategories = new LinkedHashSet<>();
+		private final float[] calculations = new float[1];
+		private boolean collectPointAttributes = true;
+
+		// first point of segment is analysed when second point is added (segments with 1 point are skipped)
+		private WptPt first;
+		private WptPt prev;
+		private int segmentPoints;
+		private float segmentDistance;
+		private double[] lats = new double[64];
+		private double[] lons = new double[64];
+		private double[] eles = new double[64];
+		private int timeDiff;
+
+		// general segment (without gaps) metrics of current segment
+		private long startTimeOfSingleSegment;
+		private long endTimeOfSingleSegment;
+		private long timeMovingOfSingleSegment;
+		private float distanceMovingOfSingleSegment;
+
+		private float totalElevation;
+		private int elevationPoints;
+		private int speedCount;
+		private double totalSpeedSum;
+		private int sensorSpeedCount;
+		private double totalSensorSpeedSum;
+		private int sensorHrCount;
+		private double totalSensorHrSum;
+		private int sensorPowerCount;
+		private double totalSensorPowerSum;
+		private int sensorTemperatureCount;
+		private double totalSensorTemperatureSum;
+		private int sensorCadenceCount;
+		private double totalSensorCadenceSum;
+
+		public StreamingAnalysis(String name, TrackPointsAnalyser pointsAnalyser) {
+			this.pointsAnalyser = pointsAnalyser;
+			analysis.name = name;
+			analysis.setPoints(0);
+		}
+
+		public StreamingAnalysis setCollectPointAttributes(boolean collectPointAttributes) {
+			this.collectPointAttributes = collectPointAttributes;
+			return this;
+		}
+
+		public void startSegment() {
+			finishSegment();
+			analysis.setTotalTracks(analysis.getTotalTracks() + 1);
+		}
+
+		public void addPoint(WptPt point) {
+			if (segmentPoints == 0 && first == null) {
+				first = point;
+				updateTimeWithoutGaps(point.time, true);
+				return;
+			}
+			if (first != null) {
+				analysePoint(first);
+				first = null;
+			}
+			analysePoint(point);
+		}
+
+		/**
+		 * @return true if segment had more than 1 point and was analysed
+		 */
+		public boolean finishSegment() {
+			boolean analysed = segmentPoints > 1;
+			if (analysed) {
+				updateTimeWithoutGaps(prev.time, false);
+				analysis.totalDistanceWithoutGaps += segmentDistance;
+				analysis.timeMovingWithoutGaps += timeMovingOfSingleSegment;
+				analysis.totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
+				analysis.setPoints(analysis.getPoints() + segmentPoints);
+				final int count = segmentPoints;
+				analysis.processElevationDiff(new ElevationApproximator() {
+					@Override
+					public double getPointLatitude(int index) {
+						return lats[index];
+					}
+
+					@Override
+					public double getPointLongitude(int index) {
+						return lons[index];
+					}
+
+					@Override
+					public double getPointElevation(int index) {
+						return eles[index];
+					}
+
+					@Override
+					public int getPointsCount() {
+						return count;
+					}
+				});
+			}
+			first = null;
+			prev = null;
+			segmentPoints = 0;
+			segmentDistance = 0;
+			timeMovingOfSingleSegment = 0;
+			distanceMovingOfSingleSegment = 0;
+			return analysed;
+		}
+
+		// same as in prepareInformation for first and last points of general segment
+		private void updateTimeWithoutGaps(long time, boolean firstPoint) {
+			if (time != 0) {
+				if (firstPoint) {
+					startTimeOfSingleSegment = time;
+				} else {
+					endTimeOfSingleSegment = time;
+				}
+				if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
+					analysis.timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
+					startTimeOfSingleSegment = 0;
+					endTimeOfSingleSegment = 0;
+				}
+			}
+		}
+
+		// route segments duration of analysed segment
+		public void addExpectedRouteDuration(long duration) {
+			analysis.expectedRouteDuration += duration;
+		}
+
+		public void addWaypoint(WptPt wpt) {
+			analysis.setWptPoints(analysis.getWptPoints() + 1);
+			addWaypointCategory(wpt.category != null ? wpt.category : "");
+		}
+
+		public void addWaypointCategory(String category) {
+			wptCategories.add(category);
+		}
+
+		public GPXTrackAnalysis finish(long fileTimeStamp) {
+			finishSegment();
+			analysis.setWptCategoryNames(wptCategories);
+			analysis.checkUnspecifiedValues(fileTimeStamp);
+			analysis.processAverageValues(totalElevation, elevationPoints, totalSpeedSum, speedCount);
+			analysis.setAvgSensorSpeed(analysis.processAverageValue(totalSensorSpeedSum, sensorSpeedCount));
+			analysis.setAvgSensorCadence(analysis.processAverageValue(totalSensorCadenceSum, sensorCadenceCount));
+			analysis.setAvgSensorHr(analysis.processAverageValue(totalSensorHrSum, sensorHrCount));
+			analysis.setAvgSensorPower(analysis.processAverageValue(totalSensorPowerSum, sensorPowerCount));
+			analysis.setAvgSensorTemperature(analysis.processAverageValue(totalSensorTemperatureSum, sensorTemperatureCount));
+			return analysis;
+		}
+
+		private void analysePoint(WptPt point) {
+			GPXTrackAnalysis a = analysis;
+			if (segmentPoints == lats.length) {
+				lats = Arrays.copyOf(lats, lats.length * 2);
+				lons = Arrays.copyOf(lons, lons.length * 2);
+				eles = Arrays.copyOf(eles, eles.length * 2);
+			}
+			lats[segmentPoints] = point.lat;
+			lons[segmentPoints] = point.lon;
+			eles[segmentPoints] = point.ele;
+			if (segmentPoints == 0 && a.locationStart == null) {
+				a.locationStart = point;
+				a.setLatLonStart(point.lat, point.lon);
+			}
+			a.locationEnd = point;
+			if (point.time != 0) {
+				a.setStartTime(Math.min(a.getStartTime(), point.time));
+				a.setEndTime(Math.max(a.getEndTime(), point.time));
+			}
+			a.updateBounds(point);
+			float speed = (float) point.speed;
+			if (speed > 0) {
+				a.hasSpeedInTrack = true;
+			}
+			a.updateHdop(point);
+			if (prev != null) {
+				net.osmand.Location.distanceBetween(prev.lat, prev.lon, point.lat, point.lon, calculations);
+				a.setTotalDistance(a.getTotalDistance() + calculations[0]);
+				segmentDistance += calculations[0];
+				point.distance = segmentDistance;
+				long timeDiffMillis = Math.max(0, point.time - prev.time);
+				timeDiff = (int) ((timeDiffMillis) / 1000);
+				if (!a.hasSpeedInTrack && speed == 0 && timeDiff > 0) {
+					speed = calculations[0] / timeDiff;
+				}
+				boolean timeSpecified = point.time != 0 && prev.time != 0;
+				if (speed > 0 && timeSpecified && calculations[0] > timeDiffMillis / 10000f) {
+					a.setTimeMoving(a.getTimeMoving() + timeDiffMillis);
+					a.setTotalDistanceMoving(a.getTotalDistanceMoving() + calculations[0]);
+					timeMovingOfSingleSegment += timeDiffMillis;
+					distanceMovingOfSingleSegment += calculations[0];
+				}
+			}
+			a.setMinSpeed(Math.min(speed, a.getMinSpeed()));
+			if (speed > 0 && !Float.isInfinite(speed)) {
+				totalSpeedSum += speed;
+				a.setMaxSpeed(Math.max(speed, a.getMaxSpeed()));
+				speedCount++;
+			}
+			boolean isNaN = Double.isNaN(point.ele);
+			if (!isNaN) {
+				totalElevation += point.ele;
+				elevationPoints++;
+				a.setMinElevation(Math.min(point.ele, a.getMinElevation()));
+				a.setMaxElevation(Math.max(point.ele, a.getMaxElevation()));
+			}
+			PointAttributes attribute = new PointAttributes(prev != null ? calculations[0] : 0, timeDiff, false, false);
+			attribute.speed = speed;
+			attribute.elevation = isNaN ? Float.NaN : (float) point.ele;
+			if (!a.hasSpeedData() && attribute.speed > 0 && a.getTotalDistance() > 0) {
+				a.setHasData(POINT_SPEED, true);
+			}
+			if (!a.hasElevationData() && !Float.isNaN(attribute.elevation) && a.getTotalDistance() > 0) {
+				a.setHasData(POINT_ELEVATION, true);
+			}
+			if (pointsAnalyser != null) {
+				pointsAnalyser.onAnalysePoint(a, point, attribute);
+			}
+			if (collectPointAttributes) {
+				a.pointAttributes.add(attribute);
+			}
+			addSensorValues(attribute);
+			prev = point;
+			segmentPoints++;
+		}
+
+		private void addSensorValues(PointAttributes attribute) {
+			GPXTrackAnalysis a = analysis;
+			if (attribute.sensorSpeed > 0 && !Float.isInfinite(attribute.sensorSpeed)) {
+				a.setMaxSensorSpeed(Math.max(attribute.sensorSpeed, a.getMaxSensorSpeed()));
+				sensorSpeedCount++;
+				totalSensorSpeedSum += attribute.sensorSpeed;
+			}
+			if (attribute.bikeCadence > 0) {
+				a.setMaxSensorCadence(Math.max(attribute.bikeCadence, a.getMaxSensorCadence()));
+				sensorCadenceCount++;
+				totalSensorCadenceSum += attribute.bikeCadence;
+			}
+			if (attribute.heartRate > 0) {
+				a.setMaxSensorHr(Math.max((int) attribute.heartRate, a.getMaxSensorHr()));
+				sensorHrCount++;
+				totalSensorHrSum += attribute.heartRate;
+			}
+			float temperature = attribute.getTemperature();
+			if (temperature > 0) {
+				a.setMaxSensorTemperature(Math.max((int) temperature, a.getMaxSensorTemperature()));
+				sensorTemperatureCount++;
+				totalSensorTemperatureSum += temperature;
+			}
+			if (attribute.bikePower > 0) {
+				a.setMaxSensorPower(Math.max((int) attribute.bikePower, a.getMaxSensorPower()));
+				sensorPowerCount++;
+				totalSensorPowerSum += attribute.bikePower;
+			}
+		}
+	}
 }
@@ -988,6 +988,9 @@ public class GPXUtilities {
 	}
 
 	public static Exception writeGpxFile(File fout, GPXFile file) {
+		if (GPXBinaryFormat.isBinaryGpx(fout)) {
+			return GPXBinaryFormat.writeGpxFile(fout, file);
+		}
 		Writer output = null;
 		try {
 			if (fout.getParentFile() != null) {
@@ -1553,6 +1556,9 @@ public class GPXUtilities {
 	}
 
 	public static GPXFile loadGPXFile(File file, GPXExtensionsReader extensionsReader, boolean addGeneralTrack) {
+		if (GPXBinaryFormat.isBinaryGpx(file)) {
+			return GPXBinaryFormat.loadGPXFile(file, addGeneralTrack);
+		}
 		FileInputStream fis = null;
 		try {
 			fis = new FileInputStream(file);
@@ -1643,30 +1649,7 @@ public class GPXUtilities {
 
 							default:
 								if (extensionsReader == null || !extensionsReader.readExtensions(gpxFile, parser)) {
-									Map<String, String> values = readTextMap(parser, tag);
-									if (values.size() > 0) {
-										for (Entry<String, String> entry : values.entrySet()) {
-											String t = entry.getKey().toLowerCase();
-											String supportedTag = getExtensionsSupportedTag(t);
-											String value = entry.getValue();
-											parse.getExtensionsToWrite().put(supportedTag, value);
-											if (parse instanceof WptPt) {
-												WptPt wptPt = (WptPt) parse;
-												if (POINT_SPEED.equals(tag)) {
-													try {
-														wptPt.speed = Float.parseFloat(value);
-													} catch (NumberFormatException e) {
-														log.debug(e.getMessage(), e);
-													}
-												} else if (POINT_BEARING.equals(tag)) {
-													try {
-														wptPt.bearing = Float.parseFloat(value);
-													} catch (NumberFormatException ignored) {
-													}
-												}
-											}
-										}
-									}
+									readExtensionValues(parser, tag, parse);
 								}
 								break;
 						}
@@ -1820,49 +1803,7 @@ public class GPXUtilities {
 							}
 							// main object to parse
 						} else if (parse instanceof WptPt) {
-							if (tag.equals("name")) {
-								((WptPt) parse).name = readText(parser, "name");
-							} else if (tag.equals("desc")) {
-								((WptPt) parse).desc = readText(parser, "desc");
-							} else if (tag.equals("cmt")) {
-								((WptPt) parse).comment = readText(parser, "cmt");
-							} else if (tag.equals(POINT_SPEED)) {
-								try {
-									String value = readText(parser, POINT_SPEED);
-									if (!Algorithms.isEmpty(value)) {
-										((WptPt) parse).speed = Float.parseFloat(value);
-										parse.getExtensionsToWrite().put(POINT_SPEED, value);
-									}
-								} catch (NumberFormatException e) {
-								}
-							} else if (tag.equals("link")) {
-								((WptPt) parse).link = parser.getAttributeValue("", "href");
-							} else if (tag.equals("category")) {
-								((WptPt) parse).category = readText(parser, "category");
-							} else if (tag.equals("type")) {
-								if (((WptPt) parse).category == null) {
-									((WptPt) parse).category = readText(parser, "type");
-								}
-							} else if (tag.equals(POINT_ELEVATION)) {
-								String text = readText(parser, POINT_ELEVATION);
-								if (text != null) {
-									try {
-										((WptPt) parse).ele = Float.parseFloat(text);
-									} catch (NumberFormatException e) {
-									}
-								}
-							} else if (tag.equals("hdop")) {
-								String text = readText(parser, "hdop");
-								if (text != null) {
-									try {
-										((WptPt) parse).hdop = Float.parseFloat(text);
-									} catch (NumberFormatException e) {
-									}
-								}
-							} else if (tag.equals("time")) {
-								String text = readText(parser, "time");
-								((WptPt) parse).time = parseTime(text);
-							}
+							readWptTag(parser, tag, (WptPt) parse);
 						}
 					}
 
@@ -1964,6 +1905,80 @@ public class GPXUtilities {
 		return gpxFile;
 	}
 
+	static void readExtensionValues(XmlPullParser parser, String tag, GPXExtensions parse)
+			throws XmlPullParserException, IOException {
+		Map<String, String> values = readTextMap(parser, tag);
+		if (values.size() > 0) {
+			for (Entry<String, String> entry : values.entrySet()) {
+				String t = entry.getKey().toLowerCase();
+				String supportedTag = getExtensionsSupportedTag(t);
+				String value = entry.getValue();
+				parse.getExtensionsToWrite().put(supportedTag, value);
+				if (parse instanceof WptPt) {
+					WptPt wptPt = (WptPt) parse;
+					if (POINT_SPEED.equals(tag)) {
+						try {
+							wptPt.speed = Float.parseFloat(value);
+						} catch (NumberFormatException e) {
+							log.debug(e.getMessage(), e);
+						}
+					} else if (POINT_BEARING.equals(tag)) {
+						try {
+							wptPt.bearing = Float.parseFloat(value);
+						} catch (NumberFormatException ignored) {
+						}
+					}
+				}
+			}
+		}
+	}
+
+	static void readWptTag(XmlPullParser parser, String tag, WptPt wpt) throws XmlPullParserException, IOException {
+		if (tag.equals("name")) {
+			wpt.name = readText(parser, "name");
+		} else if (tag.equals("desc")) {
+			wpt.desc = readText(parser, "desc");
+		} else if (tag.equals("cmt")) {
+			wpt.comment = readText(parser, "cmt");
+		} else if (tag.equals(POINT_SPEED)) {
+			try {
+				String value = readText(parser, POINT_SPEED);
+				if (!Algorithms.isEmpty(value)) {
+					wpt.speed = Float.parseFloat(value);
+					wpt.getExtensionsToWrite().put(POINT_SPEED, value);
+				}
+			} catch (NumberFormatException e) {
+			}
+		} else if (tag.equals("link")) {
+			wpt.link = parser.getAttributeValue("", "href");
+		} else if (tag.equals("category")) {
+			wpt.category = readText(parser, "category");
+		} else if (tag.equals("type")) {
+			if (wpt.category == null) {
+				wpt.category = readText(parser, "type");
+			}
+		} else if (tag.equals(POINT_ELEVATION)) {
+			String text = readText(parser, POINT_ELEVATION);
+			if (text != null) {
+				try {
+					wpt.ele = Float.parseFloat(text);
+				} catch (NumberFormatException e) {
+				}
+			}
+		} else if (tag.equals("hdop")) {
+			String text = readText(parser, "hdop");
+			if (text != null) {
+				try {
+					wpt.hdop = Float.parseFloat(text);
+				} catch (NumberFormatException e) {
+				}
+			}
+		} else if (tag.equals("time")) {
+			String text = readText(parser, "time");
+			wpt.time = parseTime(text);
+		}
+	}
+
 	private static String getExtensionsSupportedTag(String tag) {
 		String supportedTag = SUPPORTED_EXTENSION_TAGS.get(tag);
 		return supportedTag == null ? tag : supportedTag;
@@ -1984,7 +1999,7 @@ public class GPXUtilities {
 		return networkRouteKeyTags;
 	}
 
-	private static Map<String, PointsGroup> mergePointsGroups(List<PointsGroup> groups, List<WptPt> points) {
+	static Map<String, PointsGroup> mergePointsGroups(List<PointsGroup> groups, List<WptPt> points) {
 		Map<String, PointsGroup> pointsGroups = new LinkedHashMap<>();
 		for (PointsGroup category : groups) {
 			pointsGroups.put(category.name, category);
@@ -2021,7 +2036,7 @@ public class GPXUtilities {
 		return pointsGroups;
 	}
 
-	private static Reader getUTF8Reader(InputStream f) throws IOException {
+	static Reader getUTF8Reader(InputStream f) throws IOException {
 		BufferedInputStream bis = new BufferedInputStream(f);
 		assert bis.markSupported();
 		bis.mark(3);
@@ -2037,7 +2052,7 @@ public class GPXUtilities {
 		return new InputStreamReader(bis, "UTF-8");
 	}
 
-	private static WptPt parseWptAttributes(XmlPullParser parser) {
+	static WptPt parseWptAttributes(XmlPullParser parser) {
 		WptPt wpt = new WptPt();
 		try {
 			wpt.lat = Double.parseDouble(parser.getAttributeValue("", "lat")); //$NON-NLS-1$ //$NON-NLS-2$
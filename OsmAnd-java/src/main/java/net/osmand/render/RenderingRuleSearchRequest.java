@@ -7,13 +7,18 @@ import static net.osmand.render.RenderingRuleProperty.INT_TYPE;
 import static net.osmand.render.RenderingRuleProperty.STRING_TYPE;
 
 import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.render.RenderingRulesStorage.CompiledRule;
 import net.osmand.util.Algorithms;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
 public class RenderingRuleSearchRequest {
 
 	public final RenderingRuleStorageProperties ALL;
@@ -30,10 +35,25 @@ public class RenderingRuleSearchRequest {
 
 	private boolean searchResult = false;
 
+	// memoized results of search over compiled storage, cache is valid for saved state
+	private static final int MAX_SEARCH_CACHE_SIZE = 8192;
+	private Map<SearchKey, SearchResult> searchCache;
+	// properties changed after saved state (search key is built only from them)
+	private final boolean[] changed;
+	private final TIntArrayList changedIds = new TIntArrayList();
+	private final SearchKey searchKey = new SearchKey();
+	private int[] searchKeyBuffer = new int[16];
+	private int[] searchValues;
+	private float[] searchFvalues;
+	private boolean objectAccessed;
+	private int cacheHits;
+	private int cacheMisses;
+
 	public RenderingRuleSearchRequest(RenderingRulesStorage storage) {
 		this.storage = storage;
 		this.ALL = storage.PROPS;
 		props = storage.PROPS.getPoperties();
+		changed = new boolean[props.length];
 		values = new int[props.length];
 		for (int i = 0; i < props.length; i++) {
 			if (!props[i].isColor()) {
@@ -53,6 +73,7 @@ public class RenderingRuleSearchRequest {
 		this.object = searchRequest.object;
 		this.searchResult = searchRequest.searchResult;
 		this.ALL = searchRequest.ALL;
+		this.changed = new boolean[props.length];
 		System.arraycopy(searchRequest.values, 0, values, 0, searchRequest.values.length);
 		System.arraycopy(searchRequest.fvalues, 0, fvalues, 0, searchRequest.fvalues.length);
 		saveState();
@@ -91,42 +112,68 @@ public class RenderingRuleSearchRequest {
 
 	public void setStringFilter(RenderingRuleProperty p, String filter) {
 		assert p.isInputProperty();
-		values[p.getId()] = storage.getDictionaryValue(filter);
+		setValue(p.getId(), storage.getDictionaryValue(filter));
 	}
 
 	public void setIntFilter(RenderingRuleProperty p, int filter) {
 		assert p.isInputProperty();
-		values[p.getId()] = filter;
+		setValue(p.getId(), filter);
 	}
 	
 	public void setBooleanFilter(RenderingRuleProperty p, boolean filter) {
 		assert p.isInputProperty();
-		values[p.getId()] = filter ? RenderingRuleProperty.TRUE_VALUE : RenderingRuleProperty.FALSE_VALUE;
+		setValue(p.getId(), filter ? RenderingRuleProperty.TRUE_VALUE : RenderingRuleProperty.FALSE_VALUE);
 	}
 
 	public void setFloatFilter(RenderingRuleProperty p, float filter) {
 		assert p.isInputProperty();
-		fvalues[p.getId()] = filter;
+		setFloatValue(p.getId(), filter);
 	}
 
 	public void saveState() {
+		searchCache = null;
 		savedValues = new int[values.length];
 		savedFvalues = new float[fvalues.length];
 		System.arraycopy(values, 0, savedValues, 0, values.length);
 		System.arraycopy(fvalues, 0, savedFvalues, 0, fvalues.length);
+		clearChanged();
 	}
 
 	public void clearState() {
 		System.arraycopy(savedValues, 0, values, 0, values.length);
 		System.arraycopy(savedFvalues, 0, fvalues, 0, fvalues.length);
+		clearChanged();
 		object = null;
 	}
+
+	private void clearChanged() {
+		for (int i = 0; i < changedIds.size(); i++) {
+			changed[changedIds.get(i)] = false;
+		}
+		changedIds.resetQuick();
+	}
+
+	private void setValue(int id, int value) {
+		values[id] = value;
+		if (!changed[id]) {
+			changed[id] = true;
+			changedIds.add(id);
+		}
+	}
+
+	private void setFloatValue(int id, float value) {
+		fvalues[id] = value;
+		if (!changed[id]) {
+			changed[id] = true;
+			changedIds.add(id);
+		}
+	}
 	
 	public void clearValue(RenderingRuleProperty p) {
 		if (!p.isIntParse()) {
-			fvalues[p.getId()] = savedFvalues[p.getId()];
+			setFloatValue(p.getId(), savedFvalues[p.getId()]);
 		}
-		values[p.getId()] = savedValues[p.getId()];
+		setValue(p.getId(), savedValues[p.getId()]);
 	}
 
 	public void setInitialTagValueZoom(String tag, String val, int zoom, BinaryMapDataObject obj) {
@@ -157,7 +204,13 @@ public class RenderingRuleSearchRequest {
 		if (rule == null) {
 			return false;
 		}
-		searchResult = visitRule(rule, true);
+		CompiledRule compiledRule = storage.getCompiledAttributeRule(attribute);
+		if (compiledRule != null) {
+			searchResult = visitRule(compiledRule, true);
+		} else {
+			// attribute could be added after storage was compiled
+			searchResult = visitRule(rule, true);
+		}
 		return searchResult;
 	}
 
@@ -166,20 +219,84 @@ public class RenderingRuleSearchRequest {
 	}
 	
 	public boolean search(int state, boolean loadOutput) {
+		TIntObjectHashMap<CompiledRule>[] compiledRules = storage.getCompiledRules();
+		if (compiledRules == null) {
+			return searchTagValue(null, state, loadOutput);
+		}
+		SearchKey key = createSearchKey(state, loadOutput);
+		if (searchCache == null) {
+			searchCache = new HashMap<>();
+		}
+		SearchResult cached = searchCache.get(key);
+		if (cached != null) {
+			cacheHits++;
+			cached.apply(this);
+			searchResult = cached.found;
+			return searchResult;
+		}
+		cacheMisses++;
+		if (searchValues == null) {
+			searchValues = new int[values.length];
+			searchFvalues = new float[fvalues.length];
+		}
+		System.arraycopy(values, 0, searchValues, 0, values.length);
+		System.arraycopy(fvalues, 0, searchFvalues, 0, fvalues.length);
+		objectAccessed = false;
+		boolean found = searchTagValue(compiledRules, state, loadOutput);
+		// result depends on object only if additional tags were checked
+		if (!objectAccessed) {
+			if (searchCache.size() >= MAX_SEARCH_CACHE_SIZE) {
+				searchCache.clear();
+			}
+			searchCache.put(key.copy(), new SearchResult(searchValues, searchFvalues, values, fvalues, changedIds, found));
+		}
+		return found;
+	}
+
+	// key is state and values which differ from saved state (search key is reused till it's put to cache)
+	private SearchKey createSearchKey(int state, boolean loadOutput) {
+		changedIds.sort();
+		int[] key = searchKeyBuffer;
+		if (key.length < changedIds.size() * 3 + 1) {
+			key = searchKeyBuffer = new int[changedIds.size() * 6 + 1];
+		}
+		int length = 0;
+		key[length++] = loadOutput ? state : -state - 1;
+		for (int k = 0; k < changedIds.size(); k++) {
+			int i = changedIds.get(k);
+			int f = Float.floatToRawIntBits(fvalues[i]);
+			if (values[i] != savedValues[i] || f != Float.floatToRawIntBits(savedFvalues[i])) {
+				key[length++] = i;
+				key[length++] = values[i];
+				key[length++] = f;
+			}
+		}
+		return searchKey.set(key, length);
+	}
+
+	public int getCacheHits() {
+		return cacheHits;
+	}
+
+	public int getCacheMisses() {
+		return cacheMisses;
+	}
+
+	private boolean searchTagValue(TIntObjectHashMap<CompiledRule>[] compiledRules, int state, boolean loadOutput) {
 		searchResult = false;
 		int tagKey = values[storage.PROPS.R_TAG.getId()];
 		int valueKey = values[storage.PROPS.R_VALUE.getId()];
-		boolean result = searchInternal(state, tagKey, valueKey, loadOutput);
+		boolean result = searchInternal(compiledRules, state, tagKey, valueKey, loadOutput);
 		if (result) {
 			searchResult = true;
 			return true;
 		}
-		result = searchInternal(state, tagKey, 0, loadOutput);
+		result = searchInternal(compiledRules, state, tagKey, 0, loadOutput);
 		if (result) {
 			searchResult = true;
 			return true;
 		}
-		result = searchInternal(state, 0, 0, loadOutput);
+		result = searchInternal(compiledRules, state, 0, 0, loadOutput);
 		if (result) {
 			searchResult = true;
 			return true;
@@ -187,15 +304,25 @@ public class RenderingRuleSearchRequest {
 		return false;
 	}
 
-	private boolean searchInternal(int state, int tagKey, int valueKey, boolean loadOutput) {
-		values[storage.PROPS.R_TAG.getId()] = tagKey;
-		values[storage.PROPS.R_VALUE.getId()] = valueKey;
-		values[storage.PROPS.R_DISABLE.getId()] = 0;
-		RenderingRule accept = storage.getRule(state, tagKey, valueKey);
-		if (accept == null) {
-			return false;
+	private boolean searchInternal(TIntObjectHashMap<CompiledRule>[] compiledRules, int state, int tagKey, int valueKey,
+			boolean loadOutput) {
+		setValue(storage.PROPS.R_TAG.getId(), tagKey);
+		setValue(storage.PROPS.R_VALUE.getId(), valueKey);
+		setValue(storage.PROPS.R_DISABLE.getId(), 0);
+		boolean match;
+		if (compiledRules != null) {
+			CompiledRule accept = RenderingRulesStorage.getCompiledRule(compiledRules, state, tagKey, valueKey);
+			if (accept == null) {
+				return false;
+			}
+			match = visitRule(accept, loadOutput);
+		} else {
+			RenderingRule accept = storage.getRule(state, tagKey, valueKey);
+			if (accept == null) {
+				return false;
+			}
+			match = visitRule(accept, loadOutput);
 		}
-		boolean match = visitRule(accept, loadOutput);
 		if (match && values[storage.PROPS.R_DISABLE.getId()] != 0) {
 			return false;
 		}
@@ -234,6 +361,96 @@ public class RenderingRuleSearchRequest {
 		return fit;
 	}
 	
+	private boolean visitRule(CompiledRule rule, boolean loadOutput) {
+		if (!checkInputProperties(rule)) {
+			return false;
+		}
+		if (!loadOutput && !rule.group) {
+			return true;
+		}
+		if (!rule.group) {
+			loadOutputProperties(rule, true);
+		}
+		boolean match = false;
+		for (CompiledRule rr : rule.ifElseChildren) {
+			match = visitRule(rr, loadOutput);
+			if (match) {
+				break;
+			}
+		}
+		boolean fit = (match || !rule.group);
+		if (fit && loadOutput) {
+			if (rule.group) {
+				loadOutputProperties(rule, false);
+			}
+			for (CompiledRule rr : rule.ifChildren) {
+				visitRule(rr, loadOutput);
+			}
+		}
+		return fit;
+	}
+
+	private boolean checkInputProperties(CompiledRule rule) {
+		byte[] checks = rule.checks;
+		for (int i = 0; i < checks.length; i++) {
+			int id = rule.checkProps[i].getId();
+			switch (checks[i]) {
+			case CompiledRule.EQUALS:
+				if (rule.checkValues[i] != values[id]) {
+					return false;
+				}
+				break;
+			case CompiledRule.FLOAT_EQUALS:
+				if (rule.checkFValues[i] != fvalues[id]) {
+					return false;
+				}
+				break;
+			case CompiledRule.ACCEPT:
+				if (rule.checkProps[i] == storage.PROPS.R_ADDITIONAL && object != null) {
+					objectAccessed = true;
+				}
+				if (!rule.checkProps[i].accept(rule.checkValues[i], values[id], this)) {
+					return false;
+				}
+				break;
+			case CompiledRule.FLOAT_ACCEPT:
+				if (!rule.checkProps[i].accept(rule.checkFValues[i], fvalues[id], this)) {
+					return false;
+				}
+				break;
+			default:
+				setValue(id, rule.checkValues[i]);
+			}
+		}
+		return true;
+	}
+
+	private void loadOutputProperties(CompiledRule rule, boolean override) {
+		RenderingRuleProperty[] outputs = rule.outputs;
+		for (int i = 0; i < outputs.length; i++) {
+			RenderingRuleProperty rp = outputs[i];
+			if (!isSpecified(rp) || override) {
+				CompiledRule rr = rule.outAttrs[i];
+				if (rr != null) {
+					visitRule(rr, true);
+					if (isSpecified(storage.PROPS.R_ATTR_COLOR_VALUE)) {
+						setValue(rp.getId(), getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE));
+					} else if (isSpecified(storage.PROPS.R_ATTR_INT_VALUE)) {
+						setValue(rp.getId(), getIntPropertyValue(storage.PROPS.R_ATTR_INT_VALUE));
+						setFloatValue(rp.getId(), getFloatPropertyValue(storage.PROPS.R_ATTR_INT_VALUE));
+					} else if (isSpecified(storage.PROPS.R_ATTR_BOOL_VALUE)) {
+						setValue(rp.getId(), getIntPropertyValue(storage.PROPS.R_ATTR_BOOL_VALUE));
+					}
+				} else if (rp.isFloat()) {
+					setFloatValue(rp.getId(), rule.outFValues[i]);
+					setValue(rp.getId(), rule.outValues[i]);
+				} else {
+					setValue(rp.getId(), rule.outValues[i]);
+				}
+			}
+		}
+	}
+
 	public void loadOutputProperties(RenderingRule rule, boolean override) {
 		RenderingRuleProperty[] properties = rule.getProperties();
 		for (int i = 0; i < properties.length; i++) {
@@ -244,18 +461,18 @@ public class RenderingRuleSearchRequest {
 					if (rr != null) {
 						visitRule(rr, true);
 						if (isSpecified(storage.PROPS.R_ATTR_COLOR_VALUE)) {
-							values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE);
+							setValue(rp.getId(), getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE));
 						} else if (isSpecified(storage.PROPS.R_ATTR_INT_VALUE)) {
-							values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
-							fvalues[rp.getId()] = getFloatPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
+							setValue(rp.getId(), getIntPropertyValue(storage.PROPS.R_ATTR_INT_VALUE));
+							setFloatValue(rp.getId(), getFloatPropertyValue(storage.PROPS.R_ATTR_INT_VALUE));
 						} else if (isSpecified(storage.PROPS.R_ATTR_BOOL_VALUE)) {
-							values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_BOOL_VALUE);
+							setValue(rp.getId(), getIntPropertyValue(storage.PROPS.R_ATTR_BOOL_VALUE));
 						}
 					} else if (rp.isFloat()) {
-						fvalues[rp.getId()] = rule.getFloatProp(i);
-						values[rp.getId()] = rule.getIntProp(i);
+						setFloatValue(rp.getId(), rule.getFloatProp(i));
+						setValue(rp.getId(), rule.getIntProp(i));
 					} else {
-						values[rp.getId()] = rule.getIntProp(i);
+						setValue(rp.getId(), rule.getIntProp(i));
 					}
 				}
 			}
@@ -278,7 +495,7 @@ public class RenderingRuleSearchRequest {
 				}
 			} else if (rp == storage.PROPS.R_DISABLE) {
 				// quick disable return even without load output
-				values[rp.getId()] = rule.getIntProp(i);
+				setValue(rp.getId(), rule.getIntProp(i));
 			}
 		}
 		return true;
@@ -339,6 +556,84 @@ public class RenderingRuleSearchRequest {
 		return val == -1 ? defValue : val;
 	}
 
+	private static class SearchKey {
+		private int[] key;
+		private int length;
+		private int hash;
+
+		SearchKey set(int[] key, int length) {
+			this.key = key;
+			this.length = length;
+			int h = 1;
+			for (int i = 0; i < length; i++) {
+				h = 31 * h + key[i];
+			}
+			this.hash = h;
+			return this;
+		}
+
+		SearchKey copy() {
+			return new SearchKey().set(Arrays.copyOf(key, length), length);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SearchKey)) {
+				return false;
+			}
+			SearchKey o = (SearchKey) obj;
+			if (hash != o.hash || length != o.length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (key[i] != o.key[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	// values changed by search
+	private static class SearchResult {
+		private final int[] ids;
+		private final int[] values;
+		private final float[] fvalues;
+		private final boolean found;
+
+		SearchResult(int[] before, float[] fbefore, int[] after, float[] fafter, TIntArrayList changedIds,
+				boolean found) {
+			TIntArrayList changed = new TIntArrayList();
+			for (int k = 0; k < changedIds.size(); k++) {
+				int i = changedIds.get(k);
+				if (before[i] != after[i] || Float.floatToRawIntBits(fbefore[i]) != Float.floatToRawIntBits(fafter[i])) {
+					changed.add(i);
+				}
+			}
+			changed.sort();
+			this.ids = changed.toArray();
+			this.values = new int[ids.length];
+			this.fvalues = new float[ids.length];
+			for (int k = 0; k < ids.length; k++) {
+				values[k] = after[ids[k]];
+				fvalues[k] = fafter[ids[k]];
+			}
+			this.found = found;
+		}
+
+		void apply(RenderingRuleSearchRequest req) {
+			for (int k = 0; k < ids.length; k++) {
+				req.setValue(ids[k], values[k]);
+				req.setFloatValue(ids[k], fvalues[k]);
+			}
+		}
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
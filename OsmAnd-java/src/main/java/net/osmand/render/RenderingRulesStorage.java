@@ -50,6 +50,10 @@ public class RenderingRulesStorage {
 	protected Map<String, RenderingClass> renderingClasses = new LinkedHashMap<String, RenderingClass>();
 	protected Map<String, String> renderingConstants = new LinkedHashMap<String, String>();
 	
+	// flat rules for faster search (see compile())
+	private volatile TIntObjectHashMap<CompiledRule>[] compiledRules;
+	private volatile Map<String, CompiledRule> compiledAttributes;
+
 	protected String renderingName;
 	protected String dependsName;
 	protected String internalRenderingName;
@@ -126,6 +130,7 @@ public class RenderingRulesStorage {
 			IOException {
 		XmlPullParser parser = PlatformUtil.newXMLPullParser();
 		RenderingRulesHandler handler = new RenderingRulesHandler(parser, resolver, addon);
+		clearCompiled();
 		handler.parse(is);
 		RenderingRulesStorage depends = handler.getDependsStorage();
 		if (depends != null) {
@@ -138,6 +143,7 @@ public class RenderingRulesStorage {
 		if (depends == null) {
 			return;
 		}
+		clearCompiled();
 		// merge results
 		// dictionary and props are already merged
 		Iterator<Entry<String, RenderingRule>> it = depends.renderingAttributes.entrySet().iterator();
@@ -576,6 +582,7 @@ public class RenderingRulesStorage {
 								 Map<String, String> attrs,
 								 int state,
 								 boolean addToBegin) throws XmlPullParserException {
+		clearCompiled();
 		if (renderingRule.isGroup()
 				&& (renderingRule.getIntPropertyValue(RenderingRuleStorageProperties.TAG) == -1
 				|| renderingRule.getIntPropertyValue(RenderingRuleStorageProperties.VALUE) == -1)) {
@@ -640,6 +647,148 @@ public class RenderingRulesStorage {
 		return null;
 	}
 
+	/**
+	 * Compiles rule trees into flat rules with input checks and outputs stored in arrays.
+	 * Search requests over compiled storage evaluate compiled rules and memoize search results,
+	 * so it should be called once style is fully loaded (rules are not changed after that).
+	 */
+	@SuppressWarnings("unchecked")
+	public void compile() {
+		Map<RenderingRule, CompiledRule> compiled = new IdentityHashMap<RenderingRule, CompiledRule>();
+		TIntObjectHashMap<CompiledRule>[] rules = new TIntObjectHashMap[tagValueGlobalRules.length];
+		for (int i = 0; i < tagValueGlobalRules.length; i++) {
+			if (tagValueGlobalRules[i] != null) {
+				rules[i] = new TIntObjectHashMap<CompiledRule>();
+				for (int key : tagValueGlobalRules[i].keys()) {
+					rules[i].put(key, compileRule(tagValueGlobalRules[i].get(key), compiled));
+				}
+			}
+		}
+		Map<String, CompiledRule> attributes = new HashMap<String, CompiledRule>();
+		for (Entry<String, RenderingRule> e : renderingAttributes.entrySet()) {
+			attributes.put(e.getKey(), compileRule(e.getValue(), compiled));
+		}
+		compiledAttributes = attributes;
+		compiledRules = rules;
+	}
+
+	public boolean isCompiled() {
+		return compiledRules != null;
+	}
+
+	// rules are changed, so style should be compiled again
+	private void clearCompiled() {
+		compiledRules = null;
+		compiledAttributes = null;
+	}
+
+	private CompiledRule compileRule(RenderingRule rule, Map<RenderingRule, CompiledRule> compiled) {
+		CompiledRule c = compiled.get(rule);
+		if (c != null) {
+			return c;
+		}
+		c = new CompiledRule(rule.isGroup());
+		compiled.put(rule, c);
+		RenderingRuleProperty[] properties = rule.getProperties();
+		List<Integer> checks = new ArrayList<Integer>();
+		List<Integer> outputs = new ArrayList<Integer>();
+		for (int i = 0; i < properties.length; i++) {
+			if (properties[i].isInputProperty()) {
+				checks.add(i);
+			} else {
+				if (properties[i] == PROPS.R_DISABLE) {
+					checks.add(i);
+				}
+				outputs.add(i);
+			}
+		}
+		c.checks = new byte[checks.size()];
+		c.checkProps = new RenderingRuleProperty[checks.size()];
+		c.checkValues = new int[checks.size()];
+		c.checkFValues = new float[checks.size()];
+		for (int k = 0; k < checks.size(); k++) {
+			int i = checks.get(k);
+			RenderingRuleProperty rp = properties[i];
+			c.checkProps[k] = rp;
+			c.checkValues[k] = rule.getIntProp(i);
+			c.checkFValues[k] = rule.getFloatProp(i);
+			boolean plain = rp.getClass() == RenderingRuleProperty.class;
+			if (!rp.isInputProperty()) {
+				c.checks[k] = CompiledRule.SET_DISABLE;
+			} else if (rp.isFloat()) {
+				c.checks[k] = plain ? CompiledRule.FLOAT_EQUALS : CompiledRule.FLOAT_ACCEPT;
+			} else {
+				c.checks[k] = plain ? CompiledRule.EQUALS : CompiledRule.ACCEPT;
+			}
+		}
+		c.outputs = new RenderingRuleProperty[outputs.size()];
+		c.outValues = new int[outputs.size()];
+		c.outFValues = new float[outputs.size()];
+		c.outAttrs = new CompiledRule[outputs.size()];
+		for (int k = 0; k < outputs.size(); k++) {
+			int i = outputs.get(k);
+			c.outputs[k] = properties[i];
+			c.outValues[k] = rule.getIntProp(i);
+			c.outFValues[k] = rule.getFloatProp(i);
+			RenderingRule attr = rule.getAttrProp(i);
+			c.outAttrs[k] = attr == null ? null : compileRule(attr, compiled);
+		}
+		c.ifElseChildren = new CompiledRule[rule.getIfElseChildren().size()];
+		for (int k = 0; k < c.ifElseChildren.length; k++) {
+			c.ifElseChildren[k] = compileRule(rule.getIfElseChildren().get(k), compiled);
+		}
+		c.ifChildren = new CompiledRule[rule.getIfChildren().size()];
+		for (int k = 0; k < c.ifChildren.length; k++) {
+			c.ifChildren[k] = compileRule(rule.getIfChildren().get(k), compiled);
+		}
+		return c;
+	}
+
+	// compiled rules could be cleared concurrently, so search should read them once and use returned tables
+	TIntObjectHashMap<CompiledRule>[] getCompiledRules() {
+		return compiledRules;
+	}
+
+	static CompiledRule getCompiledRule(TIntObjectHashMap<CompiledRule>[] rules, int state, int itag, int ivalue) {
+		if (rules[state] != null) {
+			return rules[state].get((itag << SHIFT_TAG_VAL) | ivalue);
+		}
+		return null;
+	}
+
+	CompiledRule getCompiledAttributeRule(String attribute) {
+		Map<String, CompiledRule> attributes = compiledAttributes;
+		return attributes == null ? null : attributes.get(attribute);
+	}
+
+	/**
+	 * Rendering rule with input checks (in order of attributes) and outputs in arrays
+	 */
+	static class CompiledRule {
+		static final byte EQUALS = 0;
+		static final byte FLOAT_EQUALS = 1;
+		static final byte ACCEPT = 2;
+		static final byte FLOAT_ACCEPT = 3;
+		// disable is set while checking input (quick disable)
+		static final byte SET_DISABLE = 4;
+
+		final boolean group;
+		byte[] checks;
+		RenderingRuleProperty[] checkProps;
+		int[] checkValues;
+		float[] checkFValues;
+		RenderingRuleProperty[] outputs;
+		int[] outValues;
+		float[] outFValues;
+		CompiledRule[] outAttrs;
+		CompiledRule[] ifElseChildren;
+		CompiledRule[] ifChildren;
+
+		CompiledRule(boolean group) {
+			this.group = group;
+		}
+	}
+
 	public RenderingRule getRenderingAttributeRule(String attribute) {
 		return renderingAttributes.get(attribute);
 	}
@@ -815,6 +964,9 @@ public class RenderingRulesStorage {
 				storage.parseRulesFromXmlInputStream(xmlStream, resolver, addon);
 				xmlStream.close();
 			}
+			if (storage != null) {
+				storage.compile();
+			}
 			return storage;
 		} catch (XmlPullParserException e) {
 			throw new RuntimeException(e);
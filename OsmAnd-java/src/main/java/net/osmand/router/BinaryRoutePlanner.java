@@ -9,12 +9,15 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 
 import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.data.LatLon;
 import net.osmand.osm.MapRenderingTypes;
+import net.osmand.util.CostPriorityQueue;
 import net.osmand.util.MapUtils;
 
 import org.apache.commons.logging.Log;
@@ -38,6 +41,8 @@ public class BinaryRoutePlanner {
 	
 	public static boolean DEBUG_PRECISE_DIST_MEASUREMENT = false;
 	public static boolean DEBUG_BREAK_EACH_SEGMENT = false;
+	// allocation free queue of segments to visit (see CostPriorityQueue)
+	public static boolean USE_PRIMITIVE_QUEUE = false;
 
 
 	public static double squareRootDist(int x1, int y1, int x2, int y2) {
@@ -54,6 +59,93 @@ public class BinaryRoutePlanner {
 			return Double.compare(o1.cost, o2.cost);
 		}
 	}
+
+	/**
+	 * Queue of route segments to visit ordered by A* cost (cost is fixed when segment is added)
+	 */
+	private static abstract class SegmentsQueue {
+
+		abstract void add(RouteSegment segment, float cost);
+
+		abstract RouteSegment peek();
+
+		abstract float peekCost();
+
+		abstract RouteSegment poll();
+
+		abstract int size();
+
+		boolean isEmpty() {
+			return size() == 0;
+		}
+
+		void add(RouteSegment segment, RoutingContext ctx) {
+			add(segment, cost(segment.distanceFromStart, segment.distanceToEnd, ctx));
+		}
+	}
+
+	private static class ObjectSegmentsQueue extends SegmentsQueue {
+		private final PriorityQueue<RouteSegmentCost> queue = new PriorityQueue<>(50, new SegmentsComparator());
+
+		@Override
+		void add(RouteSegment segment, float cost) {
+			queue.add(new RouteSegmentCost(segment, cost));
+		}
+
+		@Override
+		RouteSegment peek() {
+			return queue.peek().segment;
+		}
+
+		@Override
+		float peekCost() {
+			return queue.peek().cost;
+		}
+
+		@Override
+		RouteSegment poll() {
+			return queue.poll().segment;
+		}
+
+		@Override
+		int size() {
+			return queue.size();
+		}
+	}
+
+	// doesn't allocate objects per segment (ties could be polled in different order than PriorityQueue)
+	private static class PrimitiveSegmentsQueue extends SegmentsQueue {
+		private final CostPriorityQueue<RouteSegment> queue = new CostPriorityQueue<>(256);
+
+		@Override
+		void add(RouteSegment segment, float cost) {
+			queue.add(segment, cost);
+		}
+
+		@Override
+		RouteSegment peek() {
+			return queue.peek();
+		}
+
+		@Override
+		float peekCost() {
+			return (float) queue.peekCost();
+		}
+
+		@Override
+		RouteSegment poll() {
+			return queue.poll();
+		}
+
+		@Override
+		int size() {
+			return queue.size();
+		}
+	}
+
+	private static SegmentsQueue createSegmentsQueue() {
+		return USE_PRIMITIVE_QUEUE ? new PrimitiveSegmentsQueue() : new ObjectSegmentsQueue();
+	}
 	
 	private static float cost(float distanceFromStart, float distanceToEnd, RoutingContext ctx) {
 		return ctx.config.heuristicCoefficient * distanceToEnd + distanceFromStart;
@@ -63,8 +155,8 @@ public class BinaryRoutePlanner {
 		float cost;
 		RouteSegment segment;
 		
-		public RouteSegmentCost(RouteSegment segment, RoutingContext ctx) {
-			this.cost = cost(segment.distanceFromStart, segment.distanceToEnd, ctx);
+		public RouteSegmentCost(RouteSegment segment, float cost) {
+			this.cost = cost;
 			this.segment = segment;
 		}
 
@@ -80,11 +172,14 @@ public class BinaryRoutePlanner {
 	 */
 	FinalRouteSegment searchRouteInternal(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end, 
 			TLongObjectMap<RouteSegment> boundaries) throws InterruptedException, IOException {
+		if (ctx.config.parallelBidirectionalSearch && isParallelSearchSupported(ctx, start, end, boundaries)) {
+			return searchRouteInternalParallel(ctx, start, end);
+		}
 		// measure time
 		ctx.memoryOverhead = 1000;
 		// Initializing priority queue to visit way segments 
-		PriorityQueue<RouteSegmentCost> graphDirectSegments = new PriorityQueue<>(50, new SegmentsComparator());
-		PriorityQueue<RouteSegmentCost> graphReverseSegments = new PriorityQueue<>(50, new SegmentsComparator());
+		SegmentsQueue graphDirectSegments = createSegmentsQueue();
+		SegmentsQueue graphReverseSegments = createSegmentsQueue();
 		// Set to not visit one segment twice (stores road.id << X + segmentStart)
 		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
 		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
@@ -104,11 +199,11 @@ public class BinaryRoutePlanner {
 			end.others = null;
 			forwardSearch = false;
 		}
-		PriorityQueue<RouteSegmentCost> graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
+		SegmentsQueue graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
 		float[] minCost = new float[] { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
 		while (!graphSegments.isEmpty()) {
-			RouteSegmentCost cst = graphSegments.poll();
-			RouteSegment segment = cst.segment;
+			float cstCost = graphSegments.peekCost();
+			RouteSegment segment = graphSegments.poll();
 			int visitedCnt = (start != null ? visitedDirectSegments.size() : 0) + (end != null ? visitedOppositeSegments.size() : 0);
 			// use accumulative approach
 			ctx.memoryOverhead = visitedCnt * STANDARD_ROAD_VISITED_OVERHEAD +
@@ -168,13 +263,13 @@ public class BinaryRoutePlanner {
 					println("  " + segment.segEnd + ">> Already visited by minimum");
 				}
 				skipSegment = true;
-			} else if (cst.cost + 5.0 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
+			} else if (cstCost + 5.0 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
 				// squareRootDist doesn't follow Triangle-inequality and it breaks A* algorithm. Maximum error on the optimal route could be constant (5.0)
 				if (ctx.config.heuristicCoefficient <= 1) {
-					throw new IllegalStateException(cst.cost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
+					throw new IllegalStateException(cstCost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
 				}
 			} else {
-				minCost[forwardSearch ? 1 : 0] = cst.cost;
+				minCost[forwardSearch ? 1 : 0] = cstCost;
 			}
 			if (!skipSegment) {
 				if (forwardSearch) {
@@ -208,17 +303,17 @@ public class BinaryRoutePlanner {
 					graphSegments = graphDirectSegments.isEmpty() ? graphReverseSegments : graphDirectSegments;
 					if (finalSegment == null) {
 						while (!graphSegments.isEmpty()) {
-							RouteSegmentCost pc = graphSegments.poll();
-							if (pc.segment instanceof FinalRouteSegment) {
-								finalSegment = (FinalRouteSegment) pc.segment;
+							RouteSegment pc = graphSegments.poll();
+							if (pc instanceof FinalRouteSegment) {
+								finalSegment = (FinalRouteSegment) pc;
 								break;
 							}
 						}
 					}
 					return finalSegment;
 				} else {
-					RouteSegment fw = graphDirectSegments.peek().segment;
-					RouteSegment bw = graphReverseSegments.peek().segment;
+					RouteSegment fw = graphDirectSegments.peek();
+					RouteSegment bw = graphReverseSegments.peek();
 					forwardSearch = Double.compare(cost(fw.distanceFromStart, fw.distanceToEnd, ctx), 
 							cost(bw.distanceFromStart, bw.distanceToEnd,ctx)) <= 0;
 				}
@@ -252,8 +347,231 @@ public class BinaryRoutePlanner {
 		return finalSegment;
 	}
 
+	private boolean isParallelSearchSupported(RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
+			TLongObjectMap<RouteSegment> boundaries) {
+		// debug visitor, precalculated direction and direction points are not thread safe
+		return start != null && end != null && boundaries == null && ctx.planRouteIn2Directions()
+				&& ctx.nativeLib == null && ctx.visitor == null && ctx.precalculatedRouteDirection == null
+				&& ctx.config.getDirectionPoints() == null;
+	}
+
+	/**
+	 * Bounded one direction dijkstra from point (to point for reverse search).
+	 * Returns all visited segments, distanceFromStart of segment is the cost at its end and it could exceed maxCost
+	 * for segments visited last (road is processed till next intersection).
+	 */
+	TLongObjectHashMap<RouteSegment> searchReachableSegments(final RoutingContext ctx, RouteSegmentPoint pnt, float maxCost,
+			boolean reverseWaySearch) throws InterruptedException {
+		ctx.memoryOverhead = 1000;
+		ctx.dijkstraMode = reverseWaySearch ? -1 : 1;
+		if (reverseWaySearch) {
+			ctx.targetX = pnt.preciseX;
+			ctx.targetY = pnt.preciseY;
+		} else {
+			ctx.startX = pnt.preciseX;
+			ctx.startY = pnt.preciseY;
+		}
+		float savedHeuristicCoefficient = ctx.config.heuristicCoefficient;
+		ctx.config.heuristicCoefficient = 0;
+		SegmentsQueue graphSegments = createSegmentsQueue();
+		TLongObjectHashMap<RouteSegment> visitedSegments = new TLongObjectHashMap<RouteSegment>();
+		TLongObjectHashMap<RouteSegment> oppositeSegments = new TLongObjectHashMap<RouteSegment>();
+		try {
+			initEdgeSegment(ctx, pnt, true, graphSegments, reverseWaySearch);
+			initEdgeSegment(ctx, pnt, false, graphSegments, reverseWaySearch);
+			while (!graphSegments.isEmpty() && graphSegments.peekCost() <= maxCost) {
+				RouteSegment segment = graphSegments.poll();
+				if (ctx.config.MAX_VISITED > 0 && visitedSegments.size() > ctx.config.MAX_VISITED) {
+					break;
+				}
+				if (ctx.calculationProgress != null) {
+					if (ctx.calculationProgress.isCancelled) {
+						throw new InterruptedException("Route calculation interrupted");
+					}
+					ctx.calculationProgress.visitedSegments++;
+				}
+				if (visitedSegments.containsKey(calculateRoutePointId(segment))) {
+					continue;
+				}
+				processRouteSegment(ctx, reverseWaySearch, graphSegments, visitedSegments, segment, oppositeSegments, null, false);
+			}
+		} finally {
+			ctx.config.heuristicCoefficient = savedHeuristicCoefficient;
+		}
+		return visitedSegments;
+	}
+
+	/**
+	 * Same 2-directional A* as {@link #searchRouteInternal} but forward and reverse graphs are expanded
+	 * in separate threads. Reverse direction uses own {@link RoutingContext} (own readers, tiles, router caches),
+	 * visited segments are shared under {@link RoutingContext#visitedSegmentsLock} to find meeting segments.
+	 * Search stops when the cheapest segment in a queue costs not less than the best final segment found,
+	 * so result is the same as in sequential search.
+	 */
+	private FinalRouteSegment searchRouteInternalParallel(final RoutingContext ctx, RouteSegmentPoint start,
+			RouteSegmentPoint end) throws InterruptedException, IOException {
+		ctx.memoryOverhead = 1000;
+		ctx.dijkstraMode = 0;
+		SegmentsQueue graphDirectSegments = createSegmentsQueue();
+		SegmentsQueue graphReverseSegments = createSegmentsQueue();
+		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
+		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
+		// target is needed to estimate start segments, end segments are initialized by reverse context
+		ctx.targetX = end.preciseX;
+		ctx.targetY = end.preciseY;
+		initQueuesWithStartEnd(ctx, start, null, graphDirectSegments, graphReverseSegments);
+
+		Map<BinaryMapIndexReader, BinaryMapIndexReader> readersCopy = ctx.copyMapReaders();
+		final RoutingContext reverseCtx = new RoutingContext(ctx, readersCopy);
+		// counters of reverse thread are merged after join, cancellation is checked on the original progress
+		reverseCtx.calculationProgress = ctx.calculationProgress == null ? null : new RouteCalculationProgress();
+		final ParallelSearchState state = new ParallelSearchState(ctx.calculationProgress);
+		try {
+			initEdgeSegment(reverseCtx, end, true, graphReverseSegments, true);
+			initEdgeSegment(reverseCtx, end, false, graphReverseSegments, true);
+			Thread reverseThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						searchDirectionParallel(reverseCtx, true, end, graphReverseSegments, visitedOppositeSegments,
+								visitedDirectSegments, state);
+					} catch (Throwable e) {
+						state.fail(e);
+					}
+				}
+			}, "Reverse route search");
+			reverseThread.start();
+			try {
+				searchDirectionParallel(ctx, false, start, graphDirectSegments, visitedDirectSegments,
+						visitedOppositeSegments, state);
+			} catch (InterruptedException | RuntimeException e) {
+				state.fail(e);
+			} finally {
+				state.finish();
+				reverseThread.join();
+			}
+			ctx.alertFasterRoadToVisitedSegments += reverseCtx.alertFasterRoadToVisitedSegments;
+			ctx.alertSlowerSegmentedWasVisitedEarlier += reverseCtx.alertSlowerSegmentedWasVisitedEarlier;
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.addCounters(reverseCtx.calculationProgress);
+			}
+		} finally {
+			reverseCtx.unloadAllData();
+			for (BinaryMapIndexReader reader : readersCopy.values()) {
+				reader.close();
+			}
+		}
+		state.rethrow();
+		if (ctx.calculationProgress != null) {
+			ctx.calculationProgress.visitedDirectSegments += visitedDirectSegments.size();
+			ctx.calculationProgress.visitedOppositeSegments += visitedOppositeSegments.size();
+			ctx.calculationProgress.directQueueSize += graphDirectSegments.size();
+			ctx.calculationProgress.oppositeQueueSize += graphReverseSegments.size();
+		}
+		return state.best;
+	}
+
+	private void searchDirectionParallel(RoutingContext ctx, boolean reverseWaySearch, RouteSegmentPoint pnt,
+			SegmentsQueue graphSegments, TLongObjectHashMap<RouteSegment> visitedSegments,
+			TLongObjectHashMap<RouteSegment> oppositeSegments, ParallelSearchState state) throws InterruptedException {
+		while (!state.finished) {
+			if (graphSegments.isEmpty()) {
+				checkIfGraphIsEmpty(ctx, true, reverseWaySearch, graphSegments, pnt, visitedSegments,
+						reverseWaySearch ? "Route is not found to selected target point."
+								: "Route is not found from selected start point.");
+				if (graphSegments.isEmpty()) {
+					// direction is exhausted, the opposite one can still find the route
+					state.exhausted();
+					break;
+				}
+			}
+			float cstCost = graphSegments.peekCost();
+			RouteSegment segment = graphSegments.poll();
+			FinalRouteSegment best = state.best;
+			if (best != null && cstCost >= best.distanceFromStart) {
+				// every not visited route through this direction is not shorter than best
+				state.finish();
+				break;
+			}
+			if (segment instanceof FinalRouteSegment) {
+				// cheapest in queue so it is the best route
+				state.offer((FinalRouteSegment) segment);
+				state.finish();
+				break;
+			}
+			int visitedCnt = visitedSegments.size() + oppositeSegments.size();
+			ctx.memoryOverhead = visitedCnt * STANDARD_ROAD_VISITED_OVERHEAD
+					+ graphSegments.size() * 2 * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+			if (ctx.config.MAX_VISITED > 0 && visitedCnt > ctx.config.MAX_VISITED) {
+				state.finish();
+				break;
+			}
+			if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.9) {
+				throw new IllegalStateException(
+						String.format("There is not enough memory %.5f, %.5f -> %.5f, %.5f - limit  %d  MB",
+								MapUtils.get31LatitudeY(ctx.startY), MapUtils.get31LongitudeX(ctx.startX),
+								MapUtils.get31LatitudeY(ctx.targetY), MapUtils.get31LongitudeX(ctx.targetX),
+								ctx.config.memoryLimitation / (1 << 20)));
+			}
+			if (!visitedSegments.containsKey(calculateRoutePointId(segment))) {
+				processRouteSegment(ctx, reverseWaySearch, graphSegments, visitedSegments, segment,
+						oppositeSegments, null, false);
+			}
+			if (state.progress != null && state.progress.isCancelled) {
+				throw new InterruptedException("Route calculation interrupted");
+			}
+		}
+	}
+
+	private static class ParallelSearchState {
+		final RouteCalculationProgress progress;
+		volatile boolean finished;
+		volatile FinalRouteSegment best;
+		private int exhaustedDirections;
+		private Throwable error;
+
+		ParallelSearchState(RouteCalculationProgress progress) {
+			this.progress = progress;
+		}
+
+		synchronized void offer(FinalRouteSegment segment) {
+			if (best == null || segment.distanceFromStart < best.distanceFromStart) {
+				best = segment;
+			}
+		}
+
+		synchronized void exhausted() {
+			if (++exhaustedDirections == 2) {
+				finished = true;
+			}
+		}
+
+		void finish() {
+			finished = true;
+		}
+
+		synchronized void fail(Throwable e) {
+			if (error == null) {
+				error = e;
+			}
+			finished = true;
+		}
+
+		synchronized void rethrow() throws InterruptedException, IOException {
+			if (error instanceof InterruptedException) {
+				throw (InterruptedException) error;
+			} else if (error instanceof IOException) {
+				throw (IOException) error;
+			} else if (error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			} else if (error != null) {
+				throw new IllegalStateException(error);
+			}
+		}
+	}
+
 	protected boolean checkIfGraphIsEmpty(final RoutingContext ctx, boolean allowDirection,
-			boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
+			boolean reverseWaySearch, SegmentsQueue graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
 			String msg) {
 		if (allowDirection && graphSegments.isEmpty()) {
 			if (pnt.others != null) {
@@ -268,7 +586,7 @@ public class BinaryRoutePlanner {
 						pos.setParentRoute(null);
 						pos.distanceFromStart = 0;
 						pos.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(pos, ctx));
+						graphSegments.add(pos, ctx);
 					}
 					RouteSegment neg = next.initRouteSegment(false);
 					if (neg != null && !visited.containsKey(calculateRoutePointId(neg)) && 
@@ -276,7 +594,7 @@ public class BinaryRoutePlanner {
 						neg.setParentRoute(null);
 						neg.distanceFromStart = 0;
 						neg.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(neg, ctx));
+						graphSegments.add(neg, ctx);
 					}
 					if (!graphSegments.isEmpty()) {
 						println("Reiterate point with new " + (!reverseWaySearch ? "start " : "destination ")
@@ -292,7 +610,7 @@ public class BinaryRoutePlanner {
 		return false;
 	}
 
-	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, PriorityQueue<RouteSegmentCost> graphSegments, boolean reverseSearchWay) {
+	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, SegmentsQueue graphSegments, boolean reverseSearchWay) {
 		if (pnt == null) {
 			return null;
 		}
@@ -336,7 +654,7 @@ public class BinaryRoutePlanner {
 		}
 		if (checkMovementAllowed(ctx, reverseSearchWay, seg)) {
 			seg.distanceToEnd = estimatedDistance(seg, reverseSearchWay, ctx);
-			graphSegments.add(new RouteSegmentCost(seg, ctx));
+			graphSegments.add(seg, ctx);
 			return seg;
 		}
 		return null;
@@ -353,7 +671,7 @@ public class BinaryRoutePlanner {
 	
 
 	private void initQueuesWithStartEnd(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
-			PriorityQueue<RouteSegmentCost> graphDirectSegments, PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+			SegmentsQueue graphDirectSegments, SegmentsQueue graphReverseSegments) {
 		if (ctx.precalculatedRouteDirection != null) {
 			ctx.precalculatedRouteDirection.updatePreciseStartEnd(
 					(start != null) ? start.preciseX : 0, (start != null) ? start.preciseY : 0,
@@ -388,19 +706,19 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private void updateCalculationProgress(final RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphDirectSegments,
-			PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+	private void updateCalculationProgress(final RoutingContext ctx, SegmentsQueue graphDirectSegments,
+			SegmentsQueue graphReverseSegments) {
 		if (ctx.calculationProgress != null) {
 			ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
 			ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
 			if (!graphDirectSegments.isEmpty() && ctx.getPlanRoadDirection() >= 0) {
-				RouteSegment peek = graphDirectSegments.peek().segment;
+				RouteSegment peek = graphDirectSegments.peek();
 				ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart,
 						ctx.calculationProgress.distanceFromBegin);
 				ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
 			}
 			if (!graphReverseSegments.isEmpty() && ctx.getPlanRoadDirection() <= 0) {
-				RouteSegment peek = graphReverseSegments.peek().segment;
+				RouteSegment peek = graphReverseSegments.peek();
 				ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
 							ctx.calculationProgress.distanceFromEnd);
 				ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
@@ -497,7 +815,7 @@ public class BinaryRoutePlanner {
 	}
 
 	private void processRouteSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
+			SegmentsQueue graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
 			RouteSegment startSegment, TLongObjectMap<RouteSegment> oppositeSegments,
 			TLongObjectMap<RouteSegment> boundaries, boolean doNotAddIntersections) {
 		if (ASSERT_CHECKS && !checkMovementAllowed(ctx, reverseWaySearch, startSegment)) {
@@ -516,43 +834,47 @@ public class BinaryRoutePlanner {
 			currentSegment = nextCurrentSegment;
 			nextCurrentSegment = null;
 
-			// 1. check if segment was already visited in opposite direction
-			// We check before we calculate segmentTime (to not calculate it twice with opposite and calculate turns onto each segment).
-			boolean bothDirVisited = checkIfOppositeSegmentWasVisited(ctx, reverseWaySearch, graphSegments, currentSegment, oppositeSegments, boundaries);
+			boolean bothDirVisited;
+			// opposite direction could be processed by another thread (parallel search)
+			synchronized (ctx.visitedSegmentsLock) {
+				// 1. check if segment was already visited in opposite direction
+				// We check before we calculate segmentTime (to not calculate it twice with opposite and calculate turns onto each segment).
+				bothDirVisited = checkIfOppositeSegmentWasVisited(ctx, reverseWaySearch, graphSegments, currentSegment, oppositeSegments, boundaries);
 			
-			// 2. calculate obstacle for passing this segment (after  visiting cause obstacle is at the end of the segment) 
-			float segmentAndObstaclesTime = (float) calculateRouteSegmentTime(ctx, reverseWaySearch, currentSegment);
-			if (segmentAndObstaclesTime < 0) { 
-				break;
-			}
-			// calculate new start segment time as we're going to assign to put to visited segments
-			float distFromStartPlusSegmentTime = currentSegment.distanceFromStart + segmentAndObstaclesTime;
-			
-			// 3. upload segment itself to visited segments
-			long nextPntId = calculateRoutePointId(currentSegment);
-			RouteSegment existingSegment = visitedSegments.put(nextPntId, currentSegment);
-			if (existingSegment != null) {
-				if (distFromStartPlusSegmentTime > existingSegment.distanceFromStart) {
-					// insert back original segment (test case with large area way)
-					visitedSegments.put(nextPntId, existingSegment);
-					if (TRACE_ROUTING) {
-						println("  " + currentSegment.segEnd + ">> Already visited");
-					}
+				// 2. calculate obstacle for passing this segment (after  visiting cause obstacle is at the end of the segment) 
+				float segmentAndObstaclesTime = (float) calculateRouteSegmentTime(ctx, reverseWaySearch, currentSegment);
+				if (segmentAndObstaclesTime < 0) { 
 					break;
-				} else {
-					if (ctx.config.heuristicCoefficient <= 1) {
-						if (RoutingContext.PRINT_ROUTING_ALERTS) {
-							System.err.println("! ALERT slower segment was visited earlier " + distFromStartPlusSegmentTime + " > "
-								+ existingSegment.distanceFromStart + ": " + currentSegment + " - " + existingSegment);
-						} else {
-							ctx.alertSlowerSegmentedWasVisitedEarlier++;
+				}
+				// calculate new start segment time as we're going to assign to put to visited segments
+				float distFromStartPlusSegmentTime = currentSegment.distanceFromStart + segmentAndObstaclesTime;
+			
+				// 3. upload segment itself to visited segments
+				long nextPntId = calculateRoutePointId(currentSegment);
+				RouteSegment existingSegment = visitedSegments.put(nextPntId, currentSegment);
+				if (existingSegment != null) {
+					if (distFromStartPlusSegmentTime > existingSegment.distanceFromStart) {
+						// insert back original segment (test case with large area way)
+						visitedSegments.put(nextPntId, existingSegment);
+						if (TRACE_ROUTING) {
+							println("  " + currentSegment.segEnd + ">> Already visited");
+						}
+						break;
+					} else {
+						if (ctx.config.heuristicCoefficient <= 1) {
+							if (RoutingContext.PRINT_ROUTING_ALERTS) {
+								System.err.println("! ALERT slower segment was visited earlier " + distFromStartPlusSegmentTime + " > "
+									+ existingSegment.distanceFromStart + ": " + currentSegment + " - " + existingSegment);
+							} else {
+								ctx.alertSlowerSegmentedWasVisitedEarlier++;
+							}
 						}
 					}
 				}
-			}
 						
-			// reassign @distanceFromStart to make it correct for visited segment
-			currentSegment.distanceFromStart = distFromStartPlusSegmentTime;
+				// reassign @distanceFromStart to make it correct for visited segment
+				currentSegment.distanceFromStart = distFromStartPlusSegmentTime;
+			}
 			
 			if (bothDirVisited) {
  				// We stop here for shortcut creation (we can't improve the neighbors if they're already visited cause the opposite is min - prove by contradiction) 
@@ -569,7 +891,7 @@ public class BinaryRoutePlanner {
 			// a) final segment is always in queue & double checked b) using osm segment almost always is shorter routing than other connected
 			if (DEBUG_BREAK_EACH_SEGMENT && nextCurrentSegment != null) {
 				if (!doNotAddIntersections) {
-					graphSegments.add(new RouteSegmentCost(nextCurrentSegment, ctx));
+					graphSegments.add(nextCurrentSegment, ctx);
 				}
 				break;
 			}
@@ -639,7 +961,7 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfOppositeSegmentWasVisited(RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, RouteSegment currentSegment,
+			SegmentsQueue graphSegments, RouteSegment currentSegment,
 			TLongObjectMap<RouteSegment> oppositeSegments, TLongObjectMap<RouteSegment> boundaries) {
 		// check inverse direction for opposite
 		long currPoint = calculateRoutePointInternalId(currentSegment.getRoad(), 
@@ -662,19 +984,19 @@ public class BinaryRoutePlanner {
 				float oppTime = opposite == null ? 0 : opposite.distanceFromStart;
 				frs.distanceFromStart = oppTime + currentSegment.distanceFromStart;
 				frs.distanceToEnd = 0;
-				frs.opposite = opposite;
+				frs.opposite = opposite == RouteSegment.PASS_THROUGH ? null : opposite;
 				if (frs.distanceFromStart < 0) {
 					// impossible route (when start/point on same segment but different dir) don't add to queue
 					return true;
 				}
-				graphSegments.add(new RouteSegmentCost(frs, ctx));
+				graphSegments.add(frs, ctx);
 				if (TRACE_ROUTING) {
 					printRoad("  " + currentSegment.segEnd + ">> Final segment : ", frs, reverseWaySearch);
 				}
 				if (ctx.calculationProgress != null) {
 					ctx.calculationProgress.finalSegmentsFound++;
 				}
-				return true;
+				return opposite != RouteSegment.PASS_THROUGH;
 			}
 		}
 		if (boundaries != null && ctx.dijkstraMode == 0 && boundaries.containsKey(currPoint)) {
@@ -812,7 +1134,7 @@ public class BinaryRoutePlanner {
 		}
 	}
 
-	private RouteSegment processIntersections(RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphSegments,
+	private RouteSegment processIntersections(RoutingContext ctx, SegmentsQueue graphSegments,
 			TLongObjectMap<RouteSegment> visitedSegments,  RouteSegment currentSegment,
 			boolean reverseWaySearch, boolean doNotAddIntersections) {
 		RouteSegment nextCurrentSegment = null;
@@ -919,7 +1241,7 @@ public class BinaryRoutePlanner {
 		return nextCurrentSegment;
 	}
 
-	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments,
+	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, SegmentsQueue graphSegments,
 			TLongObjectMap<RouteSegment> visitedSegments, RouteSegment segment, RouteSegment next) {
 		if (next != null) {
 			if (!checkMovementAllowed(ctx, reverseWaySearch, next)) {
@@ -966,7 +1288,9 @@ public class BinaryRoutePlanner {
 								ctx.alertFasterRoadToVisitedSegments++;
 							}
 						}
-						visitedSegments.remove(calculateRoutePointId(next));
+						synchronized (ctx.visitedSegmentsLock) {
+							visitedSegments.remove(calculateRoutePointId(next));
+						}
 					} else {
 						return false;
 					}
@@ -984,7 +1308,7 @@ public class BinaryRoutePlanner {
 				// put additional information to recover whole route after
 				next.setParentRoute(segment);
 				if (graphSegments != null) {
-					graphSegments.add(new RouteSegmentCost(next, ctx));
+					graphSegments.add(next, ctx);
 				}
 				return true;
 			}
@@ -1046,6 +1370,8 @@ public class BinaryRoutePlanner {
 		
 		// # Represents parent segment for Start & End segment 
 		public static final RouteSegment NULL = new RouteSegment(null, 0, 1);
+		// # Boundary value to collect final segment at point (i.e. matrix target) without stopping search there
+		public static final RouteSegment PASS_THROUGH = new RouteSegment(null, 0, 1);
 		
 		// # Final fields that store objects 
 		final short segStart;
@@ -92,7 +92,12 @@ public class GeneralRouter implements VehicleRouter {
 	
 	private GeneralRouterProfile profile;
 	
-	Map<RouteRegion, Map<IntHolder, Float>>[] evalCache;
+	Map<RouteRegion, EvalCache>[] evalCache;
+	// last used region cache per attribute
+	private RouteRegion[] lastEvalRegion;
+	private EvalCache[] lastEvalCache;
+	private long cacheHits;
+	private long cacheMisses;
 
 	public String[] hhNativeFilter = new String[0]; // getFilteredTags() as flat Array (JNI)
 	public String[] hhNativeParameterValues = new String[0]; // parameterValues as flat Array (JNI)
@@ -228,6 +233,8 @@ public class GeneralRouter implements VehicleRouter {
 		for (int i = 0; i < l; i++) {
 			evalCache[i] = new HashMap<>();
 		}
+		lastEvalRegion = new RouteRegion[l];
+		lastEvalCache = new EvalCache[l];
 	}
 
 	public String getFilename() {
@@ -333,8 +340,8 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public boolean acceptLine(RouteDataObject way) {
-		Float res = getCache(RouteDataObjectAttribute.ACCESS, way);
-		if (res == null) {
+		float res = getCache(RouteDataObjectAttribute.ACCESS, way);
+		if (Float.isNaN(res)) {
 			res = (float) getObjContext(RouteDataObjectAttribute.ACCESS).evaluateInt(way, 0);
 			putCache(RouteDataObjectAttribute.ACCESS, way, res);
 		}
@@ -418,6 +425,16 @@ public class GeneralRouter implements VehicleRouter {
 		return new GeneralRouter(this, params);
 	}
 
+	/**
+	 * Same router with own evaluation caches, so it could be used from another thread
+	 */
+	public GeneralRouter copyWithOwnCaches() {
+		GeneralRouter copy = build(parameterValues);
+		copy.impassableRoads = impassableRoads;
+		copy.filename = filename;
+		return copy;
+	}
+
 	@Override
 	public boolean restrictionsAware() {
 		return restrictionsAware;
@@ -427,8 +444,8 @@ public class GeneralRouter implements VehicleRouter {
 	public float defineObstacle(RouteDataObject road, int point, boolean dir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, dir);
-			if (obst == null) {
+			float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, dir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, dir);
 				obst = getObjContext(RouteDataObjectAttribute.OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
 				putCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, obst, dir);
@@ -442,8 +459,8 @@ public class GeneralRouter implements VehicleRouter {
 	public float defineRoutingObstacle(RouteDataObject road, int point, boolean dir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, dir);
-			if (obst == null) {
+			float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, dir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, dir);
 				obst = getObjContext(RouteDataObjectAttribute.ROUTING_OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
 				putCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, obst, dir);
@@ -521,12 +538,12 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public int isOneWay(RouteDataObject road) {
-		Float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
-		if(res == null) {
+		float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
+		if (Float.isNaN(res)) {
 			res = (float) getObjContext(RouteDataObjectAttribute.ONEWAY).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.ONEWAY, road, res);
 		}
-		return res.intValue();
+		return (int) res;
 	}
 	
 	@Override
@@ -536,8 +553,8 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float getPenaltyTransition(RouteDataObject road) {
-		Float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
-		if (vl == null) {
+		float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
+		if (Float.isNaN(vl)) {
 			vl = (float) getObjContext(RouteDataObjectAttribute.PENALTY_TRANSITION).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road, vl);
 		}
@@ -546,8 +563,8 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public float defineRoutingSpeed(RouteDataObject road, boolean dir) {
-		Float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
-		if (definedSpd == null) {
+		float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
+		if (Float.isNaN(definedSpd)) {
 			// not implemented direction usage
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
  			definedSpd = Math.max(Math.min(spd, maxSpeed), minSpeed);
@@ -564,8 +581,8 @@ public class GeneralRouter implements VehicleRouter {
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			return Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
 		}
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
-		if (sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
+		if (Float.isNaN(sp)) {
 			// not implemented direction usage
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			sp = Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
@@ -576,8 +593,8 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float defineSpeedPriority(RouteDataObject road, boolean dir) {
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, dir);
-		if(sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, dir);
+		if (Float.isNaN(sp)) {
 			// not implemented direction usage
 			sp = getObjContext(RouteDataObjectAttribute.ROAD_PRIORITIES).evaluateFloat(road, 1f);
 			putCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, sp, dir);
@@ -587,89 +604,144 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float defineDestinationPriority(RouteDataObject road) {
-		Float sp = getCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road);
-		if(sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road);
+		if (Float.isNaN(sp)) {
 			sp = getObjContext(RouteDataObjectAttribute.DESTINATION_PRIORITIES).evaluateFloat(road, 1f);
 			putCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road, sp, false);
 		}
 		return sp;
 	}
 
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val) {
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, float val) {
 		putCache(attr, road.region, road.types, val, false);
 	}
 	
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val, boolean extra) {
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, float val, boolean extra) {
 		putCache(attr, road.region, road.types, val, extra);
 	}
 	
-	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, Float val, boolean extra) {
-//		TIMER -= System.nanoTime();
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
+	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, float val, boolean extra) {
 		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				rM = new HashMap<IntHolder, Float>();
-				ch.put(reg, rM);
+			EvalCache cache = getRegionCache(attr, reg);
+			if (cache == null) {
+				cache = new EvalCache();
+				evalCache[attr.ordinal()].put(reg, cache);
+				lastEvalRegion[attr.ordinal()] = reg;
+				lastEvalCache[attr.ordinal()] = cache;
 			}
-			rM.put(new IntHolder(types, extra), val);
+			cache.put(types, extra, val);
 		}
-//		TIMER += System.nanoTime();
 	}
-	
-	class IntHolder {
-		private final int[] array;
-		private final boolean extra;
 
-		IntHolder(int[] ts, boolean extra) {
-			array = ts;
-			this.extra = extra;
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
+		return getCache(attr, road.region, road.types, false);
+	}
+	
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road, boolean extra) {
+		return getCache(attr, road.region, road.types, extra);
+	}
+	
+	// NaN if value is not cached
+	private float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, boolean extra) {
+		if (USE_CACHE) {
+			EvalCache cache = getRegionCache(attr, reg);
+			float vl = cache == null ? Float.NaN : cache.get(types, extra);
+			if (Float.isNaN(vl)) {
+				cacheMisses++;
+			} else {
+				cacheHits++;
+			}
+			return vl;
 		}
+		return Float.NaN;
+	}
 
-		@Override
-		public int hashCode() {
-			return Arrays.hashCode(array) + (extra ? 1 : 0);
+	private EvalCache getRegionCache(RouteDataObjectAttribute attr, RouteRegion reg) {
+		int a = attr.ordinal();
+		if (lastEvalRegion[a] == reg && lastEvalCache[a] != null) {
+			return lastEvalCache[a];
 		}
-
-		@Override
-		public boolean equals(Object other) {
-			if (array == other) {
-				return true;
-			}
-			if (!(other instanceof IntHolder)) {
-				return false;
-			}
-			if (((IntHolder) other).extra != this.extra) {
-				return false;
-			}
-			// noinspection unchecked
-			return Arrays.equals(array, ((IntHolder) other).array);
+		EvalCache cache = evalCache[a].get(reg);
+		if (cache != null) {
+			lastEvalRegion[a] = reg;
+			lastEvalCache[a] = cache;
 		}
+		return cache;
 	}
 
-	private Float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
-		return getCache(attr, road.region, road.types, false);
+	public long getCacheHits() {
+		return cacheHits;
 	}
-	
-	private Float getCache(RouteDataObjectAttribute attr, RouteDataObject road, boolean extra) {
-		return getCache(attr, road.region, road.types, extra);
+
+	public long getCacheMisses() {
+		return cacheMisses;
 	}
-	
-	private Float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, boolean extra) {
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
-//		TIMER -= System.nanoTime();
-		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				return null;
+
+	/**
+	 * Open addressing hash table of evaluated values by types array (without allocations on lookup).
+	 * Types arrays are stored by reference as they are not changed after object is read.
+	 */
+	static class EvalCache {
+		private int[][] keys = new int[16][];
+		private boolean[] extras = new boolean[16];
+		private float[] vals = new float[16];
+		private int size;
+
+		private static int hash(int[] types, boolean extra) {
+			int h = extra ? 1 : 0;
+			for (int t : types) {
+				h = 31 * h + t;
 			}
-			Float vl = rM.get(new IntHolder(types, extra));
-			if(vl != null) {
-//				TIMER += System.nanoTime();
-				return vl;
+			return h ^ (h >>> 16);
+		}
+
+		private int index(int[] types, boolean extra) {
+			int mask = keys.length - 1;
+			int i = hash(types, extra) & mask;
+			while (keys[i] != null) {
+				if (extras[i] == extra && (keys[i] == types || Arrays.equals(keys[i], types))) {
+					return i;
+				}
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+
+		float get(int[] types, boolean extra) {
+			int i = index(types, extra);
+			return keys[i] == null ? Float.NaN : vals[i];
+		}
+
+		void put(int[] types, boolean extra, float val) {
+			int i = index(types, extra);
+			if (keys[i] == null) {
+				if ((size + 1) * 2 > keys.length) {
+					rehash();
+					i = index(types, extra);
+				}
+				keys[i] = types;
+				extras[i] = extra;
+				size++;
+			}
+			vals[i] = val;
+		}
+
+		private void rehash() {
+			int[][] oldKeys = keys;
+			boolean[] oldExtras = extras;
+			float[] oldVals = vals;
+			keys = new int[oldKeys.length * 2][];
+			extras = new boolean[keys.length];
+			vals = new float[keys.length];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					int j = index(oldKeys[i], oldExtras[i]);
+					keys[j] = oldKeys[i];
+					extras[j] = oldExtras[i];
+					vals[j] = oldVals[i];
+				}
 			}
 		}
-		return null;
 	}
 
 	@Override
@@ -1311,7 +1383,11 @@ public class GeneralRouter implements VehicleRouter {
 		if (evalCache != null) {
 			for (int i = 0; i < evalCache.length; i++) {
 				evalCache[i].clear();
+				lastEvalRegion[i] = null;
+				lastEvalCache[i] = null;
 			}
+			cacheHits = 0;
+			cacheMisses = 0;
 		}
 	}
 
@@ -0,0 +1,335 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
+import net.osmand.util.MapUtils;
+
+/**
+ * Geometry based approximation of long track by overlapping windows matched concurrently.
+ * Every thread has own routing context with own map readers (tiles are shared through {@link RoutingTileCache}
+ * if it is enabled). Neighbour windows are stitched at window boundary: both routes are cut at common road point
+ * closest to the boundary gpx point, if routes don't agree, route of previous window is kept and gap is logged.
+ */
+public class GpxChunkedApproximation {
+
+	private static final Log log = PlatformUtil.getLog(GpxChunkedApproximation.class);
+	private static boolean DEBUG = false;
+
+	private final RoutePlannerFrontEnd frontEnd;
+	private final GpxRouteApproximation gctx;
+	private final List<GpxPoint> gpxPoints;
+
+	// matched route from gpx point start to gpx point target
+	private static class GpxRoutePiece {
+		int start;
+		int target;
+		List<RouteSegmentResult> route;
+
+		GpxRoutePiece(int start, int target, List<RouteSegmentResult> route) {
+			this.start = start;
+			this.target = target;
+			this.route = route;
+		}
+	}
+
+	private static class GpxWindow {
+		// boundary point (first point not covered by previous window), boundary of next window, window points
+		int boundary;
+		int next;
+		int start;
+		int end;
+		List<GpxRoutePiece> pieces;
+		int routePointsSearched;
+	}
+
+	public GpxChunkedApproximation(RoutePlannerFrontEnd frontEnd, GpxRouteApproximation gctx, List<GpxPoint> gpxPoints) {
+		this.frontEnd = frontEnd;
+		this.gctx = gctx;
+		this.gpxPoints = gpxPoints;
+	}
+
+	public static boolean isChunkingNeeded(RoutingConfiguration config, List<GpxPoint> gpxPoints) {
+		return config.gpxApproximationThreads > 1 && !gpxPoints.isEmpty()
+				&& gpxPoints.get(gpxPoints.size() - 1).cumDist > 2 * config.gpxApproximationWindow;
+	}
+
+	public GpxRouteApproximation gpxApproximation() throws IOException, InterruptedException {
+		long timeToCalculate = System.nanoTime();
+		RoutingConfiguration config = gctx.ctx.config;
+		List<GpxWindow> windows = splitWindows(config.gpxApproximationWindow, config.gpxApproximationOverlap);
+		approximateWindows(windows, Math.min(config.gpxApproximationThreads, windows.size()));
+		List<GpxRoutePiece> pieces = new ArrayList<>();
+		for (GpxWindow w : windows) {
+			gctx.routePointsSearched += w.routePointsSearched;
+			if (w.pieces != null) {
+				stitch(pieces, w);
+			}
+		}
+		for (GpxRoutePiece p : pieces) {
+			GpxPoint pnt = gpxPoints.get(p.start);
+			for (RouteSegmentResult r : p.route) {
+				r.setGpxPointIndex(p.start);
+			}
+			pnt.routeToTarget = p.route;
+			pnt.targetInd = p.target;
+		}
+		if (gctx.ctx.calculationProgress != null) {
+			gctx.ctx.calculationProgress.timeToCalculate = System.nanoTime() - timeToCalculate;
+		}
+		if (DEBUG) {
+			System.out.printf("Approximation by %d windows took %.2f seconds (%d route points searched)\n",
+					windows.size(), (System.nanoTime() - timeToCalculate) / 1.0e9, gctx.routePointsSearched);
+		}
+		return gctx;
+	}
+
+	private List<GpxWindow> splitWindows(double windowDist, double overlap) {
+		List<GpxWindow> windows = new ArrayList<>();
+		int boundary = 0;
+		while (boundary < gpxPoints.size() - 1) {
+			GpxWindow w = new GpxWindow();
+			w.boundary = boundary;
+			double startDist = gpxPoints.get(boundary).cumDist;
+			w.start = boundary;
+			while (w.start > 0 && startDist - gpxPoints.get(w.start - 1).cumDist <= overlap) {
+				w.start--;
+			}
+			int next = boundary + 1;
+			while (next < gpxPoints.size() - 1 && gpxPoints.get(next).cumDist - startDist < windowDist) {
+				next++;
+			}
+			w.next = next;
+			w.end = next;
+			double endDist = gpxPoints.get(next).cumDist;
+			while (w.end < gpxPoints.size() - 1 && gpxPoints.get(w.end + 1).cumDist - endDist <= overlap) {
+				w.end++;
+			}
+			windows.add(w);
+			boundary = next;
+		}
+		return windows;
+	}
+
+	private void approximateWindows(List<GpxWindow> windows, int threads) throws IOException, InterruptedException {
+		final RouteCalculationProgress progress = gctx.ctx.calculationProgress;
+		if (progress != null) {
+			progress.totalApproximateDistance = (float) gpxPoints.get(gpxPoints.size() - 1).cumDist;
+		}
+		final LinkedBlockingQueue<RoutingContext> contexts = new LinkedBlockingQueue<>();
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		ExecutorService service = Executors.newFixedThreadPool(threads);
+		try {
+			for (int t = 0; t < threads; t++) {
+				Map<BinaryMapIndexReader, BinaryMapIndexReader> readersCopy = gctx.ctx.copyMapReaders();
+				readers.addAll(readersCopy.values());
+				contexts.add(new RoutingContext(gctx.ctx, readersCopy, gctx.ctx.config.copy()));
+			}
+			List<Future<?>> futures = new ArrayList<>();
+			for (final GpxWindow w : windows) {
+				futures.add(service.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						if (progress != null && progress.isCancelled) {
+							return null;
+						}
+						RoutingContext ctx = contexts.take();
+						try {
+							// window has own progress, counters are added to caller progress when window is finished
+							RouteCalculationProgress windowProgress = null;
+							if (progress != null) {
+								windowProgress = new RouteCalculationProgress();
+								windowProgress.isCancelled = progress.isCancelled;
+							}
+							ctx.calculationProgress = windowProgress;
+							approximateWindow(ctx, w);
+							if (progress != null) {
+								synchronized (progress) {
+									progress.addCounters(windowProgress);
+									progress.approximatedDistance += gpxPoints.get(w.next).cumDist
+											- gpxPoints.get(w.boundary).cumDist;
+									progress.timeToCalculate += windowProgress.timeToCalculate;
+								}
+							}
+						} finally {
+							contexts.add(ctx);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					Throwable t = e.getCause();
+					if (t instanceof IOException) {
+						throw (IOException) t;
+					} else if (t instanceof InterruptedException) {
+						throw (InterruptedException) t;
+					} else if (t instanceof RuntimeException) {
+						throw (RuntimeException) t;
+					}
+					throw new IllegalStateException(t);
+				}
+			}
+		} finally {
+			service.shutdownNow();
+			for (RoutingContext ctx : contexts) {
+				ctx.unloadAllData();
+			}
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+	}
+
+	private void approximateWindow(RoutingContext ctx, GpxWindow w) throws IOException {
+		// algorithms use index of point in list, so window points are indexed from 0
+		List<GpxPoint> points = new ArrayList<>(w.end - w.start + 1);
+		List<LatLon> locations = new ArrayList<>(w.end - w.start + 1);
+		for (int i = w.start; i <= w.end; i++) {
+			locations.add(gpxPoints.get(i).loc);
+		}
+		RouteDataObject o = RoutePlannerFrontEnd.generateStraightLineSegment(0, locations).getObject();
+		for (int i = w.start; i <= w.end; i++) {
+			GpxPoint p = new GpxPoint(gpxPoints.get(i));
+			p.ind = i - w.start;
+			p.time = gpxPoints.get(i).time;
+			p.object = o;
+			points.add(p);
+		}
+		GpxRouteApproximation wctx = new GpxRouteApproximation(ctx);
+		GpxRouteApproximation.approximateGpxSegments(frontEnd, wctx, points);
+		w.routePointsSearched = wctx.routePointsSearched;
+		List<GpxRoutePiece> pieces = new ArrayList<>();
+		for (int i = 0; i < points.size(); ) {
+			GpxPoint p = points.get(i);
+			if (p.routeToTarget != null && !p.routeToTarget.isEmpty() && p.targetInd > i) {
+				pieces.add(new GpxRoutePiece(w.start + i, w.start + p.targetInd, p.routeToTarget));
+				i = p.targetInd;
+			} else {
+				i++;
+			}
+		}
+		w.pieces = pieces;
+	}
+
+	private void stitch(List<GpxRoutePiece> pieces, GpxWindow w) {
+		int boundary = w.boundary;
+		// pieces of previous windows starting in overlap are replaced by this window
+		while (!pieces.isEmpty() && pieces.get(pieces.size() - 1).start >= boundary) {
+			pieces.remove(pieces.size() - 1);
+		}
+		GpxRoutePiece prev = pieces.isEmpty() ? null : pieces.get(pieces.size() - 1);
+		int next = 0;
+		while (next < w.pieces.size() && w.pieces.get(next).target <= boundary) {
+			next++;
+		}
+		boolean gap = false;
+		if (prev != null && prev.target > boundary && next < w.pieces.size() && w.pieces.get(next).start <= boundary) {
+			GpxRoutePiece cur = w.pieces.get(next);
+			gap = !cutAtCommonPoint(prev, cur, gpxPoints.get(boundary).loc);
+			if (!gap) {
+				prev.target = boundary;
+				cur.start = boundary;
+				if (prev.route.isEmpty()) {
+					pieces.remove(pieces.size() - 1);
+				}
+				if (cur.route.isEmpty()) {
+					next++;
+				}
+			}
+		}
+		int end = pieces.isEmpty() ? 0 : pieces.get(pieces.size() - 1).target;
+		int gapEnd = -1;
+		for (int i = next; i < w.pieces.size(); i++) {
+			if (w.pieces.get(i).start >= end) {
+				if (gapEnd == -1) {
+					gapEnd = w.pieces.get(i).start;
+				}
+				pieces.add(w.pieces.get(i));
+			}
+		}
+		if (gap && gapEnd != end) {
+			// gpx points between routes are left without route (same as not matched points)
+			log.warn(String.format("Windows routes have no common point near gpx point %d: no route from gpx point %d to %s",
+					boundary, end, gapEnd == -1 ? "window end" : String.valueOf(gapEnd)));
+		}
+	}
+
+	private boolean cutAtCommonPoint(GpxRoutePiece prev, GpxRoutePiece cur, LatLon anchor) {
+		TLongObjectHashMap<int[]> curPoints = new TLongObjectHashMap<>();
+		for (int s = 0; s < cur.route.size(); s++) {
+			RouteSegmentResult r = cur.route.get(s);
+			int step = r.isForwardDirection() ? 1 : -1;
+			for (int i = r.getStartPointIndex(); ; i += step) {
+				long key = pointKey(r, i);
+				if (!curPoints.containsKey(key)) {
+					curPoints.put(key, new int[] { s, i });
+				}
+				if (i == r.getEndPointIndex()) {
+					break;
+				}
+			}
+		}
+		int prevSeg = -1, prevInd = -1;
+		int[] curPos = null;
+		double minDist = Double.POSITIVE_INFINITY;
+		for (int s = 0; s < prev.route.size(); s++) {
+			RouteSegmentResult r = prev.route.get(s);
+			int step = r.isForwardDirection() ? 1 : -1;
+			for (int i = r.getStartPointIndex(); ; i += step) {
+				int[] c = curPoints.get(pointKey(r, i));
+				if (c != null) {
+					double d = MapUtils.getDistance(r.getPoint(i), anchor);
+					if (d < minDist) {
+						minDist = d;
+						prevSeg = s;
+						prevInd = i;
+						curPos = c;
+					}
+				}
+				if (i == r.getEndPointIndex()) {
+					break;
+				}
+			}
+		}
+		if (curPos == null) {
+			return false;
+		}
+		while (prev.route.size() > prevSeg + 1) {
+			prev.route.remove(prev.route.size() - 1);
+		}
+		prev.route.get(prevSeg).setEndPointIndex(prevInd);
+		if (prevInd == prev.route.get(prevSeg).getStartPointIndex()) {
+			prev.route.remove(prevSeg);
+		}
+		cur.route.subList(0, curPos[0]).clear();
+		cur.route.get(0).setStartPointIndex(curPos[1]);
+		if (curPos[1] == cur.route.get(0).getEndPointIndex()) {
+			cur.route.remove(0);
+		}
+		return true;
+	}
+
+	private static long pointKey(RouteSegmentResult r, int ind) {
+		return (((long) r.getObject().getPoint31XTile(ind)) << 31) + r.getObject().getPoint31YTile(ind);
+	}
+}
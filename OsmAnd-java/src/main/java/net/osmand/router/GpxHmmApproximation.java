@@ -0,0 +1,479 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
+import net.osmand.util.CostPriorityQueue;
+import net.osmand.util.MapUtils;
+
+/**
+ * Hidden markov model map matcher (Viterbi): every gpx point has bounded set of candidate states (road segment
+ * with direction of movement), emission cost depends on distance to road, transition cost on difference between
+ * shortest route between candidates (bounded dijkstra over loaded road graph) and straight distance between points.
+ * Points are processed one by one, route is emitted as soon as all candidates agree on common past (or lattice gets
+ * too deep), so memory doesn't depend on track length and matcher could be fed by live locations.
+ */
+public class GpxHmmApproximation {
+	// ALGORITHM CONSTANTS //
+	private static final int MAX_CANDIDATES = 8;
+	static final int MAX_LATTICE_DEPTH = 30;
+	private static final double TRANSITION_BETA = 10; // meters
+	private static final double MAX_ROUTE_FACTOR = 3;
+	private static boolean DEBUG = false;
+	/////////////////////////
+
+	public interface MatchedRouteListener {
+		// route from start point to target point, called in order of points
+		void routeMatched(GpxPoint start, GpxPoint target, List<RouteSegmentResult> route);
+	}
+
+	private final RoutePlannerFrontEnd frontEnd;
+	private final RoutingContext ctx;
+	private final MatchedRouteListener listener;
+	private final float minPointApproximation;
+	private final double sigma;
+
+	private List<HmmState> layer = Collections.emptyList();
+	private GpxPoint lastPoint;
+	// emitted part of route which doesn't reach next point yet
+	private GpxPoint pendingStart;
+	private List<RouteSegmentResult> pendingRoute;
+
+	public int routePointsSearched;
+	public int transitionSearches;
+
+	static class HmmState {
+		final GpxPoint point;
+		final RouteDataObject road;
+		// direction of movement: from entry to exit point of road segment
+		final int entry;
+		final int exit;
+		final int projX;
+		final int projY;
+		final double emission;
+		double cost;
+		int depth;
+		HmmState parent;
+		// route from parent exit point including own segment
+		List<RouteSegmentResult> route;
+		boolean emitted;
+
+		HmmState(GpxPoint point, RouteDataObject road, int entry, int exit, int projX, int projY, double emission) {
+			this.point = point;
+			this.road = road;
+			this.entry = entry;
+			this.exit = exit;
+			this.projX = projX;
+			this.projY = projY;
+			this.emission = emission;
+		}
+
+		int entryX() {
+			return road.getPoint31XTile(entry);
+		}
+
+		int entryY() {
+			return road.getPoint31YTile(entry);
+		}
+
+		int exitX() {
+			return road.getPoint31XTile(exit);
+		}
+
+		int exitY() {
+			return road.getPoint31YTile(exit);
+		}
+
+		boolean sameSegment(HmmState s) {
+			return road.getId() == s.road.getId() && entry == s.entry && exit == s.exit;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d: %s %d -> %d (%.2f)", point.ind, road, entry, exit, cost);
+		}
+	}
+
+	private static class GraphNode {
+		final int x;
+		final int y;
+		final double dist;
+		final GraphNode prev;
+		final RouteDataObject road;
+		final int from;
+		final int to;
+
+		GraphNode(int x, int y, double dist, GraphNode prev, RouteDataObject road, int from, int to) {
+			this.x = x;
+			this.y = y;
+			this.dist = dist;
+			this.prev = prev;
+			this.road = road;
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	public GpxHmmApproximation(RoutePlannerFrontEnd frontEnd, RoutingContext ctx, MatchedRouteListener listener) {
+		this.frontEnd = frontEnd;
+		this.ctx = ctx;
+		this.listener = listener;
+		minPointApproximation = ctx.config.minPointApproximation;
+		sigma = minPointApproximation / 3;
+	}
+
+	// batch mode: matched routes are stored in gpx points as by other approximation algorithms
+	public static GpxRouteApproximation gpxApproximation(RoutePlannerFrontEnd frontEnd, GpxRouteApproximation gctx,
+			List<GpxPoint> gpxPoints) throws IOException {
+		long timeToCalculate = System.nanoTime();
+		GpxHmmApproximation app = new GpxHmmApproximation(frontEnd, gctx.ctx, new MatchedRouteListener() {
+			@Override
+			public void routeMatched(GpxPoint start, GpxPoint target, List<RouteSegmentResult> route) {
+				for (RouteSegmentResult r : route) {
+					r.setGpxPointIndex(start.ind);
+				}
+				start.routeToTarget = route;
+				start.targetInd = target.ind;
+			}
+		});
+		for (GpxPoint p : gpxPoints) {
+			if (gctx.ctx.calculationProgress != null && gctx.ctx.calculationProgress.isCancelled) {
+				break;
+			}
+			app.addPoint(p);
+		}
+		app.finish();
+		gctx.routePointsSearched += app.routePointsSearched;
+		if (gctx.ctx.calculationProgress != null) {
+			gctx.ctx.calculationProgress.timeToCalculate = System.nanoTime() - timeToCalculate;
+		}
+		if (DEBUG) {
+			System.out.printf("HMM approximation took %.2f seconds (%d route points searched, %d transition searches)\n",
+					(System.nanoTime() - timeToCalculate) / 1.0e9, app.routePointsSearched, app.transitionSearches);
+		}
+		return gctx;
+	}
+
+	public void addPoint(GpxPoint p) throws IOException {
+		if (lastPoint != null && MapUtils.getDistance(lastPoint.loc, p.loc) < 2 * sigma) {
+			// point is too close to previous (noise), it's covered by route to the next point
+			return;
+		}
+		List<HmmState> candidates = findCandidates(p);
+		if (candidates.isEmpty()) {
+			return;
+		}
+		List<HmmState> next = new ArrayList<>();
+		if (!layer.isEmpty()) {
+			double straightDist = MapUtils.getDistance(lastPoint.loc, p.loc);
+			for (HmmState prev : layer) {
+				transitions(prev, candidates, straightDist);
+			}
+			for (HmmState c : candidates) {
+				if (c.parent != null) {
+					next.add(c);
+				}
+			}
+		}
+		lastPoint = p;
+		if (next.isEmpty()) {
+			// no transitions (or start): route is broken here
+			finish();
+			for (HmmState c : candidates) {
+				c.cost = c.emission;
+				c.route = Collections.singletonList(new RouteSegmentResult(c.road, c.entry, c.exit));
+			}
+			layer = candidates;
+			return;
+		}
+		layer = next;
+		emitConverged();
+	}
+
+	// emits best route found so far, next point starts new route
+	public void finish() {
+		HmmState best = bestState(layer);
+		if (best != null) {
+			emit(best);
+		}
+		layer = Collections.emptyList();
+		pendingStart = null;
+		pendingRoute = null;
+	}
+
+	private HmmState bestState(List<HmmState> states) {
+		HmmState best = null;
+		for (HmmState s : states) {
+			if (best == null || s.cost < best.cost) {
+				best = s;
+			}
+		}
+		return best;
+	}
+
+	private void emitConverged() {
+		Set<HmmState> ancestors = new LinkedHashSet<>(layer);
+		while (ancestors.size() > 1) {
+			Set<HmmState> parents = new LinkedHashSet<>();
+			for (HmmState s : ancestors) {
+				if (s.parent == null || s.emitted) {
+					// different roots
+					parents = null;
+					break;
+				}
+				parents.add(s.parent);
+			}
+			if (parents == null) {
+				break;
+			}
+			ancestors = parents;
+		}
+		if (ancestors.size() == 1 && !ancestors.iterator().next().emitted) {
+			emit(ancestors.iterator().next());
+			return;
+		}
+		// candidates agree only on emitted state (or don't agree at all), lattice could grow without limit
+		HmmState best = bestState(layer);
+		if (best.depth - latticeRoot(best).depth > MAX_LATTICE_DEPTH) {
+			// force decision by best candidate and drop candidates not agreeing with it
+			HmmState fixed = best;
+			while (fixed.depth > best.depth - MAX_LATTICE_DEPTH / 2) {
+				fixed = fixed.parent;
+			}
+			List<HmmState> agreed = new ArrayList<>();
+			for (HmmState s : layer) {
+				HmmState a = s;
+				while (a != null && a.depth > fixed.depth) {
+					a = a.parent;
+				}
+				if (a == fixed) {
+					agreed.add(s);
+				}
+			}
+			layer = agreed;
+			emit(fixed);
+		}
+	}
+
+	private HmmState latticeRoot(HmmState s) {
+		HmmState root = s;
+		while (root.parent != null && !root.parent.emitted) {
+			root = root.parent;
+		}
+		return root;
+	}
+
+	// test hook: depth of not emitted part of lattice
+	int getLatticeDepth() {
+		HmmState best = bestState(layer);
+		return best == null ? 0 : best.depth - latticeRoot(best).depth;
+	}
+
+	private void emit(HmmState last) {
+		List<HmmState> path = new ArrayList<>();
+		for (HmmState s = last; s != null && !s.emitted; s = s.parent) {
+			path.add(s);
+		}
+		Collections.reverse(path);
+		for (HmmState s : path) {
+			if (DEBUG) {
+				System.out.println("HMM " + s);
+			}
+			if (pendingStart == null) {
+				pendingStart = s.point;
+				pendingRoute = new ArrayList<>(s.route);
+			} else {
+				pendingRoute.addAll(s.route);
+				if (!pendingRoute.isEmpty() && s.point != pendingStart) {
+					listener.routeMatched(pendingStart, s.point, pendingRoute);
+					pendingStart = s.point;
+					pendingRoute = new ArrayList<>();
+				}
+			}
+			s.emitted = true;
+		}
+		// past states are not needed anymore
+		last.parent = null;
+		last.route = Collections.emptyList();
+	}
+
+	List<HmmState> findCandidates(GpxPoint p) throws IOException {
+		routePointsSearched++;
+		List<HmmState> res = new ArrayList<>();
+		RouteSegmentPoint rsp = frontEnd.findRouteSegment(p.loc.getLatitude(), p.loc.getLongitude(), ctx, null, false);
+		if (rsp == null) {
+			return res;
+		}
+		List<RouteSegmentPoint> points = new ArrayList<>();
+		points.add(rsp);
+		if (rsp.others != null) {
+			points.addAll(rsp.others);
+		}
+		for (RouteSegmentPoint pnt : points) {
+			double d = MapUtils.getDistance(pnt.getPreciseLatLon(), p.loc);
+			if (d > minPointApproximation) {
+				continue;
+			}
+			double emission = 0.5 * (d / sigma) * (d / sigma);
+			int lo = Math.min(pnt.getSegmentStart(), pnt.getSegmentEnd());
+			int hi = Math.max(pnt.getSegmentStart(), pnt.getSegmentEnd());
+			int oneway = ctx.getRouter().isOneWay(pnt.getRoad());
+			if (oneway >= 0) {
+				res.add(new HmmState(p, pnt.getRoad(), lo, hi, pnt.preciseX, pnt.preciseY, emission));
+			}
+			if (oneway <= 0) {
+				res.add(new HmmState(p, pnt.getRoad(), hi, lo, pnt.preciseX, pnt.preciseY, emission));
+			}
+		}
+		Collections.sort(res, new Comparator<HmmState>() {
+			@Override
+			public int compare(HmmState o1, HmmState o2) {
+				return Double.compare(o1.emission, o2.emission);
+			}
+		});
+		return res.size() > MAX_CANDIDATES ? new ArrayList<>(res.subList(0, MAX_CANDIDATES)) : res;
+	}
+
+	void transitions(HmmState prev, List<HmmState> candidates, double straightDist) {
+		double maxDist = Math.max(straightDist * MAX_ROUTE_FACTOR, straightDist + 2 * minPointApproximation);
+		double[] routeDist = new double[candidates.size()];
+		GraphNode[] routeNodes = new GraphNode[candidates.size()];
+		boolean[] sameSegment = new boolean[candidates.size()];
+		int left = 0;
+		for (int i = 0; i < candidates.size(); i++) {
+			HmmState c = candidates.get(i);
+			routeDist[i] = -1;
+			if (c.sameSegment(prev)) {
+				// moving along same segment (small movement back is considered as gps noise)
+				double along = distFromEntry(c) - distFromEntry(prev);
+				if (along > -sigma) {
+					routeDist[i] = Math.max(0, along);
+					sameSegment[i] = true;
+					continue;
+				}
+			}
+			left++;
+		}
+		if (left > 0) {
+			transitionSearches++;
+			boundedSearch(prev, candidates, maxDist, routeDist, routeNodes, sameSegment);
+		}
+		for (int i = 0; i < candidates.size(); i++) {
+			if (routeDist[i] < 0) {
+				continue;
+			}
+			HmmState c = candidates.get(i);
+			double cost = prev.cost + Math.abs(routeDist[i] - straightDist) / TRANSITION_BETA + c.emission;
+			if (c.parent == null || cost < c.cost) {
+				c.cost = cost;
+				c.parent = prev;
+				c.depth = prev.depth + 1;
+				c.route = sameSegment[i] ? Collections.<RouteSegmentResult>emptyList() : buildRoute(routeNodes[i], c);
+			}
+		}
+	}
+
+	private double distFromEntry(HmmState s) {
+		return BinaryRoutePlanner.squareRootDist(s.entryX(), s.entryY(), s.projX, s.projY);
+	}
+
+	// dijkstra from exit point of prev state to entry points of candidates
+	private void boundedSearch(HmmState prev, List<HmmState> candidates, double maxDist, double[] routeDist,
+			GraphNode[] routeNodes, boolean[] sameSegment) {
+		TLongObjectHashMap<List<Integer>> targets = new TLongObjectHashMap<>();
+		for (int i = 0; i < candidates.size(); i++) {
+			if (!sameSegment[i]) {
+				HmmState c = candidates.get(i);
+				long key = pointKey(c.entryX(), c.entryY());
+				List<Integer> l = targets.get(key);
+				if (l == null) {
+					l = new ArrayList<>();
+					targets.put(key, l);
+				}
+				l.add(i);
+			}
+		}
+		double startDist = BinaryRoutePlanner.squareRootDist(prev.projX, prev.projY, prev.exitX(), prev.exitY());
+		TLongObjectHashMap<GraphNode> visited = new TLongObjectHashMap<>();
+		CostPriorityQueue<GraphNode> queue = new CostPriorityQueue<>();
+		queue.add(new GraphNode(prev.exitX(), prev.exitY(), startDist, null, null, -1, -1), startDist);
+		int found = 0;
+		while (!queue.isEmpty() && found < targets.size()) {
+			GraphNode n = queue.poll();
+			long key = pointKey(n.x, n.y);
+			if (visited.containsKey(key)) {
+				continue;
+			}
+			visited.put(key, n);
+			List<Integer> t = targets.get(key);
+			if (t != null) {
+				found++;
+				for (int i : t) {
+					HmmState c = candidates.get(i);
+					double d = n.dist + BinaryRoutePlanner.squareRootDist(n.x, n.y, c.projX, c.projY);
+					if (d <= maxDist) {
+						routeDist[i] = d;
+						routeNodes[i] = n;
+					}
+				}
+			}
+			RouteSegment sg = ctx.loadRouteSegment(n.x, n.y, ctx.config.memoryLimitation);
+			for (; sg != null; sg = sg.getNext()) {
+				RouteDataObject road = sg.getRoad();
+				int k = sg.getSegmentStart();
+				int oneway = ctx.getRouter().isOneWay(road);
+				if (oneway >= 0 && k + 1 < road.getPointsLength()) {
+					addNode(queue, visited, n, road, k, k + 1, maxDist);
+				}
+				if (oneway <= 0 && k > 0) {
+					addNode(queue, visited, n, road, k, k - 1, maxDist);
+				}
+			}
+		}
+	}
+
+	private void addNode(CostPriorityQueue<GraphNode> queue, TLongObjectHashMap<GraphNode> visited, GraphNode n,
+			RouteDataObject road, int from, int to, double maxDist) {
+		int x = road.getPoint31XTile(to);
+		int y = road.getPoint31YTile(to);
+		if (visited.containsKey(pointKey(x, y))) {
+			return;
+		}
+		double d = n.dist + BinaryRoutePlanner.squareRootDist(n.x, n.y, x, y);
+		if (d <= maxDist) {
+			queue.add(new GraphNode(x, y, d, n, road, from, to), d);
+		}
+	}
+
+	private List<RouteSegmentResult> buildRoute(GraphNode target, HmmState c) {
+		List<RouteSegmentResult> res = new ArrayList<>();
+		for (GraphNode n = target; n != null && n.road != null; n = n.prev) {
+			RouteSegmentResult last = res.isEmpty() ? null : res.get(res.size() - 1);
+			// merge steps along the same road (list is reversed)
+			if (last != null && last.getObject() == n.road && last.getStartPointIndex() == n.to
+					&& (n.to > n.from) == last.isForwardDirection()) {
+				last.setStartPointIndex(n.from);
+			} else {
+				res.add(new RouteSegmentResult(n.road, n.from, n.to));
+			}
+		}
+		Collections.reverse(res);
+		res.add(new RouteSegmentResult(c.road, c.entry, c.exit));
+		return res;
+	}
+
+	private static long pointKey(int x, int y) {
+		return (((long) x) << 31) + y;
+	}
+
+}
@@ -18,6 +18,7 @@ public class GpxRouteApproximation {
 	
 	public static final int GPX_OSM_POINTS_MATCH_ALGORITHM = 1;
 	public static final int GPX_OSM_MULTISEGMENT_SCAN_ALGORITHM = 2;
+	public static final int GPX_OSM_HMM_ALGORITHM = 3;
 	public static int GPX_SEGMENT_ALGORITHM = GPX_OSM_MULTISEGMENT_SCAN_ALGORITHM;
 	
 	public List<RoutePlannerFrontEnd.GpxPoint> finalPoints = new ArrayList<>();
@@ -179,12 +180,11 @@ public class GpxRouteApproximation {
 			if (gctx.ctx.calculationProgress == null) {
 				gctx.ctx.calculationProgress = new RouteCalculationProgress();
 			}
-			if (GPX_SEGMENT_ALGORITHM == GPX_OSM_POINTS_MATCH_ALGORITHM) {
-				GpxPointsMatchApproximation app = new GpxPointsMatchApproximation();
-				app.gpxApproximation(router, gctx, gpxPoints);
-			} else if (GPX_SEGMENT_ALGORITHM == GPX_OSM_MULTISEGMENT_SCAN_ALGORITHM) {
-				GpxMultiSegmentsApproximation app = new GpxMultiSegmentsApproximation(router, gctx, gpxPoints);
+			if (GpxChunkedApproximation.isChunkingNeeded(gctx.ctx.config, gpxPoints)) {
+				GpxChunkedApproximation app = new GpxChunkedApproximation(router, gctx, gpxPoints);
 				app.gpxApproximation();
+			} else {
+				approximateGpxSegments(router, gctx, gpxPoints);
 			}
 			calculateGpxRouteResult(gctx, gpxPoints);
 			if (!gctx.fullRoute.isEmpty() && !gctx.ctx.calculationProgress.isCancelled) {
@@ -196,6 +196,19 @@ public class GpxRouteApproximation {
 		return gctx;
 	}
 
+	static void approximateGpxSegments(RoutePlannerFrontEnd router, GpxRouteApproximation gctx,
+			List<RoutePlannerFrontEnd.GpxPoint> gpxPoints) throws IOException {
+		if (GPX_SEGMENT_ALGORITHM == GPX_OSM_POINTS_MATCH_ALGORITHM) {
+			GpxPointsMatchApproximation app = new GpxPointsMatchApproximation();
+			app.gpxApproximation(router, gctx, gpxPoints);
+		} else if (GPX_SEGMENT_ALGORITHM == GPX_OSM_MULTISEGMENT_SCAN_ALGORITHM) {
+			GpxMultiSegmentsApproximation app = new GpxMultiSegmentsApproximation(router, gctx, gpxPoints);
+			app.gpxApproximation();
+		} else if (GPX_SEGMENT_ALGORITHM == GPX_OSM_HMM_ALGORITHM) {
+			GpxHmmApproximation.gpxApproximation(router, gctx, gpxPoints);
+		}
+	}
+
 	private GpxRouteApproximation searchGpxRouteByRouting(GpxRouteApproximation gctx, List<RoutePlannerFrontEnd.GpxPoint> gpxPoints) throws IOException, InterruptedException {
 		long timeToCalculate = System.nanoTime();
 		NativeLibrary nativeLib = gctx.ctx.nativeLib;
@@ -4,12 +4,12 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.TreeMap;
 
 import com.google.protobuf.CodedInputStream;
@@ -26,6 +26,7 @@ import net.osmand.data.LatLon;
 import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegment;
 import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+import net.osmand.util.CostPriorityQueue;
 import net.osmand.util.MapUtils;
 
 public class HHRouteDataStructure {
@@ -53,6 +54,8 @@ public class HHRouteDataStructure {
 		boolean CACHE_CALCULATION_CONTEXT = false;
 		boolean CALC_ALTERNATIVES = false;
 		boolean USE_GC_MORE_OFTEN = false;
+		// threads to calculate detailed segments (every thread uses own routing context and memory limit)
+		int DETAILED_THREADS = 1;
 		
 		double ALT_EXCLUDE_RAD_MULT = 0.3; // radius multiplier to exclude points
 		double ALT_EXCLUDE_RAD_MULT_IN = 3; // skip some points to speed up calculation
@@ -125,6 +128,11 @@ public class HHRouteDataStructure {
 		}
 
 		
+		public HHRoutingConfig detailedThreads(int threads) {
+			this.DETAILED_THREADS = threads;
+			return this;
+		}
+		
 		public HHRoutingConfig useShortcuts() {
 			USE_CH_SHORTCUTS = true;
 			return this;
@@ -207,6 +215,8 @@ public class HHRouteDataStructure {
 	public static class HHRoutingContext<T extends NetworkDBPoint> {
 		// faster when roads are in 1 global network but doesn't make sense for isolated islands
 		static boolean USE_GLOBAL_QUEUE = false; 
+		// allocation free queues of points to visit (see CostPriorityQueue)
+		public static boolean USE_PRIMITIVE_QUEUE = false;
 		
 		// Initial data structure
 		RoutingContext rctx; 
@@ -235,19 +245,14 @@ public class HHRouteDataStructure {
 		List<T> visited = new ArrayList<>();
 		List<T> visitedRev = new ArrayList<>();
 		
-		Queue<NetworkDBPointCost<T>> queue = createQueue();
-		Queue<NetworkDBPointCost<T>> queuePos = createQueue();
-		Queue<NetworkDBPointCost<T>> queueRev = createQueue();
+		NetworkDBPointQueue<T> queue = createQueue();
+		NetworkDBPointQueue<T> queuePos = createQueue();
+		NetworkDBPointQueue<T> queueRev = createQueue();
 
 
 
-		private PriorityQueue<NetworkDBPointCost<T>> createQueue() {
-			return new PriorityQueue<>(new Comparator<NetworkDBPointCost<T>>() {
-				@Override
-				public int compare(NetworkDBPointCost<T> o1, NetworkDBPointCost<T> o2) {
-					return Double.compare(o1.cost, o2.cost);
-				}
-			});
+		private NetworkDBPointQueue<T> createQueue() {
+			return USE_PRIMITIVE_QUEUE ? new PrimitiveNetworkDBPointQueue<T>() : new ObjectNetworkDBPointQueue<T>();
 		}
 		
 		public void clearAll(TLongObjectHashMap<T> stPoints, TLongObjectHashMap<T> endPoints) {
@@ -327,7 +332,7 @@ public class HHRouteDataStructure {
 			}
 		}
 
-		public Queue<NetworkDBPointCost<T>> queue(boolean rev) {
+		public NetworkDBPointQueue<T> queue(boolean rev) {
 			return USE_GLOBAL_QUEUE ? queue : (rev ? queueRev : queuePos);
 		}
 
@@ -438,6 +443,99 @@ public class HHRouteDataStructure {
 			this.rev = rev;
 		}
 	}
+
+	/**
+	 * Queue of network points to visit ordered by cost, same point could be added several times
+	 */
+	static abstract class NetworkDBPointQueue<T> {
+
+		abstract void add(T point, double cost, boolean rev);
+
+		abstract double peekCost();
+
+		abstract boolean peekRev();
+
+		abstract T poll();
+
+		abstract boolean isEmpty();
+
+		abstract void clear();
+	}
+
+	static class ObjectNetworkDBPointQueue<T> extends NetworkDBPointQueue<T> {
+		private final PriorityQueue<NetworkDBPointCost<T>> queue = new PriorityQueue<>(new Comparator<NetworkDBPointCost<T>>() {
+			@Override
+			public int compare(NetworkDBPointCost<T> o1, NetworkDBPointCost<T> o2) {
+				return Double.compare(o1.cost, o2.cost);
+			}
+		});
+
+		@Override
+		void add(T point, double cost, boolean rev) {
+			// we need to add new object to not remove / rebalance priority queue
+			queue.add(new NetworkDBPointCost<T>(point, cost, rev));
+		}
+
+		@Override
+		double peekCost() {
+			return queue.peek().cost;
+		}
+
+		@Override
+		boolean peekRev() {
+			return queue.peek().rev;
+		}
+
+		@Override
+		T poll() {
+			return queue.poll().point;
+		}
+
+		@Override
+		boolean isEmpty() {
+			return queue.isEmpty();
+		}
+
+		@Override
+		void clear() {
+			queue.clear();
+		}
+	}
+
+	// doesn't allocate objects per point (ties could be polled in different order than PriorityQueue)
+	static class PrimitiveNetworkDBPointQueue<T> extends NetworkDBPointQueue<T> {
+		private final CostPriorityQueue<T> queue = new CostPriorityQueue<>(256);
+
+		@Override
+		void add(T point, double cost, boolean rev) {
+			queue.add(point, cost, rev ? 1 : 0);
+		}
+
+		@Override
+		double peekCost() {
+			return queue.peekCost();
+		}
+
+		@Override
+		boolean peekRev() {
+			return queue.peekTag() == 1;
+		}
+
+		@Override
+		T poll() {
+			return queue.poll();
+		}
+
+		@Override
+		boolean isEmpty() {
+			return queue.isEmpty();
+		}
+
+		@Override
+		void clear() {
+			queue.clear();
+		}
+	}
 	
 	public static class RoutingStats {
 		int firstRouteVisitedVertices = 0;
@@ -501,6 +599,35 @@ public class HHRouteDataStructure {
 		
 	}
 	
+	public static class HHMatrixRes {
+		public static final double NOT_FOUND = -1;
+		
+		// routing time in seconds [source][target] (NOT_FOUND if route wasn't found)
+		public final double[][] times;
+		public RoutingStats stats;
+		public String error;
+		
+		public HHMatrixRes(int sources, int targets) {
+			times = new double[sources][targets];
+			for (double[] row : times) {
+				Arrays.fill(row, NOT_FOUND);
+			}
+		}
+		
+		public HHMatrixRes(String error) {
+			this(0, 0);
+			this.error = error;
+		}
+		
+		public double getTime(int source, int target) {
+			return times[source][target];
+		}
+		
+		public boolean isFound(int source, int target) {
+			return times[source][target] >= 0;
+		}
+	}
+	
 	public static class HHNetworkSegmentRes {
 		public NetworkDBSegment segment;
 		public List<RouteSegmentResult> list = null;
@@ -12,11 +12,19 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
 import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
@@ -34,13 +42,14 @@ import net.osmand.router.BinaryRoutePlanner.MultiFinalRouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
 import net.osmand.router.GeneralRouter.RoutingParameter;
+import net.osmand.router.HHRouteDataStructure.HHMatrixRes;
 import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
 import net.osmand.router.HHRouteDataStructure.HHNetworkSegmentRes;
 import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
 import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
 import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
 import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
-import net.osmand.router.HHRouteDataStructure.NetworkDBPointCost;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPointQueue;
 import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
 import net.osmand.router.HHRouteDataStructure.RoutingStats;
 import net.osmand.router.RouteCalculationProgress.HHIteration;
@@ -59,6 +68,8 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	public static final double MAX_INC_COST_CORR = 10.0;
 	// this constant should dynamically change if route is not found
 	private static final double EXCLUDE_PRIORITY_CONSTANT = 0.2;
+	// how often cancellation of route is checked while waiting for parallel detailed routing
+	private static final long CANCEL_CHECK_INTERVAL_MS = 100;
 	
 	private static boolean ASSERT_COST_INCREASING = false;
 	private static boolean ASSERT_AND_CORRECT_DIST_SMALLER = true;
@@ -294,6 +305,275 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return route;
 	}
 
+	/**
+	 * Calculates routing times between all sources and targets (no geometry is prepared).
+	 * Dijkstra runs over the network once per point of the smaller side, access costs of the other side
+	 * are stored as buckets on network points and search stops as soon as all bucket values are final.
+	 * Pairs not reachable within HHRoutingConfig.MAX_COST stay HHMatrixRes.NOT_FOUND.
+	 */
+	public HHMatrixRes runRoutingMatrix(List<LatLon> sources, List<LatLon> targets, HHRoutingConfig config)
+			throws SQLException, IOException, InterruptedException {
+		long startTime = System.nanoTime();
+		if (config == null) {
+			config = HHRoutingConfig.dijkstra(0);
+		}
+		if (config.HEURISTIC_COEFFICIENT != 0) {
+			throw new IllegalArgumentException("Matrix is calculated only with dijkstra configuration");
+		}
+		HHMatrixRes res = new HHMatrixRes(sources.size(), targets.size());
+		if (sources.isEmpty() || targets.isEmpty()) {
+			return res;
+		}
+		RouteCalculationProgress progress = currentCtx.rctx.calculationProgress;
+		QuadRect bbox = null;
+		for (LatLon l : sources) {
+			bbox = extendRect(bbox, l);
+		}
+		for (LatLon l : targets) {
+			bbox = extendRect(bbox, l);
+		}
+		HHRoutingContext<T> hctx = initHCtx(config, new LatLon(bbox.top, bbox.left), new LatLon(bbox.bottom, bbox.right));
+		if (hctx == null) {
+			return new HHMatrixRes("Files for hh routing were not initialized. Matrix couldn't be calculated.");
+		}
+		filterPointsBasedOnConfiguration(hctx);
+		// search from the smaller side (one-to-many or many-to-one)
+		boolean reverse = targets.size() < sources.size();
+		List<LatLon> searchSide = reverse ? targets : sources;
+		List<LatLon> bucketSide = reverse ? sources : targets;
+
+		long time = System.nanoTime();
+		progress.hhIteration(HHIteration.START_END_POINT);
+		RoutePlannerFrontEnd frontEnd = new RoutePlannerFrontEnd();
+		TIntObjectHashMap<MatrixBucket> buckets = new TIntObjectHashMap<>();
+		TLongObjectHashMap<TIntArrayList> directKeys = new TLongObjectHashMap<>();
+		int[] bucketX = new int[bucketSide.size()];
+		int[] bucketY = new int[bucketSide.size()];
+		TLongObjectHashMap<T> pnts = new TLongObjectHashMap<>();
+		// points of bucket side which could be reached via network (others can't improve during search)
+		boolean[] inNetwork = new boolean[bucketSide.size()];
+		for (int j = 0; j < bucketSide.size(); j++) {
+			LatLon l = bucketSide.get(j);
+			bucketX[j] = MapUtils.get31TileNumberX(l.getLongitude());
+			bucketY[j] = MapUtils.get31TileNumberY(l.getLatitude());
+			RouteSegmentPoint s = frontEnd.findRouteSegment(l.getLatitude(), l.getLongitude(), hctx.rctx, null);
+			if (s == null) {
+				continue;
+			}
+			// route short enough to not pass via network is found by search side last mile
+			addDirectKey(directKeys, calcRPId(s, s.getSegmentEnd(), s.getSegmentStart()), j);
+			addDirectKey(directKeys, calcRPId(s, s.getSegmentStart(), s.getSegmentEnd()), j);
+			pnts.clear();
+			initMatrixAccess(hctx, s, !reverse, pnts, null, null, null, null);
+			for (T pnt : pnts.valueCollection()) {
+				MatrixBucket b = buckets.get(pnt.index);
+				if (b == null) {
+					b = new MatrixBucket();
+					buckets.put(pnt.index, b);
+				}
+				b.add(j, pnt.rt(!reverse).rtDistanceFromStart);
+				inNetwork[j] = true;
+				pnt.clearRouting();
+			}
+			if (progress.isCancelled) {
+				return new HHMatrixRes("Routing was cancelled.");
+			}
+		}
+		hctx.stats.searchPointsTime += (System.nanoTime() - time) / 1e6;
+
+		double[] best = new double[bucketSide.size()];
+		for (int i = 0; i < searchSide.size(); i++) {
+			LatLon l = searchSide.get(i);
+			Arrays.fill(best, Double.POSITIVE_INFINITY);
+			time = System.nanoTime();
+			RouteSegmentPoint s = frontEnd.findRouteSegment(l.getLatitude(), l.getLongitude(), hctx.rctx, null);
+			if (s == null) {
+				continue;
+			}
+			hctx.clearVisited();
+			pnts.clear();
+			initMatrixAccess(hctx, s, reverse, pnts, directKeys, bucketX, bucketY, best);
+			hctx.stats.searchPointsTime += (System.nanoTime() - time) / 1e6;
+			time = System.nanoTime();
+			NetworkDBPointQueue<T> queue = hctx.queue(reverse);
+			for (T pnt : pnts.valueCollection()) {
+				if (!pnt.rtExclude) {
+					double cost = pnt.rt(reverse).rtDistanceFromStart;
+					addPointToQueue(hctx, queue, reverse, pnt, null, cost, cost <= 0 ? MINIMAL_COST : cost);
+				}
+			}
+			double maxBest = maxBest(best, inNetwork);
+			while (!queue.isEmpty()) {
+				if (progress.isCancelled) {
+					return new HHMatrixRes("Routing was cancelled.");
+				}
+				double pointCost = queue.peekCost();
+				T point = queue.poll();
+				if (point.rt(reverse).rtVisited) {
+					continue;
+				}
+				if (pointCost >= maxBest || (hctx.config.MAX_COST > 0 && pointCost > hctx.config.MAX_COST)) {
+					// all bucket values are final
+					break;
+				}
+				hctx.stats.visitedVertices++;
+				point.markVisited(reverse);
+				(reverse ? hctx.visitedRev : hctx.visited).add(point);
+				MatrixBucket b = buckets.get(point.index);
+				if (b != null) {
+					boolean upd = false;
+					for (int k = 0; k < b.size; k++) {
+						double d = point.rt(reverse).rtDistanceFromStart + b.costs[k];
+						if (d < best[b.inds[k]]) {
+							upd |= best[b.inds[k]] == maxBest;
+							best[b.inds[k]] = d;
+						}
+					}
+					if (upd) {
+						maxBest = maxBest(best, inNetwork);
+					}
+				}
+				addConnectedToQueue(hctx, queue, point, reverse);
+			}
+			for (T pnt : pnts.valueCollection()) {
+				pnt.clearRouting();
+			}
+			hctx.clearVisited();
+			for (int j = 0; j < best.length; j++) {
+				if (best[j] != Double.POSITIVE_INFINITY) {
+					res.times[reverse ? j : i][reverse ? i : j] = best[j];
+				}
+			}
+			hctx.stats.routingTime += (System.nanoTime() - time) / 1e6;
+			progress.hhIterationProgress((i + 1) / (double) searchSide.size());
+		}
+		res.stats = hctx.stats;
+		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL >= 0,
+				"Matrix %dx%d %.1f ms: load/filter points %.1f ms, last mile %.1f ms, routing %.1f ms (%,d visited vertices) - %s\n",
+				sources.size(), targets.size(), (System.nanoTime() - startTime) / 1e6, hctx.stats.loadPointsTime,
+				hctx.stats.searchPointsTime, hctx.stats.routingTime, hctx.stats.visitedVertices, hctx.getRoutingInfo());
+		return res;
+	}
+
+	private static QuadRect extendRect(QuadRect r, LatLon l) {
+		if (r == null) {
+			return new QuadRect(l.getLongitude(), l.getLatitude(), l.getLongitude(), l.getLatitude());
+		}
+		r.left = Math.min(r.left, l.getLongitude());
+		r.right = Math.max(r.right, l.getLongitude());
+		r.top = Math.max(r.top, l.getLatitude());
+		r.bottom = Math.min(r.bottom, l.getLatitude());
+		return r;
+	}
+
+	private static double maxBest(double[] best, boolean[] inNetwork) {
+		double m = 0;
+		for (int j = 0; j < best.length; j++) {
+			if (inNetwork[j]) {
+				m = Math.max(m, best[j]);
+			}
+		}
+		return m;
+	}
+
+	private static void addDirectKey(TLongObjectHashMap<TIntArrayList> directKeys, long key, int ind) {
+		TIntArrayList l = directKeys.get(key);
+		if (l == null) {
+			l = new TIntArrayList(1);
+			directKeys.put(key, l);
+		}
+		if (!l.contains(ind)) {
+			l.add(ind);
+		}
+	}
+
+	/**
+	 * Last mile for matrix: same as initStart but network points get only access cost (no detailed route)
+	 * and routes to direct keys (points of other side inside the same cluster area) are stored to best.
+	 */
+	@SuppressWarnings("unchecked")
+	private void initMatrixAccess(HHRoutingContext<T> hctx, RouteSegmentPoint s, boolean reverse, TLongObjectHashMap<T> pnts,
+			TLongObjectHashMap<TIntArrayList> directKeys, int[] directX, int[] directY, double[] best)
+			throws IOException, InterruptedException {
+		T finitePnt = hctx.pointsByGeo.get(calcUniDirRoutePointInternalId(s));
+		if (finitePnt != null) {
+			finitePnt.setCostParentRt(reverse, 0, null, 0);
+			pnts.put(finitePnt.index, finitePnt);
+			T dualPoint = (T) finitePnt.dualPoint;
+			dualPoint.setCostParentRt(reverse, 0, null, 0);
+			pnts.put(dualPoint.index, dualPoint);
+		}
+		TLongArrayList addedBoundaries = new TLongArrayList();
+		if (directKeys != null) {
+			for (long key : directKeys.keys()) {
+				if (!hctx.boundaries.containsKey(key)) {
+					// targets on the way to other points don't stop search
+					hctx.boundaries.put(key, RouteSegment.PASS_THROUGH);
+					addedBoundaries.add(key);
+				}
+			}
+		}
+		BinaryRoutePlanner planner = new BinaryRoutePlanner();
+		MultiFinalRouteSegment frs;
+		try {
+			frs = runMultiDijkstraToBoundaries(hctx, planner, s, reverse);
+		} finally {
+			for (int k = 0; k < addedBoundaries.size(); k++) {
+				hctx.boundaries.remove(addedBoundaries.get(k));
+			}
+		}
+		if (frs == null) {
+			return;
+		}
+		TLongSet set = new TLongHashSet();
+		for (FinalRouteSegment o : frs.all) {
+			int startSegment = reverse ? o.getSegmentEnd() : o.getSegmentStart();
+			int endSegment = reverse ? o.getSegmentStart() : o.getSegmentEnd();
+			long pntId = calculateRoutePointInternalId(o.getRoad().getId(), startSegment, endSegment);
+			if (!set.add(pntId)) {
+				continue;
+			}
+			TIntArrayList direct = directKeys == null ? null : directKeys.get(pntId);
+			if (direct != null) {
+				for (int k = 0; k < direct.size(); k++) {
+					int ind = direct.get(k);
+					double cost = o.distanceFromStart + planner.calculatePreciseStartTime(hctx.rctx, directX[ind], directY[ind], o);
+					best[ind] = Math.min(best[ind], cost);
+				}
+			}
+			T pnt = hctx.pointsByGeo.get(pntId);
+			if (pnt != null && !pnts.containsKey(pnt.index)) {
+				float obstacle = hctx.rctx.getRouter().defineRoutingObstacle(o.getRoad(), o.getSegmentStart(),
+						o.getSegmentStart() > o.getSegmentEnd());
+				if (obstacle < 0) {
+					continue;
+				}
+				double cost = o.distanceFromStart + planner.calcRoutingSegmentTimeOnlyDist(hctx.rctx.getRouter(), o) / 2 + obstacle;
+				pnt.setCostParentRt(reverse, cost, null, cost);
+				pnts.put(pnt.index, pnt);
+			}
+		}
+		if (hctx.config.USE_GC_MORE_OFTEN) {
+			hctx.rctx.unloadAllData();
+		}
+	}
+
+	private static class MatrixBucket {
+		int[] inds = new int[2];
+		double[] costs = new double[2];
+		int size;
+
+		void add(int ind, double cost) {
+			if (size == inds.length) {
+				inds = Arrays.copyOf(inds, size * 2);
+				costs = Arrays.copyOf(costs, size * 2);
+			}
+			inds[size] = ind;
+			costs[size] = cost;
+			size++;
+		}
+	}
+
 	public static TreeMap<String, String> getFilteredTags(GeneralRouter generalRouter) {
 		Map<String, RoutingParameter> parameters = generalRouter.getParameters();
 		TreeMap<String, String> tm = new TreeMap<String, String>();
@@ -879,23 +1159,8 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			pnts.put(dualPoint.index, dualPoint);
 			return pnts;
 		}
-		int savedMaxVisited = hctx.rctx.config.MAX_VISITED;
-		int savedPlanRoadDirectrion = hctx.rctx.config.planRoadDirection;
-		float savedHeuristicCoefficient = hctx.rctx.config.heuristicCoefficient;
-		hctx.rctx.config.MAX_VISITED = MAX_POINTS_CLUSTER_ROUTING;
-		hctx.rctx.config.planRoadDirection = reverse ? -1 : 1;
-		hctx.rctx.config.heuristicCoefficient = 0; // dijkstra
-		hctx.rctx.unloadAllData(); // needed for proper multidijsktra work
-		// hctx.rctx.calculationProgress = new RouteCalculationProgress(); // reuse same progress
 		BinaryRoutePlanner planner = new BinaryRoutePlanner();
-		MultiFinalRouteSegment frs = (MultiFinalRouteSegment) planner.searchRouteInternal(hctx.rctx,
-				reverse ? null : s, reverse ? s : null, hctx.boundaries);
-		hctx.rctx.config.heuristicCoefficient = savedHeuristicCoefficient;
-		hctx.rctx.config.planRoadDirection = savedPlanRoadDirectrion;
-		hctx.rctx.config.MAX_VISITED = savedMaxVisited;
-		if (HHRoutingConfig.STATS_VERBOSE_LEVEL > 0) {
-			System.out.println("  " + hctx.rctx.calculationProgress.getInfo(null));
-		}
+		MultiFinalRouteSegment frs = runMultiDijkstraToBoundaries(hctx, planner, s, reverse);
 		if (frs != null) {
 			TLongSet set = new TLongHashSet();
 			for (FinalRouteSegment o : frs.all) {
@@ -950,6 +1215,26 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return pnts;
 	}
 
+	private MultiFinalRouteSegment runMultiDijkstraToBoundaries(HHRoutingContext<T> hctx, BinaryRoutePlanner planner,
+			RouteSegmentPoint s, boolean reverse) throws IOException, InterruptedException {
+		int savedMaxVisited = hctx.rctx.config.MAX_VISITED;
+		int savedPlanRoadDirectrion = hctx.rctx.config.planRoadDirection;
+		float savedHeuristicCoefficient = hctx.rctx.config.heuristicCoefficient;
+		hctx.rctx.config.MAX_VISITED = MAX_POINTS_CLUSTER_ROUTING;
+		hctx.rctx.config.planRoadDirection = reverse ? -1 : 1;
+		hctx.rctx.config.heuristicCoefficient = 0; // dijkstra
+		hctx.rctx.unloadAllData(); // needed for proper multidijsktra work
+		// hctx.rctx.calculationProgress = new RouteCalculationProgress(); // reuse same progress
+		MultiFinalRouteSegment frs = (MultiFinalRouteSegment) planner.searchRouteInternal(hctx.rctx,
+				reverse ? null : s, reverse ? s : null, hctx.boundaries);
+		hctx.rctx.config.heuristicCoefficient = savedHeuristicCoefficient;
+		hctx.rctx.config.planRoadDirection = savedPlanRoadDirectrion;
+		hctx.rctx.config.MAX_VISITED = savedMaxVisited;
+		if (HHRoutingConfig.STATS_VERBOSE_LEVEL > 0) {
+			System.out.println("  " + hctx.rctx.calculationProgress.getInfo(null));
+		}
+		return frs;
+	}
 	
 	protected T runRoutingPointToPoint(HHRoutingContext<T> hctx, T start, T end) throws SQLException, IOException {
 		if (start != null) {
@@ -996,20 +1281,20 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		double straightStartEndCost = squareRootDist31(hctx.startX, hctx.startY, hctx.endX, hctx.endY) /
 				hctx.rctx.getRouter().getMaxSpeed();
 		while (true) {
-			Queue<NetworkDBPointCost<T>> queue;
+			NetworkDBPointQueue<T> queue;
 			if (HHRoutingContext.USE_GLOBAL_QUEUE) {
 				queue = hctx.queue(false);
 				if (queue.isEmpty()) {
 					break;
 				}
 			} else {
-				Queue<NetworkDBPointCost<T>> pos = hctx.queue(false);
-				Queue<NetworkDBPointCost<T>> rev = hctx.queue(true);
+				NetworkDBPointQueue<T> pos = hctx.queue(false);
+				NetworkDBPointQueue<T> rev = hctx.queue(true);
 				if (hctx.config.DIJKSTRA_DIRECTION == 0 || (!rev.isEmpty() && !pos.isEmpty())) {
 					if (rev.isEmpty() || pos.isEmpty()) {
 						break;
 					}
-					queue = pos.peek().cost < rev.peek().cost ? pos : rev;
+					queue = pos.peekCost() < rev.peekCost() ? pos : rev;
 				} else {
 					queue = hctx.config.DIJKSTRA_DIRECTION > 0 ? pos : rev;
 					if (queue.isEmpty()) {
@@ -1021,9 +1306,9 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				return null;
 			}
 			long tm = System.nanoTime();
-			NetworkDBPointCost<T> pointCost = queue.poll();
-			T point = pointCost.point;
-			boolean rev = pointCost.rev;
+			double pointCost = queue.peekCost();
+			boolean rev = queue.peekRev();
+			T point = queue.poll();
 			hctx.stats.pollQueueTime += (System.nanoTime() - tm) / 1e6;
 			hctx.stats.visitedVertices++;
 			if (point.rt(!rev).rtVisited) {
@@ -1042,11 +1327,11 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					return finalPoint;
 				} else {
 					double rcost = point.rt(true).rtDistanceFromStart + point.rt(false).rtDistanceFromStart;
-					if (rcost <= pointCost.cost) {
+					if (rcost <= pointCost) {
 						// Universal condition to stop: works for any algorithm - cost equals to route length
 						return point;
 					} else {
-						queue.add(new NetworkDBPointCost<T>(point, rcost, rev));
+						queue.add(point, rcost, rev);
 						point.markVisited(rev);
 						continue;
 					}
@@ -1063,10 +1348,10 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			if (progress != null && straightStartEndCost > 0) {
 				final double STRAIGHT_TO_ROUTE_COST = 1.25; // approximate, tested on car/bike
 				// correlation between straight-cost and route-cost (enough for the progress bar)
-				double k = (pointCost.cost - straightStartEndCost) / straightStartEndCost * STRAIGHT_TO_ROUTE_COST;
+				double k = (pointCost - straightStartEndCost) / straightStartEndCost * STRAIGHT_TO_ROUTE_COST;
 				progress.hhIterationProgress(k);
 			}
-			if (hctx.config.MAX_COST > 0 && pointCost.cost > hctx.config.MAX_COST) {
+			if (hctx.config.MAX_COST > 0 && pointCost > hctx.config.MAX_COST) {
 				break;
 			}
 			if (hctx.config.MAX_SETTLE_POINTS > 0 && (rev ? hctx.visitedRev : hctx.visited).size() > hctx.config.MAX_SETTLE_POINTS) {
@@ -1095,7 +1380,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	}
 	
 	@SuppressWarnings("unchecked")
-	private void addConnectedToQueue(HHRoutingContext<T> hctx, Queue<NetworkDBPointCost<T>> queue, T point, boolean reverse) throws SQLException, IOException {
+	private void addConnectedToQueue(HHRoutingContext<T> hctx, NetworkDBPointQueue<T> queue, T point, boolean reverse) throws SQLException, IOException {
 		int depth = hctx.config.USE_MIDPOINT || hctx.config.MAX_DEPTH > 0 ? point.rt(reverse).getDepth(reverse) : 0;
 		if (hctx.config.MAX_DEPTH > 0 && depth >= hctx.config.MAX_DEPTH) {
 			return;
@@ -1143,7 +1428,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		}
 	}
 
-	private void addPointToQueue(HHRoutingContext<T> hctx, Queue<NetworkDBPointCost<T>> queue,
+	private void addPointToQueue(HHRoutingContext<T> hctx, NetworkDBPointQueue<T> queue,
 			boolean reverse, T point, T parent, double segmentDist, double cost) {
 		long tm = System.nanoTime();
 		if (DEBUG_VERBOSE_LEVEL > 2) {
@@ -1156,7 +1441,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		}
 		point.setCostParentRt(reverse, cost, parent, segmentDist);
 		hctx.queueAdded.add(point);
-		queue.add(new NetworkDBPointCost<T>(point, cost, reverse)); // we need to add new object to not  remove / rebalance priority queue
+		queue.add(point, cost, reverse);
 		hctx.stats.addQueueTime += (System.nanoTime() - tm) / 1e6;
 		hctx.stats.addedVertices++;
 	}
@@ -1185,27 +1470,32 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	
 	private FinalRouteSegment runDetailedRouting(HHRoutingContext<T> hctx, NetworkDBPoint startS, NetworkDBPoint endS, boolean useBoundaries)
 			throws InterruptedException, IOException {
+		return runDetailedRouting(hctx, hctx.rctx, startS, endS, useBoundaries);
+	}
+	
+	private FinalRouteSegment runDetailedRouting(HHRoutingContext<T> hctx, RoutingContext rctx, NetworkDBPoint startS, NetworkDBPoint endS,
+			boolean useBoundaries) throws InterruptedException, IOException {
 		BinaryRoutePlanner planner = new BinaryRoutePlanner();
-		hctx.rctx.config.planRoadDirection = 0; // A* bidirectional
-		hctx.rctx.config.heuristicCoefficient = 1;
+		rctx.config.planRoadDirection = 0; // A* bidirectional
+		rctx.config.heuristicCoefficient = 1;
 		// SPEEDUP: Speed up by just clearing visited
-		hctx.rctx.unloadAllData(); // needed for proper multidijsktra work
+		rctx.unloadAllData(); // needed for proper multidijsktra work
 		// if (c.USE_GC_MORE_OFTEN) {
 		// printGCInformation();
 		// }
-		RouteSegmentPoint start = loadPoint(hctx.rctx, startS);
-		RouteSegmentPoint end = loadPoint(hctx.rctx, endS);
+		RouteSegmentPoint start = loadPoint(rctx, startS);
+		RouteSegmentPoint end = loadPoint(rctx, endS);
 		if (start == null) {
 			return null; // no logging it's same as end of previos segment
 		} else if (end == null) {
 			System.out.println(String.format("End point is not present in detailed maps: %s", endS));
 			return null;
 		}
-		double oldP = hctx.rctx.config.penaltyForReverseDirection;
-		hctx.rctx.config.penaltyForReverseDirection *= 4; // probably we should try -1 (to fully avoid roundabout) but we don't have use cases yet
-		hctx.rctx.config.initialDirection = start.getRoad().directionRoute(start.getSegmentStart(), start.isPositive());
-		hctx.rctx.config.targetDirection = end.getRoad().directionRoute(end.getSegmentEnd(), !end.isPositive());
-		hctx.rctx.config.MAX_VISITED = useBoundaries ? -1 : MAX_POINTS_CLUSTER_ROUTING * 2;
+		double oldP = rctx.config.penaltyForReverseDirection;
+		rctx.config.penaltyForReverseDirection *= 4; // probably we should try -1 (to fully avoid roundabout) but we don't have use cases yet
+		rctx.config.initialDirection = start.getRoad().directionRoute(start.getSegmentStart(), start.isPositive());
+		rctx.config.targetDirection = end.getRoad().directionRoute(end.getSegmentEnd(), !end.isPositive());
+		rctx.config.MAX_VISITED = useBoundaries ? -1 : MAX_POINTS_CLUSTER_ROUTING * 2;
 		// boundaries help to reduce max visited (helpful for long ferries)
 		TLongObjectMap<RouteSegment> bounds = null;
 		if (useBoundaries) {
@@ -1213,21 +1503,124 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			long pe = calcRPId(end, end.getSegmentStart(), end.getSegmentEnd());
 			bounds = new ExcludeTLongObjectMap<>(hctx.boundaries, ps, pe);
 		}
-		FinalRouteSegment f = planner.searchRouteInternal(hctx.rctx, start, end, bounds);
+		FinalRouteSegment f = planner.searchRouteInternal(rctx, start, end, bounds);
 		if (f == null) {
 			System.out.printf("No route found between %s -> %s \n", start, end);
 		}
-		hctx.rctx.config.MAX_VISITED = -1;
+		rctx.config.MAX_VISITED = -1;
 		// clean up
-		hctx.rctx.config.initialDirection = null;
-		hctx.rctx.config.targetDirection = null;
-		hctx.rctx.config.penaltyForReverseDirection = oldP;
+		rctx.config.initialDirection = null;
+		rctx.config.targetDirection = null;
+		rctx.config.penaltyForReverseDirection = oldP;
 		return f;
 		
 	}
 	
+	private static class DetailedSegmentRes {
+		FinalRouteSegment f;
+		List<RouteSegmentResult> list;
+	}
+	
+	/**
+	 * Detailed segments between network points are independent, so they are calculated concurrently
+	 * (each thread has own routing context with own map readers) and processed in order after.
+	 */
+	private DetailedSegmentRes[] runDetailedRoutingParallel(final HHRoutingContext<T> hctx, final RouteResultPreparation rrp,
+			HHNetworkRouteRes route, final RouteCalculationProgress progress) throws InterruptedException, IOException {
+		final DetailedSegmentRes[] res = new DetailedSegmentRes[route.segments.size()];
+		int threads = Math.min(hctx.config.DETAILED_THREADS, route.segments.size());
+		final LinkedBlockingQueue<RoutingContext> contexts = new LinkedBlockingQueue<>();
+		// every worker has own progress, counters are merged after join and cancellation is passed to workers
+		List<RouteCalculationProgress> workersProgress = new ArrayList<>();
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		ExecutorService service = Executors.newFixedThreadPool(threads);
+		try {
+			for (int t = 0; t < threads; t++) {
+				Map<BinaryMapIndexReader, BinaryMapIndexReader> readersCopy = hctx.rctx.copyMapReaders();
+				readers.addAll(readersCopy.values());
+				RoutingContext ctx = new RoutingContext(hctx.rctx, readersCopy, hctx.rctx.config.copy());
+				ctx.calculationProgress = new RouteCalculationProgress();
+				workersProgress.add(ctx.calculationProgress);
+				contexts.add(ctx);
+			}
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < route.segments.size(); i++) {
+				final HHNetworkSegmentRes s = route.segments.get(i);
+				if (s.segment == null) {
+					continue;
+				}
+				final int ind = i;
+				futures.add(service.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						if (progress.isCancelled) {
+							return null;
+						}
+						RoutingContext ctx = contexts.take();
+						try {
+							DetailedSegmentRes r = new DetailedSegmentRes();
+							r.f = runDetailedRouting(hctx, ctx, s.segment.start, s.segment.end, true);
+							if (r.f != null) {
+								r.list = rrp.convertFinalSegmentToResults(ctx, r.f);
+							}
+							res[ind] = r;
+						} finally {
+							contexts.add(ctx);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				waitDetailedRouting(f, progress, workersProgress);
+			}
+		} finally {
+			service.shutdownNow();
+			for (RouteCalculationProgress p : workersProgress) {
+				progress.addCounters(p);
+			}
+			for (RoutingContext ctx : contexts) {
+				ctx.unloadAllData();
+			}
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+		return res;
+	}
+	
+	private void waitDetailedRouting(Future<?> f, RouteCalculationProgress progress,
+			List<RouteCalculationProgress> workersProgress) throws InterruptedException, IOException {
+		while (true) {
+			try {
+				f.get(CANCEL_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				return;
+			} catch (TimeoutException e) {
+				if (progress.isCancelled) {
+					for (RouteCalculationProgress p : workersProgress) {
+						p.isCancelled = true;
+					}
+				}
+			} catch (ExecutionException e) {
+				Throwable t = e.getCause();
+				if (t instanceof IOException) {
+					throw (IOException) t;
+				} else if (t instanceof InterruptedException) {
+					throw (InterruptedException) t;
+				} else if (t instanceof RuntimeException) {
+					throw (RuntimeException) t;
+				}
+				throw new IllegalStateException(t);
+			}
+		}
+	}
+
 	private boolean retrieveSegmentsGeometry(HHRoutingContext<T> hctx, RouteResultPreparation rrp, HHNetworkRouteRes route,
 			boolean routeSegments, RouteCalculationProgress progress) throws SQLException, InterruptedException, IOException {
+		DetailedSegmentRes[] detailed = null;
+		if (routeSegments && hctx.config.DETAILED_THREADS > 1 && hctx.rctx.nativeLib == null) {
+			detailed = runDetailedRoutingParallel(hctx, rrp, route, progress);
+		}
 		for (int i = 0; i < route.segments.size(); i++) {
 			progress.hhIterationProgress((double) i / route.segments.size());
 
@@ -1244,7 +1637,11 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				if (progress.isCancelled) {
 					return false;
 				}
-				FinalRouteSegment f = runDetailedRouting(hctx, s.segment.start, s.segment.end, true);
+				FinalRouteSegment f = detailed != null ? (detailed[i] == null ? null : detailed[i].f)
+						: runDetailedRouting(hctx, s.segment.start, s.segment.end, true);
+				if (progress.isCancelled) {
+					return false;
+				}
 				if (f == null) {
 					boolean full = hctx.config.FULL_DIJKSTRA_NETWORK_RECALC-- > 0;
 					System.out.printf("Route not found (%srecalc) %s -> %s\n", full ? "dijkstra+" : "",s.segment.start, s.segment.end);
@@ -1263,7 +1660,12 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					return true;
 				}
 				s.rtTimeDetailed = f.distanceFromStart;
-				s.list = rrp.convertFinalSegmentToResults(hctx.rctx, f);
+				if (detailed != null) {
+					hctx.rctx.routingTime += f.distanceFromStart;
+					s.list = detailed[i].list;
+				} else {
+					s.list = rrp.convertFinalSegmentToResults(hctx.rctx, f);
+				}
 			} else {
 				// load segment geometry from db
 				if (!hctx.loadGeometry(s.segment, false)) {
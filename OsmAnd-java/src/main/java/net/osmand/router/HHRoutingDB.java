@@ -13,6 +13,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
@@ -53,6 +54,12 @@ public class HHRoutingDB {
 		}
 	};
 	
+	// database without sql connection (network is read by subclass)
+	protected HHRoutingDB(File f) {
+		this.conn = null;
+		this.file = f;
+	}
+	
 	public HHRoutingDB(File f, Connection conn) throws SQLException {
 		this.conn = conn;
 		this.file = f;
@@ -298,7 +305,17 @@ public class HHRoutingDB {
 	}
 
 	private List<LatLon> parseGeometry(int start, int end, int profile, boolean shortcut) throws SQLException {
+		TIntArrayList xy = new TIntArrayList();
+		parseGeometry(start, end, profile, shortcut, xy);
 		List<LatLon> l = new ArrayList<LatLon>();
+		for (int k = 0; k < xy.size(); k += 2) {
+			l.add(new LatLon(MapUtils.get31LatitudeY(xy.get(k + 1)), MapUtils.get31LongitudeX(xy.get(k))));
+		}
+		return l;
+	}
+	
+	protected void parseGeometry(int start, int end, int profile, boolean shortcut, TIntArrayList xy) throws SQLException {
+		int sz = xy.size();
 		loadGeometry.setLong(1, start);
 		loadGeometry.setLong(2, end);
 		loadGeometry.setInt(3, profile);
@@ -315,21 +332,18 @@ public class HHRoutingDB {
 				for (int k = 8; k < geom.length; k += 8) {
 					int st = Algorithms.parseIntFromBytes(geom, k);
 					int en = Algorithms.parseIntFromBytes(geom, k + 4);
-					List<LatLon> gg = parseGeometry(st, en, profile, false);
-					l.addAll(gg);
+					parseGeometry(st, en, profile, false, xy);
 				}
 			} else {
 				for (int k = 0; k < geom.length; k += 8) {
-					int x = Algorithms.parseIntFromBytes(geom, k);
-					int y = Algorithms.parseIntFromBytes(geom, k + 4);
-					l.add(new LatLon(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x)));
+					xy.add(Algorithms.parseIntFromBytes(geom, k));
+					xy.add(Algorithms.parseIntFromBytes(geom, k + 4));
 				}
 			}
 		}
-		if (l.isEmpty()) {
+		if (xy.size() == sz) {
 			System.err.printf("Empty route geometry %d -> %d  %s\n", start, end, shortcut ? "sh" : "bs");
 		}
-		return l;
 	}
 
 	
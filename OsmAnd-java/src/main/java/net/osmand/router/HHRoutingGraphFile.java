@@ -0,0 +1,461 @@
+package net.osmand.router;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPointCh;
+import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Compiled HH network of 1 routing profile (exported from full HHRoutingDB) which is read without sql.
+ * Segments are stored as CSR adjacency arrays (outgoing segments sorted by start point,
+ * incoming segments reference outgoing ones) and are memory mapped, so loading segments of point
+ * or geometry of segment is a few array reads.
+ *
+ * Layout (big endian): header, outOffsets int[N + 1], outEnd int[M], outDist double[M], outShortcut byte[M],
+ * inOffsets int[N + 1], inSegment int[M], geometryOffsets long[M + 1], geometry int[G] (x31, y31 pairs), points.
+ */
+public class HHRoutingGraphFile extends HHRoutingDB {
+
+	private static final int MAGIC = 0x48484731; // HHG1
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 8;
+	private static final int GEOMETRY_SEGMENT_SHIFT = 28; // ints per mapped geometry segment
+
+	private final int pointsCount;
+	private final int segmentsCount;
+	private final int profileId;
+	private final IntBuffer outOffsets;
+	private final IntBuffer outEnd;
+	private final DoubleBuffer outDist;
+	private final ByteBuffer outShortcut;
+	private final IntBuffer inOffsets;
+	private final IntBuffer inSegment;
+	private final LongBuffer geometryOffsets;
+	private final IntBuffer[] geometry;
+	private final long pointsOffset;
+	// point indexes sorted (position in file), read on first use
+	private volatile int[] pointIndexes;
+
+	public HHRoutingGraphFile(File f) throws IOException {
+		super(f);
+		try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+			FileChannel ch = raf.getChannel();
+			ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("Unsupported HH graph file " + f.getName());
+			}
+			pointsCount = header.getInt();
+			segmentsCount = header.getInt();
+			long geometrySize = header.getLong();
+			pointsOffset = header.getLong();
+			long pos = HEADER_SIZE;
+			outOffsets = map(ch, pos, 4L * (pointsCount + 1)).asIntBuffer();
+			pos += 4L * (pointsCount + 1);
+			outEnd = map(ch, pos, 4L * segmentsCount).asIntBuffer();
+			pos += 4L * segmentsCount;
+			outDist = map(ch, pos, 8L * segmentsCount).asDoubleBuffer();
+			pos += 8L * segmentsCount;
+			outShortcut = map(ch, pos, segmentsCount);
+			pos += segmentsCount;
+			inOffsets = map(ch, pos, 4L * (pointsCount + 1)).asIntBuffer();
+			pos += 4L * (pointsCount + 1);
+			inSegment = map(ch, pos, 4L * segmentsCount).asIntBuffer();
+			pos += 4L * segmentsCount;
+			geometryOffsets = map(ch, pos, 8L * (segmentsCount + 1)).asLongBuffer();
+			pos += 8L * (segmentsCount + 1);
+			int segments = (int) ((geometrySize + (1L << GEOMETRY_SEGMENT_SHIFT) - 1) >>> GEOMETRY_SEGMENT_SHIFT);
+			geometry = new IntBuffer[segments];
+			for (int i = 0; i < segments; i++) {
+				long start = ((long) i) << GEOMETRY_SEGMENT_SHIFT;
+				long len = Math.min(1L << GEOMETRY_SEGMENT_SHIFT, geometrySize - start);
+				geometry[i] = map(ch, pos + 4 * start, 4 * len).asIntBuffer();
+			}
+			// mapping stays valid after file is closed
+			ch.position(pointsOffset);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch)));
+			routingProfile = in.readUTF();
+			profileId = in.readInt();
+			routingProfiles.put(profileId, in.readUTF());
+		}
+	}
+
+	private static ByteBuffer map(FileChannel ch, long pos, long len) throws IOException {
+		return ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+	}
+
+	@Override
+	public <T extends NetworkDBPoint> TLongObjectHashMap<T> loadNetworkPoints(short mapId, Class<T> cl) throws SQLException {
+		TLongObjectHashMap<T> mp = new TLongObjectHashMap<>();
+		int[] dualPositions = new int[pointsCount];
+		int[] pointIndexes = new int[pointsCount];
+		NetworkDBPoint[] pointsByPosition = new NetworkDBPoint[pointsCount];
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel ch = raf.getChannel();
+			ch.position(pointsOffset);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch)));
+			in.readUTF();
+			in.readInt();
+			in.readUTF();
+			for (int i = 0; i < pointsCount; i++) {
+				T pnt;
+				try {
+					pnt = cl.getDeclaredConstructor().newInstance();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+				pnt.mapId = mapId;
+				pnt.index = in.readInt();
+				dualPositions[i] = in.readInt();
+				pnt.clusterId = in.readInt();
+				int chInd = in.readInt();
+				if (pnt instanceof NetworkDBPointCh) {
+					((NetworkDBPointCh) pnt).chInd = chInd;
+				}
+				pnt.roadId = in.readLong();
+				pnt.start = in.readShort();
+				pnt.end = in.readShort();
+				pnt.startX = in.readInt();
+				pnt.startY = in.readInt();
+				pnt.endX = in.readInt();
+				pnt.endY = in.readInt();
+				int tags = in.readShort();
+				if (tags > 0) {
+					pnt.tagValues = new ArrayList<>();
+					for (int k = 0; k < tags; k++) {
+						pnt.tagValues.add(new TagValuePair(in.readUTF(), in.readUTF(), -1));
+					}
+				}
+				pointIndexes[i] = pnt.index;
+				pointsByPosition[i] = pnt;
+				mp.put(pnt.index, pnt);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		for (int i = 0; i < pointsCount; i++) {
+			if (dualPositions[i] >= 0) {
+				pointsByPosition[i].dualPoint = pointsByPosition[dualPositions[i]];
+			}
+		}
+		this.pointIndexes = pointIndexes;
+		return mp;
+	}
+
+	private int[] getPointIndexes() throws SQLException {
+		int[] indexes = pointIndexes;
+		if (indexes == null) {
+			// segments or geometry requested before points
+			loadNetworkPoints((short) 0, NetworkDBPoint.class);
+			indexes = pointIndexes;
+		}
+		return indexes;
+	}
+
+	@Override
+	public <T extends NetworkDBPoint> int loadNetworkSegmentPoint(HHRoutingContext<T> ctx, HHRouteRegionPointsCtx<T> reg,
+			T point, boolean reverse) throws SQLException {
+		if (point.connected(reverse) != null) {
+			return 0;
+		}
+		checkProfile(reg.routingProfile);
+		int[] pointIndexes = getPointIndexes();
+		int pos = Arrays.binarySearch(pointIndexes, point.index);
+		if (pos < 0) {
+			point.connectedSet(reverse, new ArrayList<NetworkDBSegment>());
+			return 0;
+		}
+		IntBuffer offsets = reverse ? inOffsets : outOffsets;
+		int from = offsets.get(pos);
+		int to = offsets.get(pos + 1);
+		List<NetworkDBSegment> l = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			int seg = reverse ? inSegment.get(i) : i;
+			NetworkDBPoint start = ctx.pointsById.get(pointIndexes[segmentStart(seg)]);
+			NetworkDBPoint end = ctx.pointsById.get(pointIndexes[outEnd.get(seg)]);
+			l.add(new NetworkDBSegment(start, end, outDist.get(seg), !reverse, outShortcut.get(seg) > 0));
+		}
+		point.connectedSet(reverse, l);
+		return l.size();
+	}
+
+	@Override
+	public int loadNetworkSegmentsInternal(Collection<? extends NetworkDBPoint> points, int routingProfile,
+			boolean excludeShortcuts) throws SQLException {
+		checkProfile(routingProfile);
+		int[] pointIndexes = getPointIndexes();
+		TLongObjectHashMap<NetworkDBPoint> pntsById = new TLongObjectHashMap<>();
+		for (NetworkDBPoint p : points) {
+			pntsById.put(p.index, p);
+		}
+		int x = 0;
+		for (int p = 0; p < pointsCount; p++) {
+			NetworkDBPoint start = pntsById.get(pointIndexes[p]);
+			for (int seg = outOffsets.get(p); seg < outOffsets.get(p + 1); seg++) {
+				boolean shortcut = outShortcut.get(seg) > 0;
+				if (excludeShortcuts && shortcut) {
+					continue;
+				}
+				x++;
+				NetworkDBPoint end = pntsById.get(pointIndexes[outEnd.get(seg)]);
+				double dist = outDist.get(seg);
+				start.connected.add(new NetworkDBSegment(start, end, dist, true, shortcut));
+				end.connectedReverse.add(new NetworkDBSegment(start, end, dist, false, shortcut));
+			}
+		}
+		return x;
+	}
+
+	@Override
+	public boolean loadGeometry(NetworkDBSegment segment, int profile, boolean reload) throws SQLException {
+		checkProfile(profile);
+		List<LatLon> geometry = segment.getGeometry();
+		geometry.clear();
+		int[] pointIndexes = getPointIndexes();
+		int start = Arrays.binarySearch(pointIndexes, segment.start.index);
+		int end = Arrays.binarySearch(pointIndexes, segment.end.index);
+		if (start < 0 || end < 0) {
+			return false;
+		}
+		for (int seg = outOffsets.get(start); seg < outOffsets.get(start + 1); seg++) {
+			if (outEnd.get(seg) == end && (outShortcut.get(seg) > 0) == segment.shortcut) {
+				long from = geometryOffsets.get(seg);
+				long to = geometryOffsets.get(seg + 1);
+				for (long k = from; k < to; k += 2) {
+					int x = geometryInt(k);
+					int y = geometryInt(k + 1);
+					geometry.add(new LatLon(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x)));
+				}
+				break;
+			}
+		}
+		return !geometry.isEmpty();
+	}
+
+	private int geometryInt(long k) {
+		return geometry[(int) (k >>> GEOMETRY_SEGMENT_SHIFT)].get((int) (k & ((1 << GEOMETRY_SEGMENT_SHIFT) - 1)));
+	}
+
+	private int segmentStart(int seg) {
+		// binary search of point owning outgoing segment
+		int lo = 0, hi = pointsCount - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (outOffsets.get(mid) <= seg) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	private void checkProfile(int profile) {
+		if (profile != profileId) {
+			throw new IllegalArgumentException(String.format("Graph %s contains only profile %d (requested %d)",
+					file.getName(), profileId, profile));
+		}
+	}
+
+	// file is read only, so only profile stored in file could be found
+	@Override
+	public int insertRoutingProfile(String routingProfile, String profileParams) throws SQLException {
+		if (!routingProfiles.get(profileId).equals(profileParams)) {
+			throw new IllegalArgumentException(String.format("Graph %s doesn't contain profile '%s' (contains '%s')",
+					file.getName(), profileParams, routingProfiles.get(profileId)));
+		}
+		return profileId;
+	}
+
+	@Override
+	public void close() {
+		// mapped buffers are released by gc
+	}
+
+	/**
+	 * Geometry of network segment as x31, y31 pairs (shortcut geometry is expanded).
+	 */
+	public interface SegmentGeometryLoader {
+		void loadGeometry(NetworkDBSegment segment, TIntArrayList xy) throws SQLException;
+	}
+
+	/**
+	 * Exports network segments and geometry of 1 profile of full (not compact) database.
+	 */
+	public static void export(final HHRoutingDB db, final int profile, File out) throws SQLException, IOException {
+		if (db.compactDB) {
+			throw new IllegalArgumentException("Compact database doesn't contain segments geometry");
+		}
+		TLongObjectHashMap<NetworkDBPoint> pnts = db.loadNetworkPoints((short) 0, NetworkDBPoint.class);
+		List<NetworkDBSegment> segments = new ArrayList<>();
+		PreparedStatement ps = db.conn.prepareStatement("SELECT idPoint, idConnPoint, dist, shortcut from segments where profile = ?");
+		ps.setInt(1, profile);
+		ResultSet rs = ps.executeQuery();
+		while (rs.next()) {
+			NetworkDBPoint s = pnts.get(rs.getLong(1));
+			NetworkDBPoint e = pnts.get(rs.getLong(2));
+			if (s != null && e != null) {
+				segments.add(new NetworkDBSegment(s, e, rs.getDouble(3), true, rs.getInt(4) > 0));
+			}
+		}
+		rs.close();
+		ps.close();
+		String params = db.getRoutingProfiles().get(profile);
+		write(out, db.getRoutingProfile(), profile, params == null ? "" : params, pnts.valueCollection(), segments,
+				new SegmentGeometryLoader() {
+					@Override
+					public void loadGeometry(NetworkDBSegment segment, TIntArrayList xy) throws SQLException {
+						db.parseGeometry(segment.start.index, segment.end.index, profile, segment.shortcut, xy);
+					}
+				});
+	}
+
+	/**
+	 * Writes graph of points and (outgoing) segments, geometry is requested segment by segment.
+	 */
+	public static void write(File out, String routingProfile, int profile, String profileParams,
+			Collection<? extends NetworkDBPoint> pnts, List<NetworkDBSegment> segments, SegmentGeometryLoader geometryLoader)
+			throws SQLException, IOException {
+		List<NetworkDBPoint> points = new ArrayList<>(pnts);
+		Collections.sort(points, indexComparator);
+		int n = points.size();
+		TLongObjectHashMap<Integer> positions = new TLongObjectHashMap<>();
+		for (int i = 0; i < n; i++) {
+			positions.put(points.get(i).index, i);
+		}
+		int m = segments.size();
+		int[] segStart = new int[m];
+		int[] segEnd = new int[m];
+		for (int i = 0; i < m; i++) {
+			segStart[i] = positions.get(segments.get(i).start.index);
+			segEnd[i] = positions.get(segments.get(i).end.index);
+		}
+		// counting sort of segments by start (outgoing) and by end (incoming)
+		int[] outOffsets = new int[n + 1];
+		int[] inOffsets = new int[n + 1];
+		for (int i = 0; i < m; i++) {
+			outOffsets[segStart[i] + 1]++;
+			inOffsets[segEnd[i] + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			outOffsets[i + 1] += outOffsets[i];
+			inOffsets[i + 1] += inOffsets[i];
+		}
+		int[] outOrder = new int[m];
+		int[] outFill = outOffsets.clone();
+		for (int i = 0; i < m; i++) {
+			outOrder[outFill[segStart[i]]++] = i;
+		}
+		int[] inSegment = new int[m];
+		int[] inFill = inOffsets.clone();
+		for (int seg = 0; seg < m; seg++) {
+			inSegment[inFill[segEnd[outOrder[seg]]]++] = seg;
+		}
+
+		long geometrySize = 0;
+		long[] geometryOffsets = new long[m + 1];
+		long geometryOffsetsPos = HEADER_SIZE + 8L * (n + 1) + 17L * m;
+		long pointsOffset;
+		try (DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out), 1 << 16))) {
+			dout.writeInt(MAGIC);
+			dout.writeInt(VERSION);
+			dout.writeInt(n);
+			dout.writeInt(m);
+			dout.writeLong(0); // geometry size
+			dout.writeLong(0); // points offset
+			for (int i = 0; i <= n; i++) {
+				dout.writeInt(outOffsets[i]);
+			}
+			for (int seg = 0; seg < m; seg++) {
+				dout.writeInt(segEnd[outOrder[seg]]);
+			}
+			for (int seg = 0; seg < m; seg++) {
+				dout.writeDouble(segments.get(outOrder[seg]).dist);
+			}
+			for (int seg = 0; seg < m; seg++) {
+				dout.writeByte(segments.get(outOrder[seg]).shortcut ? 1 : 0);
+			}
+			for (int i = 0; i <= n; i++) {
+				dout.writeInt(inOffsets[i]);
+			}
+			for (int seg = 0; seg < m; seg++) {
+				dout.writeInt(inSegment[seg]);
+			}
+			for (int seg = 0; seg <= m; seg++) {
+				dout.writeLong(0); // filled later
+			}
+			TIntArrayList xy = new TIntArrayList();
+			for (int seg = 0; seg < m; seg++) {
+				xy.clear();
+				geometryLoader.loadGeometry(segments.get(outOrder[seg]), xy);
+				geometryOffsets[seg] = geometrySize;
+				for (int k = 0; k < xy.size(); k++) {
+					dout.writeInt(xy.get(k));
+				}
+				geometrySize += xy.size();
+			}
+			geometryOffsets[m] = geometrySize;
+			pointsOffset = geometryOffsetsPos + 8L * (m + 1) + 4 * geometrySize;
+			dout.writeUTF(routingProfile);
+			dout.writeInt(profile);
+			dout.writeUTF(profileParams);
+			for (NetworkDBPoint p : points) {
+				Integer dual = p.dualPoint == null ? null : positions.get(p.dualPoint.index);
+				dout.writeInt(p.index);
+				dout.writeInt(dual == null ? -1 : dual);
+				dout.writeInt(p.clusterId);
+				dout.writeInt(p instanceof NetworkDBPointCh ? ((NetworkDBPointCh) p).chInd : 0);
+				dout.writeLong(p.roadId);
+				dout.writeShort(p.start);
+				dout.writeShort(p.end);
+				dout.writeInt(p.startX);
+				dout.writeInt(p.startY);
+				dout.writeInt(p.endX);
+				dout.writeInt(p.endY);
+				dout.writeShort(p.tagValues == null ? 0 : p.tagValues.size());
+				for (int k = 0; p.tagValues != null && k < p.tagValues.size(); k++) {
+					dout.writeUTF(p.tagValues.get(k).tag);
+					dout.writeUTF(p.tagValues.get(k).value);
+				}
+			}
+		}
+		// patch header and geometry offsets
+		try (RandomAccessFile raf = new RandomAccessFile(out, "rw")) {
+			raf.seek(16);
+			raf.writeLong(geometrySize);
+			raf.writeLong(pointsOffset);
+			ByteBuffer bf = ByteBuffer.allocate(8 * (m + 1));
+			bf.asLongBuffer().put(geometryOffsets);
+			raf.seek(geometryOffsetsPos);
+			raf.write(bf.array());
+		}
+	}
+}
@@ -0,0 +1,547 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHMatrixRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.util.MapUtils;
+
+/**
+ * Orders stops of multi stop route by travel time matrix (i.e. calculated by {@link HHRoutePlanner#runRoutingMatrix}).
+ * First point is fixed start, last point could be fixed end, otherwise route ends at last visited stop.
+ * Stops could have time windows (seconds since start): waiting is added if stop is reached too early,
+ * being late is penalized. Iterated local search (2-opt, or-opt, double bridge perturbation) is run
+ * from several start tours concurrently and the best tour is returned. Moves are limited to new edges between
+ * nearest stops, their cost is calculated from prefix sums of the tour (prefix arrival times with time windows).
+ * Result has the same format as {@link net.osmand.TspAnt#solve()}: order of point indexes starting with 0.
+ */
+public class MultiStopRouteOptimizer {
+
+	public static boolean PRINT_STATS = false;
+	// second of being late costs as seconds of travel
+	private static final double LATE_PENALTY = 10;
+	private static final int MAX_OR_OPT_SEGMENT = 3;
+	// nearest stops considered as new neighbours by moves
+	private static final int MAX_NEIGHBOURS = 16;
+	// speed to estimate time between points not connected by router
+	static final double UNREACHABLE_SPEED = 1; // m/s
+
+	private final double[][] times;
+	private final int n;
+	private final boolean fixedEnd;
+	private double[] earliest;
+	private double[] latest;
+	private double[] serviceTimes;
+	// nearest next stops by time from stop and nearest previous stops by time to stop
+	private int[][] nextStops;
+	private int[][] prevStops;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int restarts = 0;
+	private int perturbations = 200;
+	private long seed = 1;
+
+	public MultiStopRouteOptimizer(double[][] times, boolean fixedEnd) {
+		this.times = times;
+		this.n = times.length;
+		this.fixedEnd = fixedEnd;
+	}
+
+	public static double[][] buildTimeMatrix(HHRoutePlanner<?> planner, List<LatLon> points, HHRoutingConfig config)
+			throws SQLException, IOException, InterruptedException {
+		HHMatrixRes res = planner.runRoutingMatrix(points, points, config);
+		if (res.error != null) {
+			throw new IllegalStateException(res.error);
+		}
+		return buildTimeMatrix(res, points);
+	}
+
+	// pairs not connected by router are estimated by straight distance with slow speed
+	static double[][] buildTimeMatrix(HHMatrixRes res, List<LatLon> points) {
+		double[][] m = new double[points.size()][points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			for (int j = 0; j < points.size(); j++) {
+				if (i != j) {
+					m[i][j] = res.isFound(i, j) ? res.getTime(i, j)
+							: MapUtils.getDistance(points.get(i), points.get(j)) / UNREACHABLE_SPEED;
+				}
+			}
+		}
+		return m;
+	}
+
+	public static double[][] buildStraightTimeMatrix(List<LatLon> points, double speed) {
+		double[][] m = new double[points.size()][points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			for (int j = 0; j < points.size(); j++) {
+				m[i][j] = MapUtils.getDistance(points.get(i), points.get(j)) / speed;
+			}
+		}
+		return m;
+	}
+
+	public MultiStopRouteOptimizer setTimeWindow(int point, double earliestArrival, double latestArrival) {
+		initTimeWindows();
+		earliest[point] = earliestArrival;
+		latest[point] = latestArrival;
+		return this;
+	}
+
+	public MultiStopRouteOptimizer setServiceTime(int point, double seconds) {
+		initTimeWindows();
+		serviceTimes[point] = seconds;
+		return this;
+	}
+
+	private void initTimeWindows() {
+		if (earliest == null) {
+			earliest = new double[n];
+			latest = new double[n];
+			serviceTimes = new double[n];
+			Arrays.fill(latest, Double.POSITIVE_INFINITY);
+		}
+	}
+
+	public MultiStopRouteOptimizer setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		return this;
+	}
+
+	// number of start tours (default is number of threads, at least 4)
+	public MultiStopRouteOptimizer setRestarts(int restarts) {
+		this.restarts = restarts;
+		return this;
+	}
+
+	public MultiStopRouteOptimizer setPerturbations(int perturbations) {
+		this.perturbations = perturbations;
+		return this;
+	}
+
+	public MultiStopRouteOptimizer setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	public int[] solve() throws InterruptedException {
+		long time = System.nanoTime();
+		int[] tour = new int[n];
+		for (int i = 0; i < n; i++) {
+			tour[i] = i;
+		}
+		if (movableCount() < 2) {
+			return tour;
+		}
+		nextStops = nearestStops(true);
+		prevStops = nearestStops(false);
+		int starts = restarts > 0 ? restarts : Math.max(4, threads);
+		ExecutorService service = Executors.newFixedThreadPool(Math.min(threads, starts));
+		try {
+			List<Future<int[]>> futures = new ArrayList<>();
+			for (int r = 0; r < starts; r++) {
+				final int restart = r;
+				futures.add(service.submit(new Callable<int[]>() {
+					@Override
+					public int[] call() throws Exception {
+						return new LocalSearch(seed + restart).run(restart == 0);
+					}
+				}));
+			}
+			double best = Double.POSITIVE_INFINITY;
+			for (Future<int[]> f : futures) {
+				int[] t;
+				try {
+					t = f.get();
+				} catch (ExecutionException e) {
+					Throwable c = e.getCause();
+					if (c instanceof RuntimeException) {
+						throw (RuntimeException) c;
+					}
+					throw new IllegalStateException(c);
+				}
+				double cost = getTourCost(t);
+				if (cost < best) {
+					best = cost;
+					tour = t;
+				}
+			}
+			if (PRINT_STATS) {
+				System.out.printf("Multi stop route of %d points: cost %.1f, %d starts in %.2f ms\n", n, best, starts,
+						(System.nanoTime() - time) / 1e6);
+			}
+		} finally {
+			service.shutdownNow();
+		}
+		return tour;
+	}
+
+	// total time to finish route (with waiting and service) plus penalty for being late
+	public double getTourCost(int[] tour) {
+		double t = 0;
+		double late = 0;
+		for (int i = 1; i < tour.length; i++) {
+			t += times[tour[i - 1]][tour[i]];
+			if (earliest != null) {
+				int p = tour[i];
+				if (t < earliest[p]) {
+					t = earliest[p];
+				} else if (t > latest[p]) {
+					late += t - latest[p];
+				}
+				t += serviceTimes[p];
+			}
+		}
+		return t + late * LATE_PENALTY;
+	}
+
+	private int[][] nearestStops(boolean next) {
+		int[][] res = new int[n][];
+		Integer[] stops = new Integer[n - 1];
+		for (int i = 0; i < n; i++) {
+			final int stop = i;
+			for (int j = 0, k = 0; j < n; j++) {
+				if (j != i) {
+					stops[k++] = j;
+				}
+			}
+			Arrays.sort(stops, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					return next ? Double.compare(times[stop][o1], times[stop][o2])
+							: Double.compare(times[o1][stop], times[o2][stop]);
+				}
+			});
+			res[i] = new int[Math.min(MAX_NEIGHBOURS, n - 1)];
+			for (int k = 0; k < res[i].length; k++) {
+				res[i][k] = stops[k];
+			}
+		}
+		return res;
+	}
+
+	// positions 1..movableCount() could be changed
+	private int movableCount() {
+		return fixedEnd ? n - 2 : n - 1;
+	}
+
+	private class LocalSearch {
+		private final Random rnd;
+		private final int last = movableCount();
+		private final int[] candidate = new int[n];
+		// position of stop in tour and prefix travel times along tour edges and along reversed edges
+		private final int[] pos = new int[n];
+		private final double[] forward = new double[n];
+		private final double[] backward = new double[n];
+		// time of leaving and total being late at tour positions
+		private final double[] departure = new double[n];
+		private final double[] lateness = new double[n];
+		private double services;
+		// state of evaluated route
+		private double time;
+		private double late;
+		private int prev;
+
+		LocalSearch(long seed) {
+			rnd = new Random(seed);
+		}
+
+		int[] run(boolean nearestNeighbour) {
+			int[] tour = nearestNeighbour ? nearestNeighbourTour() : randomTour();
+			double cost = optimize(tour);
+			int[] best = tour.clone();
+			double bestCost = cost;
+			for (int k = 0; k < perturbations && !Thread.currentThread().isInterrupted(); k++) {
+				int[] t = best.clone();
+				perturb(t);
+				double c = optimize(t);
+				if (c < bestCost) {
+					bestCost = c;
+					best = t;
+				}
+			}
+			return best;
+		}
+
+		private int[] nearestNeighbourTour() {
+			int[] tour = new int[n];
+			boolean[] visited = new boolean[n];
+			visited[0] = true;
+			if (fixedEnd) {
+				tour[n - 1] = n - 1;
+				visited[n - 1] = true;
+			}
+			for (int i = 1; i <= last; i++) {
+				int next = -1;
+				for (int j = 0; j < n; j++) {
+					if (!visited[j] && (next == -1 || times[tour[i - 1]][j] < times[tour[i - 1]][next])) {
+						next = j;
+					}
+				}
+				tour[i] = next;
+				visited[next] = true;
+			}
+			return tour;
+		}
+
+		private int[] randomTour() {
+			int[] tour = new int[n];
+			for (int i = 0; i < n; i++) {
+				tour[i] = i;
+			}
+			for (int i = last; i > 1; i--) {
+				int j = 1 + rnd.nextInt(i);
+				int s = tour[i];
+				tour[i] = tour[j];
+				tour[j] = s;
+			}
+			return tour;
+		}
+
+		// double bridge: A B C D -> A C B D
+		private void perturb(int[] tour) {
+			if (last < 8) {
+				int i = 1 + rnd.nextInt(last), j = 1 + rnd.nextInt(last);
+				int s = tour[i];
+				tour[i] = tour[j];
+				tour[j] = s;
+				return;
+			}
+			int[] cuts = new int[] { 2 + rnd.nextInt(last - 1), 2 + rnd.nextInt(last - 1), 2 + rnd.nextInt(last - 1) };
+			Arrays.sort(cuts);
+			if (cuts[0] == cuts[1] || cuts[1] == cuts[2]) {
+				return;
+			}
+			int p = 0;
+			System.arraycopy(tour, 0, candidate, p, cuts[0]);
+			p += cuts[0];
+			System.arraycopy(tour, cuts[1], candidate, p, cuts[2] - cuts[1]);
+			p += cuts[2] - cuts[1];
+			System.arraycopy(tour, cuts[0], candidate, p, cuts[1] - cuts[0]);
+			p += cuts[1] - cuts[0];
+			System.arraycopy(tour, cuts[2], candidate, p, n - cuts[2]);
+			System.arraycopy(candidate, 0, tour, 0, n);
+		}
+
+		// first improvement until local optimum for both neighbourhoods
+		private double optimize(int[] tour) {
+			double cost = prepare(tour);
+			boolean improved = true;
+			while (improved && !Thread.currentThread().isInterrupted()) {
+				improved = false;
+				double c = twoOpt(tour, cost);
+				if (c < cost) {
+					cost = c;
+					improved = true;
+				}
+				c = orOpt(tour, cost);
+				if (c < cost) {
+					cost = c;
+					improved = true;
+				}
+			}
+			return cost;
+		}
+
+		// fills positions and prefix arrays of tour, returns tour cost
+		private double prepare(int[] tour) {
+			double t = 0;
+			double totalLate = 0;
+			services = 0;
+			for (int i = 0; i < n; i++) {
+				pos[tour[i]] = i;
+				if (i > 0) {
+					forward[i] = forward[i - 1] + times[tour[i - 1]][tour[i]];
+					backward[i] = backward[i - 1] + times[tour[i]][tour[i - 1]];
+					t += times[tour[i - 1]][tour[i]];
+					if (earliest != null) {
+						int p = tour[i];
+						if (t < earliest[p]) {
+							t = earliest[p];
+						} else if (t > latest[p]) {
+							totalLate += t - latest[p];
+						}
+						t += serviceTimes[p];
+						services += serviceTimes[p];
+					}
+				}
+				departure[i] = t;
+				lateness[i] = totalLate;
+			}
+			return t + totalLate * LATE_PENALTY;
+		}
+
+		// new edges: tour[i - 1] -> tour[j] and tour[i] -> tour[j + 1]
+		private double twoOpt(int[] tour, double cost) {
+			for (int i = 1; i < last; i++) {
+				for (int b : nextStops[tour[i - 1]]) {
+					cost = twoOptMove(tour, cost, i, pos[b]);
+				}
+				for (int e : nextStops[tour[i]]) {
+					cost = twoOptMove(tour, cost, i, pos[e] - 1);
+				}
+			}
+			return cost;
+		}
+
+		// reverse [i, j] if it makes tour better
+		private double twoOptMove(int[] tour, double cost, int i, int j) {
+			if (j <= i || j > last) {
+				return cost;
+			}
+			int a = tour[i - 1];
+			int b = tour[i];
+			int c = tour[j];
+			double travel = times[a][c] - times[a][b] + (backward[j] - backward[i]) - (forward[j] - forward[i]);
+			if (j + 1 < n) {
+				travel += times[b][tour[j + 1]] - times[c][tour[j + 1]];
+			}
+			double newCost;
+			if (earliest == null) {
+				newCost = cost + travel;
+			} else if (forward[n - 1] + travel + services >= cost - 1e-9) {
+				// waiting and being late only add to travel and service time
+				return cost;
+			} else {
+				startAt(tour, i - 1);
+				for (int p = j; p >= i; p--) {
+					visit(tour[p]);
+				}
+				newCost = finishFrom(tour, j + 1, cost);
+			}
+			if (newCost < cost - 1e-9) {
+				for (int p = i, q = j; p < q; p++, q--) {
+					int s = tour[p];
+					tour[p] = tour[q];
+					tour[q] = s;
+				}
+				return prepare(tour);
+			}
+			return cost;
+		}
+
+		// move segment of 1..MAX_OR_OPT_SEGMENT stops to another position,
+		// new edges: tour[k - 1] -> first stop of segment and last stop of segment -> tour[k]
+		private double orOpt(int[] tour, double cost) {
+			for (int len = 1; len <= MAX_OR_OPT_SEGMENT; len++) {
+				for (int i = 1; i + len - 1 <= last; i++) {
+					for (int p : prevStops[tour[i]]) {
+						cost = orOptMove(tour, cost, i, len, pos[p] + 1);
+					}
+					for (int q : nextStops[tour[i + len - 1]]) {
+						cost = orOptMove(tour, cost, i, len, pos[q]);
+					}
+				}
+			}
+			return cost;
+		}
+
+		// insert segment [i, i + len) before position k if it makes tour better
+		private double orOptMove(int[] tour, double cost, int i, int len, int k) {
+			if (k < 1 || k > last + 1 || (k >= i && k <= i + len)) {
+				return cost;
+			}
+			int a = tour[i - 1];
+			int s = tour[i];
+			int e = tour[i + len - 1];
+			int p = tour[k - 1];
+			double travel = times[p][s] - times[a][s];
+			if (i + len < n) {
+				travel += times[a][tour[i + len]] - times[e][tour[i + len]];
+			}
+			if (k < n) {
+				travel += times[e][tour[k]] - times[p][tour[k]];
+			}
+			double newCost;
+			if (earliest == null) {
+				newCost = cost + travel;
+			} else if (forward[n - 1] + travel + services >= cost - 1e-9) {
+				return cost;
+			} else if (k < i) {
+				startAt(tour, k - 1);
+				visitPositions(tour, i, i + len);
+				visitPositions(tour, k, i);
+				newCost = finishFrom(tour, i + len, cost);
+			} else {
+				startAt(tour, i - 1);
+				visitPositions(tour, i + len, k);
+				visitPositions(tour, i, i + len);
+				newCost = finishFrom(tour, k, cost);
+			}
+			if (newCost < cost - 1e-9) {
+				moveSegment(tour, i, len, k);
+				System.arraycopy(candidate, 0, tour, 0, n);
+				return prepare(tour);
+			}
+			return cost;
+		}
+
+		// route with time windows is evaluated from prefix of current tour
+		private void startAt(int[] tour, int position) {
+			time = departure[position];
+			late = lateness[position];
+			prev = tour[position];
+		}
+
+		private void visitPositions(int[] tour, int from, int to) {
+			for (int p = from; p < to; p++) {
+				visit(tour[p]);
+			}
+		}
+
+		private void visit(int p) {
+			time += times[prev][p];
+			if (time < earliest[p]) {
+				time = earliest[p];
+			} else if (time > latest[p]) {
+				late += time - latest[p];
+			}
+			time += serviceTimes[p];
+			prev = p;
+		}
+
+		// visits unchanged rest of tour and returns cost (or current cost if new one can't be better)
+		private double finishFrom(int[] tour, int from, double cost) {
+			for (int p = from; p < n; p++) {
+				visit(tour[p]);
+				if (time == departure[p]) {
+					// change is absorbed by waiting, rest of tour is the same as current
+					return departure[n - 1] + (late + lateness[n - 1] - lateness[p]) * LATE_PENALTY;
+				}
+				if (time > departure[p] && late >= lateness[p]) {
+					// rest of tour is started later, so it can't finish earlier or be less late
+					return cost;
+				}
+			}
+			return time + late * LATE_PENALTY;
+		}
+
+		// candidate = tour with segment [i, i + len) inserted before position k
+		private void moveSegment(int[] tour, int i, int len, int k) {
+			int p = 0;
+			for (int j = 0; j < n; j++) {
+				if (j == k) {
+					System.arraycopy(tour, i, candidate, p, len);
+					p += len;
+				}
+				if (j < i || j >= i + len) {
+					candidate[p++] = tour[j];
+				}
+			}
+			if (k == n) {
+				System.arraycopy(tour, i, candidate, p, len);
+			}
+		}
+	}
+}
@@ -82,6 +82,19 @@ public class RouteCalculationProgress implements Serializable {
 		return p;
 	}
 	
+	// adds counters of search run with separate progress (i.e. in another thread)
+	public void addCounters(RouteCalculationProgress p) {
+		visitedSegments += p.visitedSegments;
+		finalSegmentsFound += p.finalSegmentsFound;
+		timeToLoad += p.timeToLoad;
+		timeToLoadHeaders += p.timeToLoadHeaders;
+		loadedTiles += p.loadedTiles;
+		distinctLoadedTiles += p.distinctLoadedTiles;
+		loadedPrevUnloadedTiles += p.loadedPrevUnloadedTiles;
+		unloadedTiles += p.unloadedTiles;
+		maxLoadedTiles = Math.max(maxLoadedTiles, p.maxLoadedTiles);
+	}
+	
 	public Map<String, Object> getInfo(RouteCalculationProgress firstPhase) {
 		TreeMap<String, Object> map = new TreeMap<String, Object>();
 		TreeMap<String, Object> tiles = new TreeMap<String, Object>();
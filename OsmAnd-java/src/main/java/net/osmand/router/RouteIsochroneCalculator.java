@@ -0,0 +1,232 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+import net.osmand.util.GridConcaveHull;
+import net.osmand.util.MapUtils;
+
+/**
+ * Reachability (isochrone) calculation: single bounded dijkstra from start point over routing context
+ * and polygon of reachable area per budget band.
+ * Budget is time in seconds or distance in meters (distance is measured along fastest routes).
+ */
+public class RouteIsochroneCalculator {
+
+	public static boolean PRINT_STATS = false;
+	public static final float DEFAULT_CELL_SIZE = 150; // meters
+	private static final int MAX_GRID_CELLS = 16_000_000;
+
+	private float cellSize = DEFAULT_CELL_SIZE;
+	private boolean reverse = false;
+	private boolean distanceBudget = false;
+
+	public RouteIsochroneCalculator setCellSize(float meters) {
+		this.cellSize = meters;
+		return this;
+	}
+
+	// calculate area from which point is reachable
+	public RouteIsochroneCalculator setReverse(boolean reverse) {
+		this.reverse = reverse;
+		return this;
+	}
+
+	public RouteIsochroneCalculator setDistanceBudget(boolean distanceBudget) {
+		this.distanceBudget = distanceBudget;
+		return this;
+	}
+
+	public static class ReachableSegment {
+		public final RouteDataObject road;
+		public final int segStart;
+		public final int segEnd;
+		// time (seconds) and distance (meters) at start and end of segment
+		public final float startTime;
+		public final float endTime;
+		public float startDistance = -1;
+		public float endDistance = -1;
+
+		ReachableSegment(RouteDataObject road, int segStart, int segEnd, float startTime, float endTime) {
+			this.road = road;
+			this.segStart = segStart;
+			this.segEnd = segEnd;
+			this.startTime = startTime;
+			this.endTime = endTime;
+		}
+
+		public float getStart(boolean distance) {
+			return distance ? startDistance : startTime;
+		}
+
+		public float getEnd(boolean distance) {
+			return distance ? endDistance : endTime;
+		}
+
+		// part of segment (0..1) reachable within budget
+		public float getReachablePart(float budget, boolean distance) {
+			float st = getStart(distance), end = getEnd(distance);
+			if (st > budget) {
+				return 0;
+			}
+			if (end <= budget || end <= st) {
+				return 1;
+			}
+			return (budget - st) / (end - st);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s [%d -> %d] %.1f s - %.1f s", road, segStart, segEnd, startTime, endTime);
+		}
+	}
+
+	public static class IsochroneBand {
+		public final float budget;
+		public final List<List<LatLon>> polygons = new ArrayList<>();
+		public final List<List<LatLon>> holes = new ArrayList<>();
+
+		public IsochroneBand(float budget) {
+			this.budget = budget;
+		}
+	}
+
+	public static class IsochroneResult {
+		public final List<ReachableSegment> segments = new ArrayList<>();
+		public final List<IsochroneBand> bands = new ArrayList<>();
+		public String error;
+	}
+
+	public IsochroneResult calculate(RoutingContext ctx, LatLon point, float... budgets) throws IOException, InterruptedException {
+		IsochroneResult res = new IsochroneResult();
+		float[] sorted = Arrays.copyOf(budgets, budgets.length);
+		Arrays.sort(sorted);
+		if (sorted.length == 0) {
+			return res;
+		}
+		RouteSegmentPoint pnt = new RoutePlannerFrontEnd().findRouteSegment(point.getLatitude(), point.getLongitude(), ctx, null);
+		if (pnt == null) {
+			res.error = "Road is not found near the point";
+			return res;
+		}
+		float maxBudget = sorted[sorted.length - 1];
+		// distance budget is reachable within time of the slowest movement
+		float maxCost = distanceBudget ? maxBudget / ctx.getRouter().getMinSpeed() : maxBudget;
+		long time = System.nanoTime();
+		BinaryRoutePlanner planner = new BinaryRoutePlanner();
+		Map<RouteSegment, ReachableSegment> visited = new IdentityHashMap<>();
+		for (RouteSegment s : planner.searchReachableSegments(ctx, pnt, maxCost, reverse).valueCollection()) {
+			RouteSegment parent = s.getParentRoute();
+			float startTime = parent == null || parent == RouteSegment.NULL ? 0 : Math.max(0, parent.distanceFromStart);
+			ReachableSegment r = new ReachableSegment(s.getRoad(), s.getSegmentStart(), s.getSegmentEnd(),
+					startTime, Math.max(startTime, s.distanceFromStart));
+			visited.put(s, r);
+		}
+		for (Map.Entry<RouteSegment, ReachableSegment> e : visited.entrySet()) {
+			calculateDistance(e.getKey(), e.getValue(), visited, pnt);
+		}
+		for (ReachableSegment r : visited.values()) {
+			if (r.getStart(distanceBudget) <= maxBudget) {
+				res.segments.add(r);
+			}
+		}
+		for (float budget : sorted) {
+			res.bands.add(buildBand(res.segments, budget));
+		}
+		if (PRINT_STATS) {
+			System.out.printf("Isochrone %d bands: %d reachable segments, %.2f ms\n", sorted.length, res.segments.size(),
+					(System.nanoTime() - time) / 1e6);
+		}
+		return res;
+	}
+
+	// distance along tree of visited segments (parents are calculated first without recursion)
+	private void calculateDistance(RouteSegment s, ReachableSegment r, Map<RouteSegment, ReachableSegment> visited,
+			RouteSegmentPoint pnt) {
+		if (r.endDistance >= 0) {
+			return;
+		}
+		List<RouteSegment> chain = new ArrayList<>();
+		chain.add(s);
+		RouteSegment p = s.getParentRoute();
+		while (p != null && p != RouteSegment.NULL) {
+			ReachableSegment pr = visited.get(p);
+			if (pr != null && pr.endDistance >= 0) {
+				break;
+			}
+			chain.add(p);
+			p = p.getParentRoute();
+		}
+		float dist = p == null || p == RouteSegment.NULL ? 0 : visited.get(p).endDistance;
+		for (int i = chain.size() - 1; i >= 0; i--) {
+			RouteSegment c = chain.get(i);
+			double len;
+			RouteSegment cp = c.getParentRoute();
+			if (cp == null || cp == RouteSegment.NULL) {
+				// start segment begins at projection point
+				len = MapUtils.measuredDist31(pnt.preciseX, pnt.preciseY, c.getEndPointX(), c.getEndPointY());
+			} else {
+				len = MapUtils.measuredDist31(c.getStartPointX(), c.getStartPointY(), c.getEndPointX(), c.getEndPointY());
+			}
+			ReachableSegment cr = visited.get(c);
+			if (cr != null) {
+				cr.startDistance = dist;
+				cr.endDistance = (float) (dist + len);
+			}
+			dist += len;
+		}
+	}
+
+	private IsochroneBand buildBand(List<ReachableSegment> segments, float budget) {
+		IsochroneBand band = new IsochroneBand(budget);
+		int left = Integer.MAX_VALUE, right = Integer.MIN_VALUE, top = Integer.MAX_VALUE, bottom = Integer.MIN_VALUE;
+		for (ReachableSegment r : segments) {
+			if (r.getStart(distanceBudget) > budget) {
+				continue;
+			}
+			for (int ind : new int[] { r.segStart, r.segEnd }) {
+				left = Math.min(left, r.road.getPoint31XTile(ind));
+				right = Math.max(right, r.road.getPoint31XTile(ind));
+				top = Math.min(top, r.road.getPoint31YTile(ind));
+				bottom = Math.max(bottom, r.road.getPoint31YTile(ind));
+			}
+		}
+		if (left > right) {
+			return band;
+		}
+		int cx = left / 2 + right / 2, cy = top / 2 + bottom / 2;
+		double metersPerUnit = MapUtils.measuredDist31(cx, cy, cx + (1 << 16), cy) / (1 << 16);
+		int cell = (int) Math.max(1, cellSize / metersPerUnit);
+		while (((long) right - left) / cell * (((long) bottom - top) / cell) > MAX_GRID_CELLS) {
+			cell *= 2;
+		}
+		GridConcaveHull hull = new GridConcaveHull(left, top, right, bottom, cell);
+		for (ReachableSegment r : segments) {
+			float part = r.getReachablePart(budget, distanceBudget);
+			if (part <= 0) {
+				continue;
+			}
+			int x1 = r.road.getPoint31XTile(r.segStart), y1 = r.road.getPoint31YTile(r.segStart);
+			int x2 = r.road.getPoint31XTile(r.segEnd), y2 = r.road.getPoint31YTile(r.segEnd);
+			hull.addLine(x1, y1, (int) (x1 + (x2 - x1) * part), (int) (y1 + (y2 - y1) * part));
+		}
+		hull.dilate();
+		for (int[] ring : hull.buildRings()) {
+			List<LatLon> l = new ArrayList<>(ring.length / 2 + 1);
+			for (int i = 0; i < ring.length; i += 2) {
+				l.add(new LatLon(MapUtils.get31LatitudeY(ring[i + 1]), MapUtils.get31LongitudeX(ring[i])));
+			}
+			l.add(l.get(0));
+			(GridConcaveHull.isOuterRing(ring) ? band.polygons : band.holes).add(l);
+		}
+		return band;
+	}
+}
@@ -70,6 +70,12 @@ public class RoutingConfiguration {
 	// 1.7 Maximum visited segments
 	public int MAX_VISITED = -1;
 
+	// 1.8 Run forward and reverse A* of 2-directional search in separate threads (same result, more memory)
+	public boolean parallelBidirectionalSearch = false;
+
+	// 1.9 Keep loaded tiles as packed point index and create route segments on demand (more tiles fit into memory limit)
+	public boolean compactTileStorage = false;
+
 
 	// extra points to be inserted in ways (quad tree is based on 31 coords)
 	private QuadTree<DirectionPoint> directionPoints;
@@ -88,9 +94,47 @@ public class RoutingConfiguration {
 	// Parameter to smoother the track itself (could be 0 if it's not recorded track)
 	public float smoothenPointsNoRoute = 5;
 
+	// Geometry based approximation of long tracks by overlapping windows in parallel (1 - whole track in one thread)
+	public int gpxApproximationThreads = 1;
+	public float gpxApproximationWindow = 20000;
+	public float gpxApproximationOverlap = 1000;
+
 	public boolean showMinorTurns = false;
 
 
+	// shallow copy: search parameters could be changed independently (router and maps are shared)
+	public RoutingConfiguration copy() {
+		RoutingConfiguration c = new RoutingConfiguration();
+		c.attributes = attributes;
+		c.heuristicCoefficient = heuristicCoefficient;
+		c.ZOOM_TO_LOAD_TILES = ZOOM_TO_LOAD_TILES;
+		c.memoryLimitation = memoryLimitation;
+		c.nativeMemoryLimitation = nativeMemoryLimitation;
+		c.planRoadDirection = planRoadDirection;
+		c.router = router;
+		c.routerName = routerName;
+		c.initialDirection = initialDirection;
+		c.targetDirection = targetDirection;
+		c.penaltyForReverseDirection = penaltyForReverseDirection;
+		c.recalculateDistance = recalculateDistance;
+		c.routeCalculationTime = routeCalculationTime;
+		c.ambiguousConditionalTags = ambiguousConditionalTags;
+		c.MAX_VISITED = MAX_VISITED;
+		c.parallelBidirectionalSearch = parallelBidirectionalSearch;
+		c.compactTileStorage = compactTileStorage;
+		c.directionPoints = directionPoints;
+		c.directionPointsRadius = directionPointsRadius;
+		c.minPointApproximation = minPointApproximation;
+		c.minStepApproximation = minStepApproximation;
+		c.maxStepApproximation = maxStepApproximation;
+		c.smoothenPointsNoRoute = smoothenPointsNoRoute;
+		c.gpxApproximationThreads = gpxApproximationThreads;
+		c.gpxApproximationWindow = gpxApproximationWindow;
+		c.gpxApproximationOverlap = gpxApproximationOverlap;
+		c.showMinorTurns = showMinorTurns;
+		return c;
+	}
+
 	public QuadTree<DirectionPoint> getDirectionPoints() {
 		return directionPoints;
 	}
@@ -208,6 +252,9 @@ public class RoutingConfiguration {
 			i.minPointApproximation = parseSilentFloat(getAttribute(i.router, "minPointApproximation"), i.minPointApproximation);
 			i.minStepApproximation = parseSilentFloat(getAttribute(i.router, "minStepApproximation"), i.minStepApproximation);
 			i.maxStepApproximation = parseSilentFloat(getAttribute(i.router, "maxStepApproximation"), i.maxStepApproximation);
+			i.gpxApproximationThreads = parseSilentInt(getAttribute(i.router, "gpxApproximationThreads"), i.gpxApproximationThreads);
+			i.gpxApproximationWindow = parseSilentFloat(getAttribute(i.router, "gpxApproximationWindow"), i.gpxApproximationWindow);
+			i.gpxApproximationOverlap = parseSilentFloat(getAttribute(i.router, "gpxApproximationOverlap"), i.gpxApproximationOverlap);
 			i.smoothenPointsNoRoute = parseSilentFloat(getAttribute(i.router, "smoothenPointsNoRoute"), i.smoothenPointsNoRoute);
 			i.penaltyForReverseDirection = parseSilentFloat(getAttribute(i.router, "penaltyForReverseDirection"), (float) i.penaltyForReverseDirection);
 
@@ -230,6 +277,8 @@ public class RoutingConfiguration {
 				i.nativeMemoryLimitation = memoryLimits.nativeMemoryLimitMb * (1l << 20);
 			}
 			i.planRoadDirection = parseSilentInt(getAttribute(i.router, "planRoadDirection"), i.planRoadDirection);
+			i.parallelBidirectionalSearch = Boolean.parseBoolean(getAttribute(i.router, "parallelBidirectionalSearch"));
+			i.compactTileStorage = Boolean.parseBoolean(getAttribute(i.router, "compactTileStorage"));
 			if (directionPointsBuilder != null) {
 				QuadRect rect = new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
 				List<net.osmand.osm.edit.Node> lst = directionPointsBuilder.queryInBox(rect, new ArrayList<Node>());
@@ -3,6 +3,7 @@ package net.osmand.router;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -91,6 +92,10 @@ public class RoutingContext {
 	List<RoutingSubregionTile> subregionTiles = new ArrayList<RoutingSubregionTile>();
 	
 	// 3. Warm object caches
+	// own router (caches) for contexts searching in parallel with another context, otherwise config.router
+	private GeneralRouter router;
+	// guards visited segments which are checked by the opposite direction (shared by parallel contexts)
+	final Object visitedSegmentsLock;
 	ArrayList<RouteSegment> segmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
 	ArrayList<RouteSegment> segmentsToVisitNotForbidden = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
 	
@@ -120,6 +125,55 @@ public class RoutingContext {
 		this.nativeLib = cp.nativeLib;
 		this.visitor = cp.visitor;
 		this.calculationProgress = cp.calculationProgress;
+		this.visitedSegmentsLock = new Object();
+	}
+
+	/**
+	 * Context for the reverse direction of parallel 2-directional search: same configuration and points
+	 * but own map readers, tiles and router caches as none of them are thread safe.
+	 */
+	RoutingContext(RoutingContext cp, Map<BinaryMapIndexReader, BinaryMapIndexReader> readersCopy) {
+		this(cp, readersCopy, cp.config, cp.visitedSegmentsLock);
+	}
+
+	/**
+	 * Independent context to route in another thread with own configuration (could be tweaked per search),
+	 * map readers, tiles and router caches.
+	 */
+	RoutingContext(RoutingContext cp, Map<BinaryMapIndexReader, BinaryMapIndexReader> readersCopy, RoutingConfiguration config) {
+		this(cp, readersCopy, config, new Object());
+	}
+
+	private RoutingContext(RoutingContext cp, Map<BinaryMapIndexReader, BinaryMapIndexReader> readersCopy,
+			RoutingConfiguration config, Object visitedSegmentsLock) {
+		this.config = config;
+		this.calculationMode = cp.calculationMode;
+		this.leftSideNavigation = cp.leftSideNavigation;
+		this.nativeLib = cp.nativeLib;
+		this.calculationProgress = cp.calculationProgress;
+		this.router = cp.getGeneralRouter().copyWithOwnCaches();
+		this.visitedSegmentsLock = visitedSegmentsLock;
+		for (Entry<BinaryMapIndexReader, List<RouteSubregion>> e : cp.map.entrySet()) {
+			BinaryMapIndexReader reader = readersCopy.get(e.getKey());
+			List<RouteSubregion> subregions = new ArrayList<RouteSubregion>();
+			for (RouteSubregion rs : e.getValue()) {
+				subregions.add(new RouteSubregion(rs));
+			}
+			this.map.put(reader, subregions);
+			if (cp.mapIndexReaderFilter.contains(e.getKey())) {
+				this.mapIndexReaderFilter.add(reader);
+			}
+		}
+		for (Entry<RouteRegion, BinaryMapIndexReader> e : cp.reverseMap.entrySet()) {
+			this.reverseMap.put(e.getKey(), readersCopy.get(e.getValue()));
+		}
+		this.startX = cp.startX;
+		this.startY = cp.startY;
+		this.targetX = cp.targetX;
+		this.targetY = cp.targetY;
+		this.intermediatesX = cp.intermediatesX;
+		this.intermediatesY = cp.intermediatesY;
+		this.dijkstraMode = cp.dijkstraMode;
 	}
 	
 	RoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] list, RouteCalculationMode calcMode) {
@@ -139,11 +193,38 @@ public class RoutingContext {
 		}
 		this.config = config;
 		this.nativeLib = nativeLibrary;
+		this.visitedSegmentsLock = new Object();
 		this.intermediatesX = new int[0];
 		this.intermediatesY = new int[0];
 	}
 	
 	
+	/**
+	 * Independent context for another thread, readers copy should contain copies of all map readers of this context.
+	 * Copy has own calculation progress (counters could be merged by caller with addCounters).
+	 */
+	public RoutingContext copyWithReaders(Map<BinaryMapIndexReader, BinaryMapIndexReader> readersCopy) {
+		RoutingContext copy = new RoutingContext(this, readersCopy, config.copy());
+		copy.calculationProgress = calculationProgress == null ? null : new RouteCalculationProgress();
+		return copy;
+	}
+
+	// readers for another thread (they should be closed by caller)
+	Map<BinaryMapIndexReader, BinaryMapIndexReader> copyMapReaders() throws IOException {
+		Map<BinaryMapIndexReader, BinaryMapIndexReader> readersCopy = new LinkedHashMap<>();
+		try {
+			for (BinaryMapIndexReader reader : map.keySet()) {
+				readersCopy.put(reader, reader.copyReader());
+			}
+		} catch (IOException e) {
+			for (BinaryMapIndexReader r : readersCopy.values()) {
+				r.close();
+			}
+			throw e;
+		}
+		return readersCopy;
+	}
+	
 	public RouteSegmentVisitor getVisitor() {
 		return visitor;
 	}
@@ -176,7 +257,11 @@ public class RoutingContext {
 	}
 
 	public VehicleRouter getRouter() {
-		return config.router;
+		return getGeneralRouter();
+	}
+
+	private GeneralRouter getGeneralRouter() {
+		return router != null ? router : config.router;
 	}
 
 	public boolean planRouteIn2Directions() {
@@ -292,8 +377,15 @@ public class RoutingContext {
 
 			try {
 				BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
-				ts.setLoadedNonNative();
-				List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
+				ts.setLoadedNonNative(config.compactTileStorage);
+				List<RouteDataObject> res;
+				RoutingTileCache tileCache = RoutingTileCache.getShared();
+				if (tileCache != null) {
+					res = copyCachedObjects(tileCache.loadRouteIndexData(reader, ts.subregion),
+							config.ambiguousConditionalTags != null || config.routeCalculationTime != 0 || !points.isEmpty());
+				} else {
+					res = reader.loadRouteIndexData(ts.subregion);
+				}
 				
 				if (toLoad != null) {
 					toLoad.addAll(res);
@@ -306,10 +398,10 @@ public class RoutingContext {
 							if (config.routeCalculationTime != 0) {
 								conditionalHelper.processConditionalTags(ro, config.routeCalculationTime);
 							}
-							if (config.router.acceptLine(ro)) {
+							if (getGeneralRouter().acceptLine(ro)) {
 								if (excludeNotAllowed != null && !excludeNotAllowed.contains(ro.getId())) {
 									// don't attach point for route precalculation
-									if (!config.router.attributes.containsKey(GeneralRouter.CHECK_ALLOW_PRIVATE_NEEDED)) {
+									if (!getGeneralRouter().attributes.containsKey(GeneralRouter.CHECK_ALLOW_PRIVATE_NEEDED)) {
 										connectPoint(ts, ro, points);
 									}
 									ts.add(ro);
@@ -635,6 +727,29 @@ public class RoutingContext {
 
 	}
 
+	// cached objects are shared between contexts, so types are copied if they could be modified by this context
+	private static List<RouteDataObject> copyCachedObjects(List<RouteDataObject> cached, boolean modifyTypes) {
+		List<RouteDataObject> res = new ArrayList<>(cached.size());
+		for (RouteDataObject o : cached) {
+			if (o == null) {
+				res.add(null);
+				continue;
+			}
+			RouteDataObject c = new RouteDataObject(o);
+			if (modifyTypes) {
+				c.types = o.types == null ? null : o.types.clone();
+				if (o.pointTypes != null) {
+					c.pointTypes = new int[o.pointTypes.length][];
+					for (int i = 0; i < o.pointTypes.length; i++) {
+						c.pointTypes[i] = o.pointTypes[i] == null ? null : o.pointTypes[i].clone();
+					}
+				}
+			}
+			res.add(c);
+		}
+		return res;
+	}
+
 	private int findPointIndex(DirectionPoint np, int createType) {
 		// using search by coordinates because by index doesn't work (parallel updates)
 		int samePointIndex = -1;
@@ -741,6 +856,8 @@ public class RoutingContext {
 		private int isLoaded = 0;
 		private TLongObjectMap<RouteSegment> routes = null;
 		private TLongHashSet excludedIds = null;
+		// compact storage: routes contains only segments created on demand from packed point index
+		private CompactTileIndex compact = null;
 
 		public RoutingSubregionTile(RouteSubregion subregion) {
 			this.subregion = subregion;
@@ -750,8 +867,20 @@ public class RoutingContext {
 			return routes;
 		}
 		
+		public boolean isCompact() {
+			return compact != null;
+		}
+		
 		public void loadAllObjects(final List<RouteDataObject> toFillIn, RoutingContext ctx, TLongObjectHashMap<RouteDataObject> excludeDuplications) {
-			if(routes != null) {
+			if (compact != null) {
+				for (int i = 0; i < compact.objectsSize; i++) {
+					RouteDataObject ro = compact.objects[i];
+					if (!excludeDuplications.contains(ro.id)) {
+						excludeDuplications.put(ro.id, ro);
+						toFillIn.add(ro);
+					}
+				}
+			} else if(routes != null) {
 				Iterator<RouteSegment> it = routes.valueCollection().iterator();
 				while(it.hasNext()){
 					RouteSegment rs = it.next();
@@ -784,6 +913,15 @@ public class RoutingContext {
 			if (routes != null) {
 				long l = (((long) x31) << 31) + (long) y31;
 				RouteSegment segment = routes.get(l);
+				if (segment == null && compact != null) {
+					segment = compact.createSegments(l);
+					if (segment != null) {
+						routes.put(l, segment);
+						int sz = compact.getSegmentsSize(segment);
+						tileStatistics.size += sz;
+						ctx.global.size += sz;
+					}
+				}
 				while (segment != null) {
 					RouteDataObject ro = segment.road;
 					RouteDataObject toCmp = excludeDuplications.get(calcRouteId(ro, segment.getSegmentStart()));
@@ -845,16 +983,27 @@ public class RoutingContext {
 			}
 			searchResult = null;
 			routes = null;
+			compact = null;
 			excludedIds = null;
 		}
 		
-		public void setLoadedNonNative(){
+		public void setLoadedNonNative() {
+			setLoadedNonNative(false);
+		}
+		
+		public void setLoadedNonNative(boolean compactStorage) {
 			isLoaded = Math.abs(isLoaded) + 1;
 			routes = new TLongObjectHashMap<BinaryRoutePlanner.RouteSegment>();
+			compact = compactStorage ? new CompactTileIndex() : null;
 			tileStatistics = new TileStatistics();
 		}
 		
 		public void add(RouteDataObject ro) {
+			if (compact != null) {
+				tileStatistics.addCompactObject(ro);
+				compact.add(ro);
+				return;
+			}
 			tileStatistics.addObject(ro);
 			for (int i = 0; i < ro.pointsX.length; i++) {
 				int x31 = ro.getPoint31XTile(i);
@@ -879,6 +1028,7 @@ public class RoutingContext {
 			if (r.objects != null) {
 				searchResult = null;
 				routes = new TLongObjectHashMap<BinaryRoutePlanner.RouteSegment>();
+				compact = null;
 				for (RouteDataObject ro : r.objects) {
 					if (ro != null && ctx.config.router.acceptLine(ro)) {
 						add(ro);
@@ -891,7 +1041,126 @@ public class RoutingContext {
 		}
 	}
 	
+	/**
+	 * Road points of a tile packed into primitive arrays: point key -> chain of (object, point index).
+	 * Route segments are created only for points reached by routing and keep the same order as
+	 * non compact storage, so routing result is not changed.
+	 */
+	static class CompactTileIndex {
+		// approximate size of RouteSegment with its entry in routes map
+		static final int SEGMENT_SIZE = 64;
+		// approximate size of indexed point (hash entry and chain arrays)
+		static final int POINT_SIZE = 44;
+		
+		RouteDataObject[] objects = new RouteDataObject[16];
+		int objectsSize;
+		// open addressing hash: point key -> first point in chain
+		long[] keys = new long[64];
+		int[] firstPoint = new int[64];
+		int keysSize;
+		int[] pointObject = new int[64];
+		int[] pointIndex = new int[64];
+		int[] pointNext = new int[64];
+		int pointsSize;
+		
+		void add(RouteDataObject ro) {
+			if (objectsSize == objects.length) {
+				objects = Arrays.copyOf(objects, objectsSize * 2);
+			}
+			int objIndex = objectsSize++;
+			objects[objIndex] = ro;
+			for (int i = 0; i < ro.pointsX.length; i++) {
+				if (pointsSize == pointObject.length) {
+					int capacity = pointsSize * 2;
+					pointObject = Arrays.copyOf(pointObject, capacity);
+					pointIndex = Arrays.copyOf(pointIndex, capacity);
+					pointNext = Arrays.copyOf(pointNext, capacity);
+				}
+				int p = pointsSize++;
+				pointObject[p] = objIndex;
+				pointIndex[p] = i;
+				pointNext[p] = -1;
+				long l = (((long) ro.getPoint31XTile(i)) << 31) + (long) ro.getPoint31YTile(i);
+				int slot = findSlot(keys, l);
+				if (keys[slot] == l) {
+					int last = firstPoint[slot];
+					while (pointNext[last] != -1) {
+						last = pointNext[last];
+					}
+					pointNext[last] = p;
+				} else {
+					keys[slot] = l;
+					firstPoint[slot] = p;
+					if (++keysSize * 2 > keys.length) {
+						rehash();
+					}
+				}
+			}
+		}
+		
+		// keys are never 0 (x31 and y31 are not 0 on real roads) so 0 is empty slot
+		private static int findSlot(long[] keys, long l) {
+			int mask = keys.length - 1;
+			int slot = (int) ((l ^ (l >>> 29)) * 0x9E3779B1L) & mask;
+			while (keys[slot] != 0 && keys[slot] != l) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+		
+		private void rehash() {
+			long[] oldKeys = keys;
+			int[] oldFirst = firstPoint;
+			keys = new long[oldKeys.length * 2];
+			firstPoint = new int[oldKeys.length * 2];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != 0) {
+					int slot = findSlot(keys, oldKeys[i]);
+					keys[slot] = oldKeys[i];
+					firstPoint[slot] = oldFirst[i];
+				}
+			}
+		}
+		
+		RouteSegment createSegments(long l) {
+			int slot = findSlot(keys, l);
+			int p = keys[slot] == l && l != 0 ? firstPoint[slot] : -1;
+			RouteSegment first = null;
+			RouteSegment last = null;
+			while (p != -1) {
+				RouteSegment segment = new RouteSegment(objects[pointObject[p]], pointIndex[p]);
+				if (first == null) {
+					first = segment;
+				} else {
+					last.nextLoaded = segment;
+				}
+				last = segment;
+				p = pointNext[p];
+			}
+			return first;
+		}
+		
+		int getSegmentsSize(RouteSegment segment) {
+			int sz = 0;
+			while (segment != null) {
+				sz += SEGMENT_SIZE;
+				segment = segment.nextLoaded;
+			}
+			return sz;
+		}
+	}
+	
 	static int getEstimatedSize(RouteDataObject o) {
+		// Standard overhead?
+		return (int) (getEstimatedDataSize(o) * 3.5);
+	}
+	
+	static int getEstimatedCompactSize(RouteDataObject o) {
+		// object itself and point index without route segments (they are counted when created)
+		return (int) (getEstimatedDataSize(o) * 1.5) + CompactTileIndex.POINT_SIZE * o.getPointsLength();
+	}
+	
+	static int getEstimatedDataSize(RouteDataObject o) {
 		// calculate size
 		int sz = 0;
 		sz += 8 + 4; // overhead
@@ -920,8 +1189,7 @@ public class RoutingContext {
 				}
 			}
 		}
-		// Standard overhead?
-		return  (int) (sz * 3.5);
+		return sz;
 	}
 	
 	protected static class TileStatistics {
@@ -942,6 +1210,12 @@ public class RoutingContext {
 			size += getEstimatedSize(o);
 		}
 
+		public void addCompactObject(RouteDataObject o) {
+			allRoutes++;
+			coordinates += o.getPointsLength() * 2;
+			size += getEstimatedCompactSize(o);
+		}
+
 		
 	}
 	
@@ -0,0 +1,174 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Process wide cache of decoded route subregions shared by concurrent routing contexts.
+ * Contents are raw map objects (not filtered by profile, without conditional tags and direction points applied),
+ * every context gets own shallow copies of them, so cached objects are never modified.
+ * Least recently used tiles are evicted when estimated size exceeds the limit,
+ * tiles of reader are evicted from shared cache when reader is closed.
+ */
+public class RoutingTileCache {
+
+	private static volatile RoutingTileCache shared = null;
+
+	private final long maxSize;
+	private long size = 0;
+	private final LinkedHashMap<TileKey, CachedTile> tiles = new LinkedHashMap<>(256, 0.75f, true);
+
+	// statistics
+	private long hits = 0;
+	private long misses = 0;
+	private long evicted = 0;
+
+	public RoutingTileCache(long maxSizeBytes) {
+		this.maxSize = maxSizeBytes;
+	}
+
+	public static RoutingTileCache getShared() {
+		return shared;
+	}
+
+	public static void setShared(RoutingTileCache cache) {
+		shared = cache;
+	}
+
+	/**
+	 * Returns cached objects of subregion or reads them with reader (not under lock, concurrent readers
+	 * of the same tile are possible and only first result is kept).
+	 */
+	public List<RouteDataObject> loadRouteIndexData(BinaryMapIndexReader reader, RouteSubregion subregion) throws IOException {
+		TileKey key = new TileKey(subregion.routeReg, subregion.filePointer);
+		CachedTile tile;
+		synchronized (this) {
+			tile = tiles.get(key);
+			if (tile != null) {
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+		if (tile == null) {
+			List<RouteDataObject> res = reader.loadRouteIndexData(subregion);
+			tile = new CachedTile(res);
+			synchronized (this) {
+				CachedTile existing = tiles.get(key);
+				if (existing != null) {
+					tile = existing;
+				} else {
+					tiles.put(key, tile);
+					size += tile.size;
+					evict();
+				}
+			}
+		}
+		return tile.objects;
+	}
+
+	private void evict() {
+		Iterator<CachedTile> it = tiles.values().iterator();
+		// keep at least last added tile
+		while (size > maxSize && tiles.size() > 1 && it.hasNext()) {
+			CachedTile t = it.next();
+			it.remove();
+			size -= t.size;
+			evicted++;
+		}
+	}
+
+	public synchronized void evictRegions(Collection<RouteRegion> regions) {
+		Iterator<Map.Entry<TileKey, CachedTile>> it = tiles.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<TileKey, CachedTile> e = it.next();
+			for (RouteRegion region : regions) {
+				if (e.getKey().region == region) {
+					size -= e.getValue().size;
+					it.remove();
+					evicted++;
+					break;
+				}
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		tiles.clear();
+		size = 0;
+	}
+
+	public synchronized long getEstimatedSize() {
+		return size;
+	}
+
+	public synchronized int getTilesCount() {
+		return tiles.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Routing tile cache: %d tiles, %.1f / %.1f MB, hits %d, misses %d, evicted %d",
+				tiles.size(), size / (1024f * 1024f), maxSize / (1024f * 1024f), hits, misses, evicted);
+	}
+
+	private static class CachedTile {
+		final List<RouteDataObject> objects;
+		final long size;
+
+		CachedTile(List<RouteDataObject> objects) {
+			this.objects = objects == null ? new ArrayList<RouteDataObject>() : objects;
+			long sz = 0;
+			for (RouteDataObject o : this.objects) {
+				if (o != null) {
+					// only objects, routing structures are counted by routing context
+					sz += RoutingContext.getEstimatedDataSize(o);
+				}
+			}
+			this.size = sz;
+		}
+	}
+
+	// region is compared by identity: all readers created as copies of the same reader share regions
+	private static class TileKey {
+		final RouteRegion region;
+		final long filePointer;
+
+		TileKey(RouteRegion region, long filePointer) {
+			this.region = region;
+			this.filePointer = filePointer;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(region) * 31 + Long.hashCode(filePointer);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+			TileKey k = (TileKey) obj;
+			return k.region == region && k.filePointer == filePointer;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+
+/**
+ * Transport stops with merged (multi file) and combined (incomplete) routes loaded once from set of readers.
+ * Snapshot is not modified after load, so it could be shared by many {@link TransportRoutingContext}
+ * calculating routes concurrently instead of reading and combining routes for each request.
+ */
+public class TransportNetworkSnapshot {
+
+	public static boolean PRINT_STATS = false;
+
+	private final int zoom;
+	// stops grouped by tile of zoom
+	private final TLongObjectHashMap<TransportStop[]> tiles;
+	private final TLongObjectHashMap<TransportRoute> routes;
+	private final int stopsCount;
+
+	private TransportNetworkSnapshot(int zoom, TLongObjectHashMap<TransportStop[]> tiles,
+			TLongObjectHashMap<TransportRoute> routes, int stopsCount) {
+		this.zoom = zoom;
+		this.tiles = tiles;
+		this.routes = routes;
+		this.stopsCount = stopsCount;
+	}
+
+	public static TransportNetworkSnapshot load(int zoom, BinaryMapIndexReader... readers) throws IOException {
+		return load(zoom, 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE, readers);
+	}
+
+	// loads stops within bbox (31 tile numbers), routes of these stops are loaded completely
+	public static TransportNetworkSnapshot load(int zoom, int left31, int top31, int right31, int bottom31,
+			BinaryMapIndexReader... readers) throws IOException {
+		long time = System.nanoTime();
+		TransportStopsRouteReader reader = new TransportStopsRouteReader(Arrays.asList(readers));
+		SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(left31, right31, top31,
+				bottom31, -1, null);
+		Collection<TransportStop> stops = reader.readMergedTransportStops(sr);
+		TLongObjectHashMap<List<TransportStop>> tileLists = new TLongObjectHashMap<List<TransportStop>>();
+		TLongObjectHashMap<TransportRoute> routes = new TLongObjectHashMap<TransportRoute>();
+		int stopsCount = 0;
+		for (TransportStop s : stops) {
+			if (s.isDeleted() || s.getRoutes() == null) {
+				continue;
+			}
+			for (TransportRoute r : s.getRoutes()) {
+				if (!routes.containsKey(r.getId())) {
+					// lazy values are calculated here, so routes are not modified while shared
+					r.getDistance();
+					r.mergeForwardWays();
+					routes.put(r.getId(), r);
+				}
+			}
+			long tileId = tileId(s.x31 >> (31 - zoom), s.y31 >> (31 - zoom), zoom);
+			List<TransportStop> l = tileLists.get(tileId);
+			if (l == null) {
+				l = new ArrayList<TransportStop>();
+				tileLists.put(tileId, l);
+			}
+			l.add(s);
+			stopsCount++;
+		}
+		TLongObjectHashMap<TransportStop[]> tiles = new TLongObjectHashMap<TransportStop[]>(tileLists.size());
+		TLongObjectIterator<List<TransportStop>> it = tileLists.iterator();
+		while (it.hasNext()) {
+			it.advance();
+			tiles.put(it.key(), it.value().toArray(new TransportStop[0]));
+		}
+		if (PRINT_STATS) {
+			System.out.printf("Transport snapshot: %d stops, %d routes, %d tiles loaded in %.2f ms\n", stopsCount,
+					routes.size(), tiles.size(), (System.nanoTime() - time) / 1e6);
+		}
+		return new TransportNetworkSnapshot(zoom, tiles, routes, stopsCount);
+	}
+
+	private static long tileId(int x, int y, int zoom) {
+		return (((long) x) << (zoom + 1)) + y;
+	}
+
+	public List<TransportStop> getTransportStops(int left31, int top31, int right31, int bottom31, List<TransportStop> res) {
+		int pz = 31 - zoom;
+		for (int x = left31 >> pz; x <= right31 >> pz; x++) {
+			for (int y = top31 >> pz; y <= bottom31 >> pz; y++) {
+				TransportStop[] tile = tiles.get(tileId(x, y, zoom));
+				if (tile == null) {
+					continue;
+				}
+				for (TransportStop s : tile) {
+					if (s.x31 >= left31 && s.x31 <= right31 && s.y31 >= top31 && s.y31 <= bottom31) {
+						res.add(s);
+					}
+				}
+			}
+		}
+		return res;
+	}
+
+	public TransportRoute getRoute(long id) {
+		return routes.get(id);
+	}
+
+	public Collection<TransportRoute> getRoutes() {
+		return Collections.unmodifiableCollection(routes.valueCollection());
+	}
+
+	public int getStopsCount() {
+		return stopsCount;
+	}
+
+	public int getZoom() {
+		return zoom;
+	}
+}
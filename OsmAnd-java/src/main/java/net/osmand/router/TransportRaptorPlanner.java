@@ -0,0 +1,561 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Round based public transport planner (RAPTOR) over flat arrays of stops, routes and trips (see {@link TransportNetwork}).
+ * Round k scans only routes serving stops improved in round k - 1, so result of round k is the earliest arrival
+ * with k boardings and results of all rounds are pareto optimal journeys by arrival time and number of transfers.
+ * With {@link TransportRoutingConfiguration#useSchedule} routes are used with trips of their schedule,
+ * otherwise routes are frequency based and travel time is estimated by speed of route type (as in {@link TransportRoutePlanner}).
+ */
+public class TransportRaptorPlanner {
+
+	public static boolean PRINT_STATS = false;
+	private static final int INF = Integer.MAX_VALUE;
+	// labels of stops per round
+	private static final int LABEL_NONE = -1;
+	private static final double MAX_LATITUDE = 85;
+
+	public static class TransportNetwork {
+		final TransportStop[] stops;
+		final int[] stopX;
+		final int[] stopY;
+		// routes serving stop: route index and stop position in route
+		final int[] stopRoutesStart;
+		final int[] stopRoutes;
+		final int[] stopRoutePos;
+
+		final TransportRoute[] routes;
+		final int[] routeStopsStart;
+		final int[] routeStops;
+		// travel time (seconds) from first stop of route
+		final int[] routeStopOffsets;
+		// sorted departures (seconds of day) from first stop, route without trips is frequency based
+		final int[] routeTripsStart;
+		final int[] tripDepartures;
+		final boolean[] frequencyRoutes;
+
+		// walking transfers between stops within walkChangeRadius
+		final int[] transfersStart;
+		final int[] transferStops;
+		final int[] transferTimes;
+		final float[] transferDists;
+
+		private TransportNetwork(TransportStop[] stops, TransportRoute[] routes, int[] routeStopsStart, int[] routeStops,
+				int[] routeStopOffsets, int[] routeTripsStart, int[] tripDepartures, boolean[] frequencyRoutes,
+				TransportRoutingConfiguration cfg) {
+			this.stops = stops;
+			this.routes = routes;
+			this.routeStopsStart = routeStopsStart;
+			this.routeStops = routeStops;
+			this.routeStopOffsets = routeStopOffsets;
+			this.routeTripsStart = routeTripsStart;
+			this.tripDepartures = tripDepartures;
+			this.frequencyRoutes = frequencyRoutes;
+			stopX = new int[stops.length];
+			stopY = new int[stops.length];
+			for (int i = 0; i < stops.length; i++) {
+				LatLon l = stops[i].getLocation();
+				stopX[i] = MapUtils.get31TileNumberX(l.getLongitude());
+				stopY[i] = MapUtils.get31TileNumberY(l.getLatitude());
+			}
+			int[] cnt = new int[stops.length + 1];
+			for (int s : routeStops) {
+				cnt[s + 1]++;
+			}
+			for (int i = 0; i < stops.length; i++) {
+				cnt[i + 1] += cnt[i];
+			}
+			stopRoutesStart = Arrays.copyOf(cnt, cnt.length);
+			stopRoutes = new int[routeStops.length];
+			stopRoutePos = new int[routeStops.length];
+			for (int r = 0; r < routes.length; r++) {
+				for (int pos = 0; pos < routeStopsStart[r + 1] - routeStopsStart[r]; pos++) {
+					int s = routeStops[routeStopsStart[r] + pos];
+					stopRoutes[cnt[s]] = r;
+					stopRoutePos[cnt[s]++] = pos;
+				}
+			}
+			TIntArrayList tStart = new TIntArrayList(), tStops = new TIntArrayList(), tTimes = new TIntArrayList();
+			List<Float> tDists = new ArrayList<>();
+			buildTransfers(cfg, tStart, tStops, tTimes, tDists);
+			transfersStart = tStart.toArray();
+			transferStops = tStops.toArray();
+			transferTimes = tTimes.toArray();
+			transferDists = new float[tDists.size()];
+			for (int i = 0; i < transferDists.length; i++) {
+				transferDists[i] = tDists.get(i);
+			}
+		}
+
+		private void buildTransfers(TransportRoutingConfiguration cfg, TIntArrayList start, TIntArrayList trStops,
+				TIntArrayList times, List<Float> dists) {
+			// tile width is smallest at max latitude, so cell is not smaller than radius for all stops
+			double maxLat = 0;
+			for (TransportStop s : stops) {
+				maxLat = Math.max(maxLat, Math.abs(s.getLocation().getLatitude()));
+			}
+			double width = MapUtils.getTileDistanceWidth(Math.min(maxLat, MAX_LATITUDE), 31);
+			int cell = Math.max(1, (int) (cfg.walkChangeRadius / width));
+			TLongObjectHashMap<TIntArrayList> grid = new TLongObjectHashMap<>();
+			for (int i = 0; i < stops.length; i++) {
+				long key = gridKey(stopX[i] / cell, stopY[i] / cell);
+				TIntArrayList l = grid.get(key);
+				if (l == null) {
+					l = new TIntArrayList();
+					grid.put(key, l);
+				}
+				l.add(i);
+			}
+			for (int i = 0; i < stops.length; i++) {
+				start.add(trStops.size());
+				int cx = stopX[i] / cell, cy = stopY[i] / cell;
+				for (int x = cx - 1; x <= cx + 1; x++) {
+					for (int y = cy - 1; y <= cy + 1; y++) {
+						TIntArrayList l = grid.get(gridKey(x, y));
+						for (int k = 0; l != null && k < l.size(); k++) {
+							int j = l.getQuick(k);
+							if (j == i) {
+								continue;
+							}
+							double d = MapUtils.getDistance(stops[i].getLocation(), stops[j].getLocation());
+							if (d <= cfg.walkChangeRadius) {
+								trStops.add(j);
+								times.add((int) Math.ceil(d / cfg.walkSpeed));
+								dists.add((float) d);
+							}
+						}
+					}
+				}
+			}
+			start.add(trStops.size());
+		}
+
+		private static long gridKey(int x, int y) {
+			return (((long) x) << 32) | (y & 0xffffffffL);
+		}
+
+		public static TransportNetwork build(Collection<TransportRoute> transportRoutes, TransportRoutingConfiguration cfg) {
+			TLongObjectHashMap<Integer> stopIndexes = new TLongObjectHashMap<>();
+			List<TransportStop> stops = new ArrayList<>();
+			List<TransportRoute> routes = new ArrayList<>();
+			TIntArrayList routeStopsStart = new TIntArrayList(), routeStops = new TIntArrayList(), offsets = new TIntArrayList();
+			TIntArrayList routeTripsStart = new TIntArrayList(), trips = new TIntArrayList();
+			List<Boolean> frequency = new ArrayList<>();
+			for (TransportRoute route : transportRoutes) {
+				List<TransportStop> routeStopsList = route.getForwardStops();
+				TransportSchedule schedule = route.getSchedule();
+				boolean scheduled = cfg.useSchedule && schedule != null && !schedule.tripIntervals.isEmpty();
+				if (routeStopsList.size() < 2 || (cfg.useSchedule && !scheduled)) {
+					continue;
+				}
+				float speed = 0;
+				if (!scheduled || schedule.avgStopIntervals.size() < routeStopsList.size() - 1) {
+					speed = cfg.getSpeedByRouteType(route.getType());
+					if (speed <= 0) {
+						continue;
+					}
+				}
+				routeStopsStart.add(routeStops.size());
+				routeTripsStart.add(trips.size());
+				routes.add(route);
+				frequency.add(!scheduled);
+				int offset = 0;
+				for (int pos = 0; pos < routeStopsList.size(); pos++) {
+					TransportStop st = routeStopsList.get(pos);
+					Integer ind = stopIndexes.get(st.getId());
+					if (ind == null) {
+						ind = stops.size();
+						stopIndexes.put(st.getId(), ind);
+						stops.add(st);
+					}
+					if (pos > 0) {
+						if (scheduled && schedule.avgStopIntervals.size() > pos - 1) {
+							offset += schedule.avgStopIntervals.getQuick(pos - 1) * 10;
+						} else {
+							double dist = MapUtils.getDistance(routeStopsList.get(pos - 1).getLocation(), st.getLocation());
+							offset += (int) (cfg.stopTime + dist / speed);
+						}
+					}
+					routeStops.add(ind);
+					offsets.add(offset);
+				}
+				if (scheduled) {
+					int t = 0;
+					int startTrip = trips.size();
+					for (int i = 0; i < schedule.tripIntervals.size(); i++) {
+						t += schedule.tripIntervals.getQuick(i);
+						trips.add(t * 10);
+					}
+					trips.sort(startTrip, trips.size());
+				}
+			}
+			routeStopsStart.add(routeStops.size());
+			routeTripsStart.add(trips.size());
+			boolean[] frequencyRoutes = new boolean[routes.size()];
+			for (int i = 0; i < frequencyRoutes.length; i++) {
+				frequencyRoutes[i] = frequency.get(i);
+			}
+			return new TransportNetwork(stops.toArray(new TransportStop[0]), routes.toArray(new TransportRoute[0]),
+					routeStopsStart.toArray(), routeStops.toArray(), offsets.toArray(), routeTripsStart.toArray(),
+					trips.toArray(), frequencyRoutes, cfg);
+		}
+
+		public int getStopsCount() {
+			return stops.length;
+		}
+
+		public int getRoutesCount() {
+			return routes.length;
+		}
+
+		// departure of first trip from first stop of route not earlier than time
+		int earliestTrip(int route, int time) {
+			int lo = routeTripsStart[route], hi = routeTripsStart[route + 1];
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (tripDepartures[mid] < time) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo < routeTripsStart[route + 1] ? tripDepartures[lo] : INF;
+		}
+
+		// stops within radius (meters) with distances
+		void findStops(LatLon loc, double radius, TIntArrayList res, List<Double> dists) {
+			int x = MapUtils.get31TileNumberX(loc.getLongitude());
+			int y = MapUtils.get31TileNumberY(loc.getLatitude());
+			int d = (int) (radius / MapUtils.getTileDistanceWidth(Math.min(Math.abs(loc.getLatitude()), MAX_LATITUDE), 31)) + 1;
+			for (int i = 0; i < stops.length; i++) {
+				if (Math.abs(stopX[i] - x) > d || Math.abs(stopY[i] - y) > d) {
+					continue;
+				}
+				double dist = MapUtils.getDistance(loc, stops[i].getLocation());
+				if (dist <= radius) {
+					res.add(i);
+					dists.add(dist);
+				}
+			}
+		}
+	}
+
+	// routes with stops around start and end (area is extended by quarter of distance)
+	public TransportNetwork loadNetwork(TransportRoutingContext ctx, LatLon start, LatLon end) throws IOException {
+		long time = System.nanoTime();
+		double margin = Math.max(ctx.cfg.walkRadius, MapUtils.getDistance(start, end) / 4);
+		double lat = Math.max(Math.abs(start.getLatitude()), Math.abs(end.getLatitude()));
+		int d = (int) (margin / MapUtils.getTileDistanceWidth(Math.min(lat, MAX_LATITUDE), 31));
+		int sx = MapUtils.get31TileNumberX(start.getLongitude()), sy = MapUtils.get31TileNumberY(start.getLatitude());
+		int ex = MapUtils.get31TileNumberX(end.getLongitude()), ey = MapUtils.get31TileNumberY(end.getLatitude());
+		TLongObjectHashMap<TransportRoute> routes = new TLongObjectHashMap<>();
+		for (TransportStop s : ctx.loadTransportStops(Math.min(sx, ex) - d, Math.min(sy, ey) - d,
+				Math.max(sx, ex) + d, Math.max(sy, ey) + d)) {
+			if (s.isDeleted() || s.getRoutes() == null) {
+				continue;
+			}
+			for (TransportRoute r : s.getRoutes()) {
+				routes.put(r.getId(), r);
+			}
+		}
+		ctx.readTime += System.nanoTime() - time;
+		return TransportNetwork.build(routes.valueCollection(), ctx.cfg);
+	}
+
+	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, LatLon start, LatLon end)
+			throws IOException, InterruptedException {
+		ctx.startCalcTime = System.currentTimeMillis();
+		TransportNetwork network = loadNetwork(ctx, start, end);
+		return buildRoute(ctx.cfg, network, start, end, ctx.calculationProgress);
+	}
+
+	public List<TransportRouteResult> buildRoute(TransportRoutingConfiguration cfg, TransportNetwork network,
+			LatLon start, LatLon end, RouteCalculationProgress progress) throws InterruptedException {
+		long time = System.nanoTime();
+		RaptorSearch search = new RaptorSearch(cfg, network);
+		List<TransportRouteResult> results = search.search(start, end, progress);
+		if (PRINT_STATS) {
+			System.out.printf("RAPTOR %d stops, %d routes: %d results, %d routes scanned, %.2f ms\n",
+					network.getStopsCount(), network.getRoutesCount(), results.size(), search.scannedRoutes,
+					(System.nanoTime() - time) / 1e6);
+		}
+		return results;
+	}
+
+	private static class RaptorSearch {
+		final TransportRoutingConfiguration cfg;
+		final TransportNetwork net;
+		final int rounds;
+		// per round: arrival time, label (route index or LABEL_NONE if not reached by route in round)
+		final int[][] arrival;
+		final int[][] label;
+		// route label: position of boarding and alighting, departure of trip from first stop
+		final int[][] labelBoardPos;
+		final int[][] labelAlightPos;
+		final int[][] labelTrip;
+		// walk label: transfer index or -1 (route label is kept as it could be source of other transfers)
+		final int[][] walkTransfer;
+		final int[] best;
+		// transfers found in round are applied after all stops are scanned, so walks don't chain
+		final int[] walkArrival;
+		final int[] walkArrivalTransfer;
+		final TIntArrayList walkStops = new TIntArrayList();
+		int scannedRoutes;
+
+		RaptorSearch(TransportRoutingConfiguration cfg, TransportNetwork net) {
+			this.cfg = cfg;
+			this.net = net;
+			this.rounds = cfg.maxNumberOfChanges + 1;
+			int n = net.getStopsCount();
+			arrival = new int[rounds + 1][n];
+			label = new int[rounds + 1][n];
+			labelBoardPos = new int[rounds + 1][n];
+			labelAlightPos = new int[rounds + 1][n];
+			labelTrip = new int[rounds + 1][n];
+			walkTransfer = new int[rounds + 1][n];
+			best = new int[n];
+			walkArrival = new int[n];
+			walkArrivalTransfer = new int[n];
+			for (int k = 0; k <= rounds; k++) {
+				Arrays.fill(arrival[k], INF);
+				Arrays.fill(label[k], LABEL_NONE);
+				Arrays.fill(walkTransfer[k], -1);
+			}
+			Arrays.fill(best, INF);
+			Arrays.fill(walkArrival, INF);
+		}
+
+		List<TransportRouteResult> search(LatLon start, LatLon end, RouteCalculationProgress progress) throws InterruptedException {
+			int startTime = cfg.useSchedule ? cfg.scheduleTimeOfDay * 10 : 0;
+			int maxTime = startTime + cfg.maxRouteTime;
+			TIntArrayList access = new TIntArrayList(), egress = new TIntArrayList();
+			List<Double> accessDist = new ArrayList<>(), egressDist = new ArrayList<>();
+			net.findStops(start, cfg.walkRadius, access, accessDist);
+			net.findStops(end, cfg.walkRadius, egress, egressDist);
+			List<TransportRouteResult> results = new ArrayList<>();
+			if (access.isEmpty() || egress.isEmpty()) {
+				return results;
+			}
+			boolean[] marked = new boolean[net.getStopsCount()];
+			TIntArrayList markedStops = new TIntArrayList();
+			for (int i = 0; i < access.size(); i++) {
+				int s = access.get(i);
+				int t = startTime + (int) (accessDist.get(i) / cfg.walkSpeed);
+				if (t < arrival[0][s]) {
+					arrival[0][s] = t;
+					best[s] = t;
+					if (!marked[s]) {
+						marked[s] = true;
+						markedStops.add(s);
+					}
+				}
+			}
+			int bestTarget = maxTime;
+			int[] routeStartPos = new int[net.getRoutesCount()];
+			Arrays.fill(routeStartPos, -1);
+			TIntArrayList queuedRoutes = new TIntArrayList();
+			for (int k = 1; k <= rounds && !markedStops.isEmpty(); k++) {
+				if (progress != null && progress.isCancelled) {
+					throw new InterruptedException("Route calculation interrupted");
+				}
+				System.arraycopy(arrival[k - 1], 0, arrival[k], 0, arrival[k].length);
+				for (int i = 0; i < markedStops.size(); i++) {
+					int s = markedStops.getQuick(i);
+					marked[s] = false;
+					for (int j = net.stopRoutesStart[s]; j < net.stopRoutesStart[s + 1]; j++) {
+						int r = net.stopRoutes[j];
+						int pos = net.stopRoutePos[j];
+						if (routeStartPos[r] == -1) {
+							queuedRoutes.add(r);
+							routeStartPos[r] = pos;
+						} else if (pos < routeStartPos[r]) {
+							routeStartPos[r] = pos;
+						}
+					}
+				}
+				markedStops.clear();
+				int penalty = k > 1 ? cfg.getChangeTime() + cfg.getBoardingTime() : 0;
+				for (int i = 0; i < queuedRoutes.size(); i++) {
+					int r = queuedRoutes.getQuick(i);
+					scanRoute(k, r, routeStartPos[r], penalty, bestTarget, marked, markedStops);
+					routeStartPos[r] = -1;
+				}
+				queuedRoutes.clear();
+				scanTransfers(k, bestTarget, marked, markedStops);
+				int target = INF, targetInd = -1;
+				for (int i = 0; i < egress.size(); i++) {
+					int s = egress.get(i);
+					if ((label[k][s] != LABEL_NONE || walkTransfer[k][s] >= 0) && arrival[k][s] != INF) {
+						int t = arrival[k][s] + (int) (egressDist.get(i) / cfg.walkSpeed);
+						if (t < target) {
+							target = t;
+							targetInd = i;
+						}
+					}
+				}
+				if (targetInd >= 0 && target < bestTarget) {
+					bestTarget = target;
+					results.add(buildResult(k, egress.get(targetInd), target - startTime, start, egressDist.get(targetInd)));
+				}
+			}
+			Collections.sort(results, new Comparator<TransportRouteResult>() {
+				@Override
+				public int compare(TransportRouteResult o1, TransportRouteResult o2) {
+					return Double.compare(o1.getRouteTime(), o2.getRouteTime());
+				}
+			});
+			return results;
+		}
+
+		private void scanRoute(int k, int r, int startPos, int penalty, int bestTarget, boolean[] marked,
+				TIntArrayList markedStops) {
+			scannedRoutes++;
+			int from = net.routeStopsStart[r], to = net.routeStopsStart[r + 1];
+			int trip = INF, boardPos = -1;
+			for (int pos = startPos; pos < to - from; pos++) {
+				int s = net.routeStops[from + pos];
+				int offset = net.routeStopOffsets[from + pos];
+				if (trip != INF) {
+					int arr = trip + offset;
+					if (arr < best[s] && arr < bestTarget) {
+						arrival[k][s] = arr;
+						best[s] = arr;
+						label[k][s] = r;
+						labelBoardPos[k][s] = boardPos;
+						labelAlightPos[k][s] = pos;
+						labelTrip[k][s] = trip;
+						if (!marked[s]) {
+							marked[s] = true;
+							markedStops.add(s);
+						}
+					}
+				}
+				int prev = arrival[k - 1][s];
+				if (prev != INF && (trip == INF || prev + penalty < trip + offset)) {
+					int ready = prev + penalty - offset;
+					int t = net.frequencyRoutes[r] ? ready : net.earliestTrip(r, ready);
+					if (t < trip) {
+						trip = t;
+						boardPos = pos;
+					}
+				}
+			}
+		}
+
+		// walking is done only from stops reached by route in this round
+		private void scanTransfers(int k, int bestTarget, boolean[] marked, TIntArrayList markedStops) {
+			int size = markedStops.size();
+			for (int i = 0; i < size; i++) {
+				int s = markedStops.getQuick(i);
+				if (label[k][s] < 0) {
+					continue;
+				}
+				int arr = arrival[k][s];
+				for (int j = net.transfersStart[s]; j < net.transfersStart[s + 1]; j++) {
+					int n = net.transferStops[j];
+					int t = arr + net.transferTimes[j];
+					if (t < best[n] && t < bestTarget && t < walkArrival[n]) {
+						if (walkArrival[n] == INF) {
+							walkStops.add(n);
+						}
+						walkArrival[n] = t;
+						walkArrivalTransfer[n] = j;
+					}
+				}
+			}
+			for (int i = 0; i < walkStops.size(); i++) {
+				int n = walkStops.getQuick(i);
+				arrival[k][n] = walkArrival[n];
+				best[n] = walkArrival[n];
+				walkTransfer[k][n] = walkArrivalTransfer[n];
+				walkArrival[n] = INF;
+				if (!marked[n]) {
+					marked[n] = true;
+					markedStops.add(n);
+				}
+			}
+			walkStops.clear();
+		}
+
+		private TransportRouteResult buildResult(int k, int stop, int routeTime, LatLon start, double finishWalkDist) {
+			TransportRouteResult res = new TransportRouteResult(cfg);
+			res.routeTime = routeTime;
+			res.finishWalkDist = finishWalkDist;
+			TransportRouteResultSegment next = null;
+			int s = stop;
+			double walk = 0;
+			boolean afterWalk = false;
+			while (k > 0) {
+				int l = label[k][s];
+				if (!afterWalk && walkTransfer[k][s] >= 0) {
+					// source of transfer is reached by route in the same round
+					int tr = walkTransfer[k][s];
+					walk += net.transferDists[tr];
+					s = findTransferSource(tr);
+					afterWalk = true;
+				} else if (l == LABEL_NONE) {
+					afterWalk = false;
+					k--;
+				} else {
+					afterWalk = false;
+					if (next != null) {
+						next.walkDist = walk;
+						next.walkTime = walk / cfg.walkSpeed;
+					}
+					walk = 0;
+					TransportRouteResultSegment sg = new TransportRouteResultSegment();
+					int from = net.routeStopsStart[l];
+					int boardPos = labelBoardPos[k][s], alightPos = labelAlightPos[k][s];
+					int trip = labelTrip[k][s];
+					sg.route = net.routes[l];
+					sg.start = boardPos;
+					sg.end = alightPos;
+					int dep = trip + net.routeStopOffsets[from + boardPos];
+					sg.depTime = net.frequencyRoutes[l] ? -1 : dep / 10;
+					sg.travelTime = net.routeStopOffsets[from + alightPos] - net.routeStopOffsets[from + boardPos];
+					sg.travelDistApproximate = sg.getTravelDist();
+					res.segments.add(0, sg);
+					next = sg;
+					s = net.routeStops[from + boardPos];
+					k--;
+				}
+			}
+			if (next != null) {
+				next.walkDist = MapUtils.getDistance(start, net.stops[s].getLocation());
+				next.walkTime = next.walkDist / cfg.walkSpeed;
+			}
+			return res;
+		}
+
+		private int findTransferSource(int transfer) {
+			// transfers are sorted by source stop
+			int lo = 0, hi = net.getStopsCount();
+			while (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				if (net.transfersStart[mid] <= transfer) {
+					lo = mid;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+}
@@ -390,6 +390,7 @@ public class TransportRoutePlanner {
 			double dist = MIN_DIST_STOP_TO_GEOMETRY;
 		}
 
+		// doesn't modify route if its ways are already merged (routes of TransportNetworkSnapshot)
 		public List<Way> getGeometry() {
 			route.mergeForwardWays();
 			if (DISPLAY_FULL_SEGMENT_ROUTE) {
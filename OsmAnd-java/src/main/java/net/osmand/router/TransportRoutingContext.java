@@ -34,6 +34,8 @@ public class TransportRoutingContext {
 	// Incomplete routes usually don't need more files than around Max-BBOX of start/end,
 	// so here an improvement could be introduced
 	final TransportStopsRouteReader transportStopsReader;
+	// shared preloaded network, readers are not used if it is set
+	final TransportNetworkSnapshot snapshot;
 	public int finishTimeSeconds;
 
 	// stats
@@ -49,12 +51,22 @@ public class TransportRoutingContext {
 	private final int walkChangeRadiusIn31;
 
 	public TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library, BinaryMapIndexReader... readers) {
+		this(cfg, library, new TransportStopsRouteReader(Arrays.asList(readers)), null);
+	}
+
+	public TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library, TransportNetworkSnapshot snapshot) {
+		this(cfg, library, null, snapshot);
+	}
+
+	private TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library,
+			TransportStopsRouteReader transportStopsReader, TransportNetworkSnapshot snapshot) {
 		this.cfg = cfg;
 		walkRadiusIn31 = (int) (cfg.walkRadius / MapUtils.getTileDistanceWidth(31));
 		walkChangeRadiusIn31 = (int) (cfg.walkChangeRadius / MapUtils.getTileDistanceWidth(31));
 		quadTree = new TLongObjectHashMap<List<TransportRouteSegment>>();
 		this.library = library;
-		transportStopsReader = new TransportStopsRouteReader(Arrays.asList(readers));
+		this.transportStopsReader = transportStopsReader;
+		this.snapshot = snapshot;
 	}
 
 	public List<TransportRouteSegment> getTransportStops(LatLon loc) throws IOException {
@@ -102,14 +114,21 @@ public class TransportRoutingContext {
 		long nanoTime = System.nanoTime();
 		List<TransportRouteSegment> lst = new ArrayList<TransportRouteSegment>();
 		int pz = (31 - cfg.ZOOM_TO_LOAD_TILES);
-		BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(x << pz, (x + 1) << pz,
-				y << pz, (y + 1) << pz, -1, null);
-		Collection<TransportStop> stops = transportStopsReader.readMergedTransportStops(sr);
+		Collection<TransportStop> stops = loadTransportStops(x << pz, y << pz, (x + 1) << pz, (y + 1) << pz);
 		loadTransportSegments(stops, lst);
 		readTime += System.nanoTime() - nanoTime;
 		return lst;
 	}
 
+	public Collection<TransportStop> loadTransportStops(int left31, int top31, int right31, int bottom31) throws IOException {
+		if (snapshot != null) {
+			return snapshot.getTransportStops(left31, top31, right31, bottom31, new ArrayList<TransportStop>());
+		}
+		BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(left31, right31,
+				top31, bottom31, -1, null);
+		return transportStopsReader.readMergedTransportStops(sr);
+	}
+
 	private void loadTransportSegments(Collection<TransportStop> stops, List<TransportRouteSegment> lst) throws IOException {
 		for(TransportStop s : stops) {
 			if (s.isDeleted() || s.getRoutes() == null) {
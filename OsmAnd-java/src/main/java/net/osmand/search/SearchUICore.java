@@ -9,6 +9,7 @@ import net.osmand.CallbackWithObject;
 import net.osmand.Collator;
 import net.osmand.PlatformUtil;
 import net.osmand.ResultMatcher;
+import net.osmand.binary.AddressNameIndex;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.ObfConstants;
 import net.osmand.data.Amenity;
@@ -23,6 +24,7 @@ import net.osmand.search.core.CustomSearchPoiFilter;
 import net.osmand.search.core.ObjectType;
 import net.osmand.search.core.SearchCoreAPI;
 import net.osmand.search.core.SearchCoreFactory;
+import net.osmand.search.core.SearchCoreFactory.SearchAddressByNameAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchAmenityByNameAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchAmenityByTypeAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchAmenityTypesAPI;
@@ -56,6 +58,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -72,6 +76,7 @@ public class SearchUICore {
 	private SearchResultCollection currentSearchResult;
 
 	private ThreadPoolExecutor singleThreadedExecutor;
+	private volatile ExecutorService parallelFilesExecutor;
 	private LinkedBlockingQueue<Runnable> taskQueue;
 	private Runnable onSearchStart = null;
 	private Runnable onResultsComplete = null;
@@ -97,6 +102,30 @@ public class SearchUICore {
 		singleThreadedExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, taskQueue);
 	}
 
+	/**
+	 * Offline files are read by number of threads (files are searched one by one if threads <= 1).
+	 * Results are published in the same order as in sequential search.
+	 * Previous threads are stopped after running search is finished.
+	 */
+	public void setParallelSearchThreads(int threads) {
+		shutdownParallelSearch();
+		if (threads > 1) {
+			parallelFilesExecutor = Executors.newFixedThreadPool(threads, r -> {
+				Thread t = new Thread(r, "SearchFiles");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	// files are searched one by one after shutdown
+	public void shutdownParallelSearch() {
+		if (parallelFilesExecutor != null) {
+			parallelFilesExecutor.shutdown();
+			parallelFilesExecutor = null;
+		}
+	}
+
 	public static void setDebugMode(boolean debugMode) {
 		SearchUICore.debugMode = debugMode;
 	}
@@ -539,6 +568,17 @@ public class SearchUICore {
 		}
 	}
 
+	/**
+	 * Address search by name uses in memory index for indexed files (index should be built for loaded files)
+	 */
+	public void setAddressNameIndex(AddressNameIndex nameIndex) {
+		for (SearchCoreAPI capi : apis) {
+			if (capi instanceof SearchAddressByNameAPI) {
+				((SearchAddressByNameAPI) capi).setNameIndex(nameIndex);
+			}
+		}
+	}
+
 	public void registerAPI(SearchCoreAPI api) {
 		apis.add(api);
 	}
@@ -801,6 +841,7 @@ public class SearchUICore {
 
 	void searchInternal(final SearchPhrase phrase, SearchResultMatcher matcher) {
 		preparePhrase(phrase);
+		matcher.setFilesExecutor(parallelFilesExecutor);
 		ArrayList<SearchCoreAPI> lst = new ArrayList<>(apis);
 		Collections.sort(lst, new Comparator<SearchCoreAPI>() {
 
@@ -862,6 +903,7 @@ public class SearchUICore {
 		private SearchPhrase phrase;
 		private List<MapObject> exportedObjects;
 		private List<City> exportedCities;
+		private ExecutorService filesExecutor;
 
 		public SearchResultMatcher(ResultMatcher<SearchResult> matcher, SearchPhrase phrase, int request,
 								   AtomicInteger requestNumber, int totalLimit) {
@@ -882,6 +924,15 @@ public class SearchUICore {
 			return parentSearchResult;
 		}
 
+		public void setFilesExecutor(ExecutorService filesExecutor) {
+			this.filesExecutor = filesExecutor;
+		}
+
+		// null if files should be searched sequentially
+		public ExecutorService getFilesExecutor() {
+			return filesExecutor;
+		}
+
 		public List<SearchResult> getRequestResults() {
 			return requestResults;
 		}
@@ -998,7 +1049,7 @@ public class SearchUICore {
 			return exportedCities;
 		}
 
-		public void exportObject(SearchPhrase phrase, MapObject object) {
+		public synchronized void exportObject(SearchPhrase phrase, MapObject object) {
 			double maxDistance = phrase.getSettings().getExportSettings().getMaxDistance();
 			if (maxDistance > 0) {
 				double distance = MapUtils.getDistance(phrase.getSettings().getOriginalLocation(), object.getLocation());
@@ -1012,7 +1063,7 @@ public class SearchUICore {
 			exportedObjects.add(object);
 		}
 
-		public void exportCity(SearchPhrase phrase, City city) {
+		public synchronized void exportCity(SearchPhrase phrase, City city) {
 			double maxDistance = phrase.getSettings().getExportSettings().getMaxDistance();
 			if (maxDistance > 0) {
 				double distance = MapUtils.getDistance(phrase.getSettings().getOriginalLocation(), city.getLocation());
@@ -11,11 +11,13 @@ import static net.osmand.osm.MapPoiTypes.WIKI_PLACE;
 import static net.osmand.search.core.ObjectType.POI;
 import static net.osmand.util.LocationParser.parseOpenLocationCode;
 
+import gnu.trove.list.array.TIntArrayList;
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
 import net.osmand.OsmAndCollator;
 import net.osmand.ResultMatcher;
+import net.osmand.binary.AddressNameIndex;
 import net.osmand.binary.BinaryMapAddressReaderAdapter;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.SearchPoiAdditionalFilter;
@@ -46,6 +48,14 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class SearchCoreFactory {
@@ -100,6 +110,18 @@ public class SearchCoreFactory {
 	public static final int SEARCH_OLC_WITH_CITY_PRIORITY = 8;
 	public static final int SEARCH_OLC_WITH_CITY_TOTAL_LIMIT = 500;
 
+	/**
+	 * Search of one offline file split into reading (could run on worker thread) and publishing of results.
+	 */
+	public interface FileSearch<T> {
+
+		// shouldn't publish results or modify state shared between files
+		T read(BinaryMapIndexReader r) throws IOException;
+
+		// called on search thread in order of files
+		void publish(BinaryMapIndexReader r, T res) throws IOException;
+	}
+
 	public static abstract class SearchBaseAPI implements SearchCoreAPI {
 
 		private ObjectType[] searchTypes;
@@ -234,6 +256,81 @@ public class SearchCoreFactory {
 			return null;
 		}
 
+		/**
+		 * Reads files in parallel with files executor of result matcher (or one by one if it is not set).
+		 * Results of each file are published in order of files as soon as previous files are published.
+		 */
+		protected <T> void searchFiles(SearchPhrase phrase, SearchResultMatcher resultMatcher,
+				Iterator<BinaryMapIndexReader> files, FileSearch<T> fileSearch) throws IOException {
+			ExecutorService executor = resultMatcher.getFilesExecutor();
+			if (executor == null) {
+				while (files.hasNext()) {
+					BinaryMapIndexReader r = files.next();
+					fileSearch.publish(r, fileSearch.read(r));
+					resultMatcher.apiSearchRegionFinished(this, r, phrase);
+				}
+				return;
+			}
+			List<BinaryMapIndexReader> readers = new ArrayList<>();
+			List<Future<T>> futures = new ArrayList<>();
+			final AtomicBoolean stopped = new AtomicBoolean();
+			while (files.hasNext()) {
+				BinaryMapIndexReader r = files.next();
+				readers.add(r);
+				Callable<T> read = () -> stopped.get() ? null : fileSearch.read(r);
+				Future<T> f;
+				try {
+					f = executor.submit(read);
+				} catch (RejectedExecutionException e) {
+					// executor was shut down during search
+					FutureTask<T> task = new FutureTask<>(read);
+					task.run();
+					f = task;
+				}
+				futures.add(f);
+			}
+			try {
+				for (int i = 0; i < futures.size(); i++) {
+					BinaryMapIndexReader r = readers.get(i);
+					fileSearch.publish(r, futures.get(i).get());
+					resultMatcher.apiSearchRegionFinished(this, r, phrase);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				} else if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			} finally {
+				// readers are not thread safe, so running reads should be finished before files are used again
+				stopped.set(true);
+				awaitFinished(futures);
+			}
+		}
+
+		private static void awaitFinished(List<? extends Future<?>> futures) {
+			boolean interrupted = false;
+			for (Future<?> f : futures) {
+				while (true) {
+					try {
+						f.get();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					} catch (ExecutionException | CancellationException e) {
+						break;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
 		@Override
 		public String toString() {
 			return getClass().getSimpleName();
@@ -293,6 +390,7 @@ public class SearchCoreFactory {
 		private List<City> resArray = new ArrayList<>();
 		private SearchStreetByCityAPI cityApi;
 		private SearchBuildingAndIntersectionsByStreetAPI streetsApi;
+		private AddressNameIndex nameIndex;
 
 		public SearchAddressByNameAPI(SearchBuildingAndIntersectionsByStreetAPI streetsApi,
 									  SearchStreetByCityAPI cityApi) {
@@ -302,6 +400,11 @@ public class SearchCoreFactory {
 			this.cityApi = cityApi;
 		}
 
+		// in memory index is used instead of name tables of indexed files
+		public void setNameIndex(AddressNameIndex nameIndex) {
+			this.nameIndex = nameIndex;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (!p.isNoSelectedType() && p.getRadiusLevel() == 1) {
@@ -416,108 +519,12 @@ public class SearchCoreFactory {
 					phrase.hasMoreThanOneUnknownSearchWord()|| phrase.isSearchTypeAllowed(ObjectType.POSTCODE, true)) {
 				final boolean locSpecified = phrase.getLastTokenLocation() != null;
 				LatLon loc = phrase.getLastTokenLocation();
-				final List<SearchResult> immediateResults = new ArrayList<>();
 				final QuadRect streetBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS);
 				final QuadRect postcodeBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5);
 				final QuadRect villagesBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 3);
 				final QuadRect cityBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5); // covered by separate search before
 				final int priority = phrase.isNoSelectedType() ?
 						SEARCH_ADDRESS_BY_NAME_PRIORITY : SEARCH_ADDRESS_BY_NAME_PRIORITY_RADIUS2;
-				final BinaryMapIndexReader[] currentFile = new BinaryMapIndexReader[1];
-
-				ResultMatcher<MapObject> rm = new ResultMatcher<MapObject>() {
-					int limit = 0;
-					@Override
-					public boolean publish(MapObject object) {
-						if (isCancelled()) {
-							return false;
-						}
-						SearchResult sr = new SearchResult(phrase);
-						sr.object = object;
-						sr.file = currentFile[0];
-						sr.localeName = object.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
-						sr.otherNames = object.getOtherNames(true);
-						sr.localeRelatedObjectName = sr.file.getRegionName();
-						sr.relatedObject = sr.file;
-						sr.location = object.getLocation();
-						sr.priorityDistance = 1;
-						sr.priority = priority;
-						int y = MapUtils.get31TileNumberY(object.getLocation().getLatitude());
-						int x = MapUtils.get31TileNumberX(object.getLocation().getLongitude());
-						List<City> closestCities = null;
-						if (object instanceof Street) {
-							// remove limitation by location
-							if (  //(locSpecified && !streetBbox.contains(x, y, x, y)) || 
-								!phrase.isSearchTypeAllowed(ObjectType.STREET)) {
-								return false;
-							}
-							if (object.getName().startsWith("<")) {
-								return false;
-							}
-							sr.objectType = ObjectType.STREET;
-							sr.localeRelatedObjectName = ((Street)object).getCity().getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
-							sr.relatedObject = ((Street)object).getCity();
-						} else if (object instanceof City) {
-							CityType type = ((City)object).getType();
-							if (type == CityType.CITY || type == CityType.TOWN) {
-								if (phrase.isNoSelectedType()) {
-									// ignore city/town
-									return false;
-								}
-								if ((locSpecified && !cityBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.CITY)) {
-									return false;
-								}
-								sr.objectType = ObjectType.CITY;
-								sr.priorityDistance = 0.1;
-							} else if (((City)object).isPostcode()) {
-								if ((locSpecified && !postcodeBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.POSTCODE)) {
-									return false;
-								}
-								sr.objectType = ObjectType.POSTCODE;
-								sr.priorityDistance = 0;
-							} else {
-								if ((locSpecified && !villagesBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.VILLAGE)) {
-									return false;
-								}
-								City c = null;
-								if (closestCities == null) {
-									closestCities = townCitiesQR.queryInBox(villagesBbox, new ArrayList<City>());
-								}
-								double minDist = -1;
-								double pDist = -1;
-								for (City s : closestCities) {
-									double ll = MapUtils.getDistance(s.getLocation(), object.getLocation());
-									double pd = s.getType() == CityType.CITY ? ll : ll * 10;
-									if(minDist == -1 || pd < pDist) {
-										c = s;
-										minDist = ll;
-										pDist = pd ;
-									}
-								}
-								if (c != null) {
-									sr.localeRelatedObjectName = c.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
-									sr.relatedObject = c;
-									sr.distRelatedObjectName = minDist;
-								}
-								sr.objectType = ObjectType.VILLAGE;
-							}
-						} else {
-							return false;
-						}
-						limit ++;
-						immediateResults.add(sr);
-						return false;
-					}
-
-					@Override
-					public boolean isCancelled() {
-						return limit > LIMIT * phrase.getRadiusLevel() ||
-								resultMatcher.isCancelled();
-					}
-				};
 
 				ResultMatcher<MapObject> rawDataCollector = null;
 				if (phrase.getSettings().isExportObjects()) {
@@ -542,34 +549,156 @@ public class SearchCoreFactory {
 					String normalized = ArabicNormalizer.normalize(wordToSearch);
 					wordToSearch = normalized == null ? wordToSearch : normalized;
 				}
-				while (offlineIterator.hasNext() && wordToSearch.length() > 0) {
-					BinaryMapIndexReader r = offlineIterator.next();
-					currentFile[0] = r;
-					immediateResults.clear();
-					SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(rm, rawDataCollector, wordToSearch.toLowerCase(),
-							phrase.isMainUnknownSearchWordComplete() ? StringMatcherMode.CHECK_EQUALS_FROM_SPACE
-									: StringMatcherMode.CHECK_STARTS_FROM_SPACE);
-					if (locSpecified) {
-						req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
-								phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
-					}
-					r.searchAddressDataByName(req);
-					for (SearchResult res : immediateResults) {
-						if (res.objectType == ObjectType.STREET) {
-							subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
+				if (wordToSearch.length() == 0) {
+					return;
+				}
+				final String word = wordToSearch.toLowerCase();
+				final ResultMatcher<MapObject> rawData = rawDataCollector;
+				final AddressNameIndex.Lookup lookup = nameIndex == null ? null : nameIndex.search(word);
+				final int maxResults = LIMIT * phrase.getRadiusLevel();
+				searchFiles(phrase, resultMatcher, offlineIterator, new FileSearch<List<SearchResult>>() {
+					// limit is applied to each file while reading and to all files in order of publishing
+					int published = 0;
+
+					@Override
+					public List<SearchResult> read(final BinaryMapIndexReader r) throws IOException {
+						final List<SearchResult> immediateResults = new ArrayList<>();
+						ResultMatcher<MapObject> rm = new ResultMatcher<MapObject>() {
+							@Override
+							public boolean publish(MapObject object) {
+								if (isCancelled()) {
+									return false;
+								}
+								SearchResult sr = new SearchResult(phrase);
+								sr.object = object;
+								sr.file = r;
+								sr.localeName = object.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
+								sr.otherNames = object.getOtherNames(true);
+								sr.localeRelatedObjectName = sr.file.getRegionName();
+								sr.relatedObject = sr.file;
+								sr.location = object.getLocation();
+								sr.priorityDistance = 1;
+								sr.priority = priority;
+								int y = MapUtils.get31TileNumberY(object.getLocation().getLatitude());
+								int x = MapUtils.get31TileNumberX(object.getLocation().getLongitude());
+								List<City> closestCities = null;
+								if (object instanceof Street) {
+									// remove limitation by location
+									if (  //(locSpecified && !streetBbox.contains(x, y, x, y)) || 
+										!phrase.isSearchTypeAllowed(ObjectType.STREET)) {
+										return false;
+									}
+									if (object.getName().startsWith("<")) {
+										return false;
+									}
+									sr.objectType = ObjectType.STREET;
+									sr.localeRelatedObjectName = ((Street)object).getCity().getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
+									sr.relatedObject = ((Street)object).getCity();
+								} else if (object instanceof City) {
+									CityType type = ((City)object).getType();
+									if (type == CityType.CITY || type == CityType.TOWN) {
+										if (phrase.isNoSelectedType()) {
+											// ignore city/town
+											return false;
+										}
+										if ((locSpecified && !cityBbox.contains(x, y, x, y))
+												|| !phrase.isSearchTypeAllowed(ObjectType.CITY)) {
+											return false;
+										}
+										sr.objectType = ObjectType.CITY;
+										sr.priorityDistance = 0.1;
+									} else if (((City)object).isPostcode()) {
+										if ((locSpecified && !postcodeBbox.contains(x, y, x, y))
+												|| !phrase.isSearchTypeAllowed(ObjectType.POSTCODE)) {
+											return false;
+										}
+										sr.objectType = ObjectType.POSTCODE;
+										sr.priorityDistance = 0;
+									} else {
+										if ((locSpecified && !villagesBbox.contains(x, y, x, y))
+												|| !phrase.isSearchTypeAllowed(ObjectType.VILLAGE)) {
+											return false;
+										}
+										City c = null;
+										if (closestCities == null) {
+											closestCities = townCitiesQR.queryInBox(villagesBbox, new ArrayList<City>());
+										}
+										double minDist = -1;
+										double pDist = -1;
+										for (City s : closestCities) {
+											double ll = MapUtils.getDistance(s.getLocation(), object.getLocation());
+											double pd = s.getType() == CityType.CITY ? ll : ll * 10;
+											if(minDist == -1 || pd < pDist) {
+												c = s;
+												minDist = ll;
+												pDist = pd ;
+											}
+										}
+										if (c != null) {
+											sr.localeRelatedObjectName = c.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
+											sr.relatedObject = c;
+											sr.distRelatedObjectName = minDist;
+										}
+										sr.objectType = ObjectType.VILLAGE;
+									}
+								} else {
+									return false;
+								}
+								immediateResults.add(sr);
+								return false;
+							}
+
+							@Override
+							public boolean isCancelled() {
+								return immediateResults.size() > maxResults || resultMatcher.isCancelled();
+							}
+						};
+						SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(rm, rawData, word,
+								phrase.isMainUnknownSearchWordComplete() ? StringMatcherMode.CHECK_EQUALS_FROM_SPACE
+										: StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+						if (locSpecified) {
+							req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
+									phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
+						}
+						if (lookup != null && lookup.isIndexed(r)) {
+							if (lookup.hasResults(r)) {
+								r.searchAddressDataByIndex(req, lookup);
+							}
 						} else {
-							SearchPhrase nphrase = subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
-							searchPoiInCity(nphrase, res, resultMatcher);
+							r.searchAddressDataByName(req);
 						}
+						return immediateResults;
 					}
-					resultMatcher.apiSearchRegionFinished(this, r, phrase);
-				}
+
+					@Override
+					public void publish(BinaryMapIndexReader r, List<SearchResult> immediateResults) throws IOException {
+						for (SearchResult res : immediateResults) {
+							if (published++ > maxResults) {
+								break;
+							}
+							if (res.objectType == ObjectType.STREET) {
+								subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
+							} else {
+								SearchPhrase nphrase = subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
+								searchPoiInCity(nphrase, res, resultMatcher);
+							}
+						}
+					}
+				});
 			}
 		}
 	}
 
 	public static class SearchAmenityByNameAPI extends SearchBaseAPI {
 		private static final int LIMIT = 10000;
+
+		// results of one file with indexes of read objects they were created from
+		private static class FileResults {
+			final List<SearchResult> results = new ArrayList<>();
+			final TIntArrayList indexes = new TIntArrayList();
+			int read;
+		}
+
 		private static final int BBOX_RADIUS = 500 * 1000;
 		private static final int BBOX_RADIUS_INSIDE = 5600 * 1000; // 5600 is the minimum to pass test [14: hisar]
 		private static final int BBOX_RADIUS_POI_IN_CITY = 25 * 1000;
@@ -591,7 +720,6 @@ public class SearchCoreFactory {
 			// Take into account POI [bar] - 'Hospital 512'
 			// BEFORE: it was searching exact match of whole phrase.getUnknownSearchPhrase() [ Check feedback ] 
 
-			final BinaryMapIndexReader[] currentFile = new BinaryMapIndexReader[1];
 			Iterator<BinaryMapIndexReader> offlineIterator = phrase.getRadiusOfflineIndexes(BBOX_RADIUS,
 					SearchPhraseDataType.POI);
 			String searchWord = phrase.getUnknownWordToSearch();
@@ -599,8 +727,9 @@ public class SearchCoreFactory {
 				String normalized = ArabicNormalizer.normalize(searchWord);
 				searchWord = normalized == null ? searchWord : normalized;
 			}
+			final String wordToSearch = searchWord;
 			final NameStringMatcher nm = phrase.getMainUnknownNameStringMatcher();
-			QuadRect bbox = phrase.getFileRequest() != null ? phrase.getRadiusBBoxToSearch(BBOX_RADIUS_POI_IN_CITY) : phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE);
+			final QuadRect bbox = phrase.getFileRequest() != null ? phrase.getRadiusBBoxToSearch(BBOX_RADIUS_POI_IN_CITY) : phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE);
 			final Set<String> ids = new HashSet<String>();
 
 			ResultMatcher<Amenity> rawDataCollector = null;
@@ -618,90 +747,109 @@ public class SearchCoreFactory {
 					}
 				};
 			}
-			ResultMatcher<Amenity> matcher = new ResultMatcher<Amenity>() {
-				int limit = 0;
+			final ResultMatcher<Amenity> rawData = rawDataCollector;
+			FileSearch<FileResults> fileSearch = new FileSearch<FileResults>() {
+				// objects read from previously published files
+				int readBefore = 0;
 
 				@Override
-				public boolean publish(Amenity object) {
-					if (phrase.getSettings().isExportObjects()) {
-						resultMatcher.exportObject(phrase, object);
-					}
-					if (limit++ > LIMIT) {
-						return false;
-					}
-					String poiID = object.getType().getKeyName() + "_" + object.getId();
-					if (ids.contains(poiID)) {
-						return false;
-					}
-					SearchResult sr = new SearchResult(phrase);
-					sr.otherNames = object.getOtherNames(true);
-					sr.localeName = object.getName(phrase.getSettings().getLang());
-					if (!nm.matches(sr.localeName)) {
-						sr.localeName = object.getName(phrase.getSettings().getLang(),
-								phrase.getSettings().isTransliterate());
-					}
-					if (!nm.matches(sr.localeName) && !nm.matches(sr.otherNames)) {
-						for(String k : object.getAdditionalInfoKeys()) {
-							if ((isTagIndexedForSearchAsName(k)
-									|| isTagIndexedForSearchAsId(k))
-									&& nm.matches(object.getAdditionalInfo(k))) {
-								sr.alternateName = object.getAdditionalInfo(k);
-								break;
+				public FileResults read(final BinaryMapIndexReader r) throws IOException {
+					final FileResults results = new FileResults();
+					ResultMatcher<Amenity> matcher = new ResultMatcher<Amenity>() {
+
+						@Override
+						public boolean publish(Amenity object) {
+							if (phrase.getSettings().isExportObjects()) {
+								resultMatcher.exportObject(phrase, object);
 							}
-						}
-						if (Algorithms.isEmpty(sr.alternateName)) {
+							int index = results.read++;
+							if (index > LIMIT) {
+								return false;
+							}
+							SearchResult sr = new SearchResult(phrase);
+							sr.otherNames = object.getOtherNames(true);
+							sr.localeName = object.getName(phrase.getSettings().getLang());
+							if (!nm.matches(sr.localeName)) {
+								sr.localeName = object.getName(phrase.getSettings().getLang(),
+										phrase.getSettings().isTransliterate());
+							}
+							if (!nm.matches(sr.localeName) && !nm.matches(sr.otherNames)) {
+								for(String k : object.getAdditionalInfoKeys()) {
+									if ((isTagIndexedForSearchAsName(k)
+											|| isTagIndexedForSearchAsId(k))
+											&& nm.matches(object.getAdditionalInfo(k))) {
+										sr.alternateName = object.getAdditionalInfo(k);
+										break;
+									}
+								}
+								if (Algorithms.isEmpty(sr.alternateName)) {
+									return false;
+								}
+							}
+
+							sr.object = object;
+							sr.preferredZoom = SearchCoreFactory.PREFERRED_POI_ZOOM;
+							sr.file = r;
+							sr.location = object.getLocation();
+							if (object.getSubType().equals("city") || object.getSubType().equals("country")) {
+								sr.priorityDistance = SEARCH_AMENITY_BY_NAME_CITY_PRIORITY_DISTANCE;
+								sr.preferredZoom = object.getSubType().equals("country") ? PREFERRED_COUNTRY_ZOOM : PREFERRED_CITY_ZOOM;
+							} else if (object.getSubType().equals("town")) {
+								sr.priorityDistance = SEARCH_AMENITY_BY_NAME_TOWN_PRIORITY_DISTANCE;
+							} else {
+								sr.priorityDistance = 1;
+							}
+							sr.priority = SEARCH_AMENITY_BY_NAME_PRIORITY;
+							sr.cityName = object.getCityFromTagGroups(phrase.getSettings().getLang());
+							sr.objectType = ObjectType.POI;
+							results.results.add(sr);
+							results.indexes.add(index);
 							return false;
 						}
-					}
-					
-					sr.object = object;
-					sr.preferredZoom = SearchCoreFactory.PREFERRED_POI_ZOOM;
-					sr.file = currentFile[0];
-					sr.location = object.getLocation();
-					if (object.getSubType().equals("city") || object.getSubType().equals("country")) {
-						sr.priorityDistance = SEARCH_AMENITY_BY_NAME_CITY_PRIORITY_DISTANCE;
-						sr.preferredZoom = object.getSubType().equals("country") ? PREFERRED_COUNTRY_ZOOM : PREFERRED_CITY_ZOOM;
-					} else if (object.getSubType().equals("town")) {
-						sr.priorityDistance = SEARCH_AMENITY_BY_NAME_TOWN_PRIORITY_DISTANCE;
+
+						@Override
+						public boolean isCancelled() {
+							return resultMatcher.isCancelled() && (results.read < LIMIT);
+						}
+					};
+					SearchRequest<Amenity> req;
+					if (r.isBasemap() && phrase.getFileRequest() == null) {
+						req = BinaryMapIndexReader.buildSearchPoiRequest(
+								(int) bbox.centerX(), (int) bbox.centerY(), wordToSearch,
+								0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
+								matcher, rawData);
 					} else {
-						sr.priorityDistance = 1;
+						req = BinaryMapIndexReader.buildSearchPoiRequest(
+								(int) bbox.centerX(), (int) bbox.centerY(), wordToSearch,
+								(int) bbox.left, (int) bbox.right, (int) bbox.top, (int) bbox.bottom,
+								matcher, rawData);
 					}
-					sr.priority = SEARCH_AMENITY_BY_NAME_PRIORITY;
-					phrase.countUnknownWordsMatchMainResult(sr);
-					sr.cityName = object.getCityFromTagGroups(phrase.getSettings().getLang());
-					sr.objectType = ObjectType.POI;
-					resultMatcher.publish(sr);
-					ids.add(poiID);
-					return false;
+					r.searchPoiByName(req);
+					return results;
 				}
 
 				@Override
-				public boolean isCancelled() {
-					return resultMatcher.isCancelled() && (limit < LIMIT);
+				public void publish(BinaryMapIndexReader r, FileResults results) {
+					// limit is counted over all files in order of files as in sequential search
+					for (int i = 0; i < results.results.size() && readBefore + results.indexes.get(i) <= LIMIT; i++) {
+						SearchResult sr = results.results.get(i);
+						Amenity object = (Amenity) sr.object;
+						// same poi could be present in several files
+						if (ids.add(object.getType().getKeyName() + "_" + object.getId())) {
+							phrase.countUnknownWordsMatchMainResult(sr);
+							resultMatcher.publish(sr);
+						}
+					}
+					readBefore += results.read;
 				}
 			};
 
-			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(
-					(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
-					(int) bbox.left, (int) bbox.right, (int) bbox.top, (int) bbox.bottom,
-					matcher, rawDataCollector);
-
-			SearchRequest<Amenity> reqUnlimited = BinaryMapIndexReader.buildSearchPoiRequest(
-					(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
-					0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
-					matcher, rawDataCollector);
-
 			BinaryMapIndexReader fileRequest = phrase.getFileRequest();
 			if (fileRequest != null) {
-				fileRequest.searchPoiByName(req);
+				fileSearch.publish(fileRequest, fileSearch.read(fileRequest));
 				resultMatcher.apiSearchRegionFinished(this, fileRequest, phrase);
 			} else {
-				while (offlineIterator.hasNext()) {
-					BinaryMapIndexReader r = offlineIterator.next();
-					currentFile[0] = r;
-					r.searchPoiByName(r.isBasemap() ? reqUnlimited : req);
-					resultMatcher.apiSearchRegionFinished(this, r, phrase);
-				}
+				searchFiles(phrase, resultMatcher, offlineIterator, fileSearch);
 			}
 			return true;
 		}
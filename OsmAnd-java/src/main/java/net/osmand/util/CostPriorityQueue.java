@@ -0,0 +1,142 @@
+package net.osmand.util;
+
+import java.util.Arrays;
+
+/**
+ * Min priority queue (4-ary heap) over parallel primitive arrays: no objects are allocated per element
+ * once arrays have grown to the working size. Every element carries an int tag (free for caller use).
+ */
+public class CostPriorityQueue<T> {
+
+	private static final int ARITY = 4;
+	private static final int INITIAL_CAPACITY = 64;
+
+	// heap arrays indexed by heap position
+	private double[] costs;
+	private Object[] items;
+	private int[] tags;
+	private int size;
+
+	public CostPriorityQueue() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public CostPriorityQueue(int capacity) {
+		capacity = Math.max(capacity, ARITY);
+		costs = new double[capacity];
+		items = new Object[capacity];
+		tags = new int[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void add(T item, double cost) {
+		add(item, cost, 0);
+	}
+
+	public void add(T item, double cost, int tag) {
+		if (size == costs.length) {
+			int capacity = costs.length * 2;
+			costs = Arrays.copyOf(costs, capacity);
+			items = Arrays.copyOf(items, capacity);
+			tags = Arrays.copyOf(tags, capacity);
+		}
+		int pos = size++;
+		costs[pos] = cost;
+		items[pos] = item;
+		tags[pos] = tag;
+		siftUp(pos);
+	}
+
+	public T peek() {
+		return size == 0 ? null : item(0);
+	}
+
+	public double peekCost() {
+		return costs[0];
+	}
+
+	public int peekTag() {
+		return tags[0];
+	}
+
+	public T poll() {
+		if (size == 0) {
+			return null;
+		}
+		T res = item(0);
+		size--;
+		if (size > 0) {
+			move(size, 0);
+			siftDown(0);
+		}
+		items[size] = null;
+		return res;
+	}
+
+	public void clear() {
+		Arrays.fill(items, 0, size, null);
+		size = 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T item(int pos) {
+		return (T) items[pos];
+	}
+
+	private void move(int from, int to) {
+		costs[to] = costs[from];
+		items[to] = items[from];
+		tags[to] = tags[from];
+	}
+
+	private void siftUp(int pos) {
+		double cost = costs[pos];
+		Object item = items[pos];
+		int tag = tags[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) / ARITY;
+			if (costs[parent] <= cost) {
+				break;
+			}
+			move(parent, pos);
+			pos = parent;
+		}
+		costs[pos] = cost;
+		items[pos] = item;
+		tags[pos] = tag;
+	}
+
+	private void siftDown(int pos) {
+		double cost = costs[pos];
+		Object item = items[pos];
+		int tag = tags[pos];
+		while (true) {
+			int first = pos * ARITY + 1;
+			if (first >= size) {
+				break;
+			}
+			int last = Math.min(first + ARITY, size);
+			int min = first;
+			for (int c = first + 1; c < last; c++) {
+				if (costs[c] < costs[min]) {
+					min = c;
+				}
+			}
+			if (costs[min] >= cost) {
+				break;
+			}
+			move(min, pos);
+			pos = min;
+		}
+		costs[pos] = cost;
+		items[pos] = item;
+		tags[pos] = tag;
+	}
+}
@@ -0,0 +1,167 @@
+package net.osmand.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Concave hull of points / polylines (31 tile coordinates) built on a raster grid:
+ * covered cells are filled and outlines of filled areas are traced into rings.
+ * Outer rings are counter clockwise in map view (filled area on the left), holes are clockwise.
+ */
+public class GridConcaveHull {
+
+	private static final int E = 0, S = 1, W = 2, N = 3;
+	private static final int[] DX = { 1, 0, -1, 0 };
+	private static final int[] DY = { 0, 1, 0, -1 };
+
+	private final int left;
+	private final int top;
+	private final int cellSize;
+	private final int width;
+	private final int height;
+	private final BitSet cells;
+
+	/**
+	 * Grid covers rectangle with extra cell on each side, so filled area could be dilated
+	 */
+	public GridConcaveHull(int left31, int top31, int right31, int bottom31, int cellSize) {
+		this.cellSize = Math.max(1, cellSize);
+		this.left = left31 - this.cellSize;
+		this.top = top31 - this.cellSize;
+		this.width = (int) (((long) right31 - left) / this.cellSize) + 2;
+		this.height = (int) (((long) bottom31 - top) / this.cellSize) + 2;
+		this.cells = new BitSet(width * height);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void addPoint(int x31, int y31) {
+		int cx = (int) (((long) x31 - left) / cellSize);
+		int cy = (int) (((long) y31 - top) / cellSize);
+		if (cx >= 0 && cy >= 0 && cx < width && cy < height) {
+			cells.set(cy * width + cx);
+		}
+	}
+
+	public void addLine(int x1, int y1, int x2, int y2) {
+		double len = Math.max(Math.abs((long) x2 - x1), Math.abs((long) y2 - y1));
+		int steps = (int) Math.ceil(len * 2 / cellSize);
+		for (int k = 0; k <= steps; k++) {
+			double t = steps == 0 ? 0 : k / (double) steps;
+			addPoint((int) (x1 + (x2 - x1) * t), (int) (y1 + (y2 - y1) * t));
+		}
+	}
+
+	public boolean isFilled(int cx, int cy) {
+		return cx >= 0 && cy >= 0 && cx < width && cy < height && cells.get(cy * width + cx);
+	}
+
+	/**
+	 * Fills 8 neighbours of each filled cell (closes gaps between roads)
+	 */
+	public void dilate() {
+		BitSet res = (BitSet) cells.clone();
+		for (int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+			int cx = i % width, cy = i / width;
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					int nx = cx + dx, ny = cy + dy;
+					if (nx >= 0 && ny >= 0 && nx < width && ny < height) {
+						res.set(ny * width + nx);
+					}
+				}
+			}
+		}
+		cells.clear();
+		cells.or(res);
+	}
+
+	/**
+	 * Traces outlines of filled cells, each ring is array of x31, y31 pairs (not closed, without collinear vertices).
+	 * Cells touching only by corner belong to different rings.
+	 */
+	public List<int[]> buildRings() {
+		int vw = width + 1;
+		// outgoing border edges for each grid vertex (bit per direction), filled cell is on the left of edge
+		byte[] out = new byte[vw * (height + 1)];
+		for (int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+			int cx = i % width, cy = i / width;
+			if (!isFilled(cx, cy - 1)) {
+				out[cy * vw + cx + 1] |= 1 << W;
+			}
+			if (!isFilled(cx, cy + 1)) {
+				out[(cy + 1) * vw + cx] |= 1 << E;
+			}
+			if (!isFilled(cx - 1, cy)) {
+				out[cy * vw + cx] |= 1 << S;
+			}
+			if (!isFilled(cx + 1, cy)) {
+				out[(cy + 1) * vw + cx + 1] |= 1 << N;
+			}
+		}
+		List<int[]> rings = new ArrayList<>();
+		TIntArrayList ring = new TIntArrayList();
+		for (int start = 0; start < out.length; start++) {
+			while (out[start] != 0) {
+				ring.reset();
+				int v = start;
+				int d = Integer.numberOfTrailingZeros(out[start]);
+				int firstDir = d;
+				int prevDir = -1;
+				do {
+					out[v] &= ~(1 << d);
+					if (d != prevDir) {
+						ring.add(left + (v % vw) * cellSize);
+						ring.add(top + (v / vw) * cellSize);
+					}
+					prevDir = d;
+					v += DX[d] + DY[d] * vw;
+					d = nextDirection(out[v], d);
+				} while (v != start && d >= 0);
+				if (firstDir == prevDir && ring.size() > 2) {
+					// first vertex is in the middle of straight line
+					ring.remove(0, 2);
+				}
+				rings.add(ring.toArray());
+			}
+		}
+		return rings;
+	}
+
+	// prefer left turn to keep filled cell on the left and separate cells touching by corner
+	private static int nextDirection(byte edges, int d) {
+		int[] order = { (d + 3) % 4, d, (d + 1) % 4 };
+		for (int nd : order) {
+			if ((edges & (1 << nd)) != 0) {
+				return nd;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Signed area in 31 coordinates (y axis goes down): negative for outer rings and positive for holes
+	 */
+	public static double signedArea(int[] ring) {
+		double area = 0;
+		int n = ring.length / 2;
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			area += (double) ring[2 * i] * ring[2 * j + 1] - (double) ring[2 * j] * ring[2 * i + 1];
+		}
+		return area / 2;
+	}
+
+	public static boolean isOuterRing(int[] ring) {
+		return signedArea(ring) < 0;
+	}
+}
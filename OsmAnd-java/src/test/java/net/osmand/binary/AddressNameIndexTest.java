@@ -0,0 +1,104 @@
+package net.osmand.binary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.Collator;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.OsmAndCollator;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+
+public class AddressNameIndexTest {
+
+	private static final String[] NAMES = { "Øster Allé", "Łódzka", "Æbeløgade", "Straße des 17. Juni",
+			"Rue de l'Église", "Main Street", "Þingholtsstræti", "Œuvre", "Ærøskøbing", "Ёлочная улица" };
+
+	private static final String[] QUERIES = { "oster", "øster", "alle", "lodz", "łódz", "ae", "aeb", "æbel",
+			"strasse", "straße", "17", "juni", "eglise", "église", "main", "main st", "street", "thing",
+			"þing", "oeuvre", "œuv", "aero", "ærø", "елочная", "ёлоч", "улица", "ain", "xyz" };
+
+	@Test
+	public void testPrefixLookup() {
+		AddressRegion reg = new AddressRegion();
+		AddressNameIndex index = new AddressNameIndex();
+		int region = index.addRegion(reg);
+		for (int i = 0; i < NAMES.length; i++) {
+			index.addAtom(region, 0, i, 0, AddressNameIndex.NO_XY_16, NAMES[i]);
+		}
+		index.sortKeys();
+
+		assertFound(index, reg, "aeb", 2);
+		assertFound(index, reg, "strasse", 3);
+		assertFound(index, reg, "17", 3);
+		assertFound(index, reg, "eglise", 4);
+		assertFound(index, reg, "main st", 5);
+		assertFound(index, reg, "елочная", 9);
+		assertFound(index, reg, "ain");
+		assertFound(index, reg, "xyz");
+
+		// index shouldn't miss names matched by collator
+		Collator collator = OsmAndCollator.primaryCollator();
+		for (String q : QUERIES) {
+			TIntArrayList found = atoms(index, reg, q);
+			for (int i = 0; i < NAMES.length; i++) {
+				if (CollatorStringMatcher.cmatches(collator, NAMES[i], q, StringMatcherMode.CHECK_STARTS_FROM_SPACE)) {
+					Assert.assertTrue(q + " -> " + NAMES[i], found.contains(i));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBuildSortedIndex() {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			names.add("Street " + i);
+		}
+		Collections.shuffle(names, new Random(1));
+		AddressRegion reg = new AddressRegion();
+		AddressNameIndex index = new AddressNameIndex();
+		int region = index.addRegion(reg);
+		for (int i = 0; i < names.size(); i++) {
+			index.addAtom(region, 0, i, 0, AddressNameIndex.NO_XY_16, names.get(i), names.get(i).replace("Street", "Улица"));
+		}
+		index.sortKeys();
+		Assert.assertEquals(1000, index.getNamesCount());
+
+		for (String q : Arrays.asList("street 4", "улица 4", "42", "street", "499")) {
+			TIntArrayList found = atoms(index, reg, q);
+			for (int i = 0; i < names.size(); i++) {
+				String name = names.get(i).toLowerCase();
+				String otherName = name.replace("street", "улица");
+				boolean matches = name.startsWith(q) || otherName.startsWith(q)
+						|| name.substring(name.indexOf(' ') + 1).startsWith(q);
+				Assert.assertEquals(q + " -> " + names.get(i), matches, found.contains(i));
+			}
+		}
+	}
+
+	private void assertFound(AddressNameIndex index, AddressRegion reg, String query, int... expected) {
+		TIntArrayList found = atoms(index, reg, query);
+		found.sort();
+		Assert.assertEquals(query, new TIntArrayList(expected), found);
+	}
+
+	// atoms are numbered in order of adding, duplicates are found by different names
+	private TIntArrayList atoms(AddressNameIndex index, AddressRegion reg, String query) {
+		TIntArrayList atoms = index.search(query).getAtoms(reg);
+		TIntArrayList res = new TIntArrayList();
+		for (int i = 0; atoms != null && i < atoms.size(); i++) {
+			if (!res.contains(atoms.get(i))) {
+				res.add(atoms.get(i));
+			}
+		}
+		return res;
+	}
+}
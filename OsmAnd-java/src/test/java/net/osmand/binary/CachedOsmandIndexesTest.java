@@ -0,0 +1,113 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.OsmandIndex.FileIndex;
+import net.osmand.binary.OsmandIndex.MapPart;
+import net.osmand.binary.OsmandIndex.OsmAndStoredIndex;
+
+public class CachedOsmandIndexesTest {
+
+	@Test
+	public void testWriteAppendRead() throws IOException {
+		File cacheFile = File.createTempFile("indexes", ".cache");
+		cacheFile.deleteOnExit();
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			File f = File.createTempFile("map" + i, ".obf");
+			f.deleteOnExit();
+			RandomAccessFile raf = new RandomAccessFile(f, "rw");
+			raf.setLength(100 + i);
+			raf.close();
+			files.add(f);
+		}
+
+		// full write of new cache
+		CachedOsmandIndexes cache = new CachedOsmandIndexes();
+		FileIndex a = cache.addToCache(fileIndex(files.get(0), 1));
+		FileIndex b = cache.addToCache(fileIndex(files.get(1), 1));
+		cache.writeToFile(cacheFile);
+		Assert.assertEquals(2, readStored(cacheFile).getFileIndexCount());
+
+		// new files are appended to the same cache file
+		cache = new CachedOsmandIndexes();
+		cache.readFromFile(cacheFile);
+		assertIndex(a, cache.getFileIndex(files.get(0), false));
+		assertIndex(b, cache.getFileIndex(files.get(1), false));
+		Assert.assertNull(cache.getFileIndex(files.get(2), false));
+		long length = cacheFile.length();
+		FileIndex c = cache.addToCache(fileIndex(files.get(2), 1));
+		cache.writeToFile(cacheFile);
+		Assert.assertTrue(cacheFile.length() > length);
+		// nothing changed, so file is not written
+		length = cacheFile.length();
+		cache.writeToFile(cacheFile);
+		Assert.assertEquals(length, cacheFile.length());
+
+		cache = new CachedOsmandIndexes();
+		cache.readFromFile(cacheFile);
+		Assert.assertEquals(3, readStored(cacheFile).getFileIndexCount());
+		assertIndex(a, cache.getFileIndex(files.get(0), false));
+		assertIndex(b, cache.getFileIndex(files.get(1), false));
+		assertIndex(c, cache.getFileIndex(files.get(2), false));
+
+		// replaced file is rewritten without duplicates, appended after that again
+		FileIndex b2 = cache.addToCache(fileIndex(files.get(1), 2));
+		cache.writeToFile(cacheFile);
+		FileIndex d = cache.addToCache(fileIndex(files.get(3), 1));
+		cache.writeToFile(cacheFile);
+
+		cache = new CachedOsmandIndexes();
+		cache.readFromFile(cacheFile);
+		OsmAndStoredIndex stored = readStored(cacheFile);
+		Assert.assertEquals(CachedOsmandIndexes.VERSION, stored.getVersion());
+		Assert.assertEquals(4, stored.getFileIndexCount());
+		assertIndex(a, cache.getFileIndex(files.get(0), false));
+		assertIndex(b2, cache.getFileIndex(files.get(1), false));
+		assertIndex(c, cache.getFileIndex(files.get(2), false));
+		assertIndex(d, cache.getFileIndex(files.get(3), false));
+
+		// entry of file with changed size is not used
+		RandomAccessFile raf = new RandomAccessFile(files.get(0), "rw");
+		raf.setLength(1000);
+		raf.close();
+		Assert.assertNull(cache.getFileIndex(files.get(0), false));
+	}
+
+	// lite messages don't implement equals
+	private static void assertIndex(FileIndex expected, FileIndex actual) {
+		Assert.assertNotNull(actual);
+		Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+	}
+
+	private static FileIndex fileIndex(File f, int version) {
+		FileIndex.Builder fi = FileIndex.newBuilder();
+		fi.setFileName(f.getName());
+		fi.setSize(f.length());
+		fi.setDateModified(f.lastModified());
+		fi.setVersion(version);
+		MapPart.Builder map = MapPart.newBuilder();
+		map.setSize(f.length() / 2);
+		map.setOffset(version);
+		map.setName(f.getName());
+		fi.addMapIndex(map);
+		return fi.build();
+	}
+
+	private static OsmAndStoredIndex readStored(File f) throws IOException {
+		FileInputStream is = new FileInputStream(f);
+		try {
+			return OsmAndStoredIndex.newBuilder().mergeFrom(is).build();
+		} finally {
+			is.close();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteCalculationProgress;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutingConfiguration;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.router.RoutingContext;
+import net.osmand.util.MapUtils;
+
+public class GeocodingUtilitiesTest {
+	private static final String OBF_FILE = "src/test/resources/routing/Routing_test_archive.obf";
+	private static final int THREADS = 3;
+	private static final int POINTS = THREADS * GeocodingUtilities.BATCH_CHUNK_SIZE;
+	// shift points from road nodes to have not only exact projections
+	private static final double SHIFT = 0.0003;
+
+	@Test
+	public void testBatchEqualsSearch() throws IOException, InterruptedException {
+		File file = new File(OBF_FILE);
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+		try {
+			List<LatLon> points = samplePoints(reader);
+			Assert.assertEquals(POINTS, points.size());
+			List<BinaryMapIndexReader> readers = Collections.singletonList(reader);
+
+			RoutingContext batchCtx = buildContext(reader);
+			List<List<GeocodingResult>> batch = GeocodingUtilities.reverseGeocodingBatch(batchCtx, readers, points,
+					false, THREADS);
+			Assert.assertEquals(points.size(), batch.size());
+
+			RoutingContext ctx = buildContext(reader);
+			GeocodingUtilities utilities = new GeocodingUtilities();
+			int found = 0;
+			for (int i = 0; i < points.size(); i++) {
+				LatLon p = points.get(i);
+				List<GeocodingResult> res = utilities.sortGeocodingResults(readers,
+						utilities.reverseGeocodingSearch(ctx, p.getLatitude(), p.getLongitude(), false));
+				Assert.assertEquals(p.toString(), toStrings(res), toStrings(batch.get(i)));
+				found += res.isEmpty() ? 0 : 1;
+			}
+			Assert.assertTrue(found > 0);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static List<String> toStrings(List<GeocodingResult> res) {
+		List<String> lst = new ArrayList<>();
+		for (GeocodingResult r : res) {
+			lst.add(r.toString());
+		}
+		return lst;
+	}
+
+	private static List<LatLon> samplePoints(BinaryMapIndexReader reader) throws IOException {
+		List<RouteDataObject> roads = new ArrayList<>();
+		for (RouteRegion reg : reader.getRoutingIndexes()) {
+			BinaryMapIndexReader.SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(
+					0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null);
+			for (BinaryMapRouteReaderAdapter.RouteSubregion sub : reader.searchRouteIndexTree(req, reg.getSubregions())) {
+				roads.addAll(reader.loadRouteIndexData(sub));
+			}
+		}
+		Assert.assertFalse(roads.isEmpty());
+		List<LatLon> points = new ArrayList<>();
+		int step = Math.max(1, roads.size() / POINTS);
+		for (int i = 0; points.size() < POINTS; i += step) {
+			RouteDataObject road = roads.get(i % roads.size());
+			int node = (i / roads.size()) % road.getPointsLength();
+			double lat = MapUtils.get31LatitudeY(road.getPoint31YTile(node));
+			double lon = MapUtils.get31LongitudeX(road.getPoint31XTile(node));
+			points.add(new LatLon(lat + (i % 2) * SHIFT, lon - (i % 3) * SHIFT));
+		}
+		return points;
+	}
+
+	private static RoutingContext buildContext(BinaryMapIndexReader reader) {
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build("car", memoryLimits);
+		RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null,
+				new BinaryMapIndexReader[] { reader }, RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+		ctx.calculationProgress = new RouteCalculationProgress();
+		return ctx;
+	}
+}
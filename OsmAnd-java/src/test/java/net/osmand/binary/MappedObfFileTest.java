@@ -0,0 +1,137 @@
+package net.osmand.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+
+/**
+ * Memory mapped read mode should read the same data as RandomAccessFile mode
+ */
+public class MappedObfFileTest {
+	private static final String OBF_FILE = "src/test/resources/routing/Routing_test_archive.obf";
+	// small segments to read values crossing segment boundaries
+	private static final int SEGMENT_SHIFT = 5;
+	private static final int RECORDS = 500;
+
+	@Test
+	public void testCodedInputStream() throws IOException {
+		Random rnd = new Random(3);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+		long[] positions = new long[RECORDS];
+		for (int i = 0; i < RECORDS; i++) {
+			out.flush();
+			positions[i] = bytes.size();
+			out.writeUInt32NoTag(rnd.nextInt(1 << 20));
+			out.writeStringNoTag("record " + i + " " + rnd.nextLong());
+			out.writeFixed32NoTag(rnd.nextInt());
+			out.writeInt64NoTag(rnd.nextLong());
+			out.writeDoubleNoTag(rnd.nextDouble());
+		}
+		out.flush();
+		byte[] data = bytes.toByteArray();
+		File file = File.createTempFile("coded", ".bin");
+		file.deleteOnExit();
+		FileOutputStream fous = new FileOutputStream(file);
+		fous.write(data);
+		fous.close();
+
+		int segmentSize = 1 << SEGMENT_SHIFT;
+		ByteBuffer[] segments = new ByteBuffer[(data.length + segmentSize - 1) / segmentSize];
+		for (int i = 0; i < segments.length; i++) {
+			int start = i * segmentSize;
+			segments[i] = ByteBuffer.wrap(data, start, Math.min(segmentSize, data.length - start)).slice();
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		CodedInputStream expected = CodedInputStream.newInstance(raf);
+		CodedInputStream mapped = CodedInputStream.newInstance(segments, SEGMENT_SHIFT, data.length);
+		for (int i = 0; i < RECORDS; i++) {
+			assertSameRecord(expected, mapped);
+		}
+		Assert.assertTrue(mapped.isAtEnd());
+
+		// random access and independent position of streams over the same segments
+		CodedInputStream other = CodedInputStream.newInstance(segments, SEGMENT_SHIFT, data.length);
+		for (int k = 0; k < RECORDS; k++) {
+			int i = rnd.nextInt(RECORDS);
+			expected.seek(positions[i]);
+			mapped.seek(positions[i]);
+			other.seek(positions[RECORDS - 1 - i]);
+			assertSameRecord(expected, mapped);
+		}
+		raf.close();
+	}
+
+	@Test
+	public void testRouteData() throws IOException {
+		File file = new File(OBF_FILE);
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+		BinaryMapIndexReader mapped = new BinaryMapIndexReader(new MappedObfFile(file));
+		BinaryMapIndexReader cursor = mapped.createMappedCursor();
+		try {
+			Assert.assertTrue(mapped.isMemoryMapped());
+			Assert.assertEquals(reader.getIndexes().size(), mapped.getIndexes().size());
+			Assert.assertEquals(reader.getRoutingIndexes().size(), mapped.getRoutingIndexes().size());
+			List<RouteDataObject> expected = loadRouteData(reader);
+			Assert.assertFalse(expected.isEmpty());
+			assertSameRouteData(expected, loadRouteData(mapped));
+			assertSameRouteData(expected, loadRouteData(cursor));
+		} finally {
+			reader.close();
+			mapped.close();
+			cursor.close();
+		}
+	}
+
+	private List<RouteDataObject> loadRouteData(BinaryMapIndexReader reader) throws IOException {
+		List<RouteDataObject> res = new ArrayList<>();
+		for (RouteRegion reg : reader.getRoutingIndexes()) {
+			BinaryMapIndexReader.SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(
+					0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null);
+			List<RouteSubregion> subregions = reader.searchRouteIndexTree(req, reg.getSubregions());
+			for (RouteSubregion sub : subregions) {
+				res.addAll(reader.loadRouteIndexData(sub));
+			}
+		}
+		return res;
+	}
+
+	private void assertSameRouteData(List<RouteDataObject> expected, List<RouteDataObject> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			RouteDataObject e = expected.get(i);
+			RouteDataObject a = actual.get(i);
+			Assert.assertEquals(e.getId(), a.getId());
+			Assert.assertEquals(e.getPointsLength(), a.getPointsLength());
+			for (int k = 0; k < e.getPointsLength(); k++) {
+				Assert.assertEquals(e.getPoint31XTile(k), a.getPoint31XTile(k));
+				Assert.assertEquals(e.getPoint31YTile(k), a.getPoint31YTile(k));
+			}
+			Assert.assertArrayEquals(e.getTypes(), a.getTypes());
+			Assert.assertEquals(e.getName(), a.getName());
+		}
+	}
+
+	private void assertSameRecord(CodedInputStream expected, CodedInputStream actual) throws IOException {
+		Assert.assertEquals(expected.readRawVarint32(), actual.readRawVarint32());
+		Assert.assertEquals(expected.readString(), actual.readString());
+		Assert.assertEquals(expected.readFixed32(), actual.readFixed32());
+		Assert.assertEquals(expected.readInt64(), actual.readInt64());
+		Assert.assertEquals(expected.readDouble(), actual.readDouble(), 0);
+	}
+}
@@ -0,0 +1,157 @@
+package net.osmand.gpx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.gpx.GPXUtilities.PointsGroup;
+import net.osmand.gpx.GPXUtilities.Route;
+import net.osmand.gpx.GPXUtilities.RouteSegment;
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+public class GPXBinaryFormatTest {
+
+	private static final String GPX = "<?xml version='1.0' encoding='UTF-8'?>\n"
+			+ "<gpx version=\"1.1\" creator=\"OsmAnd\" xmlns:osmand=\"https://osmand.net\">\n"
+			+ "<metadata><name>Trip</name><desc>Описание</desc><time>2020-01-01T09:00:00Z</time>"
+			+ "<author><name>me</name></author><bounds minlat=\"52\" minlon=\"4\" maxlat=\"53\" maxlon=\"5\"/></metadata>\n"
+			+ "<wpt lat=\"52.1234567\" lon=\"4.7654321\"><ele>1.24</ele><time>2020-01-01T10:00:00Z</time>"
+			+ "<name>Cafe</name><desc>Good</desc><type>Food</type><cmt>c</cmt><hdop>2.5</hdop>"
+			+ "<extensions><osmand:icon>cafe</osmand:icon><osmand:color>#ff0000</osmand:color></extensions></wpt>\n"
+			+ "<wpt lat=\"52.2\" lon=\"4.2\"><name>Park</name></wpt>\n"
+			+ "<rte><name>r</name><rtept lat=\"52.0\" lon=\"4.0\"/><rtept lat=\"52.5\" lon=\"4.5\"><name>end</name></rtept></rte>\n"
+			+ "<trk><name>t</name><desc>d</desc><trkseg>\n"
+			+ "<trkpt lat=\"52.0\" lon=\"4.0\"><ele>10.1</ele><time>2020-01-01T10:00:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"52.001\" lon=\"4.001\"><ele>-2.3</ele><time>2020-01-01T10:00:30Z</time>"
+			+ "<extensions><osmand:speed>3.4</osmand:speed><osmand:heading>91</osmand:heading>"
+			+ "<osmand:custom>x</osmand:custom></extensions></trkpt>\n"
+			+ "<trkpt lat=\"51.999\" lon=\"3.999\"><time>2020-01-01T09:59:00Z</time></trkpt>\n"
+			+ "<extensions><osmand:route><segment id=\"1\" length=\"3\" segmentTime=\"95.5\" types=\"0,1\"/></osmand:route>"
+			+ "<osmand:types><type t=\"highway\" v=\"primary\"/><type t=\"surface\" v=\"asphalt\"/></osmand:types></extensions>\n"
+			+ "</trkseg><trkseg><trkpt lat=\"53\" lon=\"5\"/></trkseg></trk>\n"
+			+ "<extensions><osmand:points_groups><group name=\"Food\" color=\"#00ff00\" icon=\"cafe\"/></osmand:points_groups>"
+			+ "</extensions>\n"
+			+ "</gpx>\n";
+
+	@Test
+	public void testWriteRead() throws IOException {
+		GPXFile expected = GPXUtilities.loadGPXFile(new ByteArrayInputStream(GPX.getBytes(StandardCharsets.UTF_8)));
+		Assert.assertNull(expected.error);
+
+		File file = File.createTempFile("test", GPXBinaryFormat.GPX_BINARY_EXT);
+		file.deleteOnExit();
+		Assert.assertNull(GPXUtilities.writeGpxFile(file, expected));
+		GPXFile actual = GPXUtilities.loadGPXFile(file);
+		Assert.assertNull(actual.error);
+
+		Assert.assertEquals(expected.author, actual.author);
+		Assert.assertEquals(expected.metadata.name, actual.metadata.name);
+		Assert.assertEquals(expected.metadata.desc, actual.metadata.desc);
+		Assert.assertEquals(expected.metadata.time, actual.metadata.time);
+		Assert.assertEquals(expected.metadata.author.name, actual.metadata.author.name);
+		Assert.assertEquals(expected.metadata.bounds.maxlat, actual.metadata.bounds.maxlat, 0);
+		Assert.assertEquals(expected.pointsGroups.keySet(), actual.pointsGroups.keySet());
+		for (PointsGroup group : expected.pointsGroups.values()) {
+			PointsGroup g = actual.pointsGroups.get(group.name);
+			Assert.assertEquals(group.color, g.color);
+			Assert.assertEquals(group.iconName, g.iconName);
+			Assert.assertEquals(group.points.size(), g.points.size());
+		}
+		assertPoints(expected.points, actual.points);
+
+		Assert.assertEquals(expected.routes.size(), actual.routes.size());
+		for (int i = 0; i < expected.routes.size(); i++) {
+			Route route = expected.routes.get(i);
+			Assert.assertEquals(route.name, actual.routes.get(i).name);
+			assertPoints(route.points, actual.routes.get(i).points);
+		}
+
+		Assert.assertEquals(expected.tracks.size(), actual.tracks.size());
+		for (int i = 0; i < expected.tracks.size(); i++) {
+			Track track = expected.tracks.get(i);
+			Track t = actual.tracks.get(i);
+			Assert.assertEquals(track.generalTrack, t.generalTrack);
+			Assert.assertEquals(track.name, t.name);
+			Assert.assertEquals(track.desc, t.desc);
+			Assert.assertEquals(track.segments.size(), t.segments.size());
+			for (int j = 0; j < track.segments.size(); j++) {
+				TrkSegment segment = track.segments.get(j);
+				TrkSegment s = t.segments.get(j);
+				Assert.assertEquals(segment.routeSegments.size(), s.routeSegments.size());
+				for (int k = 0; k < segment.routeSegments.size(); k++) {
+					RouteSegment rs = segment.routeSegments.get(k);
+					Assert.assertEquals(rs.id, s.routeSegments.get(k).id);
+					Assert.assertEquals(rs.segmentTime, s.routeSegments.get(k).segmentTime);
+					Assert.assertEquals(rs.types, s.routeSegments.get(k).types);
+				}
+				Assert.assertEquals(segment.routeTypes.size(), s.routeTypes.size());
+				for (int k = 0; k < segment.routeTypes.size(); k++) {
+					Assert.assertEquals(segment.routeTypes.get(k).tag, s.routeTypes.get(k).tag);
+					Assert.assertEquals(segment.routeTypes.get(k).value, s.routeTypes.get(k).value);
+				}
+				assertPoints(segment.points, s.points);
+			}
+		}
+		Assert.assertEquals(expected.getAnalysis(0).getTotalDistance(), actual.getAnalysis(0).getTotalDistance(), 0.01);
+	}
+
+	@Test
+	public void testMalformedCounts() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0x4f475042);
+		out.write(new byte[] {
+				1, // version
+				0, // author
+				0, // extensions
+				0, 0, 0, 0, 0, // metadata name, desc, link, keywords, time
+				0, 0, 0, 0, // metadata author, copyright, bounds, extensions
+				0, // network route tags
+				0, // points groups
+				(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07, // huge waypoints count
+				2, 3 });
+		GPXFile gpxFile = GPXBinaryFormat.loadGPXFile(new ByteArrayInputStream(bytes.toByteArray()), false);
+		Assert.assertNotNull(gpxFile.error);
+
+		byte[] string = Arrays.copyOf(bytes.toByteArray(), 9);
+		// author of huge length
+		string[5] = (byte) 0xff;
+		string[6] = (byte) 0xff;
+		string[7] = (byte) 0xff;
+		string[8] = 0x7f;
+		gpxFile = GPXBinaryFormat.loadGPXFile(new ByteArrayInputStream(string), false);
+		Assert.assertNotNull(gpxFile.error);
+	}
+
+	private void assertPoints(List<WptPt> expected, List<WptPt> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			WptPt e = expected.get(i);
+			WptPt a = actual.get(i);
+			String msg = "point " + i;
+			Assert.assertEquals(msg, e.lat, a.lat, 1e-7);
+			Assert.assertEquals(msg, e.lon, a.lon, 1e-7);
+			Assert.assertEquals(msg, e.time, a.time);
+			Assert.assertEquals(msg, e.ele, a.ele, 0.05);
+			Assert.assertEquals(msg, e.hdop, a.hdop, 0.05);
+			Assert.assertEquals(msg, e.speed, a.speed, 0.05);
+			Assert.assertEquals(msg, Math.round(e.heading), Math.round(a.heading));
+			Assert.assertEquals(msg, e.bearing, a.bearing, 0);
+			Assert.assertEquals(msg, e.name, a.name);
+			Assert.assertEquals(msg, e.desc, a.desc);
+			Assert.assertEquals(msg, e.category, a.category);
+			Assert.assertEquals(msg, e.comment, a.comment);
+			Assert.assertEquals(msg, e.getExtensionsToRead(), a.getExtensionsToRead());
+		}
+	}
+}
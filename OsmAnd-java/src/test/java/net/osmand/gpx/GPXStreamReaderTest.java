@@ -0,0 +1,161 @@
+package net.osmand.gpx;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import net.osmand.gpx.GPXTrackAnalysis.StreamingAnalysis;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+/**
+ * Analysis calculated by streaming reader should be same as analysis of loaded gpx file
+ */
+@RunWith(Parameterized.class)
+public class GPXStreamReaderTest {
+	private static final String RESOURCES_PATH = "/approximation/";
+	private static final String FILES_PATH = "src/test/resources/approximation/";
+	private static final double PRECISION = 1e-3;
+
+	// 2 segments (second with route segments), 1 point segment, waypoints, points groups and route points
+	private static final String SYNTHETIC_GPX = "<?xml version='1.0' encoding='UTF-8'?>\n"
+			+ "<gpx version=\"1.1\" creator=\"test\" xmlns:gpxx=\"http://www.garmin.com/xmlschemas/GpxExtensions/v3\">\n"
+			+ "<wpt lat=\"52.1\" lon=\"4.1\"><name>a</name><type>Food</type></wpt>\n"
+			+ "<wpt lat=\"52.2\" lon=\"4.2\"><name>b</name></wpt>\n"
+			+ "<rte><rtept lat=\"52.0\" lon=\"4.0\"><extensions><gpxx:RoutePointExtension>"
+			+ "<gpxx:rpt lat=\"52.001\" lon=\"4.001\"/><gpxx:rpt lat=\"52.002\" lon=\"4.003\"/>"
+			+ "<gpxx:rpt lat=\"52.004\" lon=\"4.004\"/></gpxx:RoutePointExtension></extensions></rtept>\n"
+			+ "<rtept lat=\"52.006\" lon=\"4.005\"><extensions><gpxx:RoutePointExtension>"
+			+ "<gpxx:rpt lat=\"52.007\" lon=\"4.007\"/></gpxx:RoutePointExtension></extensions></rtept></rte>\n"
+			+ "<trk><name>t</name><trkseg>\n"
+			+ "<trkpt lat=\"52.0\" lon=\"4.0\"><ele>10</ele><time>2020-01-01T10:00:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"52.001\" lon=\"4.001\"><ele>12</ele><time>2020-01-01T10:00:30Z</time></trkpt>\n"
+			+ "<trkpt lat=\"52.002\" lon=\"4.003\"><ele>11.5</ele><time>2020-01-01T10:01:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"52.003\" lon=\"4.003\"><ele>15</ele><time>2020-01-01T10:01:05Z</time>"
+			+ "<extensions><speed>3.5</speed></extensions></trkpt>\n"
+			+ "</trkseg><trkseg>\n"
+			+ "<trkpt lat=\"52.01\" lon=\"4.01\"><time>2020-01-01T11:00:00Z</time></trkpt>\n"
+			+ "</trkseg><trkseg>\n"
+			+ "<trkpt lat=\"52.02\" lon=\"4.02\"><ele>20</ele><time>2020-01-01T12:00:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"52.021\" lon=\"4.022\"><ele>18</ele><time>2020-01-01T12:02:00Z</time></trkpt>\n"
+			+ "<trkpt lat=\"52.022\" lon=\"4.024\"><ele>21</ele><time>2020-01-01T12:03:00Z</time></trkpt>\n"
+			+ "<extensions><route><segment id=\"1\" length=\"3\" segmentTime=\"95.5\"/>"
+			+ "<segment id=\"2\" length=\"2\" segmentTime=\"12.25\"/></route>"
+			+ "<types><type t=\"highway\" v=\"primary\"/></types></extensions>\n"
+			+ "</trkseg></trk>\n"
+			+ "<extensions><points_groups><group name=\"Sights\"/></points_groups></extensions>\n"
+			+ "</gpx>\n";
+
+	private final byte[] gpx;
+
+	public GPXStreamReaderTest(String name, byte[] gpx) {
+		this.gpx = gpx;
+	}
+
+	@Parameterized.Parameters(name = "{index}: {0}")
+	public static Iterable<Object[]> data() throws IOException {
+		List<Object[]> array = new ArrayList<>();
+		array.add(new Object[] { "synthetic", SYNTHETIC_GPX.getBytes(StandardCharsets.UTF_8) });
+		Reader reader = new InputStreamReader(Objects.requireNonNull(
+				GPXStreamReaderTest.class.getResourceAsStream(RESOURCES_PATH + "test.json")));
+		Set<String> files = new LinkedHashSet<>();
+		for (JsonElement e : JsonParser.parseReader(reader).getAsJsonArray()) {
+			JsonObject entry = e.getAsJsonObject();
+			if (entry.has("gpxFile")) {
+				files.add(entry.get("gpxFile").getAsString());
+			}
+		}
+		reader.close();
+		for (String file : files) {
+			array.add(new Object[] { file, Files.readAllBytes(Paths.get(FILES_PATH + file)) });
+		}
+		return array;
+	}
+
+	@Test
+	public void testStreamingAnalysis() throws Exception {
+		GPXFile gpxFile = GPXUtilities.loadGPXFile(new ByteArrayInputStream(gpx));
+		Assert.assertNull(gpxFile.error);
+		GPXTrackAnalysis expected = gpxFile.getAnalysis(0);
+
+		List<WptPt> points = new ArrayList<>();
+		StreamingAnalysis streaming = new StreamingAnalysis(null, null);
+		new GPXStreamReader((point, trackIndex, segmentIndex) -> points.add(point))
+				.setAnalysis(streaming)
+				.read(new ByteArrayInputStream(gpx));
+		GPXTrackAnalysis actual = streaming.finish(0);
+
+		int loadedPoints = 0;
+		for (GPXUtilities.Track track : gpxFile.tracks) {
+			for (TrkSegment segment : track.segments) {
+				loadedPoints += segment.generalSegment ? 0 : segment.points.size();
+			}
+		}
+		Assert.assertEquals(loadedPoints, points.size());
+
+		Assert.assertEquals(expected.getTotalTracks(), actual.getTotalTracks());
+		Assert.assertEquals(expected.getPoints(), actual.getPoints());
+		Assert.assertEquals(expected.getWptPoints(), actual.getWptPoints());
+		Assert.assertEquals(expected.getWptCategoryNamesSet(), actual.getWptCategoryNamesSet());
+		Assert.assertEquals(expected.getTotalDistance(), actual.getTotalDistance(), PRECISION);
+		Assert.assertEquals(expected.getTotalDistanceMoving(), actual.getTotalDistanceMoving(), PRECISION);
+		Assert.assertEquals(expected.getStartTime(), actual.getStartTime());
+		Assert.assertEquals(expected.getEndTime(), actual.getEndTime());
+		Assert.assertEquals(expected.getTimeSpan(), actual.getTimeSpan());
+		Assert.assertEquals(expected.getTimeMoving(), actual.getTimeMoving());
+		Assert.assertEquals(expected.expectedRouteDuration, actual.expectedRouteDuration);
+		Assert.assertEquals(expected.getMinElevation(), actual.getMinElevation(), PRECISION);
+		Assert.assertEquals(expected.getMaxElevation(), actual.getMaxElevation(), PRECISION);
+		Assert.assertEquals(expected.getAvgElevation(), actual.getAvgElevation(), PRECISION);
+		Assert.assertEquals(expected.getDiffElevationUp(), actual.getDiffElevationUp(), PRECISION);
+		Assert.assertEquals(expected.getDiffElevationDown(), actual.getDiffElevationDown(), PRECISION);
+		Assert.assertEquals(expected.getMinSpeed(), actual.getMinSpeed(), PRECISION);
+		Assert.assertEquals(expected.getMaxSpeed(), actual.getMaxSpeed(), PRECISION);
+		Assert.assertEquals(expected.getAvgSpeed(), actual.getAvgSpeed(), PRECISION);
+		Assert.assertEquals(expected.hasSpeedInTrack, actual.hasSpeedInTrack);
+		Assert.assertEquals(expected.left, actual.left, 0);
+		Assert.assertEquals(expected.right, actual.right, 0);
+		Assert.assertEquals(expected.top, actual.top, 0);
+		Assert.assertEquals(expected.bottom, actual.bottom, 0);
+		Assert.assertEquals(expected.availableAttributes, actual.availableAttributes);
+
+		Assert.assertEquals(expected.pointAttributes.size(), actual.pointAttributes.size());
+		for (int i = 0; i < expected.pointAttributes.size(); i++) {
+			PointAttributes e = expected.pointAttributes.get(i);
+			PointAttributes a = actual.pointAttributes.get(i);
+			String msg = "point " + i;
+			Assert.assertEquals(msg, e.distance, a.distance, PRECISION);
+			Assert.assertEquals(msg, e.timeDiff, a.timeDiff, 0);
+			Assert.assertEquals(msg, e.speed, a.speed, PRECISION);
+			Assert.assertEquals(msg, e.elevation, a.elevation, PRECISION);
+		}
+
+		// metrics without gaps are calculated by analysis of general segment
+		TrkSegment generalSegment = gpxFile.getGeneralSegment();
+		if (generalSegment != null) {
+			GPXTrackAnalysis general = GPXTrackAnalysis.prepareInformation(0, null, generalSegment);
+			Assert.assertEquals(general.totalDistanceWithoutGaps, actual.totalDistanceWithoutGaps, PRECISION);
+			Assert.assertEquals(general.timeSpanWithoutGaps, actual.timeSpanWithoutGaps);
+			Assert.assertEquals(general.timeMovingWithoutGaps, actual.timeMovingWithoutGaps);
+			Assert.assertEquals(general.totalDistanceMovingWithoutGaps, actual.totalDistanceMovingWithoutGaps, PRECISION);
+		}
+	}
+}
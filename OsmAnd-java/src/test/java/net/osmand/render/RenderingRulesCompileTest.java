@@ -0,0 +1,67 @@
+package net.osmand.render;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Search over compiled style (with memoized results) should give the same results as search over rule trees
+ */
+public class RenderingRulesCompileTest {
+
+	private static final int[] ZOOMS = { 5, 10, 13, 15, 17, 19 };
+
+	@Test
+	public void testDefaultStyle() {
+		RenderingRulesStorage compiled = RenderingRulesStorage.initWithStylesFromResources("default.render.xml");
+		Assert.assertTrue(compiled.isCompiled());
+		RenderingRulesStorage interpreted = compiled.copy();
+		Assert.assertFalse(interpreted.isCompiled());
+
+		int checked = 0;
+		for (int state = RenderingRulesStorage.POINT_RULES; state <= RenderingRulesStorage.LENGTH_RULES; state++) {
+			RenderingRule[] rules = interpreted.getRules(state);
+			for (int i = 0; i < rules.length; i++) {
+				int key = interpreted.getRuleTagValueKey(state, i);
+				String tag = interpreted.getTagString(key);
+				String value = interpreted.getValueString(key);
+				for (int zoom : ZOOMS) {
+					RenderingRuleSearchRequest c = RenderingRuleSearchRequest.initWithCustomProperties(compiled, zoom, null);
+					RenderingRuleSearchRequest r = RenderingRuleSearchRequest.initWithCustomProperties(interpreted, zoom, null);
+					String msg = state + " " + tag + "=" + value + " z" + zoom;
+					// second search of compiled request is taken from cache
+					for (int k = 0; k < 2; k++) {
+						c.setInitialTagValueZoom(tag, value, zoom, null);
+						r.setInitialTagValueZoom(tag, value, zoom, null);
+						Assert.assertEquals(msg, r.search(state), c.search(state));
+						assertSameValues(msg, r, c);
+					}
+					checked++;
+				}
+			}
+		}
+		Assert.assertTrue(checked > 0);
+
+		for (String attr : interpreted.getRenderingAttributeNames()) {
+			for (int zoom : ZOOMS) {
+				RenderingRuleSearchRequest c = RenderingRuleSearchRequest.initWithCustomProperties(compiled, zoom, null);
+				RenderingRuleSearchRequest r = RenderingRuleSearchRequest.initWithCustomProperties(interpreted, zoom, null);
+				Assert.assertEquals(attr, r.searchRenderingAttribute(attr), c.searchRenderingAttribute(attr));
+				assertSameValues(attr + " z" + zoom, r, c);
+			}
+		}
+	}
+
+	private void assertSameValues(String msg, RenderingRuleSearchRequest expected, RenderingRuleSearchRequest actual) {
+		RenderingRuleProperty[] props = expected.getProperties();
+		for (int i = 0; i < props.length; i++) {
+			RenderingRuleProperty p = actual.getProperties()[i];
+			String m = msg + " " + p.getAttrName();
+			if (p.isString()) {
+				Assert.assertEquals(m, expected.getStringPropertyValue(props[i]), actual.getStringPropertyValue(p));
+			} else {
+				Assert.assertEquals(m, expected.getIntPropertyValue(props[i]), actual.getIntPropertyValue(p));
+				Assert.assertEquals(m, expected.getFloatPropertyValue(props[i]), actual.getFloatPropertyValue(p), 0);
+			}
+		}
+	}
+}
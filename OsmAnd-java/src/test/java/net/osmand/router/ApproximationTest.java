@@ -27,7 +27,12 @@ public class ApproximationTest {
 	private final int ENTRY_TIMEOUT_MS = 1500000;
 	private String[] defaultProfiles = { "car" };
 	private Integer[] defaultMinPointApproximation = { 50 };
-	private String[] defaultTypes = { "routing", "geometry" };
+	private String[] defaultTypes = { "routing", "geometry", "chunked", "hmm" };
+	// chunked geometry approximation (short windows to split test tracks) should give same route as sequential
+	private static final int CHUNKED_THREADS = 4;
+	private static final float CHUNKED_WINDOW = 1000;
+	private static final float CHUNKED_OVERLAP = 200;
+	private static final double CHUNKED_DIST_PRECISION = 0.02;
 	private static final String RESOURCES_PATH = "/approximation/";
 	private static final String FILES_PATH = "src/test/resources/approximation/";
 
@@ -95,33 +100,11 @@ public class ApproximationTest {
 		
 		String tag = String.format("\n%s %s %s [%d] %s\n", entry.gpxFile, type, profile, minPointApproximation, entry.name);
 
-		final int MEM_LIMIT = RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT * 8 * 2; // ~ 4 GB
-		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(MEM_LIMIT, MEM_LIMIT);
-
-		RoutePlannerFrontEnd router = new RoutePlannerFrontEnd();
-		if ("routing".equals(type)) {
-			router.setUseGeometryBasedApproximation(false);
-		} else if ("geometry".equals(type)) {
-			GpxRouteApproximation.GPX_SEGMENT_ALGORITHM = GpxRouteApproximation.GPX_OSM_MULTISEGMENT_SCAN_ALGORITHM;
-//			GpxRouteApproximation.GPX_SEGMENT_ALGORITHM = GpxRouteApproximation.GPX_OSM_POINTS_MATCH_ALGORITHM;
-			router.setUseGeometryBasedApproximation(true);
+		if (isNative() && ("chunked".equals(type) || "hmm".equals(type))) {
+			return;
 		}
-		router.setUseNativeApproximation(isNative());
-
-		RoutingConfiguration.Builder builder = RoutingConfiguration.getDefault();
-		RoutingConfiguration config = builder.build(profile, memoryLimits, new HashMap<String, String>());
-		config.routeCalculationTime = System.currentTimeMillis(); // ENABLE_TIME_CONDITIONAL_ROUTING
-		if (minPointApproximation > 0) config.minPointApproximation = minPointApproximation;
-		RoutingContext ctx = router.buildRoutingContext(config, isNative() ? nativeLibrary : null,
-				binaryMapIndexReaders, RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
-		GpxRouteApproximation gctx = new GpxRouteApproximation(ctx);
-
-		String gpxFilePath = FILES_PATH + entry.gpxFile;
-		GPXFile gpxFile = GPXUtilities.loadGPXFile(new File(gpxFilePath));
-		List<GPXUtilities.WptPt> waypoints = gpxFile.tracks.get(0).segments.get(0).points;
-		List<RoutePlannerFrontEnd.GpxPoint> gpxPoints = router.generateGpxPoints(gctx, new LocationsHolder(waypoints));
-		GpxRouteApproximation r = router.searchGpxRoute(gctx, gpxPoints, null, false);
-		List<RouteSegmentResult> result = r.collectFinalPointsAsRoute();
+		List<RouteSegmentResult> result = approximate(type, profile, minPointApproximation, binaryMapIndexReaders,
+				nativeLibrary);
 
 		double distance = 0;
 		Set<Long> waysInResult = new HashSet<>();
@@ -140,6 +123,16 @@ public class ApproximationTest {
 			}
 		}
 
+		if ("chunked".equals(type)) {
+			double sequentialDistance = 0;
+			for (RouteSegmentResult segment : approximate("geometry", profile, minPointApproximation,
+					binaryMapIndexReaders, nativeLibrary)) {
+				sequentialDistance += calcSegmentDistance(segment);
+			}
+			Assert.assertEquals(tag + "chunked and sequential distance", sequentialDistance, distance,
+					sequentialDistance * CHUNKED_DIST_PRECISION);
+		}
+
 		String messageDist = tag + String.format("distance (%.2f) is outside of min / max (%.2f / %.2f)",
 				distance, entry.expectedDistMin, entry.expectedDistMax);
 		Assert.assertTrue(messageDist, distance > entry.expectedDistMin && distance < entry.expectedDistMax);
@@ -161,6 +154,109 @@ public class ApproximationTest {
 		}
 	}
 
+	@Test(timeout = ENTRY_TIMEOUT_MS)
+	public void testHmmStreaming() throws Exception {
+		if (isNative() || !entry.types.contains("hmm")) {
+			return;
+		}
+		String obfFilePath = FILES_PATH + entry.obfFile;
+		RandomAccessFile raf = new RandomAccessFile(obfFilePath, "r");
+		BinaryMapIndexReader[] binaryMapIndexReaders = { new BinaryMapIndexReader(raf, new File(obfFilePath)) };
+		for (String profile : entry.profiles) {
+			for (Integer minPointApproximation : entry.minPointApproximation) {
+				testHmmStreaming(profile, minPointApproximation, binaryMapIndexReaders);
+			}
+		}
+		raf.close();
+	}
+
+	// matched route should be emitted while points are added, not only by finish
+	private void testHmmStreaming(String profile, Integer minPointApproximation,
+	                              BinaryMapIndexReader[] binaryMapIndexReaders) throws IOException {
+		String tag = String.format("\n%s hmm streaming %s [%d] %s\n", entry.gpxFile, profile, minPointApproximation, entry.name);
+		RoutePlannerFrontEnd router = new RoutePlannerFrontEnd();
+		RoutingContext ctx = buildRoutingContext(router, "hmm", profile, minPointApproximation, binaryMapIndexReaders, null);
+		List<RoutePlannerFrontEnd.GpxPoint> gpxPoints = loadGpxPoints(router, new GpxRouteApproximation(ctx));
+
+		final int[] lastAdded = { -1 };
+		final int[] lastTarget = { -1 };
+		final Set<Integer> emittedAt = new HashSet<>();
+		GpxHmmApproximation app = new GpxHmmApproximation(router, ctx, new GpxHmmApproximation.MatchedRouteListener() {
+			@Override
+			public void routeMatched(RoutePlannerFrontEnd.GpxPoint start, RoutePlannerFrontEnd.GpxPoint target,
+			                         List<RouteSegmentResult> route) {
+				Assert.assertFalse(tag + "empty route", route.isEmpty());
+				Assert.assertTrue(tag + "route goes back", start.ind < target.ind && lastTarget[0] <= start.ind);
+				Assert.assertTrue(tag + "route to point not added yet", target.ind <= lastAdded[0]);
+				lastTarget[0] = target.ind;
+				emittedAt.add(lastAdded[0]);
+			}
+		});
+		for (RoutePlannerFrontEnd.GpxPoint p : gpxPoints) {
+			lastAdded[0] = p.ind;
+			app.addPoint(p);
+		}
+		int emittedBeforeFinish = emittedAt.size();
+		app.finish();
+		Assert.assertTrue(tag + "route is not emitted incrementally", emittedBeforeFinish > 1);
+		Assert.assertTrue(tag + "last matched point", lastTarget[0] > gpxPoints.get(0).ind);
+	}
+
+	private List<RouteSegmentResult> approximate(String type, String profile, Integer minPointApproximation,
+	                                             BinaryMapIndexReader[] binaryMapIndexReaders, NativeLibrary nativeLibrary)
+			throws IOException, InterruptedException {
+		RoutePlannerFrontEnd router = new RoutePlannerFrontEnd();
+		RoutingContext ctx = buildRoutingContext(router, type, profile, minPointApproximation, binaryMapIndexReaders,
+				nativeLibrary);
+		GpxRouteApproximation gctx = new GpxRouteApproximation(ctx);
+		List<RoutePlannerFrontEnd.GpxPoint> gpxPoints = loadGpxPoints(router, gctx);
+		int algorithm = GpxRouteApproximation.GPX_SEGMENT_ALGORITHM;
+		if ("hmm".equals(type)) {
+			GpxRouteApproximation.GPX_SEGMENT_ALGORITHM = GpxRouteApproximation.GPX_OSM_HMM_ALGORITHM;
+		}
+		try {
+			GpxRouteApproximation r = router.searchGpxRoute(gctx, gpxPoints, null, false);
+			return r.collectFinalPointsAsRoute();
+		} finally {
+			GpxRouteApproximation.GPX_SEGMENT_ALGORITHM = algorithm;
+		}
+	}
+
+	private RoutingContext buildRoutingContext(RoutePlannerFrontEnd router, String type, String profile,
+	                                           Integer minPointApproximation, BinaryMapIndexReader[] binaryMapIndexReaders,
+	                                           NativeLibrary nativeLibrary) {
+		final int MEM_LIMIT = RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT * 8 * 2; // ~ 4 GB
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(MEM_LIMIT, MEM_LIMIT);
+
+		if ("routing".equals(type)) {
+			router.setUseGeometryBasedApproximation(false);
+		} else if ("geometry".equals(type) || "chunked".equals(type) || "hmm".equals(type)) {
+			GpxRouteApproximation.GPX_SEGMENT_ALGORITHM = GpxRouteApproximation.GPX_OSM_MULTISEGMENT_SCAN_ALGORITHM;
+//			GpxRouteApproximation.GPX_SEGMENT_ALGORITHM = GpxRouteApproximation.GPX_OSM_POINTS_MATCH_ALGORITHM;
+			router.setUseGeometryBasedApproximation(true);
+		}
+		router.setUseNativeApproximation(isNative());
+
+		RoutingConfiguration.Builder builder = RoutingConfiguration.getDefault();
+		RoutingConfiguration config = builder.build(profile, memoryLimits, new HashMap<String, String>());
+		config.routeCalculationTime = System.currentTimeMillis(); // ENABLE_TIME_CONDITIONAL_ROUTING
+		if (minPointApproximation > 0) config.minPointApproximation = minPointApproximation;
+		if ("chunked".equals(type)) {
+			config.gpxApproximationThreads = CHUNKED_THREADS;
+			config.gpxApproximationWindow = CHUNKED_WINDOW;
+			config.gpxApproximationOverlap = CHUNKED_OVERLAP;
+		}
+		return router.buildRoutingContext(config, isNative() ? nativeLibrary : null,
+				binaryMapIndexReaders, RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+	}
+
+	private List<RoutePlannerFrontEnd.GpxPoint> loadGpxPoints(RoutePlannerFrontEnd router, GpxRouteApproximation gctx) {
+		String gpxFilePath = FILES_PATH + entry.gpxFile;
+		GPXFile gpxFile = GPXUtilities.loadGPXFile(new File(gpxFilePath));
+		List<GPXUtilities.WptPt> waypoints = gpxFile.tracks.get(0).segments.get(0).points;
+		return router.generateGpxPoints(gctx, new LocationsHolder(waypoints));
+	}
+
 	private double calcSegmentDistance(RouteSegmentResult rr) {
 		double distance = 0;
 		RouteDataObject road = rr.getObject();
@@ -0,0 +1,130 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Values evaluated through region caches should be the same as evaluated without cache
+ */
+public class GeneralRouterTest {
+	private static final String[] PROFILES = { "car", "bicycle", "pedestrian" };
+	private static final String[][] WAY_TAGS = {
+			{ "highway", "motorway" }, { "highway", "primary" }, { "highway", "residential" },
+			{ "highway", "service" }, { "highway", "track" }, { "highway", "footway" }, { "highway", "cycleway" },
+			{ "surface", "gravel" }, { "surface", "asphalt" }, { "oneway", "yes" }, { "oneway", "-1" },
+			{ "access", "private" }, { "access", "no" }, { "bicycle", "no" }, { "foot", "yes" },
+			{ "maxspeed", "30" }, { "maxspeed", "90" }, { "tracktype", "grade3" }, { "route", "ferry" } };
+	private static final String[][] POINT_TAGS = {
+			{ "highway", "traffic_signals" }, { "highway", "stop" }, { "barrier", "gate" },
+			{ "barrier", "bollard" }, { "railway", "level_crossing" }, { "direction", "forward" } };
+	private static final int ROADS = 500;
+	private static final int CACHE_KEYS = 5000;
+
+	@Test
+	public void testCachedEvaluation() {
+		RouteRegion reg = new RouteRegion();
+		int id = 0;
+		for (String[] tv : WAY_TAGS) {
+			reg.initRouteEncodingRule(id++, tv[0], tv[1]);
+		}
+		int pointTypesStart = id;
+		for (String[] tv : POINT_TAGS) {
+			reg.initRouteEncodingRule(id++, tv[0], tv[1]);
+		}
+		List<RouteDataObject> roads = generateRoads(reg, pointTypesStart, id, new Random(11));
+		for (String profile : PROFILES) {
+			GeneralRouter router = RoutingConfiguration.getDefault().getRouter(profile).build(new HashMap<String, String>());
+			List<float[]> cached = new ArrayList<>();
+			for (RouteDataObject road : roads) {
+				cached.add(evaluate(router, road));
+			}
+			// second pass is evaluated from cache (types arrays are equal but not same)
+			for (int i = 0; i < roads.size(); i++) {
+				RouteDataObject copy = new RouteDataObject(roads.get(i));
+				copy.types = roads.get(i).types.clone();
+				float[] fromCache = evaluate(router, copy);
+				float[] uncached = evaluate(router.copyWithOwnCaches(), roads.get(i));
+				String msg = profile + " " + roads.get(i);
+				Assert.assertArrayEquals(msg, uncached, cached.get(i), 0);
+				Assert.assertArrayEquals(msg, uncached, fromCache, 0);
+			}
+			Assert.assertTrue(router.getCacheHits() > 0);
+		}
+	}
+
+	@Test
+	public void testEvalCache() {
+		Random rnd = new Random(7);
+		GeneralRouter.EvalCache cache = new GeneralRouter.EvalCache();
+		Map<String, Float> expected = new HashMap<>();
+		List<int[]> keys = new ArrayList<>();
+		for (int i = 0; i < CACHE_KEYS; i++) {
+			int[] types = new int[rnd.nextInt(5)];
+			for (int k = 0; k < types.length; k++) {
+				types[k] = rnd.nextInt(20);
+			}
+			boolean extra = rnd.nextBoolean();
+			float val = rnd.nextFloat();
+			cache.put(types, extra, val);
+			expected.put(Arrays.toString(types) + extra, val);
+			keys.add(types);
+		}
+		for (int[] types : keys) {
+			for (boolean extra : new boolean[] { false, true }) {
+				Float val = expected.get(Arrays.toString(types) + extra);
+				float res = cache.get(types.clone(), extra);
+				if (val == null) {
+					Assert.assertTrue(Float.isNaN(res));
+				} else {
+					Assert.assertEquals(val, res, 0);
+				}
+			}
+		}
+		Assert.assertTrue(Float.isNaN(cache.get(new int[] { 100 }, false)));
+	}
+
+	private static float[] evaluate(GeneralRouter router, RouteDataObject road) {
+		return new float[] { router.acceptLine(road) ? 1 : 0, router.isOneWay(road), router.getPenaltyTransition(road),
+				router.defineRoutingSpeed(road, true), router.defineRoutingSpeed(road, false),
+				router.defineVehicleSpeed(road, true), router.defineSpeedPriority(road, true),
+				router.defineDestinationPriority(road), router.defineObstacle(road, 0, true),
+				router.defineObstacle(road, 0, false), router.defineRoutingObstacle(road, 1, true),
+				router.defineRoutingObstacle(road, 1, false) };
+	}
+
+	private static List<RouteDataObject> generateRoads(RouteRegion reg, int pointTypesStart, int typesEnd, Random rnd) {
+		List<RouteDataObject> roads = new ArrayList<>();
+		for (int i = 0; i < ROADS; i++) {
+			RouteDataObject road = new RouteDataObject(reg);
+			road.id = i;
+			road.types = randomTypes(rnd, 0, pointTypesStart);
+			road.pointsX = new int[] { i, i + 1 };
+			road.pointsY = new int[] { i, i + 1 };
+			road.pointTypes = new int[][] { randomTypes(rnd, pointTypesStart, typesEnd),
+					randomTypes(rnd, pointTypesStart, typesEnd) };
+			roads.add(road);
+		}
+		return roads;
+	}
+
+	private static int[] randomTypes(Random rnd, int start, int end) {
+		TIntArrayList types = new TIntArrayList();
+		for (int t = start; t < end; t++) {
+			if (rnd.nextInt(end - start) < 2) {
+				types.add(t);
+			}
+		}
+		return types.toArray();
+	}
+}
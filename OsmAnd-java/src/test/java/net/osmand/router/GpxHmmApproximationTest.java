@@ -0,0 +1,98 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.GpxHmmApproximation.HmmState;
+import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.util.MapUtils;
+
+public class GpxHmmApproximationTest {
+	private static final int POINTS = 100;
+
+	// candidates of every point are on two parallel roads (without connection between them)
+	private static class ParallelRoadsApproximation extends GpxHmmApproximation {
+		private final RouteDataObject common = road(1);
+		private final RouteDataObject best = road(2);
+		private final RouteDataObject other = road(3);
+
+		ParallelRoadsApproximation(RoutingContext ctx, MatchedRouteListener listener) {
+			super(new RoutePlannerFrontEnd(), ctx, listener);
+		}
+
+		@Override
+		List<HmmState> findCandidates(GpxPoint p) {
+			List<HmmState> res = new ArrayList<>();
+			if (p.ind == 0) {
+				res.add(new HmmState(p, common, 0, 1, p.x31, p.y31, 0));
+			} else {
+				res.add(new HmmState(p, best, 0, 1, p.x31, p.y31, 0));
+				res.add(new HmmState(p, other, 0, 1, p.x31, p.y31, 0.1));
+			}
+			return res;
+		}
+
+		@Override
+		void transitions(HmmState prev, List<HmmState> candidates, double straightDist) {
+			for (HmmState c : candidates) {
+				if (prev.road == common || prev.road == c.road) {
+					c.cost = prev.cost + c.emission;
+					c.parent = prev;
+					c.depth = prev.depth + 1;
+					c.route = Collections.singletonList(new RouteSegmentResult(c.road, 0, 1));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testForcedDecisionOnParallelRoads() throws IOException {
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build("car", memoryLimits);
+		RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null, new BinaryMapIndexReader[0]);
+		final List<RouteSegmentResult> matched = new ArrayList<>();
+		ParallelRoadsApproximation app = new ParallelRoadsApproximation(ctx, new GpxHmmApproximation.MatchedRouteListener() {
+			@Override
+			public void routeMatched(GpxPoint start, GpxPoint target, List<RouteSegmentResult> route) {
+				matched.addAll(route);
+			}
+		});
+		for (int i = 0; i < POINTS; i++) {
+			GpxPoint p = new GpxPoint();
+			p.ind = i;
+			p.loc = new LatLon(50 + i * 0.001, 10);
+			p.x31 = MapUtils.get31TileNumberX(p.loc.getLongitude());
+			p.y31 = MapUtils.get31TileNumberY(p.loc.getLatitude());
+			app.addPoint(p);
+			Assert.assertTrue(app.getLatticeDepth() <= GpxHmmApproximation.MAX_LATTICE_DEPTH);
+		}
+		// decision is forced by best candidate before the end of track
+		Assert.assertTrue(matched.size() > POINTS - GpxHmmApproximation.MAX_LATTICE_DEPTH);
+		Assert.assertEquals(app.common, matched.get(0).getObject());
+		for (int i = 1; i < matched.size(); i++) {
+			Assert.assertEquals(app.best, matched.get(i).getObject());
+		}
+		app.finish();
+		Assert.assertEquals(POINTS, matched.size());
+	}
+
+	private static RouteDataObject road(long id) {
+		RouteDataObject road = new RouteDataObject(new RouteRegion());
+		road.id = id;
+		road.types = new int[0];
+		road.pointsX = new int[] { 0, 1 };
+		road.pointsY = new int[] { 0, 1 };
+		return road;
+	}
+}
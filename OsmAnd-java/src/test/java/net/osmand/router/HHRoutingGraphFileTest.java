@@ -0,0 +1,114 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
+import net.osmand.util.MapUtils;
+
+public class HHRoutingGraphFileTest {
+
+	private static final int PROFILE = 2;
+	private static final String PARAMS = "car,short_way";
+
+	@Test
+	public void testWriteRead() throws Exception {
+		NetworkDBPoint a = point(30, 1);
+		NetworkDBPoint b = point(10, 2);
+		NetworkDBPoint c = point(20, 3);
+		a.dualPoint = b;
+		b.dualPoint = a;
+		c.tagValues = new ArrayList<>(Arrays.asList(new TagValuePair("highway", "primary", -1)));
+		List<NetworkDBSegment> segments = new ArrayList<>();
+		segments.add(new NetworkDBSegment(a, b, 5, true, false));
+		segments.add(new NetworkDBSegment(b, c, 7, true, false));
+		segments.add(new NetworkDBSegment(a, c, 12, true, true));
+		segments.add(new NetworkDBSegment(c, a, 4.5, true, false));
+
+		File f = File.createTempFile("graph", ".hhgraph");
+		try {
+			HHRoutingGraphFile.write(f, "car", PROFILE, PARAMS, Arrays.asList(a, b, c), segments,
+					new HHRoutingGraphFile.SegmentGeometryLoader() {
+						@Override
+						public void loadGeometry(NetworkDBSegment segment, TIntArrayList xy) {
+							xy.add(new int[] { segment.start.startX, segment.start.startY, segment.end.startX,
+									segment.end.startY });
+						}
+					});
+			HHRoutingGraphFile graph = new HHRoutingGraphFile(f);
+			Assert.assertEquals("car", graph.getRoutingProfile());
+			Assert.assertEquals(PROFILE, graph.insertRoutingProfile("car", PARAMS));
+
+			// geometry could be requested before points are loaded
+			NetworkDBSegment shortcut = new NetworkDBSegment(a, c, 12, true, true);
+			Assert.assertTrue(graph.loadGeometry(shortcut, PROFILE, false));
+			Assert.assertEquals(Arrays.asList(latLon(a), latLon(c)), shortcut.getGeometry());
+			Assert.assertFalse(graph.loadGeometry(new NetworkDBSegment(b, a, 5, true, false), PROFILE, false));
+
+			TLongObjectHashMap<NetworkDBPoint> pnts = graph.loadNetworkPoints((short) 0, NetworkDBPoint.class);
+			Assert.assertEquals(3, pnts.size());
+			NetworkDBPoint ra = pnts.get(30);
+			Assert.assertEquals(a.roadId, ra.roadId);
+			Assert.assertEquals(a.startX, ra.startX);
+			Assert.assertEquals(a.endY, ra.endY);
+			Assert.assertEquals(a.clusterId, ra.clusterId);
+			Assert.assertSame(pnts.get(10), ra.dualPoint);
+			Assert.assertNull(pnts.get(20).dualPoint);
+			Assert.assertEquals("primary", pnts.get(20).tagValues.get(0).value);
+
+			Assert.assertEquals(3, graph.loadNetworkSegmentsInternal(pnts.valueCollection(), PROFILE, true));
+			Assert.assertEquals(1, ra.connected.size());
+			Assert.assertEquals(1, ra.connectedReverse.size());
+			Assert.assertEquals(4.5, ra.connectedReverse.get(0).dist, 0);
+
+			HHRoutingContext<NetworkDBPoint> ctx = new HHRoutingContext<NetworkDBPoint>();
+			ctx.pointsById = pnts;
+			HHRouteRegionPointsCtx<NetworkDBPoint> reg = new HHRouteRegionPointsCtx<NetworkDBPoint>((short) 0, graph);
+			reg.routingProfile = PROFILE;
+			NetworkDBPoint rc = pnts.get(20);
+			rc.connectedSet(true, null);
+			Assert.assertEquals(2, graph.loadNetworkSegmentPoint(ctx, reg, rc, true));
+			List<NetworkDBSegment> in = rc.connected(true);
+			double dist = 0;
+			for (NetworkDBSegment s : in) {
+				Assert.assertSame(rc, s.end);
+				Assert.assertFalse(s.direction);
+				dist += s.dist;
+			}
+			Assert.assertEquals(19, dist, 0);
+			graph.close();
+		} finally {
+			f.delete();
+		}
+	}
+
+	private NetworkDBPoint point(int index, int k) {
+		NetworkDBPoint p = new NetworkDBPoint();
+		p.index = index;
+		p.clusterId = k;
+		p.roadId = 1000 + k;
+		p.start = (short) k;
+		p.end = (short) (k + 1);
+		p.startX = MapUtils.get31TileNumberX(10 + k * 0.01);
+		p.startY = MapUtils.get31TileNumberY(50);
+		p.endX = p.startX + 100;
+		p.endY = p.startY + 100;
+		return p;
+	}
+
+	private LatLon latLon(NetworkDBPoint p) {
+		return new LatLon(MapUtils.get31LatitudeY(p.startY), MapUtils.get31LongitudeX(p.startX));
+	}
+}
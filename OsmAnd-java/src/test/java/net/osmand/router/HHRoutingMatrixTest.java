@@ -0,0 +1,158 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHMatrixRes;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * Matrix of HH routes between all points of test_routing.json hh entries should match single routes,
+ * parallel detailed routing should match sequential
+ */
+@RunWith(Parameterized.class)
+public class HHRoutingMatrixTest {
+	private static final String ROUTING_PATH = "src/test/resources/routing/";
+	private static final double TIME_PRECISION = 0.01;
+	private static final int DETAILED_THREADS = 4;
+
+	private final TestEntry te;
+
+	public HHRoutingMatrixTest(String name, TestEntry te) {
+		this.te = te;
+	}
+
+	@Parameterized.Parameters(name = "{index}: {0}")
+	public static Iterable<Object[]> data() throws IOException {
+		Reader reader = new InputStreamReader(
+				Objects.requireNonNull(HHRoutingMatrixTest.class.getResourceAsStream("/test_routing.json")));
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		TestEntry[] testEntries = gson.fromJson(reader, TestEntry[].class);
+		ArrayList<Object[]> arrayList = new ArrayList<>();
+		for (TestEntry te : testEntries) {
+			if (!te.isIgnore() && "true".equals(te.getParams().get("hh"))) {
+				arrayList.add(new Object[] { te.getTestName(), te });
+			}
+		}
+		reader.close();
+		return arrayList;
+	}
+
+	@Test
+	public void testMatrixMatchesSingleRoutes() throws Exception {
+		List<BinaryMapIndexReader> readers = openReaders();
+		try {
+			HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.create(buildContext(readers));
+
+			List<LatLon> points = new ArrayList<>();
+			points.add(te.getStartPoint());
+			points.addAll(te.getTransitPoint());
+			points.add(te.getEndPoint());
+			HHMatrixRes matrix = planner.runRoutingMatrix(points, points, HHRoutingConfig.dijkstra(0));
+			Assert.assertNull(matrix.error);
+			for (int i = 0; i < points.size(); i++) {
+				for (int j = 0; j < points.size(); j++) {
+					if (i == j) {
+						continue;
+					}
+					HHNetworkRouteRes route = planner.runRouting(points.get(i), points.get(j),
+							HHRoutingConfig.dijkstra(0));
+					String msg = String.format("%s -> %s", points.get(i), points.get(j));
+					if (route == null || route.error != null) {
+						Assert.assertFalse(msg, matrix.isFound(i, j));
+						continue;
+					}
+					double time = route.getHHRoutingTime();
+					Assert.assertTrue(msg, matrix.isFound(i, j));
+					Assert.assertEquals(msg, time, matrix.getTime(i, j), time * TIME_PRECISION);
+				}
+			}
+		} finally {
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+	}
+
+	@Test
+	public void testParallelDetailedRouting() throws Exception {
+		List<BinaryMapIndexReader> readers = openReaders();
+		try {
+			RoutingContext sequentialCtx = buildContext(readers);
+			HHNetworkRouteRes sequential = HHRoutePlanner.create(sequentialCtx).runRouting(te.getStartPoint(),
+					te.getEndPoint(), HHRoutingConfig.astar(0).calcDetailed(1));
+			RoutingContext parallelCtx = buildContext(readers);
+			HHNetworkRouteRes parallel = HHRoutePlanner.create(parallelCtx).runRouting(te.getStartPoint(),
+					te.getEndPoint(), HHRoutingConfig.astar(0).calcDetailed(1).detailedThreads(DETAILED_THREADS));
+			Assert.assertNull(sequential.error);
+			Assert.assertNull(parallel.error);
+			Assert.assertEquals(sequential.getHHRoutingDetailed(), parallel.getHHRoutingDetailed(), 1e-3);
+			Assert.assertEquals(sequential.segments.size(), parallel.segments.size());
+			for (int i = 0; i < sequential.segments.size(); i++) {
+				List<RouteSegmentResult> s = sequential.segments.get(i).list;
+				List<RouteSegmentResult> p = parallel.segments.get(i).list;
+				Assert.assertEquals(s == null, p == null);
+				for (int k = 0; s != null && k < s.size(); k++) {
+					Assert.assertEquals(s.get(k).getObject().getId(), p.get(k).getObject().getId());
+					Assert.assertEquals(s.get(k).getStartPointIndex(), p.get(k).getStartPointIndex());
+					Assert.assertEquals(s.get(k).getEndPointIndex(), p.get(k).getEndPointIndex());
+				}
+			}
+			// counters of workers are merged into progress of route (workers could calculate segments
+			// which are not reached by sequential calculation before route recalculation)
+			Assert.assertTrue(sequentialCtx.calculationProgress.visitedSegments > 0);
+			Assert.assertTrue(parallelCtx.calculationProgress.visitedSegments
+					>= sequentialCtx.calculationProgress.visitedSegments);
+		} finally {
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+	}
+
+	private List<BinaryMapIndexReader> openReaders() throws IOException {
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		Map<String, String> params = te.getParams();
+		if (params.containsKey("map")) {
+			readers.add(openReader(ROUTING_PATH + params.get("map")));
+		}
+		readers.add(openReader(ROUTING_PATH + "Routing_test_archive.obf"));
+		return readers;
+	}
+
+	private RoutingContext buildContext(List<BinaryMapIndexReader> readers) {
+		Map<String, String> params = te.getParams();
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(
+				params.containsKey("vehicle") ? params.get("vehicle") : "car", memoryLimits, params);
+		RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null,
+				readers.toArray(new BinaryMapIndexReader[0]), RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+		ctx.calculationProgress = new RouteCalculationProgress();
+		return ctx;
+	}
+
+	private static BinaryMapIndexReader openReader(String path) throws IOException {
+		return new BinaryMapIndexReader(new RandomAccessFile(path, "r"), new File(path));
+	}
+}
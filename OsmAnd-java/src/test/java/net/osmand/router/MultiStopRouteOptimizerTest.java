@@ -0,0 +1,164 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHMatrixRes;
+import net.osmand.util.MapUtils;
+
+public class MultiStopRouteOptimizerTest {
+
+	@Test
+	public void testOptimalTour() throws InterruptedException {
+		Random rnd = new Random(7);
+		for (int test = 0; test < 5; test++) {
+			boolean fixedEnd = test % 2 == 0;
+			double[][] times = randomAsymmetricMatrix(rnd, 8);
+			MultiStopRouteOptimizer opt = new MultiStopRouteOptimizer(times, fixedEnd).setThreads(2).setSeed(test);
+			int[] tour = opt.solve();
+			checkTour(tour, fixedEnd);
+			int[] perm = new int[times.length];
+			for (int i = 0; i < perm.length; i++) {
+				perm[i] = i;
+			}
+			double best = bruteForce(opt, perm, 1, fixedEnd ? perm.length - 2 : perm.length - 1);
+			Assert.assertEquals(best, opt.getTourCost(tour), 1e-6);
+		}
+	}
+
+	@Test
+	public void testOptimalTourWithTimeWindows() throws InterruptedException {
+		Random rnd = new Random(11);
+		for (int test = 0; test < 5; test++) {
+			boolean fixedEnd = test % 2 == 1;
+			double[][] times = randomAsymmetricMatrix(rnd, 8);
+			MultiStopRouteOptimizer opt = new MultiStopRouteOptimizer(times, fixedEnd).setThreads(2).setSeed(test);
+			for (int i = 1; i < times.length; i++) {
+				double from = rnd.nextDouble() * 3000;
+				opt.setTimeWindow(i, from, from + 500 + rnd.nextDouble() * 1000);
+				opt.setServiceTime(i, rnd.nextDouble() * 100);
+			}
+			int[] tour = opt.solve();
+			checkTour(tour, fixedEnd);
+			int[] perm = new int[times.length];
+			for (int i = 0; i < perm.length; i++) {
+				perm[i] = i;
+			}
+			double best = bruteForce(opt, perm, 1, fixedEnd ? perm.length - 2 : perm.length - 1);
+			Assert.assertEquals(best, opt.getTourCost(tour), 1e-6);
+		}
+	}
+
+	@Test
+	public void testTimeWindow() throws InterruptedException {
+		// points on a line, without windows order is 0 1 2 3 4
+		double[][] times = new double[5][5];
+		for (int i = 0; i < 5; i++) {
+			for (int j = 0; j < 5; j++) {
+				times[i][j] = 100 * Math.abs(i - j);
+			}
+		}
+		MultiStopRouteOptimizer opt = new MultiStopRouteOptimizer(times, true).setThreads(2);
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, opt.solve());
+		// with service at 1 point 3 should be visited before 1 to be in time
+		opt.setServiceTime(1, 100);
+		opt.setTimeWindow(3, 0, 300);
+		int[] tour = opt.solve();
+		Assert.assertEquals(900, opt.getTourCost(tour), 1e-6);
+		Assert.assertEquals(1500, opt.getTourCost(new int[] { 0, 1, 2, 3, 4 }), 1e-6);
+		int pos1 = 0, pos3 = 0;
+		for (int i = 0; i < tour.length; i++) {
+			pos1 = tour[i] == 1 ? i : pos1;
+			pos3 = tour[i] == 3 ? i : pos3;
+		}
+		Assert.assertTrue(pos3 < pos1);
+		Assert.assertEquals(4, tour[4]);
+	}
+
+	@Test
+	public void testUnreachablePairs() {
+		List<LatLon> points = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			points.add(new LatLon(52 + i * 0.01, 4 + i * 0.02));
+		}
+		// point 3 is not connected with other points, 1 can't be reached from 2
+		HHMatrixRes res = new HHMatrixRes(points.size(), points.size());
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				if (i != j && !(i == 2 && j == 1)) {
+					res.times[i][j] = 100 * (i + 1) + j;
+				}
+			}
+		}
+		double[][] m = MultiStopRouteOptimizer.buildTimeMatrix(res, points);
+		for (int i = 0; i < points.size(); i++) {
+			Assert.assertEquals(0, m[i][i], 0);
+			for (int j = 0; j < points.size(); j++) {
+				if (i == j) {
+					continue;
+				}
+				double straight = MapUtils.getDistance(points.get(i), points.get(j))
+						/ MultiStopRouteOptimizer.UNREACHABLE_SPEED;
+				if (res.isFound(i, j)) {
+					Assert.assertEquals(res.getTime(i, j), m[i][j], 0);
+				} else {
+					Assert.assertEquals(straight, m[i][j], 1e-6);
+					Assert.assertTrue(m[i][j] > 1000);
+				}
+			}
+		}
+	}
+
+	private double[][] randomAsymmetricMatrix(Random rnd, int n) {
+		double[][] xy = new double[n][2];
+		for (int i = 0; i < n; i++) {
+			xy[i][0] = rnd.nextDouble() * 1000;
+			xy[i][1] = rnd.nextDouble() * 1000;
+		}
+		double[][] times = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (i != j) {
+					times[i][j] = Math.hypot(xy[i][0] - xy[j][0], xy[i][1] - xy[j][1]) * (1 + rnd.nextDouble() * 0.5);
+				}
+			}
+		}
+		return times;
+	}
+
+	private void checkTour(int[] tour, boolean fixedEnd) {
+		boolean[] visited = new boolean[tour.length];
+		for (int p : tour) {
+			Assert.assertFalse(visited[p]);
+			visited[p] = true;
+		}
+		Assert.assertEquals(0, tour[0]);
+		if (fixedEnd) {
+			Assert.assertEquals(tour.length - 1, tour[tour.length - 1]);
+		}
+	}
+
+	private double bruteForce(MultiStopRouteOptimizer opt, int[] perm, int k, int last) {
+		if (k >= last) {
+			return opt.getTourCost(perm);
+		}
+		double best = Double.POSITIVE_INFINITY;
+		for (int i = k; i <= last; i++) {
+			swap(perm, k, i);
+			best = Math.min(best, bruteForce(opt, perm, k + 1, last));
+			swap(perm, k, i);
+		}
+		return best;
+	}
+
+	private void swap(int[] a, int i, int j) {
+		int s = a[i];
+		a[i] = a[j];
+		a[j] = s;
+	}
+}
@@ -0,0 +1,135 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteIsochroneCalculator.IsochroneBand;
+import net.osmand.router.RouteIsochroneCalculator.IsochroneResult;
+import net.osmand.router.RouteIsochroneCalculator.ReachableSegment;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.util.MapUtils;
+
+/**
+ * Isochrone bands around start points of test_routing.json should grow with time budget
+ */
+@RunWith(Parameterized.class)
+public class RouteIsochroneCalculatorTest {
+	private static final String ROUTING_PATH = "src/test/resources/routing/";
+	private static final float[] BUDGETS = { 120, 300, 600 };
+	// bands are built on grids of different extent, so area is compared with tolerance
+	private static final double AREA_PRECISION = 0.1;
+
+	private final TestEntry te;
+
+	public RouteIsochroneCalculatorTest(String name, TestEntry te) {
+		this.te = te;
+	}
+
+	@Parameterized.Parameters(name = "{index}: {0}")
+	public static Iterable<Object[]> data() throws IOException {
+		Reader reader = new InputStreamReader(
+				Objects.requireNonNull(RouteIsochroneCalculatorTest.class.getResourceAsStream("/test_routing.json")));
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		TestEntry[] testEntries = gson.fromJson(reader, TestEntry[].class);
+		ArrayList<Object[]> arrayList = new ArrayList<>();
+		for (TestEntry te : testEntries) {
+			if (!te.isIgnore() && !"true".equals(te.getParams().get("hh"))) {
+				arrayList.add(new Object[] { te.getTestName(), te });
+			}
+		}
+		reader.close();
+		return arrayList;
+	}
+
+	@Test
+	public void testTimeBands() throws Exception {
+		Map<String, String> params = te.getParams();
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		try {
+			if (params.containsKey("map")) {
+				readers.add(openReader(ROUTING_PATH + params.get("map")));
+			}
+			readers.add(openReader(ROUTING_PATH + "Routing_test_archive.obf"));
+			RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+					RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+			RoutingConfiguration config = RoutingConfiguration.getDefault().build(
+					params.containsKey("vehicle") ? params.get("vehicle") : "car", memoryLimits, params);
+			RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null,
+					readers.toArray(new BinaryMapIndexReader[0]), RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+			IsochroneResult res = new RouteIsochroneCalculator().calculate(ctx, te.getStartPoint(), BUDGETS);
+			Assert.assertNull(res.error);
+			Assert.assertFalse(res.segments.isEmpty());
+			Assert.assertEquals(BUDGETS.length, res.bands.size());
+
+			for (ReachableSegment r : res.segments) {
+				Assert.assertTrue(r.toString(), r.startTime >= 0 && r.startTime <= r.endTime);
+				Assert.assertTrue(r.toString(), r.startDistance >= 0 && r.startDistance <= r.endDistance);
+				Assert.assertTrue(r.toString(), r.startTime <= BUDGETS[BUDGETS.length - 1]);
+			}
+			double prevArea = 0;
+			int prevReachable = 0;
+			for (int i = 0; i < BUDGETS.length; i++) {
+				IsochroneBand band = res.bands.get(i);
+				Assert.assertEquals(BUDGETS[i], band.budget, 0);
+				Assert.assertFalse(band.polygons.isEmpty());
+				int reachable = 0;
+				for (ReachableSegment r : res.segments) {
+					float part = r.getReachablePart(BUDGETS[i], false);
+					if (i > 0) {
+						Assert.assertTrue(r.toString(), part >= r.getReachablePart(BUDGETS[i - 1], false));
+					}
+					reachable += part > 0 ? 1 : 0;
+				}
+				Assert.assertTrue(reachable >= prevReachable);
+				double area = area(band.polygons) - area(band.holes);
+				Assert.assertTrue(String.format("band %.0f: %.0f < %.0f", band.budget, area, prevArea),
+						area >= prevArea * (1 - AREA_PRECISION));
+				prevArea = area;
+				prevReachable = reachable;
+			}
+		} finally {
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+	}
+
+	// area in square meters (rings are small, so they are projected on plane near first point)
+	private double area(List<List<LatLon>> rings) {
+		double res = 0;
+		for (List<LatLon> ring : rings) {
+			LatLon o = ring.get(0);
+			double mx = MapUtils.getDistance(o.getLatitude(), o.getLongitude(), o.getLatitude(), o.getLongitude() + 1);
+			double my = MapUtils.getDistance(o.getLatitude(), o.getLongitude(), o.getLatitude() + 1, o.getLongitude());
+			double a = 0;
+			for (int i = 1; i < ring.size(); i++) {
+				LatLon p = ring.get(i - 1), c = ring.get(i);
+				a += (p.getLongitude() - o.getLongitude()) * mx * (c.getLatitude() - o.getLatitude()) * my
+						- (c.getLongitude() - o.getLongitude()) * mx * (p.getLatitude() - o.getLatitude()) * my;
+			}
+			res += Math.abs(a) / 2;
+		}
+		return res;
+	}
+
+	private static BinaryMapIndexReader openReader(String path) throws IOException {
+		return new BinaryMapIndexReader(new RandomAccessFile(path, "r"), new File(path));
+	}
+}
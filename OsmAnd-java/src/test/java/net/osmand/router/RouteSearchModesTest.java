@@ -0,0 +1,140 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * Optional search modes should find the same routes as default search on routes of test_routing.json
+ */
+@RunWith(Parameterized.class)
+public class RouteSearchModesTest {
+	private static final String ROUTING_PATH = "src/test/resources/routing/";
+	// routes with the same cost could be different, so route time is compared
+	private static final double TIME_PRECISION = 0.01;
+
+	private final TestEntry te;
+
+	public RouteSearchModesTest(String name, TestEntry te) {
+		this.te = te;
+	}
+
+	@Parameterized.Parameters(name = "{index}: {0}")
+	public static Iterable<Object[]> data() throws IOException {
+		Reader reader = new InputStreamReader(
+				Objects.requireNonNull(RouteSearchModesTest.class.getResourceAsStream("/test_routing.json")));
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		TestEntry[] testEntries = gson.fromJson(reader, TestEntry[].class);
+		ArrayList<Object[]> arrayList = new ArrayList<>();
+		for (TestEntry te : testEntries) {
+			if (te.isIgnore() || "true".equals(te.getParams().get("hh"))) {
+				continue;
+			}
+			arrayList.add(new Object[] { te.getTestName(), te });
+		}
+		reader.close();
+		return arrayList;
+	}
+
+	@Test
+	public void testParallelBidirectionalSearch() throws Exception {
+		double sequential = calculateRouteTime(null);
+		double parallel = calculateRouteTime(config -> config.parallelBidirectionalSearch = true);
+		Assert.assertEquals(sequential, parallel, sequential * TIME_PRECISION);
+	}
+
+	@Test
+	public void testPrimitiveQueue() throws Exception {
+		double objectQueue = calculateRouteTime(null);
+		boolean usePrimitiveQueue = BinaryRoutePlanner.USE_PRIMITIVE_QUEUE;
+		BinaryRoutePlanner.USE_PRIMITIVE_QUEUE = true;
+		try {
+			double primitiveQueue = calculateRouteTime(null);
+			Assert.assertEquals(objectQueue, primitiveQueue, objectQueue * TIME_PRECISION);
+		} finally {
+			BinaryRoutePlanner.USE_PRIMITIVE_QUEUE = usePrimitiveQueue;
+		}
+	}
+
+	@Test
+	public void testCompactTileStorage() throws Exception {
+		List<RouteSegmentResult> route = calculateRoute(null);
+		List<RouteSegmentResult> compact = calculateRoute(config -> config.compactTileStorage = true);
+		Assert.assertEquals(route.size(), compact.size());
+		for (int i = 0; i < route.size(); i++) {
+			RouteSegmentResult r = route.get(i);
+			RouteSegmentResult c = compact.get(i);
+			Assert.assertEquals(r.getObject().getId(), c.getObject().getId());
+			Assert.assertEquals(r.getStartPointIndex(), c.getStartPointIndex());
+			Assert.assertEquals(r.getEndPointIndex(), c.getEndPointIndex());
+		}
+	}
+
+	private double calculateRouteTime(Consumer<RoutingConfiguration> mode) throws IOException, InterruptedException {
+		double time = 0;
+		for (RouteSegmentResult r : calculateRoute(mode)) {
+			time += r.getSegmentTime();
+		}
+		return time;
+	}
+
+	private List<RouteSegmentResult> calculateRoute(Consumer<RoutingConfiguration> mode)
+			throws IOException, InterruptedException {
+		Map<String, String> params = te.getParams();
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		try {
+			if (params.containsKey("map")) {
+				readers.add(openReader(ROUTING_PATH + params.get("map")));
+			}
+			readers.add(openReader(ROUTING_PATH + "Routing_test_archive.obf"));
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+			fe.CALCULATE_MISSING_MAPS = false;
+			RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+					RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+			RoutingConfiguration config = RoutingConfiguration.getDefault().build(
+					params.containsKey("vehicle") ? params.get("vehicle") : "car", memoryLimits, params);
+			if (params.containsKey("routeCalculationTime")) {
+				config.routeCalculationTime = Long.parseLong(params.get("routeCalculationTime"));
+			}
+			if (params.containsKey("heuristicCoefficient")) {
+				config.heuristicCoefficient = Float.parseFloat(params.get("heuristicCoefficient"));
+			}
+			if (mode != null) {
+				mode.accept(config);
+			}
+			RoutingContext ctx = fe.buildRoutingContext(config, null, readers.toArray(new BinaryMapIndexReader[0]),
+					RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+			ctx.leftSideNavigation = false;
+			List<RouteSegmentResult> route = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(),
+					te.getTransitPoint()).detailed;
+			Assert.assertNotNull(route);
+			return route;
+		} finally {
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+	}
+
+	private static BinaryMapIndexReader openReader(String path) throws IOException {
+		return new BinaryMapIndexReader(new RandomAccessFile(path, "r"), new File(path));
+	}
+}
@@ -0,0 +1,81 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+
+public class RoutingTileCacheTest {
+	private static final String OBF_FILE = "src/test/resources/routing/Routing_test_archive.obf";
+
+	@Test
+	public void testLoadAndEvict() throws IOException {
+		RoutingTileCache previous = RoutingTileCache.getShared();
+		RoutingTileCache cache = new RoutingTileCache(Long.MAX_VALUE);
+		RoutingTileCache.setShared(cache);
+		File file = new File(OBF_FILE);
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+		BinaryMapIndexReader copy = reader.copyReader();
+		try {
+			List<RouteSubregion> subregions = loadSubregions(reader);
+			Assert.assertFalse(subregions.isEmpty());
+			for (RouteSubregion sub : subregions) {
+				List<RouteDataObject> loaded = cache.loadRouteIndexData(reader, sub);
+				Assert.assertEquals(reader.loadRouteIndexData(sub).size(), loaded.size());
+				// copy of reader shares regions, so it gets the same tile
+				Assert.assertSame(loaded, cache.loadRouteIndexData(copy, sub));
+			}
+			Assert.assertEquals(subregions.size(), cache.getMisses());
+			Assert.assertEquals(subregions.size(), cache.getHits());
+			Assert.assertEquals(subregions.size(), cache.getTilesCount());
+			Assert.assertTrue(cache.getEstimatedSize() > 0);
+
+			// closing copy doesn't evict tiles of shared regions
+			copy.close();
+			Assert.assertEquals(subregions.size(), cache.getTilesCount());
+			reader.close();
+			Assert.assertEquals(0, cache.getTilesCount());
+			Assert.assertEquals(0, cache.getEstimatedSize());
+		} finally {
+			RoutingTileCache.setShared(previous);
+			copy.close();
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testSizeLimit() throws IOException {
+		RoutingTileCache cache = new RoutingTileCache(1);
+		File file = new File(OBF_FILE);
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+		try {
+			List<RouteSubregion> subregions = loadSubregions(reader);
+			for (RouteSubregion sub : subregions) {
+				cache.loadRouteIndexData(reader, sub);
+				// last loaded tile is kept
+				Assert.assertEquals(1, cache.getTilesCount());
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private List<RouteSubregion> loadSubregions(BinaryMapIndexReader reader) throws IOException {
+		List<RouteSubregion> res = new ArrayList<>();
+		for (RouteRegion reg : reader.getRoutingIndexes()) {
+			BinaryMapIndexReader.SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(
+					0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null);
+			res.addAll(reader.searchRouteIndexTree(req, reg.getSubregions()));
+		}
+		return res;
+	}
+}
@@ -0,0 +1,80 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.osm.edit.Node;
+import net.osmand.osm.edit.Way;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+
+/**
+ * Routes calculated over shared snapshot should be the same as routes calculated with readers
+ */
+public class TransportNetworkSnapshotTest {
+	private static final String OBF_FILE = "src/test/resources/routing/Routing_test_archive.obf";
+	private static final int ROUTES = 20;
+
+	@Test
+	public void testSnapshotEqualsReaders() throws IOException, InterruptedException {
+		File file = new File(OBF_FILE);
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+		try {
+			TransportNetworkSnapshot snapshot = TransportNetworkSnapshot.load(14, reader);
+			Assume.assumeTrue(snapshot.getStopsCount() > 0);
+			for (TransportRoute r : snapshot.getRoutes()) {
+				Assert.assertTrue(r.isForwardWaysMerged());
+			}
+			TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(null, new HashMap<String, String>());
+			int cnt = 0;
+			for (TransportRoute r : snapshot.getRoutes()) {
+				if (cnt++ >= ROUTES || r.getForwardStops().size() < 2) {
+					continue;
+				}
+				LatLon start = r.getForwardStops().get(0).getLocation();
+				LatLon end = r.getForwardStops().get(r.getForwardStops().size() - 1).getLocation();
+				List<String> expected = describe(new TransportRoutePlanner().buildRoute(
+						new TransportRoutingContext(cfg, null, reader), start, end));
+				TransportRoutingContext ctx = new TransportRoutingContext(cfg, null, snapshot);
+				List<String> res = describe(new TransportRoutePlanner().buildRoute(ctx, start, end));
+				Assert.assertEquals(r.toString(), expected, res);
+				// geometry doesn't change shared routes, so next request has the same result
+				res = describe(new TransportRoutePlanner().buildRoute(
+						new TransportRoutingContext(cfg, null, snapshot), start, end));
+				Assert.assertEquals(r.toString(), expected, res);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static List<String> describe(List<TransportRouteResult> results) {
+		List<String> lst = new ArrayList<>();
+		for (TransportRouteResult res : results) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%.1f", res.getRouteTime()));
+			for (TransportRouteResultSegment s : res.getSegments()) {
+				sb.append(" ").append(s.route.getId()).append(":").append(s.start).append("-").append(s.end);
+				for (Way w : s.getGeometry()) {
+					sb.append(" [");
+					for (Node n : w.getNodes()) {
+						sb.append(String.format("%.5f %.5f,", n.getLatitude(), n.getLongitude()));
+					}
+					sb.append("]");
+				}
+			}
+			lst.add(sb.toString());
+		}
+		return lst;
+	}
+}
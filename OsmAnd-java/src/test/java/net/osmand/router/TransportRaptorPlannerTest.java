@@ -0,0 +1,108 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportRaptorPlanner.TransportNetwork;
+import net.osmand.util.MapUtils;
+
+public class TransportRaptorPlannerTest {
+
+	private long ids = 1;
+
+	@Test
+	public void testParetoJourneys() throws InterruptedException {
+		TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(null, new HashMap<String, String>());
+		cfg.useSchedule = true;
+		cfg.scheduleTimeOfDay = 8 * 60 * 6;
+		cfg.walkRadius = 200;
+		cfg.walkChangeRadius = 200;
+		int startTime = cfg.scheduleTimeOfDay * 10;
+
+		// fast pair of routes with walking change vs slow direct route
+		TransportRoute a = route("bus", startTime + 60, 60, stop(50, 10), stop(50, 10.01), stop(50, 10.02));
+		TransportRoute b = route("tram", startTime + 500, 120, stop(50.0005, 10.02), stop(50.0005, 10.05));
+		TransportRoute c = route("bus", startTime + 100, 600, stop(50, 10.0001), stop(50.0005, 10.0501));
+		TransportNetwork network = TransportNetwork.build(Arrays.asList(a, b, c), cfg);
+		Assert.assertEquals(7, network.getStopsCount());
+
+		List<TransportRouteResult> res = new TransportRaptorPlanner().buildRoute(cfg, network, new LatLon(50, 10),
+				new LatLon(50.0005, 10.05), null);
+		Assert.assertEquals(2, res.size());
+		TransportRouteResult fast = res.get(0);
+		Assert.assertEquals(2, fast.getSegments().size());
+		Assert.assertEquals(a, fast.getSegments().get(0).route);
+		Assert.assertEquals(b, fast.getSegments().get(1).route);
+		Assert.assertEquals(620, fast.getRouteTime(), 0);
+		Assert.assertTrue(fast.getSegments().get(1).walkDist > 50);
+
+		TransportRouteResult direct = res.get(1);
+		Assert.assertEquals(1, direct.getSegments().size());
+		Assert.assertEquals(c, direct.getSegments().get(0).route);
+		Assert.assertEquals((startTime + 100) / 10, direct.getSegments().get(0).depTime);
+		Assert.assertTrue(direct.getRouteTime() > 700);
+	}
+
+	@Test
+	public void testTransfersDontChain() throws InterruptedException {
+		TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(null, new HashMap<String, String>());
+		cfg.useSchedule = true;
+		cfg.scheduleTimeOfDay = 8 * 60 * 6;
+		cfg.walkRadius = 200;
+		cfg.walkChangeRadius = 200;
+		int startTime = cfg.scheduleTimeOfDay * 10;
+
+		// route reaches x and later y after detour, walk x -> y is faster than route, z is reachable only by walk from y
+		TransportStop x = stop(50, 10.02);
+		TransportStop y = stop(50, 10.0225);
+		TransportStop z = stop(50, 10.025);
+		TransportRoute a = route("bus", startTime + 60, 300, stop(50, 10), x, stop(50.01, 10.02), y);
+		TransportRoute b = route("bus", startTime + 5000, 300, z, stop(50.02, 10.05));
+		TransportNetwork network = TransportNetwork.build(Arrays.asList(a, b), cfg);
+
+		List<TransportRouteResult> res = new TransportRaptorPlanner().buildRoute(cfg, network, new LatLon(50, 10),
+				new LatLon(50, 10.0275), null);
+		Assert.assertEquals(1, res.size());
+		TransportRouteResult r = res.get(0);
+		Assert.assertEquals(1, r.getSegments().size());
+		Assert.assertEquals(a, r.getSegments().get(0).route);
+		Assert.assertEquals(0, r.getSegments().get(0).start);
+		Assert.assertEquals(3, r.getSegments().get(0).end);
+		// walk to z starts from arrival of route at y (not from walk x -> y)
+		double walkYZ = MapUtils.getDistance(y.getLocation(), z.getLocation());
+		double walkZ = MapUtils.getDistance(z.getLocation(), new LatLon(50, 10.0275));
+		Assert.assertEquals(60 + 3 * 300 + walkYZ / cfg.walkSpeed + walkZ / cfg.walkSpeed, r.getRouteTime(), 2);
+	}
+
+	private TransportStop stop(double lat, double lon) {
+		TransportStop s = new TransportStop();
+		s.setId(ids++);
+		s.setLocation(lat, lon);
+		return s;
+	}
+
+	// single trip departing at time (seconds) with equal interval between stops
+	private TransportRoute route(String type, int departure, int interval, TransportStop... stops) {
+		TransportRoute r = new TransportRoute();
+		r.setId(ids++);
+		r.setType(type);
+		r.setForwardStops(new ArrayList<>(Arrays.asList(stops)));
+		TIntArrayList stopIntervals = new TIntArrayList();
+		for (int i = 1; i < stops.length; i++) {
+			stopIntervals.add(interval / 10);
+		}
+		r.setSchedule(new TransportSchedule(new TIntArrayList(new int[] { departure / 10 }), stopIntervals,
+				new TIntArrayList()));
+		return r;
+	}
+}
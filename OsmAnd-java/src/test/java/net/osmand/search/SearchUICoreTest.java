@@ -39,6 +39,8 @@ public class SearchUICoreTest {
 
 	private static final String SEARCH_RESOURCES_PATH = "src/test/resources/search/";
 	private static boolean TEST_EXTRA_RESULTS = true;
+	private static final int PARALLEL_FILES = 3;
+	private static final int PARALLEL_LIMIT = 10;
 	
 	private final File testFile;
 
@@ -92,20 +94,7 @@ public class SearchUICoreTest {
 		Assert.assertTrue(sourceJsonText.length() > 0);
 
 		JSONObject sourceJson = new JSONObject(sourceJsonText);
-		JSONArray phrasesJson = sourceJson.optJSONArray("phrases");
-		String singlePhrase = sourceJson.optString("phrase", null);
-		List<String> phrases = new ArrayList<>();
-		if (singlePhrase != null) {
-			phrases.add(singlePhrase);
-		}
-		if (phrasesJson != null) {
-			for (int i = 0; i < phrasesJson.length(); i++) {
-				String phrase = phrasesJson.optString(i);
-				if (phrase != null) {
-					phrases.add(phrase);
-				}
-			}
-		}
+		List<String> phrases = parsePhrases(sourceJson);
 		JSONObject settingsJson = sourceJson.getJSONObject("settings");
 		BinaryMapIndexReader reader = null;
 		boolean useData = settingsJson.optBoolean("useData", true);
@@ -117,12 +106,7 @@ public class SearchUICoreTest {
 			}
 			//Assert.assertTrue(obfZipFileExists);
 
-			GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(obfZipFile));
-			FileOutputStream fous = new FileOutputStream(obfFile);
-			Algorithms.streamCopy(gzin, fous);
-			fous.close();
-			gzin.close();
-
+			unzip(obfZipFile, obfFile);
 			reader = new BinaryMapIndexReader(new RandomAccessFile(obfFile.getPath(), "r"), obfFile);
 		}
 		 boolean disabled = settingsJson.optBoolean("disabled", false);
@@ -222,9 +206,112 @@ public class SearchUICoreTest {
 		obfFile.delete();
 	}
 
-	private List<SearchResult> getSearchResult(SearchPhrase phrase, ResultMatcher<SearchResult> rm, SearchUICore core){
-		SearchResultMatcher matcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), -1);
+	@Test
+	public void testParallelSearch() throws IOException, JSONException {
+		File obfZipFile = new File(testFile.getParentFile(), testFile.getName().replace(".json", ".obf.gz"));
+		JSONObject sourceJson = new JSONObject(Algorithms.getFileAsString(testFile));
+		JSONObject settingsJson = sourceJson.getJSONObject("settings");
+		if (settingsJson.optBoolean("disabled", false) || !settingsJson.optBoolean("useData", true)
+				|| !obfZipFile.exists()) {
+			return;
+		}
+		// copies of the same file are read in parallel, results are published in order of files
+		List<File> obfFiles = new ArrayList<>();
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		SearchUICore sequential = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		sequential.init();
+		SearchUICore parallel = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		parallel.init();
+		parallel.setParallelSearchThreads(PARALLEL_FILES);
+		try {
+			for (int i = 0; i < PARALLEL_FILES; i++) {
+				File obfFile = new File(testFile.getParentFile(), testFile.getName().replace(".json", "-" + i + ".obf"));
+				unzip(obfZipFile, obfFile);
+				obfFiles.add(obfFile);
+				readers.add(new BinaryMapIndexReader(new RandomAccessFile(obfFile.getPath(), "r"), obfFile));
+			}
+			SearchSettings s = SearchSettings.parseJSON(settingsJson);
+			s.setOfflineIndexes(readers);
+			ResultMatcher<SearchResult> rm = new ResultMatcher<SearchResult>() {
+				@Override
+				public boolean publish(SearchResult object) {
+					return true;
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return false;
+				}
+			};
+			for (String text : parsePhrases(sourceJson)) {
+				if (text.startsWith("POI_TYPE:")) {
+					continue;
+				}
+				for (int limit : new int[] { -1, PARALLEL_LIMIT }) {
+					SearchPhrase phrase = SearchPhrase.emptyPhrase(s).generateNewPhrase(text, s);
+					SearchResultMatcher expected = search(phrase, rm, sequential, limit);
+					SearchResultMatcher actual = search(phrase, rm, parallel, limit);
+					String msg = text + " (limit " + limit + ")";
+					assertSameResults(msg, phrase, expected.getRequestResults(), actual.getRequestResults());
+					assertSameResults(msg, phrase, collectResults(phrase, expected), collectResults(phrase, actual));
+				}
+			}
+		} finally {
+			parallel.shutdownParallelSearch();
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+			for (File f : obfFiles) {
+				f.delete();
+			}
+		}
+	}
+
+	private void assertSameResults(String msg, SearchPhrase phrase, List<SearchResult> expected, List<SearchResult> actual) {
+		Assert.assertEquals(msg, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(msg, formatResult(false, expected.get(i), phrase), formatResult(false, actual.get(i), phrase));
+			Assert.assertSame(msg, expected.get(i).file, actual.get(i).file);
+		}
+	}
+
+	private SearchResultMatcher search(SearchPhrase phrase, ResultMatcher<SearchResult> rm, SearchUICore core, int limit) {
+		SearchResultMatcher matcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), limit);
 		core.searchInternal(phrase, matcher);
+		return matcher;
+	}
+
+	private List<String> parsePhrases(JSONObject sourceJson) {
+		JSONArray phrasesJson = sourceJson.optJSONArray("phrases");
+		String singlePhrase = sourceJson.optString("phrase", null);
+		List<String> phrases = new ArrayList<>();
+		if (singlePhrase != null) {
+			phrases.add(singlePhrase);
+		}
+		if (phrasesJson != null) {
+			for (int i = 0; i < phrasesJson.length(); i++) {
+				String phrase = phrasesJson.optString(i);
+				if (phrase != null) {
+					phrases.add(phrase);
+				}
+			}
+		}
+		return phrases;
+	}
+
+	private void unzip(File obfZipFile, File obfFile) throws IOException {
+		GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(obfZipFile));
+		FileOutputStream fous = new FileOutputStream(obfFile);
+		Algorithms.streamCopy(gzin, fous);
+		fous.close();
+		gzin.close();
+	}
+
+	private List<SearchResult> getSearchResult(SearchPhrase phrase, ResultMatcher<SearchResult> rm, SearchUICore core){
+		return collectResults(phrase, search(phrase, rm, core, -1));
+	}
+
+	private List<SearchResult> collectResults(SearchPhrase phrase, SearchResultMatcher matcher) {
 		SearchResultCollection collection = new SearchResultCollection(phrase);
 		collection.addSearchResults(matcher.getRequestResults(), true, true);
 		if (matcher.totalLimit != -1 && matcher.count > matcher.totalLimit) {
@@ -0,0 +1,50 @@
+package net.osmand.util;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CostPriorityQueueTest {
+
+	@Test
+	public void testPollOrderMatchesPriorityQueue() {
+		Random rnd = new Random(17);
+		CostPriorityQueue<Integer> queue = new CostPriorityQueue<>(4);
+		PriorityQueue<Double> expected = new PriorityQueue<>();
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 500; i++) {
+				double cost = rnd.nextInt(1000) / 10.0;
+				queue.add(i, cost, i % 2);
+				expected.add(cost);
+			}
+			for (int i = 0; i < 300; i++) {
+				Assert.assertEquals(expected.poll(), queue.peekCost(), 0);
+				queue.poll();
+			}
+			Assert.assertEquals(expected.size(), queue.size());
+		}
+		while (!queue.isEmpty()) {
+			Assert.assertEquals(expected.poll(), queue.peekCost(), 0);
+			queue.poll();
+		}
+		Assert.assertTrue(expected.isEmpty());
+		Assert.assertNull(queue.poll());
+	}
+
+	@Test
+	public void testTags() {
+		CostPriorityQueue<String> queue = new CostPriorityQueue<>();
+		queue.add("a", 10, 1);
+		queue.add("b", 5, 2);
+		queue.add("c", 30, 3);
+		Assert.assertEquals(2, queue.peekTag());
+		Assert.assertEquals("b", queue.poll());
+		Assert.assertEquals(1, queue.peekTag());
+		Assert.assertEquals("a", queue.poll());
+		queue.clear();
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertNull(queue.peek());
+	}
+}
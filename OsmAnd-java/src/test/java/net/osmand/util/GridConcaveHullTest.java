@@ -0,0 +1,59 @@
+package net.osmand.util;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GridConcaveHullTest {
+
+	@Test
+	public void testRingWithHole() {
+		GridConcaveHull hull = new GridConcaveHull(0, 0, 50, 50, 10);
+		// 3x3 square of cells without center
+		for (int x = 0; x < 3; x++) {
+			for (int y = 0; y < 3; y++) {
+				if (x != 1 || y != 1) {
+					hull.addPoint(x * 10 + 5, y * 10 + 5);
+				}
+			}
+		}
+		List<int[]> rings = hull.buildRings();
+		Assert.assertEquals(2, rings.size());
+		int outer = 0;
+		for (int[] ring : rings) {
+			Assert.assertEquals(8, ring.length);
+			if (GridConcaveHull.isOuterRing(ring)) {
+				outer++;
+				Assert.assertEquals(-900, GridConcaveHull.signedArea(ring), 0);
+			} else {
+				Assert.assertEquals(100, GridConcaveHull.signedArea(ring), 0);
+			}
+		}
+		Assert.assertEquals(1, outer);
+	}
+
+	@Test
+	public void testDiagonalCellsAndDilate() {
+		GridConcaveHull hull = new GridConcaveHull(0, 0, 100, 100, 10);
+		hull.addPoint(15, 15);
+		hull.addPoint(25, 25);
+		List<int[]> rings = hull.buildRings();
+		Assert.assertEquals(2, rings.size());
+		for (int[] ring : rings) {
+			Assert.assertTrue(GridConcaveHull.isOuterRing(ring));
+			Assert.assertEquals(-100, GridConcaveHull.signedArea(ring), 0);
+		}
+		hull.dilate();
+		rings = hull.buildRings();
+		Assert.assertEquals(1, rings.size());
+		// two 3x3 blocks overlapping by 2x2 cells
+		Assert.assertEquals(-1400, GridConcaveHull.signedArea(rings.get(0)), 0);
+
+		GridConcaveHull line = new GridConcaveHull(0, 0, 100, 100, 10);
+		line.addLine(5, 5, 95, 5);
+		rings = line.buildRings();
+		Assert.assertEquals(1, rings.size());
+		Assert.assertEquals(-1000, GridConcaveHull.signedArea(rings.get(0)), 0);
+	}
+}
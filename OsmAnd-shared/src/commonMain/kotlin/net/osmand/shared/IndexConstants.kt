@@ -50,6 +50,7 @@ object IndexConstants {
 
 	const val GPX_FILE_EXT = ".gpx"
 	const val GPX_GZ_FILE_EXT = ".gpx.gz"
+	const val GPX_BINARY_FILE_EXT = ".gpxb"
 
 	const val WPT_CHART_FILE_EXT = ".wpt.chart"
 	const val SQLITE_CHART_FILE_EXT = ".3d.chart"
@@ -0,0 +1,615 @@
+package net.osmand.shared.gpx
+
+import net.osmand.shared.IndexConstants.GPX_BINARY_FILE_EXT
+import net.osmand.shared.KException
+import net.osmand.shared.gpx.GpxUtilities.PointsGroup
+import net.osmand.shared.gpx.GpxUtilities.RouteSegment
+import net.osmand.shared.gpx.GpxUtilities.RouteType
+import net.osmand.shared.gpx.primitives.Author
+import net.osmand.shared.gpx.primitives.Bounds
+import net.osmand.shared.gpx.primitives.Copyright
+import net.osmand.shared.gpx.primitives.GpxExtensions
+import net.osmand.shared.gpx.primitives.Link
+import net.osmand.shared.gpx.primitives.Metadata
+import net.osmand.shared.gpx.primitives.Route
+import net.osmand.shared.gpx.primitives.Track
+import net.osmand.shared.gpx.primitives.TrkSegment
+import net.osmand.shared.gpx.primitives.WptPt
+import net.osmand.shared.io.KFile
+import net.osmand.shared.util.KAlgorithms
+import net.osmand.shared.util.LoggerFactory
+import okio.BufferedSink
+import okio.BufferedSource
+import okio.IOException
+import okio.Sink
+import okio.Source
+import okio.buffer
+import okio.use
+import kotlin.math.min
+import kotlin.math.roundToLong
+
+/**
+ * Compact binary container of gpx file, same format as GPXBinaryFormat of OsmAnd-java.
+ * Points are stored by columns: coordinates, time and elevation as varint deltas, optional values with presence bits,
+ * extensions with keys from file dictionary. Files with [GPX_BINARY_FILE_EXT] extension are written and read by
+ * [GpxUtilities.writeGpxFile] and [GpxUtilities.loadGpxFile].
+ */
+object GpxBinaryFormat {
+
+	private val log = LoggerFactory.getLogger("GpxBinaryFormat")
+
+	private const val MAGIC = 0x4f475042 // OGPB
+	private const val VERSION = 1
+
+	private const val LAT_LON_MULT = 1e7
+	private const val DECIMAL_MULT = 10.0
+
+	// counts and lengths are read from file, so preallocate only limited size
+	private const val MAX_PREALLOCATED_POINTS = 1 shl 16
+	private const val MAX_STRING_BYTES = 1 shl 24
+
+	fun isBinaryGpx(file: KFile): Boolean = file.name().lowercase().endsWith(GPX_BINARY_FILE_EXT)
+
+	fun writeGpxFile(file: KFile, gpxFile: GpxFile): KException? {
+		return try {
+			file.getParentFile()?.createDirectories()
+			if (KAlgorithms.isEmpty(gpxFile.path)) {
+				gpxFile.path = if (file.isAbsolute()) file.path() else file.absolutePath()
+			}
+			file.sink().use { writeGpx(it, gpxFile) }
+			null
+		} catch (e: IOException) {
+			log.error("Failed to write binary gpx '${file.path()}'", e)
+			KException(e.message, e)
+		}
+	}
+
+	fun writeGpx(sink: Sink, gpxFile: GpxFile) {
+		val w = BinaryWriter(sink.buffer())
+		w.out.writeInt(MAGIC)
+		w.writeVarInt(VERSION)
+		w.writeString(gpxFile.author)
+		w.writeExtensions(gpxFile)
+		w.writeMetadata(gpxFile.metadata)
+		w.writeMap(gpxFile.networkRouteKeyTags)
+		w.writeVarInt(gpxFile.pointsGroups.size)
+		for (group in gpxFile.pointsGroups.values) {
+			w.writeString(group.name)
+			w.writeString(group.iconName)
+			w.writeString(group.backgroundType)
+			w.out.writeInt(group.color)
+			w.writeBoolean(group.hidden)
+		}
+		w.writePoints(gpxFile.getPointsList())
+		w.writeVarInt(gpxFile.routes.size)
+		for (route in gpxFile.routes) {
+			w.writeString(route.name)
+			w.writeString(route.desc)
+			w.writeExtensions(route)
+			w.writePoints(route.points)
+		}
+		val tracks = gpxFile.tracks.filter { !it.generalTrack }
+		w.writeVarInt(tracks.size)
+		for (track in tracks) {
+			w.writeString(track.name)
+			w.writeString(track.desc)
+			w.writeExtensions(track)
+			w.writeVarInt(track.segments.size)
+			for (segment in track.segments) {
+				w.writeSegment(segment)
+			}
+		}
+		w.out.flush()
+	}
+
+	fun loadGpxFile(file: KFile, addGeneralTrack: Boolean): GpxFile {
+		val gpxFile = try {
+			file.source().use { loadGpxFile(it, addGeneralTrack) }
+		} catch (e: IOException) {
+			val res = GpxFile(null)
+			res.error = KException(e.message, e)
+			res
+		}
+		gpxFile.path = file.absolutePath()
+		gpxFile.modifiedTime = file.lastModified()
+		gpxFile.pointsModifiedTime = gpxFile.modifiedTime
+		if (gpxFile.error != null) {
+			log.info("Error reading binary gpx ${gpxFile.path}: ${gpxFile.error!!.message}")
+		}
+		return gpxFile
+	}
+
+	fun loadGpxFile(source: Source, addGeneralTrack: Boolean): GpxFile {
+		val gpxFile = GpxFile(null)
+		try {
+			val r = BinaryReader(source.buffer())
+			if (r.input.readInt() != MAGIC) {
+				throw IOException("Not a binary gpx file")
+			}
+			val version = r.readVarInt()
+			if (version > VERSION) {
+				throw IOException("Unsupported binary gpx version $version")
+			}
+			gpxFile.author = r.readString()
+			r.readExtensions(gpxFile)
+			gpxFile.metadata = r.readMetadata()
+			r.readMap(gpxFile.networkRouteKeyTags)
+			val groups = mutableListOf<PointsGroup>()
+			val groupsCount = r.readVarInt()
+			for (i in 0 until groupsCount) {
+				val group = PointsGroup(r.readString() ?: "")
+				group.iconName = r.readString()
+				group.backgroundType = r.readString()
+				group.color = r.input.readInt()
+				group.hidden = r.readBoolean()
+				groups.add(group)
+			}
+			for (point in r.readPoints()) {
+				gpxFile.addParsedPoint(point)
+			}
+			val routesCount = r.readVarInt()
+			for (i in 0 until routesCount) {
+				val route = Route()
+				route.name = r.readString()
+				route.desc = r.readString()
+				r.readExtensions(route)
+				route.points.addAll(r.readPoints())
+				gpxFile.routes.add(route)
+			}
+			val tracksCount = r.readVarInt()
+			for (i in 0 until tracksCount) {
+				val track = Track()
+				track.name = r.readString()
+				track.desc = r.readString()
+				r.readExtensions(track)
+				val segmentsCount = r.readVarInt()
+				for (j in 0 until segmentsCount) {
+					track.segments.add(r.readSegment())
+				}
+				gpxFile.tracks.add(track)
+			}
+			if (groups.isNotEmpty() || !gpxFile.isPointsEmpty()) {
+				gpxFile.pointsGroups.putAll(GpxUtilities.mergePointsGroups(groups, gpxFile.getPointsList()))
+			}
+			if (addGeneralTrack) {
+				gpxFile.addGeneralTrack()
+			}
+			if (gpxFile.metadata.time == 0L) {
+				gpxFile.metadata.time = GpxUtilities.getCreationTime(gpxFile)
+			}
+		} catch (e: Exception) {
+			gpxFile.error = KException(e.message, e)
+			log.error("Error reading binary gpx. ${gpxFile.path}", e)
+		}
+		return gpxFile
+	}
+
+	private fun round(v: Double, mult: Double): Long = (v * mult).roundToLong()
+
+	private class BinaryWriter(val out: BufferedSink) {
+		private val keys = mutableMapOf<String, Int>()
+
+		fun writeVarInt(v: Int) {
+			writeVarLong(v.toLong() and 0xffffffffL)
+		}
+
+		fun writeVarLong(value: Long) {
+			var v = value
+			while (v and 0x7fL.inv() != 0L) {
+				out.writeByte(((v and 0x7fL) or 0x80L).toInt())
+				v = v ushr 7
+			}
+			out.writeByte(v.toInt())
+		}
+
+		fun writeSignedVarLong(v: Long) {
+			writeVarLong((v shl 1) xor (v shr 63))
+		}
+
+		fun writeBoolean(v: Boolean) {
+			out.writeByte(if (v) 1 else 0)
+		}
+
+		fun writeString(s: String?) {
+			if (s == null) {
+				writeVarInt(0)
+			} else {
+				val bytes = s.encodeToByteArray()
+				writeVarInt(bytes.size + 1)
+				out.write(bytes)
+			}
+		}
+
+		fun writeLink(link: Link?) {
+			writeString(link?.href)
+			writeString(link?.text)
+		}
+
+		// keys are written once and referenced by index after that
+		fun writeKey(key: String) {
+			val ind = keys[key]
+			if (ind != null) {
+				writeVarInt(ind + 1)
+			} else {
+				keys[key] = keys.size
+				writeVarInt(0)
+				writeString(key)
+			}
+		}
+
+		fun writeMap(map: Map<String, String>) {
+			writeVarInt(map.size)
+			for ((key, value) in map) {
+				writeKey(key)
+				writeString(value)
+			}
+		}
+
+		fun writeExtensions(e: GpxExtensions) {
+			writeMap(e.getExtensionsToRead())
+		}
+
+		fun writeMetadata(m: Metadata) {
+			writeString(m.name)
+			writeString(m.desc)
+			writeLink(m.link)
+			writeString(m.keywords)
+			writeSignedVarLong(m.time)
+			val author = m.author
+			writeBoolean(author != null)
+			if (author != null) {
+				writeString(author.name)
+				writeString(author.email)
+				writeLink(author.link)
+				writeExtensions(author)
+			}
+			val copyright = m.copyright
+			writeBoolean(copyright != null)
+			if (copyright != null) {
+				writeString(copyright.author)
+				writeString(copyright.year)
+				writeString(copyright.license)
+				writeExtensions(copyright)
+			}
+			val bounds = m.bounds
+			writeBoolean(bounds != null)
+			if (bounds != null) {
+				out.writeLong(bounds.minlat.toBits())
+				out.writeLong(bounds.minlon.toBits())
+				out.writeLong(bounds.maxlat.toBits())
+				out.writeLong(bounds.maxlon.toBits())
+				writeExtensions(bounds)
+			}
+			writeExtensions(m)
+		}
+
+		fun writeSegment(segment: TrkSegment) {
+			writeString(segment.name)
+			writeExtensions(segment)
+			writeVarInt(segment.routeSegments.size)
+			for (s in segment.routeSegments) {
+				for (v in arrayOf(s.id, s.length, s.startTrackPointIndex, s.segmentTime, s.speed, s.turnType,
+						s.turnLanes, s.turnAngle, s.skipTurn, s.types, s.pointTypes, s.names)) {
+					writeString(v)
+				}
+			}
+			writeVarInt(segment.routeTypes.size)
+			for (t in segment.routeTypes) {
+				writeString(t.tag)
+				writeString(t.value)
+			}
+			writePoints(segment.points)
+		}
+
+		fun writePresence(points: List<WptPt>, isPresent: (WptPt) -> Boolean) {
+			val bits = ByteArray((points.size + 7) / 8)
+			for (i in points.indices) {
+				if (isPresent(points[i])) {
+					bits[i shr 3] = (bits[i shr 3].toInt() or (1 shl (i and 7))).toByte()
+				}
+			}
+			out.write(bits)
+		}
+
+		fun writePoints(points: List<WptPt>) {
+			writeVarInt(points.size)
+			var lat = 0L
+			var lon = 0L
+			var time = 0L
+			var ele = 0L
+			for (p in points) {
+				val v = round(p.lat, LAT_LON_MULT)
+				writeSignedVarLong(v - lat)
+				lat = v
+			}
+			for (p in points) {
+				val v = round(p.lon, LAT_LON_MULT)
+				writeSignedVarLong(v - lon)
+				lon = v
+			}
+			for (p in points) {
+				writeSignedVarLong(p.time - time)
+				time = p.time
+			}
+			writePresence(points) { !it.ele.isNaN() }
+			for (p in points) {
+				if (!p.ele.isNaN()) {
+					val v = round(p.ele, DECIMAL_MULT)
+					writeSignedVarLong(v - ele)
+					ele = v
+				}
+			}
+			writePresence(points) { !it.hdop.isNaN() }
+			for (p in points) {
+				if (!p.hdop.isNaN()) {
+					writeSignedVarLong(round(p.hdop, DECIMAL_MULT))
+				}
+			}
+			writePresence(points) { it.speed > 0 }
+			for (p in points) {
+				if (p.speed > 0) {
+					writeSignedVarLong(round(p.speed, DECIMAL_MULT))
+				}
+			}
+			writePresence(points) { !it.heading.isNaN() }
+			for (p in points) {
+				if (!p.heading.isNaN()) {
+					writeSignedVarLong(round(p.heading.toDouble(), 1.0))
+				}
+			}
+			writePresence(points) { !it.bearing.isNaN() }
+			for (p in points) {
+				if (!p.bearing.isNaN()) {
+					out.writeInt(p.bearing.toBits())
+				}
+			}
+			writePresence(points) { hasTexts(it) }
+			for (p in points) {
+				if (hasTexts(p)) {
+					writeString(p.name)
+					writeString(p.desc)
+					writeLink(p.link)
+					writeString(p.category)
+					writeString(p.comment)
+				}
+			}
+			writePresence(points) { it.getExtensionsToRead().isNotEmpty() }
+			for (p in points) {
+				if (p.getExtensionsToRead().isNotEmpty()) {
+					writeExtensions(p)
+				}
+			}
+		}
+
+		private fun hasTexts(p: WptPt): Boolean {
+			return p.name != null || p.desc != null || p.link != null || p.category != null || p.comment != null
+		}
+	}
+
+	private class BinaryReader(val input: BufferedSource) {
+		private val keys = mutableListOf<String?>()
+
+		fun readVarInt(): Int = readVarLong().toInt()
+
+		fun readVarLong(): Long {
+			var v = 0L
+			var shift = 0
+			while (shift < 64) {
+				val b = input.readByte().toInt() and 0xff
+				v = v or ((b and 0x7f).toLong() shl shift)
+				if (b and 0x80 == 0) {
+					return v
+				}
+				shift += 7
+			}
+			throw IOException("Malformed varint")
+		}
+
+		fun readSignedVarLong(): Long {
+			val v = readVarLong()
+			return (v ushr 1) xor -(v and 1L)
+		}
+
+		fun readBoolean(): Boolean = input.readByte().toInt() != 0
+
+		fun readString(): String? {
+			val len = readVarInt()
+			if (len == 0) {
+				return null
+			}
+			if (len < 0 || len - 1 > MAX_STRING_BYTES) {
+				throw IOException("Malformed string length $len")
+			}
+			return input.readByteArray((len - 1).toLong()).decodeToString()
+		}
+
+		fun readLink(): Link? {
+			val href = readString()
+			val text = readString()
+			return if (href == null && text == null) null else Link(href, text)
+		}
+
+		fun readKey(): String? {
+			val ind = readVarInt()
+			if (ind == 0) {
+				val key = readString()
+				keys.add(key)
+				return key
+			}
+			if (ind < 0 || ind > keys.size) {
+				throw IOException("Unknown key $ind")
+			}
+			return keys[ind - 1]
+		}
+
+		fun readMap(map: MutableMap<String, String>) {
+			val size = readVarInt()
+			for (i in 0 until size) {
+				val key = readKey()
+				val value = readString()
+				if (key != null && value != null) {
+					map[key] = value
+				}
+			}
+		}
+
+		fun readExtensions(e: GpxExtensions) {
+			val size = readVarInt()
+			for (i in 0 until size) {
+				val key = readKey()
+				val value = readString()
+				if (key != null && value != null) {
+					e.getExtensionsToWrite()[key] = value
+				}
+			}
+		}
+
+		fun readMetadata(): Metadata {
+			val m = Metadata()
+			m.name = readString()
+			m.desc = readString()
+			m.link = readLink()
+			m.keywords = readString()
+			m.time = readSignedVarLong()
+			if (readBoolean()) {
+				val author = Author()
+				author.name = readString()
+				author.email = readString()
+				author.link = readLink()
+				readExtensions(author)
+				m.author = author
+			}
+			if (readBoolean()) {
+				val copyright = Copyright()
+				copyright.author = readString()
+				copyright.year = readString()
+				copyright.license = readString()
+				readExtensions(copyright)
+				m.copyright = copyright
+			}
+			if (readBoolean()) {
+				val bounds = Bounds()
+				bounds.minlat = Double.fromBits(input.readLong())
+				bounds.minlon = Double.fromBits(input.readLong())
+				bounds.maxlat = Double.fromBits(input.readLong())
+				bounds.maxlon = Double.fromBits(input.readLong())
+				readExtensions(bounds)
+				m.bounds = bounds
+			}
+			readExtensions(m)
+			return m
+		}
+
+		fun readSegment(): TrkSegment {
+			val segment = TrkSegment()
+			segment.name = readString()
+			readExtensions(segment)
+			val routeSegments = readVarInt()
+			for (i in 0 until routeSegments) {
+				val s = RouteSegment()
+				s.id = readString()
+				s.length = readString()
+				s.startTrackPointIndex = readString()
+				s.segmentTime = readString()
+				s.speed = readString()
+				s.turnType = readString()
+				s.turnLanes = readString()
+				s.turnAngle = readString()
+				s.skipTurn = readString()
+				s.types = readString()
+				s.pointTypes = readString()
+				s.names = readString()
+				segment.routeSegments.add(s)
+			}
+			val routeTypes = readVarInt()
+			for (i in 0 until routeTypes) {
+				val t = RouteType()
+				t.tag = readString()
+				t.value = readString()
+				segment.routeTypes.add(t)
+			}
+			segment.points.addAll(readPoints())
+			return segment
+		}
+
+		fun readPresence(size: Int): BooleanArray {
+			val bits = input.readByteArray(((size + 7) / 8).toLong())
+			return BooleanArray(size) { i -> (bits[i shr 3].toInt() and (1 shl (i and 7))) != 0 }
+		}
+
+		fun readPoints(): List<WptPt> {
+			val size = readVarInt()
+			if (size < 0) {
+				throw IOException("Malformed points count")
+			}
+			val points = ArrayList<WptPt>(min(size, MAX_PREALLOCATED_POINTS))
+			var lat = 0L
+			var lon = 0L
+			var time = 0L
+			var ele = 0L
+			for (i in 0 until size) {
+				val p = WptPt()
+				lat += readSignedVarLong()
+				p.lat = lat / LAT_LON_MULT
+				points.add(p)
+			}
+			for (p in points) {
+				lon += readSignedVarLong()
+				p.lon = lon / LAT_LON_MULT
+			}
+			for (p in points) {
+				time += readSignedVarLong()
+				p.time = time
+			}
+			var present = readPresence(size)
+			for (i in 0 until size) {
+				if (present[i]) {
+					ele += readSignedVarLong()
+					points[i].ele = ele / DECIMAL_MULT
+				}
+			}
+			present = readPresence(size)
+			for (i in 0 until size) {
+				if (present[i]) {
+					points[i].hdop = readSignedVarLong() / DECIMAL_MULT
+				}
+			}
+			present = readPresence(size)
+			for (i in 0 until size) {
+				if (present[i]) {
+					points[i].speed = readSignedVarLong() / DECIMAL_MULT
+				}
+			}
+			present = readPresence(size)
+			for (i in 0 until size) {
+				if (present[i]) {
+					points[i].heading = readSignedVarLong().toFloat()
+				}
+			}
+			present = readPresence(size)
+			for (i in 0 until size) {
+				if (present[i]) {
+					points[i].bearing = Float.fromBits(input.readInt())
+				}
+			}
+			present = readPresence(size)
+			for (i in 0 until size) {
+				if (present[i]) {
+					val p = points[i]
+					p.name = readString()
+					p.desc = readString()
+					p.link = readLink()
+					p.category = readString()
+					p.comment = readString()
+				}
+			}
+			present = readPresence(size)
+			for (i in 0 until size) {
+				if (present[i]) {
+					readExtensions(points[i])
+				}
+			}
+			return points
+		}
+	}
+}
@@ -36,7 +36,8 @@ class GpxDataItem(
 			if (parameter !in listOf(
 					GpxParameter.FILE_NAME,
 					GpxParameter.FILE_DIR,
-					GpxParameter.FILE_LAST_MODIFIED_TIME
+					GpxParameter.FILE_LAST_MODIFIED_TIME,
+					GpxParameter.FILE_SIZE
 				)
 			) {
 				map[parameter] = entry.value
@@ -59,6 +60,7 @@ class GpxDataItem(
 		setParameter(GpxParameter.FILE_NAME, file.name())
 		setParameter(GpxParameter.FILE_DIR, GpxDbUtils.getGpxFileDir(file))
 		setParameter(GpxParameter.FILE_LAST_MODIFIED_TIME, file.lastModified())
+		setParameter(GpxParameter.FILE_SIZE, file.length())
 
 		for (parameter in GpxParameter.getAppearanceParameters()) {
 			readGpxAppearanceParameter(gpxFile, parameter)
@@ -23,7 +23,7 @@ class GpxDatabase {
 	companion object {
 		val log = LoggerFactory.getLogger("GpxDatabase")
 
-		const val DB_VERSION = 30
+		const val DB_VERSION = 31
 		const val DB_NAME = "gpx_database"
 		const val GPX_TABLE_NAME = "gpxTable"
 		const val GPX_DIR_TABLE_NAME = "gpxDirTable"
@@ -77,10 +77,53 @@ class GpxDatabase {
 		return updateGpxParameters(item, GpxDbUtils.getItemParameters(item))
 	}
 
+	fun updateDataItem(item: DataItem, db: SQLiteConnection): Boolean {
+		val file = item.file
+		return updateGpxParameters(db, GpxDbUtils.getTableName(file), GpxDbUtils.getItemParameters(item),
+			GpxDbUtils.getItemRowsToSearch(file))
+	}
+
 	fun updateDataItemParameter(item: DataItem, gpxParameter: GpxParameter, value: Any?): Boolean {
 		return updateGpxParameters(item, linkedMapOf(gpxParameter to value))
 	}
 
+	fun updateDataItems(items: Collection<DataItem>): Boolean {
+		if (items.isEmpty()) return false
+
+		var db: SQLiteConnection? = null
+		try {
+			db = openConnection(false)
+			return db?.let { updateDataItems(items, it) } ?: false
+		} finally {
+			db?.close()
+		}
+	}
+
+	// updates existing and inserts new items in one transaction
+	fun updateDataItems(items: Collection<DataItem>, db: SQLiteConnection): Boolean {
+		if (items.isEmpty()) return false
+
+		val time = currentTimeMillis()
+		var success = false
+		db.execSQL("BEGIN TRANSACTION")
+		try {
+			for (item in items) {
+				val file = item.file
+				if (isDataItemExists(file, db)) {
+					updateGpxParameters(db, GpxDbUtils.getTableName(file), GpxDbUtils.getItemParameters(item),
+						GpxDbUtils.getItemRowsToSearch(file))
+				} else {
+					insertItem(item, db)
+				}
+			}
+			success = true
+		} finally {
+			db.execSQL(if (success) "COMMIT" else "ROLLBACK")
+		}
+		log.info("Update gpx items in db count=${items.size} in ${currentTimeMillis() - time} ms")
+		return true
+	}
+
 	private fun updateGpxParameters(item: DataItem, map: Map<GpxParameter, Any?>): Boolean {
 		val file = item.file
 		val tableName = GpxDbUtils.getTableName(file)
@@ -31,7 +31,9 @@ object GpxDbHelper : GpxReaderAdapter {
 	private val readingItemsMap = mutableMapOf<KFile, GpxDataItem>()
 	private val readingItemsCallbacks = mutableMapOf<KFile, MutableList<GpxDataItemCallback>?>()
 
-	private const val READER_TASKS_LIMIT = 4
+	private const val DEFAULT_READER_TASKS_LIMIT = 4
+	private const val MAX_READER_TASKS_LIMIT = 8
+	private var readerTasksLimit = DEFAULT_READER_TASKS_LIMIT
 	private var readers = mutableListOf<GpxReader>()
 	private var readerSync = Synchronizable()
 
@@ -73,9 +75,20 @@ object GpxDbHelper : GpxReaderAdapter {
 		putToCacheBulk(itemsToCache)
 		removeFromCacheBulk(itemsToRemove)
 		database.remove(itemsToRemove)
+		backfillFileSizes(itemsToCache.values)
 		log.info("Time to loadGpxItems ${currentTimeMillis() - start} ms, ${items.size} items")
 	}
 
+	// unchanged items without file size are not analysed again, so size is stored for them once
+	private fun backfillFileSizes(items: Collection<GpxDataItem>) {
+		val itemsToUpdate = items.filter { GpxDbUtils.isFileSizeUnknown(it) && !GpxDbUtils.isAnalyseNeeded(it) }
+		if (itemsToUpdate.isNotEmpty()) {
+			itemsToUpdate.forEach { it.setParameter(GpxParameter.FILE_SIZE, it.file.length()) }
+			database.updateDataItems(itemsToUpdate)
+			log.info("File size is set for ${itemsToUpdate.size} items")
+		}
+	}
+
 	private suspend fun getFileExistenceMap(
 		items: List<GpxDataItem>,
 		batchSize: Int = 100
@@ -159,6 +172,12 @@ object GpxDbHelper : GpxReaderAdapter {
 		putToCache(item)
 	}
 
+	// writes analysed items of reader with its connection in one transaction
+	fun writeDataItems(items: List<GpxDataItem>, conn: SQLiteConnection) {
+		database.updateDataItems(items, conn)
+		putToCacheBulk(items.associateBy { it.file })
+	}
+
 	fun updateDataItemParameter(
 		item: DataItem,
 		parameter: GpxParameter,
@@ -302,6 +321,13 @@ object GpxDbHelper : GpxReaderAdapter {
 		}
 	}
 
+	// number of tracks analysed in parallel (app sets number of available processors on start)
+	fun setReaderTasksLimit(limit: Int) {
+		readerSync.synchronize {
+			readerTasksLimit = limit.coerceIn(1, MAX_READER_TASKS_LIMIT)
+		}
+	}
+
 	fun isReading(): Boolean = readerSync.synchronize { readers.isNotEmpty() }
 
 	private fun isReading(file: KFile): Boolean =
@@ -314,7 +340,7 @@ object GpxDbHelper : GpxReaderAdapter {
 			}
 			if (!isReading(file)) {
 				readingItemsMap[file] = item ?: GpxDataItem(file)
-				if (readers.size < READER_TASKS_LIMIT) {
+				if (readers.size < readerTasksLimit) {
 					startReading()
 				}
 			}
@@ -378,7 +404,7 @@ object GpxDbHelper : GpxReaderAdapter {
 
 	override fun onReadingFinished(reader: GpxReader, cancelled: Boolean) {
 		readerSync.synchronize {
-			if (readingItemsMap.isNotEmpty() && readers.size < READER_TASKS_LIMIT && !cancelled) {
+			if (readingItemsMap.isNotEmpty() && readers.size < readerTasksLimit && !cancelled) {
 				startReading()
 			}
 			readers.remove(reader)
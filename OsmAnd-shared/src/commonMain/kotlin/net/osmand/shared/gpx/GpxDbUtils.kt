@@ -113,6 +113,7 @@ object GpxDbUtils {
 			addIfMissingGpxTableColumn(columnNames, db, WPT_POINTS);
 			addIfMissingGpxTableColumn(columnNames, db, COLOR);
 			addIfMissingGpxTableColumn(columnNames, db, FILE_LAST_MODIFIED_TIME);
+			addIfMissingGpxTableColumn(columnNames, db, FILE_SIZE);
 			addIfMissingGpxTableColumn(columnNames, db, FILE_LAST_UPLOADED_TIME);
 			addIfMissingGpxTableColumn(columnNames, db, FILE_CREATION_TIME);
 			addIfMissingGpxTableColumn(columnNames, db, SPLIT_TYPE);
@@ -229,12 +230,19 @@ object GpxDbUtils {
 					|| item.getAnalysis()!!.wptCategoryNames == null
 					|| (item.getAnalysis()!!.getLatLonStart() == null && item.getAnalysis()!!.points > 0)
 					|| item.requireParameter(FILE_LAST_MODIFIED_TIME) as Long != item.file.lastModified()
+					|| isFileSizeChanged(item)
 					|| item.requireParameter(FILE_CREATION_TIME) as Long <= 0
 					|| createDataVersion(ANALYSIS_VERSION) > item.requireParameter(DATA_VERSION) as Int
 		}
 		return true
 	}
 
+	// size is unknown (0) for items written before database version 31, only modification time is compared for them
+	fun isFileSizeUnknown(item: GpxDataItem): Boolean = (item.getParameter<Long>(FILE_SIZE) ?: 0L) <= 0L
+
+	private fun isFileSizeChanged(item: GpxDataItem): Boolean =
+		!isFileSizeUnknown(item) && item.requireParameter(FILE_SIZE) as Long != item.file.length()
+
 	fun getGpxFileDir(file: KFile): String {
 		file.parent()?.let {
 			val gpxDir = PlatformUtil.getOsmAndContext().getGpxDir()
@@ -292,7 +300,8 @@ object GpxDbUtils {
 	}
 
 	fun isGpxFile(file: KFile): Boolean {
-		return file.name().lowercase().endsWith(IndexConstants.GPX_FILE_EXT)
+		val name = file.name().lowercase()
+		return name.endsWith(IndexConstants.GPX_FILE_EXT) || name.endsWith(IndexConstants.GPX_BINARY_FILE_EXT)
 	}
 
 	fun createDataVersion(analysisVersion: Int): Int {
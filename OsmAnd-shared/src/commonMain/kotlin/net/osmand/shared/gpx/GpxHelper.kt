@@ -1,5 +1,6 @@
 package net.osmand.shared.gpx
 
+import net.osmand.shared.IndexConstants.GPX_BINARY_FILE_EXT
 import net.osmand.shared.IndexConstants.GPX_FILE_EXT
 import net.osmand.shared.io.KFile
 import net.osmand.shared.util.KAlgorithms
@@ -41,5 +42,8 @@ object GpxHelper {
 		return name
 	}
 
-	fun isGpxFile(file: KFile) = file.name().lowercase().endsWith(GPX_FILE_EXT)
+	fun isGpxFile(file: KFile): Boolean {
+		val name = file.name().lowercase()
+		return name.endsWith(GPX_FILE_EXT) || name.endsWith(GPX_BINARY_FILE_EXT)
+	}
 }
\ No newline at end of file
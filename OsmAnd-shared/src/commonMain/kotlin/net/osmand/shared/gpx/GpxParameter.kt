@@ -32,6 +32,7 @@ enum class GpxParameter(
 	WPT_POINTS("wptPoints", "int", Int::class, 0, true),
 	COLOR("color", "TEXT", Int::class, null, false),
 	FILE_LAST_MODIFIED_TIME("fileLastModifiedTime", "bigint", Long::class, 0L, false),
+	FILE_SIZE("fileSize", "bigint", Long::class, 0L, false),
 	FILE_LAST_UPLOADED_TIME("fileLastUploadedTime", "bigint", Long::class, 0L, false),
 	FILE_CREATION_TIME("fileCreationTime", "bigint", Long::class, -1L, false),
 	SPLIT_TYPE("splitType", "int", Int::class, 0, false),
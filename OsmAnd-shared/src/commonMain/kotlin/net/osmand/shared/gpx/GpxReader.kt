@@ -1,8 +1,11 @@
 package net.osmand.shared.gpx
 
+import co.touchlab.stately.concurrency.Synchronizable
+import co.touchlab.stately.concurrency.synchronize
 import kotlinx.coroutines.delay
 import net.osmand.shared.KAsyncTask
 import net.osmand.shared.api.SQLiteAPI.SQLiteConnection
+import net.osmand.shared.extensions.currentTimeMillis
 import net.osmand.shared.gpx.GpxTrackAnalysis.Companion.ANALYSIS_VERSION
 import net.osmand.shared.io.KFile
 import net.osmand.shared.util.LoggerFactory
@@ -17,12 +20,22 @@ class GpxReader(private val adapter: GpxReaderAdapter)
 		// TODO: Move to GpxAppearanceInfo.kt
 		const val MIN_VERTICAL_EXAGGERATION: Float = 1.0f
 		const val MAX_VERTICAL_EXAGGERATION: Float = 3.0f
+
+		// read items are written and published in batches, but not less often than interval
+		private const val PROGRESS_BATCH_SIZE = 50
+		private const val PROGRESS_INTERVAL_MS = 300L
 	}
 
 	private val database: GpxDatabase = GpxDbHelper.getGPXDatabase()
 	private var analyser = PlatformUtil.getTrackPointsAnalyser()
 	private var currentFile: KFile? = null
 	private var currentItem: GpxDataItem? = null
+	private val readItems = mutableListOf<GpxDataItem>()
+	private val analysedItems = mutableListOf<GpxDataItem>()
+	// analysed files are reported as reading until their batch is written, so they are not queued again
+	private val pendingFiles = mutableSetOf<KFile>()
+	private val pendingSync = Synchronizable()
+	private var lastProgressTime = 0L
 
 	override suspend fun doInBackground(vararg params: Unit) {
 		waitForInitialization()
@@ -47,21 +60,30 @@ class GpxReader(private val adapter: GpxReaderAdapter)
 				item = currentItem
 				while (file != null && !isCancelled()) {
 					if (GpxDbUtils.isAnalyseNeeded(item)) {
-						item = updateGpxDataItem(conn, item, file)
+						item = updateGpxDataItem(item, file)
 					}
 					if (item != null) {
 						adapter.onGpxDataItemRead(item)
-						publishProgress(item)
+						readItems.add(item)
 					}
 
 					pullNextFileItem()
 					file = currentFile
 					item = currentItem
 					filesCount++
+					if (file == null || readItems.size >= PROGRESS_BATCH_SIZE
+						|| currentTimeMillis() - lastProgressTime >= PROGRESS_INTERVAL_MS) {
+						flushReadItems(conn)
+					}
 				}
 			} catch (e: Exception) {
 				log.error(e.message)
 			} finally {
+				try {
+					flushReadItems(conn)
+				} catch (e: Exception) {
+					log.error(e.message)
+				}
 				conn.close()
 			}
 		} else {
@@ -69,6 +91,23 @@ class GpxReader(private val adapter: GpxReaderAdapter)
 		}
 	}
 
+	// analysed items are written before progress is published, so callbacks see items in cache and database
+	private fun flushReadItems(conn: SQLiteConnection) {
+		if (analysedItems.isNotEmpty()) {
+			try {
+				GpxDbHelper.writeDataItems(analysedItems.toList(), conn)
+			} finally {
+				analysedItems.clear()
+				pendingSync.synchronize { pendingFiles.clear() }
+			}
+		}
+		if (readItems.isNotEmpty()) {
+			publishProgress(*readItems.toTypedArray())
+			readItems.clear()
+		}
+		lastProgressTime = currentTimeMillis()
+	}
+
 	private fun pullNextFileItem() {
 		adapter.pullNextFileItem {
 			currentFile = it?.first
@@ -88,11 +127,14 @@ class GpxReader(private val adapter: GpxReaderAdapter)
 		adapter.onReadingFinished(this, isCancelled())
 	}
 
-	private fun updateGpxDataItem(conn: SQLiteConnection, item: GpxDataItem?, file: KFile): GpxDataItem {
+	private fun updateGpxDataItem(item: GpxDataItem?, file: KFile): GpxDataItem {
+		// file attributes are taken before parsing, so file changed while reading is analysed again
+		val lastModified = file.lastModified()
+		val fileSize = file.length()
 		val gpxFile = GpxUtilities.loadGpxFile(file, null, false)
 		val updatedItem = item ?: GpxDataItem(file)
 		if (gpxFile.error == null) {
-			updatedItem.setAnalysis(gpxFile.getAnalysis(file.lastModified(), null, null, analyser))
+			updatedItem.setAnalysis(gpxFile.getAnalysis(lastModified, null, null, analyser))
 			if (!updatedItem.isRegularTrack()) {
 				return updatedItem
 			}
@@ -100,7 +142,8 @@ class GpxReader(private val adapter: GpxReaderAdapter)
 			if (creationTime <= 0) {
 				updatedItem.setParameter(GpxParameter.FILE_CREATION_TIME, GpxUtilities.getCreationTime(gpxFile))
 			}
-			updatedItem.setParameter(GpxParameter.FILE_LAST_MODIFIED_TIME, file.lastModified())
+			updatedItem.setParameter(GpxParameter.FILE_LAST_MODIFIED_TIME, lastModified)
+			updatedItem.setParameter(GpxParameter.FILE_SIZE, fileSize)
 
 			val metadata = gpxFile.metadata
 			val routeActivity = metadata.getRouteActivity(RouteActivityHelper.getActivities())
@@ -120,12 +163,8 @@ class GpxReader(private val adapter: GpxReaderAdapter)
 				GpxParameter.DATA_VERSION,
 				GpxDbUtils.createDataVersion(ANALYSIS_VERSION)
 			)
-
-			if (database.isDataItemExists(file, conn)) {
-				GpxDbHelper.updateDataItem(updatedItem)
-			} else {
-				GpxDbHelper.insertDataItem(updatedItem, conn)
-			}
+			analysedItems.add(updatedItem)
+			pendingSync.synchronize { pendingFiles.add(file) }
 		}
 		return updatedItem
 	}
@@ -148,7 +187,8 @@ class GpxReader(private val adapter: GpxReaderAdapter)
 
 	fun isReading(): Boolean = isRunning()
 
-	fun isReading(file: KFile): Boolean = currentFile == file
+	fun isReading(file: KFile): Boolean =
+		currentFile == file || pendingSync.synchronize { pendingFiles.contains(file) }
 
 	interface GpxReaderAdapter {
 		fun pullNextFileItem(action: ((Pair<KFile, GpxDataItem>?) -> Unit)? = null): Pair<KFile, GpxDataItem>?
@@ -418,6 +418,9 @@ object GpxUtilities {
 	fun writeGpxFile(file: KFile, gpxFile: GpxFile): KException? {
 		return try {
 			file.getParentFile()?.createDirectories()
+			if (GpxBinaryFormat.isBinaryGpx(file)) {
+				return GpxBinaryFormat.writeGpxFile(file, gpxFile)
+			}
 			if (KAlgorithms.isEmpty(gpxFile.path)) {
 				gpxFile.path = if (file.isAbsolute()) file.path() else file.absolutePath()
 			}
@@ -968,6 +971,9 @@ object GpxUtilities {
 		extensionsReader: GpxExtensionsReader?,
 		addGeneralTrack: Boolean
 	): GpxFile {
+		if (GpxBinaryFormat.isBinaryGpx(file)) {
+			return GpxBinaryFormat.loadGpxFile(file, addGeneralTrack)
+		}
 		return try {
 			val gpxFile = loadGpxFile(file, null, extensionsReader, addGeneralTrack)
 			gpxFile.path = file.absolutePath()
@@ -1467,7 +1473,7 @@ object GpxUtilities {
 		return networkRouteKeyTags
 	}
 
-	private fun mergePointsGroups(
+	internal fun mergePointsGroups(
 		groups: List<PointsGroup>,
 		points: List<WptPt>
 	): Map<String, PointsGroup> {
@@ -0,0 +1,128 @@
+package net.osmand.shared
+
+import net.osmand.shared.gpx.GpxBinaryFormat
+import net.osmand.shared.gpx.GpxFile
+import net.osmand.shared.gpx.GpxUtilities
+import net.osmand.shared.gpx.primitives.Author
+import net.osmand.shared.gpx.primitives.Link
+import net.osmand.shared.gpx.primitives.Route
+import net.osmand.shared.gpx.primitives.Track
+import net.osmand.shared.gpx.primitives.TrkSegment
+import net.osmand.shared.gpx.primitives.WptPt
+import okio.Buffer
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class GpxBinaryFormatTest {
+
+    @Test
+    fun testWriteRead() {
+        val gpx = GpxFile("test")
+        gpx.metadata.name = "name"
+        gpx.metadata.desc = "описание"
+        gpx.metadata.time = 1700000000000L
+        gpx.metadata.link = Link("https://osmand.net", "OsmAnd")
+        val author = Author()
+        author.name = "author"
+        gpx.metadata.author = author
+        gpx.getExtensionsToWrite()["color"] = "#ff0000"
+        gpx.networkRouteKeyTags["type"] = "hiking"
+
+        val wpt = WptPt(52.1, 4.2)
+        wpt.name = "wpt"
+        wpt.category = "group"
+        wpt.link = Link("https://example.com")
+        wpt.getExtensionsToWrite()["icon"] = "special_star"
+        gpx.addPoint(wpt)
+
+        val route = Route()
+        route.name = "route"
+        route.points.add(WptPt(52.0, 4.0))
+        route.points.add(WptPt(52.01, 4.01))
+        gpx.routes.add(route)
+
+        val track = Track()
+        track.name = "track"
+        val segment = TrkSegment()
+        for (i in 0 until 100) {
+            val p = WptPt(52.0 + i * 0.0001234567, 4.0 - i * 0.0007654321)
+            p.time = 1700000000000L + i * 1000L
+            if (i % 3 != 0) {
+                p.ele = 10.5 + i * 0.1
+            }
+            if (i % 5 == 0) {
+                p.speed = 1.5
+                p.hdop = 3.2
+                p.heading = 90f
+                p.bearing = 45.5f
+            }
+            segment.points.add(p)
+        }
+        val routeSegment = GpxUtilities.RouteSegment()
+        routeSegment.id = "1"
+        routeSegment.length = "100"
+        segment.routeSegments.add(routeSegment)
+        val routeType = GpxUtilities.RouteType()
+        routeType.tag = "highway"
+        routeType.value = "primary"
+        segment.routeTypes.add(routeType)
+        track.segments.add(segment)
+        gpx.tracks.add(track)
+
+        val buffer = Buffer()
+        GpxBinaryFormat.writeGpx(buffer, gpx)
+        val res = GpxBinaryFormat.loadGpxFile(buffer, false)
+        assertNull(res.error)
+
+        assertEquals("test", res.author)
+        assertEquals("name", res.metadata.name)
+        assertEquals("описание", res.metadata.desc)
+        assertEquals(1700000000000L, res.metadata.time)
+        assertEquals("https://osmand.net", res.metadata.link?.href)
+        assertEquals("OsmAnd", res.metadata.link?.text)
+        assertEquals("author", res.metadata.author?.name)
+        assertEquals("#ff0000", res.getExtensionsToRead()["color"])
+        assertEquals("hiking", res.networkRouteKeyTags["type"])
+
+        val points = res.getPointsList()
+        assertEquals(1, points.size)
+        assertEquals("wpt", points[0].name)
+        assertEquals("https://example.com", points[0].link?.href)
+        assertEquals("special_star", points[0].getExtensionsToRead()["icon"])
+        assertNotNull(res.pointsGroups["group"])
+
+        assertEquals(1, res.routes.size)
+        assertEquals("route", res.routes[0].name)
+        assertEquals(2, res.routes[0].points.size)
+
+        assertEquals(1, res.tracks.size)
+        val resSegment = res.tracks[0].segments[0]
+        assertEquals("1", resSegment.routeSegments[0].id)
+        assertEquals("primary", resSegment.routeTypes[0].value)
+        assertEquals(segment.points.size, resSegment.points.size)
+        for (i in segment.points.indices) {
+            val p = segment.points[i]
+            val r = resSegment.points[i]
+            assertEquals(p.lat, r.lat, 1e-7)
+            assertEquals(p.lon, r.lon, 1e-7)
+            assertEquals(p.time, r.time)
+            if (p.ele.isNaN()) {
+                assertEquals(true, r.ele.isNaN())
+            } else {
+                assertEquals(p.ele, r.ele, 0.05)
+            }
+            assertEquals(p.speed, r.speed, 0.05)
+            assertEquals(p.heading, r.heading)
+            assertEquals(p.bearing, r.bearing)
+        }
+    }
+
+    @Test
+    fun testMalformed() {
+        val buffer = Buffer()
+        buffer.writeInt(0x12345678)
+        assertNotNull(GpxBinaryFormat.loadGpxFile(buffer, false).error)
+    }
+}
@@ -553,6 +553,7 @@ public class AppInitializer implements IProgress {
 			initNativeCore();
 			app.favoritesHelper.loadFavorites();
 			notifyEvent(FAVORITES_INITIALIZED);
+			app.getGpxDbHelper().setReaderTasksLimit(Runtime.getRuntime().availableProcessors());
 			app.getGpxDbHelper().loadItemsBlocking();
 			notifyEvent(GPX_DB_INITIALIZED);
 			app.poiFilters.reloadAllPoiFilters();
@@ -8,17 +8,22 @@ import androidx.fragment.app.FragmentActivity;
 
 import net.osmand.CallbackWithObject;
 import net.osmand.Location;
-import net.osmand.TspAnt;
+import net.osmand.PlatformUtil;
 import net.osmand.data.LatLon;
 import net.osmand.plus.R;
 import net.osmand.plus.base.BaseLoadAsyncTask;
 import net.osmand.plus.utils.AndroidUtils;
+import net.osmand.router.MultiStopRouteOptimizer;
+
+import org.apache.commons.logging.Log;
 
 import java.util.ArrayList;
 import java.util.List;
 
 class SortMarkersTask extends BaseLoadAsyncTask<Void, Void, List<MapMarker>> {
 
+	private static final Log LOG = PlatformUtil.getLog(SortMarkersTask.class);
+
 	private final Location location;
 	private final boolean startFromLoc;
 	private final CallbackWithObject<List<MapMarker>> callback;
@@ -42,7 +47,17 @@ class SortMarkersTask extends BaseLoadAsyncTask<Void, Void, List<MapMarker>> {
 		LatLon start = startFromLoc ? new LatLon(location.getLatitude(), location.getLongitude())
 				: selectedLatLon.remove(0);
 
-		int[] sequence = new TspAnt().readGraph(selectedLatLon, start, null).solve();
+		List<LatLon> points = new ArrayList<>();
+		points.add(start);
+		points.addAll(selectedLatLon);
+		double[][] times = app.getRoutingHelper().calculateTimeMatrix(app.getSettings().getApplicationMode(), points);
+		int[] sequence;
+		try {
+			sequence = new MultiStopRouteOptimizer(times, false).solve();
+		} catch (InterruptedException e) {
+			LOG.error(e);
+			return selectedMarkers;
+		}
 
 		List<MapMarker> res = new ArrayList<>();
 		for (int i = 0; i < sequence.length; i++) {
@@ -132,6 +132,7 @@ public class RendererRegistry {
 				for (String addonName : getRendererAddons().keySet()) {
 					loadRenderer(renderer, addonName, loadedRenderers, renderingConstants);
 				}
+				renderer.compile();
 				loadedRenderers.put(name, renderer);
 			} else {
 				String message = "Cannot load renderer " + name;
@@ -147,6 +148,8 @@ public class RendererRegistry {
 	}
 
 	public void updateRenderer(@NonNull RenderingRulesStorage storage) {
+		// rules of storage could be changed after previous compile
+		storage.compile();
 		RenderingRulesStorage renderer = getRenderer(storage.getName());
 		if (defaultRender == renderer) {
 			defaultRender = storage;
@@ -571,6 +571,13 @@ public class ResourceManager {
 			files.remove(worldBasemapMini);
 		}
 
+		List<File> filesToIndex = new ArrayList<>(files);
+		filesToIndex.removeAll(filesToReindex);
+		try {
+			cachedOsmandIndexes.initFileIndexes(filesToIndex, Runtime.getRuntime().availableProcessors());
+		} catch (InterruptedException e) {
+			log.error(e.getMessage(), e);
+		}
 		DateFormat dateFormat = getDateFormat();
 		for (File f : files) {
 			String fileName = f.getName();
@@ -7,7 +7,6 @@ import androidx.annotation.NonNull;
 import androidx.fragment.app.FragmentActivity;
 
 import net.osmand.Location;
-import net.osmand.TspAnt;
 import net.osmand.data.LatLon;
 import net.osmand.plus.OsmandApplication;
 import net.osmand.plus.R;
@@ -15,7 +14,9 @@ import net.osmand.plus.activities.MapActivity;
 import net.osmand.plus.helpers.TargetPointsHelper;
 import net.osmand.plus.helpers.TargetPoint;
 import net.osmand.plus.helpers.WaypointDialogHelper;
+import net.osmand.plus.routing.RoutingHelper;
 import net.osmand.plus.utils.AndroidUtils;
+import net.osmand.router.MultiStopRouteOptimizer;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
@@ -65,13 +66,16 @@ public class SortTargetPointsTask extends AsyncTask<Void, Void, int[]> {
 		} else {
 			start = lt.get(0);
 		}
-		TargetPoint end = lt.remove(lt.size() - 1);
-		ArrayList<LatLon> al = new ArrayList<>();
+		// start, intermediate points and fixed end
+		List<LatLon> points = new ArrayList<>();
+		points.add(start.getLatLon());
 		for (TargetPoint p : lt) {
-			al.add(p.getLatLon());
+			points.add(p.getLatLon());
 		}
 		try {
-			return new TspAnt().readGraph(al, start.getLatLon(), end.getLatLon()).solve();
+			RoutingHelper routingHelper = app.getRoutingHelper();
+			double[][] times = routingHelper.calculateTimeMatrix(routingHelper.getAppMode(), points);
+			return new MultiStopRouteOptimizer(times, true).solve();
 		} catch (Exception e) {
 			return null;
 		}
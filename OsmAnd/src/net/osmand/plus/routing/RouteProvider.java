@@ -39,6 +39,7 @@ import net.osmand.plus.settings.enums.RoutingType;
 import net.osmand.router.*;
 import net.osmand.router.GeneralRouter.RoutingParameter;
 import net.osmand.router.GeneralRouter.RoutingParameterType;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
 import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
 import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
 import net.osmand.router.RoutingConfiguration.Builder;
@@ -60,6 +61,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.zip.GZIPInputStream;
 
@@ -286,6 +288,28 @@ public class RouteProvider {
 		return calculateRoutingEnvironment(params, false, true);
 	}
 
+	// travel times between all points by hh routing, straight line times by default speed if there is no hh data
+	@NonNull
+	public double[][] calculateTimeMatrix(@NonNull OsmandApplication ctx, @NonNull ApplicationMode mode,
+			@NonNull List<LatLon> points) {
+		try {
+			RoutingEnvironment env = getRoutingEnvironment(ctx, mode, points.get(0), points.get(points.size() - 1));
+			if (env != null) {
+				RoutingContext rctx = env.getCtx();
+				if (rctx.calculationProgress == null) {
+					rctx.calculationProgress = new RouteCalculationProgress();
+				}
+				HHRoutePlanner<?> planner = HHRoutePlanner.create(rctx);
+				return MultiStopRouteOptimizer.buildTimeMatrix(planner, points, HHRoutingConfig.dijkstra(0));
+			}
+		} catch (IOException | SQLException | IllegalStateException e) {
+			log.warn("Time matrix couldn't be calculated by hh routing: " + e.getMessage());
+		} catch (InterruptedException e) {
+			log.warn("Time matrix calculation was interrupted");
+		}
+		return MultiStopRouteOptimizer.buildStraightTimeMatrix(points, mode.getDefaultSpeed());
+	}
+
 	public List<GpxPoint> generateGpxPoints(RoutingEnvironment env, GpxRouteApproximation gctx, LocationsHolder locationsHolder) {
 		return env.getRouter().generateGpxPoints(gctx, locationsHolder);
 	}
@@ -926,6 +926,11 @@ public class RoutingHelper {
 		return provider.getRoutingEnvironment(ctx, mode, start, end);
 	}
 
+	@NonNull
+	public double[][] calculateTimeMatrix(@NonNull ApplicationMode mode, @NonNull List<LatLon> points) {
+		return provider.calculateTimeMatrix(app, mode, points);
+	}
+
 	public List<GpxPoint> generateGpxPoints(RoutingEnvironment env, GpxRouteApproximation gctx, LocationsHolder locationsHolder) {
 		return provider.generateGpxPoints(env, gctx, locationsHolder);
 	}
@@ -4,6 +4,7 @@ import static net.osmand.shared.gpx.GpxParameter.ADDITIONAL_EXAGGERATION;
 import static net.osmand.shared.gpx.GpxParameter.DATA_VERSION;
 import static net.osmand.shared.gpx.GpxParameter.FILE_CREATION_TIME;
 import static net.osmand.shared.gpx.GpxParameter.FILE_LAST_MODIFIED_TIME;
+import static net.osmand.shared.gpx.GpxParameter.FILE_SIZE;
 import static net.osmand.shared.gpx.GpxParameter.NEAREST_CITY_NAME;
 import static net.osmand.shared.gpx.GpxParameter.ACTIVITY_TYPE;
 import static net.osmand.shared.gpx.GpxTrackAnalysis.ANALYSIS_VERSION;
@@ -137,6 +138,7 @@ class GpxReaderTask extends AsyncTask<Void, GpxDataItem, Void> {
 				item.setParameter(FILE_CREATION_TIME, GpxUtilities.INSTANCE.getCreationTime(gpxFile));
 			}
 			item.setParameter(FILE_LAST_MODIFIED_TIME, file.lastModified());
+			item.setParameter(FILE_SIZE, file.length());
 
 			Metadata metadata = gpxFile.getMetadata();
 			RouteActivityHelper routeActivityHelper = app.getRouteActivityHelper();